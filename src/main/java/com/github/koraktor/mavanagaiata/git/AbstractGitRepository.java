@@ -2,11 +2,15 @@
  * This code is free software; you can redistribute it and/or modify it under
  * the terms of the new BSD License.
  *
- * Copyright (c) 2012-2016, Sebastian Staudt
+ * Copyright (c) 2012-2017, Sebastian Staudt
  */
 
 package com.github.koraktor.mavanagaiata.git;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * An abstract implementation of a Git repository that provides basic and
  * common functionality
@@ -15,15 +19,43 @@ package com.github.koraktor.mavanagaiata.git;
  */
 public abstract class AbstractGitRepository implements GitRepository {
 
+    protected int dirtyCheckParallelism = 1;
+
     protected String headRef;
 
     protected MailMap mailMap;
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation uses the default options.
+     *
+     * @see DescribeOptions#DEFAULT
+     */
+    public GitTagDescription describe() throws GitRepositoryException {
+        return describe(DescribeOptions.DEFAULT);
+    }
+
     public String getAbbreviatedCommitId() throws GitRepositoryException {
         return this.getAbbreviatedCommitId(this.getHeadCommit());
     }
 
-    public MailMap getMailMap() throws GitRepositoryException {
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation abbreviates the commits one by one.
+     */
+    public Map<String, String> getAbbreviatedCommitIds(Collection<? extends GitCommit> commits)
+            throws GitRepositoryException {
+        Map<String, String> abbreviatedIds = new HashMap<>();
+        for (GitCommit commit : commits) {
+            abbreviatedIds.put(commit.getId(), getAbbreviatedCommitId(commit));
+        }
+
+        return abbreviatedIds;
+    }
+
+    public synchronized MailMap getMailMap() throws GitRepositoryException {
         if (mailMap == null) {
             mailMap = new MailMap(this);
             mailMap.parseMailMap();
@@ -32,6 +64,35 @@ public abstract class AbstractGitRepository implements GitRepository {
         return this.mailMap;
     }
 
+    public CommitIterator iterateCommits() throws GitRepositoryException {
+        return iterateCommits(null);
+    }
+
+    public CommitIterator iterateCommits(String excludedCommitId)
+            throws GitRepositoryException {
+        return iterateCommits(excludedCommitId, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation loads the tags one by one.
+     */
+    public void loadTags(Collection<? extends GitTag> tags)
+            throws GitRepositoryException {
+        for (GitTag tag : tags) {
+            tag.load(this);
+        }
+    }
+
+    public void setDirtyCheckParallelism(int parallelism) {
+        if (parallelism < 1) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+
+        this.dirtyCheckParallelism = parallelism;
+    }
+
     public void setHeadRef(String headRef) {
         this.headRef = headRef;
     }
@@ -0,0 +1,222 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git;
+
+import java.util.Date;
+
+/**
+ * Criteria to select the commits of a commit walk
+ * <p>
+ * Filters are evaluated by the repository while walking the history, so
+ * commits not matching the criteria are never handed to a
+ * {@link CommitWalkAction}. A lower date limit and a maximum number of commits
+ * end the walk as soon as they are reached.
+ * <p>
+ * Patterns are regular expressions that need to match any part of the text,
+ * {@code ^} and {@code $} match at the start and end of each line.
+ *
+ * @author Sebastian Staudt
+ * @see CommitWalkAction#getCommitFilter()
+ * @see GitRepository#iterateCommits(String, CommitFilter)
+ * @since 0.8.0
+ */
+public class CommitFilter {
+
+    private String authorPattern;
+
+    private String excludedMessagePattern;
+
+    private int maxCount = -1;
+
+    private String messagePattern;
+
+    private boolean noMerges;
+
+    private Date since;
+
+    private Date until;
+
+    /**
+     * Returns the pattern the author of selected commits has to match
+     * <p>
+     * The pattern is matched against the name and email address in the
+     * form {@code Name <email>}.
+     *
+     * @return The author pattern or {@code null} for any author
+     */
+    public String getAuthorPattern() {
+        return authorPattern;
+    }
+
+    /**
+     * Returns the pattern the message of selected commits must not match
+     *
+     * @return The excluded message pattern or {@code null}
+     */
+    public String getExcludedMessagePattern() {
+        return excludedMessagePattern;
+    }
+
+    /**
+     * Returns the maximum number of commits to select
+     *
+     * @return The maximum number of commits or {@code -1} for no limit
+     */
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * Returns the pattern the message of selected commits has to match
+     *
+     * @return The message pattern or {@code null} for any message
+     */
+    public String getMessagePattern() {
+        return messagePattern;
+    }
+
+    /**
+     * Returns the commit date of the oldest commits to select
+     *
+     * @return The lower date limit or {@code null} for no limit
+     */
+    public Date getSince() {
+        return since;
+    }
+
+    /**
+     * Returns the commit date of the newest commits to select
+     *
+     * @return The upper date limit or {@code null} for no limit
+     */
+    public Date getUntil() {
+        return until;
+    }
+
+    /**
+     * Returns whether this filter selects all commits
+     *
+     * @return {@code true} if no criteria are set
+     */
+    public boolean isEmpty() {
+        return authorPattern == null && excludedMessagePattern == null &&
+                maxCount < 0 && messagePattern == null && !noMerges &&
+                since == null && until == null;
+    }
+
+    /**
+     * Returns whether merge commits are skipped
+     *
+     * @return {@code true} if only commits with at most one parent are
+     *         selected
+     */
+    public boolean isNoMerges() {
+        return noMerges;
+    }
+
+    /**
+     * Sets the pattern the author of selected commits has to match
+     *
+     * @param authorPattern The author pattern or {@code null} for any author
+     */
+    public void setAuthorPattern(String authorPattern) {
+        this.authorPattern = emptyToNull(authorPattern);
+    }
+
+    /**
+     * Sets the pattern the message of selected commits must not match
+     *
+     * @param excludedMessagePattern The excluded message pattern or
+     *        {@code null}
+     */
+    public void setExcludedMessagePattern(String excludedMessagePattern) {
+        this.excludedMessagePattern = emptyToNull(excludedMessagePattern);
+    }
+
+    /**
+     * Sets the maximum number of commits to select
+     *
+     * @param maxCount The maximum number of commits or a negative number for
+     *        no limit
+     */
+    public void setMaxCount(int maxCount) {
+        this.maxCount = Math.max(maxCount, -1);
+    }
+
+    /**
+     * Sets the pattern the message of selected commits has to match
+     *
+     * @param messagePattern The message pattern or {@code null} for any
+     *        message
+     */
+    public void setMessagePattern(String messagePattern) {
+        this.messagePattern = emptyToNull(messagePattern);
+    }
+
+    /**
+     * Sets whether merge commits are skipped
+     *
+     * @param noMerges {@code true} if only commits with at most one parent
+     *        should be selected
+     */
+    public void setNoMerges(boolean noMerges) {
+        this.noMerges = noMerges;
+    }
+
+    /**
+     * Sets the commit date of the oldest commits to select
+     *
+     * @param since The lower date limit or {@code null} for no limit
+     */
+    public void setSince(Date since) {
+        this.since = (since == null) ? null : new Date(since.getTime());
+    }
+
+    /**
+     * Sets the commit date of the newest commits to select
+     *
+     * @param until The upper date limit or {@code null} for no limit
+     */
+    public void setUntil(Date until) {
+        this.until = (until == null) ? null : new Date(until.getTime());
+    }
+
+    private static String emptyToNull(String value) {
+        return (value == null || value.isEmpty()) ? null : value;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        return object instanceof CommitFilter &&
+                toString().equals(object.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
+    /**
+     * Returns a string representation of this filter
+     * <p>
+     * Equal filters have the same string representation, so it can be used
+     * to detect changed criteria of cached results.
+     *
+     * @return The filter as a string
+     */
+    @Override
+    public String toString() {
+        return "author=" + authorPattern + ",message=" + messagePattern +
+                ",excludedMessage=" + excludedMessagePattern +
+                ",noMerges=" + noMerges +
+                ",since=" + ((since == null) ? null : since.getTime()) +
+                ",until=" + ((until == null) ? null : until.getTime()) +
+                ",maxCount=" + maxCount;
+    }
+
+}
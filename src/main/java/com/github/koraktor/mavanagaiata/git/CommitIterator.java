@@ -0,0 +1,105 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git;
+
+import java.util.Date;
+import java.util.Iterator;
+
+/**
+ * A pull-based iteration over the commits of a repository
+ * <p>
+ * In contrast to a {@link CommitWalkAction} the consumer decides when to
+ * fetch the next commit, so the iteration can be stopped at any time. An
+ * iterator has to be closed after use to release the resources of the
+ * underlying walk, e.g. using a {@code try}-with-resources statement.
+ * <p>
+ * Besides the {@link Iterator} methods, which report read failures as
+ * unchecked exceptions, {@link #nextCommit()} allows reading commits with
+ * checked exceptions.
+ * <p>
+ * An iterator must be used by a single thread only, but the commits it
+ * returns may be handed over to other threads for further processing.
+ *
+ * @author Sebastian Staudt
+ * @see GitRepository#iterateCommits(String)
+ * @since 0.8.0
+ */
+public interface CommitIterator extends Iterator<GitCommit>, AutoCloseable {
+
+    /**
+     * Releases the resources used by this iterator
+     * <p>
+     * No more commits will be returned afterwards.
+     */
+    @Override
+    void close();
+
+    /**
+     * Returns an estimate of the number of commits not yet returned
+     *
+     * @return The estimated number of remaining commits or {@code -1} if it
+     *         cannot be estimated
+     */
+    int getEstimatedSize();
+
+    /**
+     * Returns whether there are more commits
+     *
+     * @return {@code true} if {@link #next()} will return another commit
+     * @throws IllegalStateException if the next commit cannot be read, the
+     *         cause is the {@link GitRepositoryException} of the failure
+     */
+    @Override
+    boolean hasNext();
+
+    /**
+     * Returns the next commit
+     * <p>
+     * Commits are returned in reverse chronological order, newer commits
+     * first.
+     *
+     * @return The next commit
+     * @throws IllegalStateException if the next commit cannot be read, the
+     *         cause is the {@link GitRepositoryException} of the failure
+     * @throws java.util.NoSuchElementException if there are no more commits
+     */
+    @Override
+    GitCommit next();
+
+    /**
+     * Returns the next commit or {@code null} at the end of the iteration
+     * <p>
+     * Commits are returned in reverse chronological order, newer commits
+     * first.
+     *
+     * @return The next commit or {@code null} if there are no more commits
+     * @throws GitRepositoryException if the next commit cannot be read
+     */
+    GitCommit nextCommit() throws GitRepositoryException;
+
+    /**
+     * Sets the maximum number of commits to return
+     * <p>
+     * This has to be set before the first commit is requested.
+     *
+     * @param maxCount The maximum number of commits or a negative number
+     *        for no limit
+     */
+    void setMaxCount(int maxCount);
+
+    /**
+     * Sets the date of the oldest commits to return
+     * <p>
+     * The iteration ends as soon as a commit older than the given date is
+     * reached. This has to be set before the first commit is requested.
+     *
+     * @param since The minimum commit date or {@code null} for no limit
+     */
+    void setSince(Date since);
+
+}
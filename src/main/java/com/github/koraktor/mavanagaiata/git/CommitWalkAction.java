@@ -2,7 +2,7 @@
  * This code is free software; you can redistribute it and/or modify it under
  * the terms of the new BSD License.
  *
- * Copyright (c) 2012-2016, Sebastian Staudt
+ * Copyright (c) 2012-2017, Sebastian Staudt
  */
 
 package com.github.koraktor.mavanagaiata.git;
@@ -15,6 +15,8 @@ package com.github.koraktor.mavanagaiata.git;
  */
 public abstract class CommitWalkAction {
 
+    protected CommitFilter commitFilter;
+
     protected GitCommit currentCommit;
 
     protected GitRepository repository;
@@ -30,6 +32,34 @@ public abstract class CommitWalkAction {
         this.run();
     }
 
+    /**
+     * Returns the filter selecting the commits this action is executed for
+     * <p>
+     * The filter is applied by the repository while walking the commits.
+     *
+     * @return The filter of this action or {@code null} if the action should
+     *         be executed for all commits
+     * @since 0.8.0
+     */
+    public CommitFilter getCommitFilter() {
+        return commitFilter;
+    }
+
+    /**
+     * Returns whether this action only uses the identities and dates of the
+     * commits
+     * <p>
+     * Repositories may then avoid keeping the full commit data in memory
+     * while walking and only decode the headers of the commits. The messages
+     * of such commits are still available, but are decoded on each access.
+     *
+     * @return {@code true} if this action does not use commit messages
+     * @since 0.8.0
+     */
+    public boolean isHeaderOnly() {
+        return false;
+    }
+
     /**
      * The code of the action that should be executed for each commit during a
      * commit walk
@@ -47,4 +77,15 @@ public abstract class CommitWalkAction {
         this.repository = repository;
     }
 
+    /**
+     * Sets the filter selecting the commits this action is executed for
+     *
+     * @param commitFilter The filter of this action or {@code null} for all
+     *        commits
+     * @since 0.8.0
+     */
+    public void setCommitFilter(CommitFilter commitFilter) {
+        this.commitFilter = commitFilter;
+    }
+
 }
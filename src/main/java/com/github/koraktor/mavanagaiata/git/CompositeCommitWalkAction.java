@@ -0,0 +1,111 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An action that executes several other actions for each commit
+ * <p>
+ * This allows running independent actions during a single walk through the
+ * commits, so each commit is read only once. All actions need to select the
+ * same commits, i.e. use equal commit filters.
+ *
+ * @author Sebastian Staudt
+ * @since 0.8.0
+ */
+public class CompositeCommitWalkAction extends CommitWalkAction {
+
+    private final List<CommitWalkAction> actions;
+
+    /**
+     * Creates a new action executing the given actions in order
+     *
+     * @param actions The actions to execute for each commit
+     * @throws IllegalArgumentException if the actions use different commit
+     *         filters
+     */
+    public CompositeCommitWalkAction(CommitWalkAction... actions) {
+        this.actions = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(actions)));
+
+        if (!this.actions.isEmpty()) {
+            commitFilter = this.actions.get(0).getCommitFilter();
+            for (CommitWalkAction action : this.actions) {
+                if (!Objects.equals(commitFilter, action.getCommitFilter())) {
+                    throw new IllegalArgumentException("Actions with different commit filters cannot be combined.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes all actions for the given commit
+     *
+     * @param commit The current commit
+     * @throws GitRepositoryException if an error occurs during any action
+     */
+    @Override
+    public void execute(GitCommit commit) throws GitRepositoryException {
+        this.currentCommit = commit;
+
+        for (CommitWalkAction action : actions) {
+            action.execute(commit);
+        }
+    }
+
+    /**
+     * Returns the actions executed for each commit
+     *
+     * @return The actions of this composite action
+     */
+    public List<CommitWalkAction> getActions() {
+        return actions;
+    }
+
+    /**
+     * Returns whether all actions only use the identities and dates of the
+     * commits
+     *
+     * @return {@code true} if no action uses commit messages
+     */
+    @Override
+    public boolean isHeaderOnly() {
+        for (CommitWalkAction action : actions) {
+            if (!action.isHeaderOnly()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Does nothing, the actions are run by {@link #execute(GitCommit)}
+     */
+    @Override
+    protected void run() {}
+
+    /**
+     * Sets the repository for this action and all its actions
+     *
+     * @param repository The repository for the actions
+     */
+    @Override
+    public void setRepository(GitRepository repository) {
+        super.setRepository(repository);
+
+        for (CommitWalkAction action : actions) {
+            action.setRepository(repository);
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Options to control how a commit is described using the nearest tag
+ * <p>
+ * These correspond to the options {@code --candidates}, {@code --match},
+ * {@code --exclude} and {@code --first-parent} of {@code git describe}.
+ *
+ * @author Sebastian Staudt
+ * @see GitRepository#describe(DescribeOptions)
+ * @since 0.8.0
+ */
+public class DescribeOptions {
+
+    /**
+     * The default number of tag candidates considered, the same as used by
+     * Git
+     */
+    public static final int DEFAULT_CANDIDATES = 10;
+
+    /**
+     * The options used by default, considering all tags and parents
+     */
+    public static final DescribeOptions DEFAULT = new DescribeOptions(DEFAULT_CANDIDATES, null, null, false);
+
+    private final int candidates;
+
+    private final List<String> exclude;
+
+    private final boolean firstParent;
+
+    private final List<String> match;
+
+    /**
+     * Creates new options for describing a commit
+     *
+     * @param candidates The maximum number of tags to consider, {@code 0}
+     *        only allows tags pointing to the described commit
+     * @param match Glob patterns of which tag names need to match at least
+     *        one, or {@code null} to consider all tags
+     * @param exclude Glob patterns of tag names to ignore or {@code null}
+     * @param firstParent Whether only the first parent of merge commits
+     *        should be followed
+     */
+    public DescribeOptions(int candidates, Collection<String> match,
+                           Collection<String> exclude, boolean firstParent) {
+        this.candidates  = Math.max(candidates, 0);
+        this.exclude     = copyPatterns(exclude);
+        this.firstParent = firstParent;
+        this.match       = copyPatterns(match);
+    }
+
+    /**
+     * Returns an immutable copy of the given patterns
+     *
+     * @param patterns The patterns to copy or {@code null}
+     * @return The copied patterns
+     */
+    private static List<String> copyPatterns(Collection<String> patterns) {
+        if (patterns == null || patterns.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return Collections.unmodifiableList(new ArrayList<>(patterns));
+    }
+
+    /**
+     * Returns the maximum number of tags to consider
+     *
+     * @return The maximum number of tag candidates
+     */
+    public int getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * Returns the glob patterns of tag names to ignore
+     *
+     * @return The patterns of excluded tags
+     */
+    public List<String> getExclude() {
+        return exclude;
+    }
+
+    /**
+     * Returns the glob patterns of which tag names need to match at least
+     * one
+     *
+     * @return The patterns of matching tags, empty if all tags match
+     */
+    public List<String> getMatch() {
+        return match;
+    }
+
+    /**
+     * Returns whether tags are filtered by their names
+     *
+     * @return {@code true} if any match or exclude pattern is given
+     */
+    public boolean hasPatterns() {
+        return !match.isEmpty() || !exclude.isEmpty();
+    }
+
+    /**
+     * Returns whether only the first parent of merge commits should be
+     * followed
+     *
+     * @return {@code true} if only first parents are followed
+     */
+    public boolean isFirstParent() {
+        return firstParent;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof DescribeOptions)) {
+            return false;
+        }
+
+        DescribeOptions options = (DescribeOptions) object;
+        return candidates == options.candidates &&
+                exclude.equals(options.exclude) &&
+                firstParent == options.firstParent &&
+                match.equals(options.match);
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
+    /**
+     * Returns a string representation of these options
+     * <p>
+     * Equal options have the same string representation, so it can be used
+     * as a key for cached descriptions.
+     *
+     * @return The options as a string
+     */
+    @Override
+    public String toString() {
+        return "candidates=" + candidates + ",match=" + match +
+                ",exclude=" + exclude + ",firstParent=" + firstParent;
+    }
+
+}
@@ -2,12 +2,13 @@
  * This code is free software; you can redistribute it and/or modify it under
  * the terms of the new BSD License.
  *
- * Copyright (c) 2012-2016, Sebastian Staudt
+ * Copyright (c) 2012-2017, Sebastian Staudt
  */
 
 package com.github.koraktor.mavanagaiata.git;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -43,6 +44,19 @@ public interface GitRepository extends AutoCloseable {
      */
     GitTagDescription describe() throws GitRepositoryException;
 
+    /**
+     * Describes the current {@code HEAD} commit using the given options
+     *
+     * @param options The options controlling which tags are considered and
+     *        which commits are walked
+     * @return The description of the {@code HEAD} commit
+     * @throws GitRepositoryException if the description cannot be created
+     * @see #describe()
+     * @since 0.8.0
+     */
+    GitTagDescription describe(DescribeOptions options)
+            throws GitRepositoryException;
+
     /**
      * Returns the abbreviated commit SHA ID of the current Git commit
      *
@@ -63,6 +77,20 @@ public interface GitRepository extends AutoCloseable {
     String getAbbreviatedCommitId(GitCommit commit)
         throws GitRepositoryException;
 
+    /**
+     * Returns the abbreviated commit SHA IDs of the given Git commits
+     * <p>
+     * This should be preferred over abbreviating many commits one by one.
+     *
+     * @param commits The Git commits to get the abbreviated IDs for
+     * @return The abbreviated commit IDs mapped to the full IDs of the commits
+     * @throws GitRepositoryException if the abbreviated commit IDs cannot be
+     *         determined
+     * @since 0.8.0
+     */
+    Map<String, String> getAbbreviatedCommitIds(Collection<? extends GitCommit> commits)
+        throws GitRepositoryException;
+
     /**
      * Returns the currently checked out branch of the Git repository
      *
@@ -91,6 +119,10 @@ public interface GitRepository extends AutoCloseable {
     /**
      * Returns a {@code MailMap} object that holds information from Git's
      * {@code .mailmap} file
+     * <p>
+     * Implementations may additionally read the sources configured using
+     * {@code mailmap.file} and {@code mailmap.blob} and share the returned
+     * instance with other repositories.
      *
      * @return A {@code .mailmap} representation or {@code null} if none exits
      * @throws GitRepositoryException if the {@code .mailmap} file cannot be
@@ -98,6 +130,20 @@ public interface GitRepository extends AutoCloseable {
      */
     MailMap getMailMap() throws GitRepositoryException;
 
+    /**
+     * Returns a key identifying the current state of the repository
+     * <p>
+     * The key changes whenever the {@code HEAD} commit, any ref or the index
+     * changes. It can be computed without reading any Git objects, so it is
+     * suitable to look up results cached from earlier builds.
+     *
+     * @return A key for the current state of the repository
+     * @throws GitRepositoryException if the state of the repository cannot be
+     *         read
+     * @since 0.8.0
+     */
+    String getStateKey() throws GitRepositoryException;
+
     /**
      * Returns a map of tags available in this repository
      * <p>
@@ -128,6 +174,20 @@ public interface GitRepository extends AutoCloseable {
      */
     boolean isChecked();
 
+    /**
+     * Returns whether the given commit is reachable from the current
+     * {@code HEAD} commit
+     *
+     * @param commitId The ID of the commit to check
+     * @return {@code true} if the commit is {@code HEAD} or one of its
+     *         ancestors, {@code false} if it is not or does not exist, e.g.
+     *         because the history has been rewritten
+     * @throws GitRepositoryException if an error occurs while walking through
+     *         the commits
+     * @since 0.8.0
+     */
+    boolean isAncestor(String commitId) throws GitRepositoryException;
+
     /**
      * Returns whether the worktree of the repository is in a clean state
      *
@@ -140,6 +200,23 @@ public interface GitRepository extends AutoCloseable {
      */
     boolean isDirty(boolean ignoreUntracked) throws GitRepositoryException;
 
+    /**
+     * Returns whether the given path inside the worktree of the repository
+     * is in a clean state
+     *
+     * @param ignoreUntracked If {@code true}, untracked files in the
+     *        repository will be ignored
+     * @param path The path relative to the worktree root to check, e.g. the
+     *        directory of a module, or {@code null} to check the whole
+     *        worktree
+     * @return {@code true} if there are modified files below the given path
+     * @throws GitRepositoryException if an error occurs while checking the
+     *         worktree state
+     * @since 0.8.0
+     */
+    boolean isDirty(boolean ignoreUntracked, String path)
+            throws GitRepositoryException;
+
     /**
      * Returns whether this repository is currently on an “unborn” branch
      *
@@ -153,6 +230,76 @@ public interface GitRepository extends AutoCloseable {
      */
     boolean isOnUnbornBranch() throws GitRepositoryException;
 
+    /**
+     * Returns an iterator over all commits reachable from the current
+     * {@code HEAD} commit
+     *
+     * @return An iterator over the commits
+     * @throws GitRepositoryException if the iteration cannot be started
+     * @see #walkCommits(CommitWalkAction)
+     * @since 0.8.0
+     */
+    CommitIterator iterateCommits() throws GitRepositoryException;
+
+    /**
+     * Returns an iterator over all commits reachable from the current
+     * {@code HEAD} commit, but not from the given commit
+     *
+     * @param excludedCommitId The ID of the commit whose history should be
+     *        excluded, or {@code null} to iterate all commits
+     * @return An iterator over the commits
+     * @throws GitRepositoryException if the iteration cannot be started
+     * @see #walkCommits(CommitWalkAction, String)
+     * @since 0.8.0
+     */
+    CommitIterator iterateCommits(String excludedCommitId)
+            throws GitRepositoryException;
+
+    /**
+     * Returns an iterator over the commits reachable from the current
+     * {@code HEAD} commit, but not from the given commit, that are selected
+     * by the given filter
+     * <p>
+     * Commits not selected by the filter are skipped while walking the
+     * history and the iteration ends as soon as a date or count limit of the
+     * filter is reached.
+     *
+     * @param excludedCommitId The ID of the commit whose history should be
+     *        excluded, or {@code null} to iterate all commits
+     * @param filter The filter selecting the commits or {@code null} to
+     *        select all commits
+     * @return An iterator over the selected commits
+     * @throws GitRepositoryException if the iteration cannot be started, e.g.
+     *         because a pattern of the filter is invalid
+     * @since 0.8.0
+     */
+    CommitIterator iterateCommits(String excludedCommitId, CommitFilter filter)
+            throws GitRepositoryException;
+
+    /**
+     * Loads the meta data of the given tags at once
+     * <p>
+     * This should be preferred over loading the meta data of many tags one
+     * by one. Tags that have already been loaded are skipped.
+     *
+     * @param tags The tags to load the meta data for
+     * @throws GitRepositoryException if the meta data cannot be loaded
+     * @see GitTag#load
+     * @since 0.8.0
+     */
+    void loadTags(Collection<? extends GitTag> tags)
+            throws GitRepositoryException;
+
+    /**
+     * Sets the number of threads used to check whether the worktree is dirty
+     *
+     * @param parallelism The number of threads to use, values less than one
+     *        select the number of available processors
+     * @see #isDirty
+     * @since 0.8.0
+     */
+    void setDirtyCheckParallelism(int parallelism);
+
     /**
      * Sets the Git ref to use as the {@code HEAD} commit of the repository
      *
@@ -163,6 +310,8 @@ public interface GitRepository extends AutoCloseable {
     /**
      * Runs the given action for all commits reachable from the current
      * {@code HEAD} commit
+     * <p>
+     * Only commits selected by the action's commit filter are walked.
      *
      * @param action The action to execute for each commit found
      * @throws GitRepositoryException if an error occurs during walking through
@@ -171,4 +320,22 @@ public interface GitRepository extends AutoCloseable {
     <T extends CommitWalkAction> T walkCommits(T action)
             throws GitRepositoryException;
 
+    /**
+     * Runs the given action for all commits reachable from the current
+     * {@code HEAD} commit, but not from the given commit
+     * <p>
+     * This allows walking only the commits added since an earlier state of
+     * the repository. Only commits selected by the action's commit filter are
+     * walked.
+     *
+     * @param action The action to execute for each commit found
+     * @param excludedCommitId The ID of the commit whose history should be
+     *        excluded, or {@code null} to walk all commits
+     * @throws GitRepositoryException if an error occurs during walking through
+     *         the commits
+     * @since 0.8.0
+     */
+    <T extends CommitWalkAction> T walkCommits(T action, String excludedCommitId)
+            throws GitRepositoryException;
+
 }
@@ -2,53 +2,54 @@
  * This code is free software; you can redistribute it and/or modify it under
  * the terms of the new BSD License.
  *
- * Copyright (c) 2014, Sebastian Staudt
+ * Copyright (c) 2014-2017, Sebastian Staudt
  */
 
 package com.github.koraktor.mavanagaiata.git;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.AbstractMap;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * An implementation of Git's {@code .mailmap} functionality
+ * <p>
+ * All forms of mappings are stored in a single table keyed by the email
+ * address used in commits. Like Git, email addresses and names are matched
+ * ignoring case and a mapping for a specific name and email address takes
+ * precedence over a mapping for the email address only. Resolved identities
+ * are remembered, so looking up the same identity again is a simple map
+ * access.
  *
  * @author Sebastian Staudt
  */
 public class MailMap {
 
-    private static final Pattern MAIL_TO_MAIL_PATTERN;
-    private static final Pattern MAIL_TO_NAME_PATTERN;
-    private static final Pattern MAIL_TO_NAME_AND_MAIL_PATTERN;
-    private static final Pattern NAME_AND_MAIL_TO_NAME_AND_MAIL_PATTERN;
-
-    static {
-        MAIL_TO_MAIL_PATTERN = Pattern.compile("^<(\\S+)>\\s+<(\\S+)>$");
-        MAIL_TO_NAME_PATTERN = Pattern.compile("^(\\S.*?)\\s+<(\\S+)>$");
-        MAIL_TO_NAME_AND_MAIL_PATTERN = Pattern.compile("^(\\S.*?)\\s+<(\\S+)>\\s+<(\\S+)>$");
-        NAME_AND_MAIL_TO_NAME_AND_MAIL_PATTERN = Pattern.compile("^(\\S.*?)\\s+<(\\S+)>\\s+(\\S.*?)\\s+<(\\S+)>$");
-    }
-
     boolean exists = false;
 
-    Map<String, String> mailToMailMap;
-
-    Map<String, String> mailToNameMap;
-
-    Map<String, Map.Entry<String, String>> mailToNameAndMailMap;
-
-    Map<Map.Entry<String, String>, Map.Entry<String, String>> nameAndMailToNameAndMailMap;
+    /**
+     * The mappings for the lower case email addresses used in commits
+     */
+    Map<String, Mapping> mappings;
 
     GitRepository repository;
 
+    /**
+     * The identities already resolved for email addresses and names
+     */
+    final ConcurrentMap<String, ConcurrentMap<String, Identity>> resolvedIdentities;
+
     /**
      * Creates a new mail map instance
      *
@@ -58,10 +59,29 @@ public class MailMap {
     MailMap(GitRepository repository) {
         this.repository = repository;
 
-        mailToMailMap = new HashMap<>();
-        mailToNameMap = new HashMap<>();
-        mailToNameAndMailMap = new HashMap<>();
-        nameAndMailToNameAndMailMap = new HashMap<>();
+        mappings = new HashMap<>();
+        resolvedIdentities = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates a new mail map from the contents of several mail map sources
+     * <p>
+     * The contents are parsed in order, so mappings of later sources override
+     * those of earlier ones, like with Git's {@code .mailmap},
+     * {@code mailmap.blob} and {@code mailmap.file}. Such a mail map does not
+     * belong to a specific repository and may be shared between repository
+     * instances.
+     *
+     * @param contents The contents of the mail map sources
+     * @since 0.8.0
+     */
+    public MailMap(List<String> contents) {
+        this((GitRepository) null);
+
+        for (String content : contents) {
+            parseMappings(content);
+        }
+        exists = !mappings.isEmpty();
     }
 
     /**
@@ -75,6 +95,53 @@ public class MailMap {
         return this.exists;
     }
 
+    /**
+     * Returns a checksum of all mappings in this mail map
+     * <p>
+     * Mail maps with the same mappings have the same checksum, so it can be
+     * used to detect changes of the mail map between builds.
+     *
+     * @return A SHA-1 checksum of the mappings as a hexadecimal string
+     * @since 0.8.0
+     */
+    public String getChecksum() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (Map.Entry<String, Mapping> mapping : new TreeMap<>(mappings).entrySet()) {
+            update(digest, mapping.getKey());
+            update(digest, mapping.getValue().name);
+            update(digest, mapping.getValue().email);
+
+            if (mapping.getValue().names != null) {
+                for (Map.Entry<String, Identity> nameMapping : new TreeMap<>(mapping.getValue().names).entrySet()) {
+                    update(digest, nameMapping.getKey());
+                    update(digest, nameMapping.getValue().name);
+                    update(digest, nameMapping.getValue().email);
+                }
+            }
+            digest.update((byte) 1);
+        }
+
+        StringBuilder checksum = new StringBuilder();
+        for (byte b : digest.digest()) {
+            checksum.append(String.format("%02x", b));
+        }
+
+        return checksum.toString();
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+
     /**
      * Returns the canonical email address for the given name and email address
      * pair
@@ -85,44 +152,87 @@ public class MailMap {
      *         initial email address
      */
     String getCanonicalMail(String name, String mail) {
-        if (this.mailToMailMap.containsKey(mail)) {
-            return this.mailToMailMap.get(mail);
+        return getCanonicalIdentity(name, mail).email;
+    }
+
+    /**
+     * Returns the canonical name for the given name and email address pair
+     *
+     * @param name The actual name from a commit
+     * @param mail The actual email address from a commit
+     * @return The name matching a mapping in the mail map or the initial name
+     */
+    String getCanonicalName(String name, String mail) {
+        return getCanonicalIdentity(name, mail).name;
+    }
+
+    /**
+     * Returns the canonical identity for the given name and email address
+     * pair
+     * <p>
+     * Identities are resolved only once, later calls for the same name and
+     * email address return the remembered identity.
+     *
+     * @param name The actual name from a commit
+     * @param mail The actual email address from a commit
+     * @return The identity matching a mapping in the mail map or the initial
+     *         identity
+     */
+    Identity getCanonicalIdentity(String name, String mail) {
+        if (name == null || mail == null) {
+            return resolveIdentity(name, mail);
         }
 
-        if (this.mailToNameAndMailMap.containsKey(mail)) {
-            return this.mailToNameAndMailMap.get(mail).getValue();
+        ConcurrentMap<String, Identity> identities = resolvedIdentities.get(mail);
+        if (identities == null) {
+            identities = new ConcurrentHashMap<>();
+            ConcurrentMap<String, Identity> existingIdentities = resolvedIdentities.putIfAbsent(mail, identities);
+            if (existingIdentities != null) {
+                identities = existingIdentities;
+            }
         }
 
-        Map.Entry<String, String> nameAndMail = new AbstractMap.SimpleEntry<>(name, mail);
-        if (this.nameAndMailToNameAndMailMap.containsKey(nameAndMail)) {
-            return this.nameAndMailToNameAndMailMap.get(nameAndMail).getValue();
+        Identity identity = identities.get(name);
+        if (identity == null) {
+            identity = resolveIdentity(name, mail);
+            identities.putIfAbsent(name, identity);
         }
 
-        return mail;
+        return identity;
     }
 
     /**
-     * Returns the canonical name for the given name and email address pair
+     * Looks up the canonical identity for the given name and email address
+     * pair in the mappings
      *
      * @param name The actual name from a commit
      * @param mail The actual email address from a commit
-     * @return The name matching a mapping in the mail map or the initial name
+     * @return The identity matching a mapping in the mail map or the initial
+     *         identity
      */
-    String getCanonicalName(String name, String mail) {
-        if (this.mailToNameMap.containsKey(mail)) {
-            return this.mailToNameMap.get(mail);
+    private Identity resolveIdentity(String name, String mail) {
+        Mapping mapping = (mail == null) ? null : mappings.get(mail.toLowerCase(Locale.ENGLISH));
+        if (mapping == null) {
+            return new Identity(name, mail);
         }
 
-        if (this.mailToNameAndMailMap.containsKey(mail)) {
-            return this.mailToNameAndMailMap.get(mail).getKey();
+        Identity identity = null;
+        if (mapping.names != null && name != null) {
+            identity = mapping.names.get(name.toLowerCase(Locale.ENGLISH));
         }
 
-        Map.Entry<String, String> nameAndMail = new AbstractMap.SimpleEntry<>(name, mail);
-        if (this.nameAndMailToNameAndMailMap.containsKey(nameAndMail)) {
-            return this.nameAndMailToNameAndMailMap.get(nameAndMail).getKey();
+        String canonicalName;
+        String canonicalMail;
+        if (identity == null) {
+            canonicalName = mapping.name;
+            canonicalMail = mapping.email;
+        } else {
+            canonicalName = identity.name;
+            canonicalMail = identity.email;
         }
 
-        return name;
+        return new Identity((canonicalName == null) ? name : canonicalName,
+                (canonicalMail == null) ? mail : canonicalMail);
     }
 
     /**
@@ -189,10 +299,7 @@ public class MailMap {
 
         try {
             parseMailMap(mailMap);
-            exists = !(mailToMailMap.isEmpty() &&
-                    mailToNameMap.isEmpty() &&
-                    mailToNameAndMailMap.isEmpty() &&
-                    nameAndMailToNameAndMailMap.isEmpty());
+            exists = !mappings.isEmpty();
         } catch (FileNotFoundException ignored) {
         } catch (IOException e) {
             throw new GitRepositoryException("Error while parsing the .mailmap.", e);
@@ -209,49 +316,206 @@ public class MailMap {
      * @throws FileNotFoundException if the {@code .mailmap} file does not
      *         exist
      * @throws IOException if the {@code .mailmap} file cannot be read
+     * @see #parseMailMap(String)
      */
     void parseMailMap(File mailMap) throws IOException {
-        mailToMailMap.clear();
-        mailToNameMap.clear();
-        mailToNameAndMailMap.clear();
-        nameAndMailToNameAndMailMap.clear();
-
-        try (BufferedReader mailMapReader = new BufferedReader(new FileReader(mailMap))) {
-            String line;
-            while ((line = mailMapReader.readLine()) != null) {
-                line = line.trim();
-
-                if (line.isEmpty() || line.startsWith("#")) {
-                    continue;
-                }
+        if (!mailMap.isFile()) {
+            throw new FileNotFoundException(mailMap.getPath());
+        }
 
-                Matcher lineMatcher = NAME_AND_MAIL_TO_NAME_AND_MAIL_PATTERN.matcher(line);
-                if (lineMatcher.matches()) {
-                    Map.Entry<String, String> properNameAndMail = new AbstractMap.SimpleEntry<>(lineMatcher.group(1), lineMatcher.group(2));
-                    Map.Entry<String, String> commitNameAndMail = new AbstractMap.SimpleEntry<>(lineMatcher.group(3), lineMatcher.group(4));
-                    nameAndMailToNameAndMailMap.put(commitNameAndMail, properNameAndMail);
-                    continue;
-                }
+        parseMailMap(new String(Files.readAllBytes(mailMap.toPath()), StandardCharsets.UTF_8));
+    }
 
-                lineMatcher = MAIL_TO_NAME_AND_MAIL_PATTERN.matcher(line);
-                if (lineMatcher.matches()) {
-                    Map.Entry<String, String> properNameAndMail = new AbstractMap.SimpleEntry<>(lineMatcher.group(1), lineMatcher.group(2));
-                    mailToNameAndMailMap.put(lineMatcher.group(3), properNameAndMail);
-                    continue;
-                }
+    /**
+     * Parses the given content of a mail map in a single pass
+     * <p>
+     * Every line has the form {@code [name] <email> [[name] <email>]}, the
+     * first identity being the canonical one and the optional second one the
+     * identity used in commits. Lines starting with {@code #} and lines
+     * without an email address are ignored, as is any text behind the last
+     * email address. Any previously parsed mappings are replaced.
+     *
+     * @param content The content of a mail map
+     * @since 0.8.0
+     */
+    void parseMailMap(String content) {
+        mappings.clear();
+        resolvedIdentities.clear();
 
-                lineMatcher = MAIL_TO_MAIL_PATTERN.matcher(line);
-                if (lineMatcher.matches()) {
-                    mailToMailMap.put(lineMatcher.group(2), lineMatcher.group(1));
-                    continue;
-                }
+        parseMappings(content);
+    }
 
-                lineMatcher = MAIL_TO_NAME_PATTERN.matcher(line);
-                if (lineMatcher.matches()) {
-                    mailToNameMap.put(lineMatcher.group(2), lineMatcher.group(1));
-                }
+    /**
+     * Parses the given content of a mail map in a single pass and adds its
+     * mappings to the existing ones
+     *
+     * @param content The content of a mail map
+     * @see #parseMailMap(String)
+     */
+    private void parseMappings(String content) {
+        int length = content.length();
+        int position = 0;
+        while (position < length) {
+            int lineEnd = content.indexOf('\n', position);
+            if (lineEnd < 0) {
+                lineEnd = length;
             }
+
+            parseLine(content, position, lineEnd);
+            position = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Parses a single line of a mail map and adds its mapping
+     *
+     * @param content The content of the mail map
+     * @param start The offset of the line
+     * @param end The offset of the end of the line
+     */
+    private void parseLine(String content, int start, int end) {
+        int position = skipWhitespace(content, start, end);
+        if (position == end || content.charAt(position) == '#') {
+            return;
+        }
+
+        int emailStart = content.indexOf('<', position);
+        if (emailStart < 0 || emailStart >= end) {
+            return;
+        }
+        int emailEnd = content.indexOf('>', emailStart + 1);
+        if (emailEnd < 0 || emailEnd >= end || emailEnd == emailStart + 1) {
+            return;
         }
+        String properName = trimmedOrNull(content, position, emailStart);
+        String properEmail = content.substring(emailStart + 1, emailEnd);
+
+        String commitName = null;
+        String commitEmail = null;
+        position = emailEnd + 1;
+        emailStart = content.indexOf('<', position);
+        if (emailStart >= 0 && emailStart < end) {
+            emailEnd = content.indexOf('>', emailStart + 1);
+            if (emailEnd >= 0 && emailEnd < end) {
+                commitName = trimmedOrNull(content, position, emailStart);
+                commitEmail = content.substring(emailStart + 1, emailEnd);
+            }
+        }
+
+        if (commitEmail == null) {
+            addMapping(properName, null, commitName, properEmail);
+        } else {
+            addMapping(properName, properEmail, commitName, commitEmail);
+        }
+    }
+
+    /**
+     * Adds a mapping for the identity used in commits
+     * <p>
+     * Like with Git, a later mapping for just the email address only replaces
+     * the canonical values it provides.
+     *
+     * @param properName The canonical name or {@code null}
+     * @param properEmail The canonical email address or {@code null}
+     * @param commitName The name used in commits or {@code null} to map
+     *        all names
+     * @param commitEmail The email address used in commits
+     */
+    private void addMapping(String properName, String properEmail,
+                            String commitName, String commitEmail) {
+        String key = commitEmail.toLowerCase(Locale.ENGLISH);
+        Mapping mapping = mappings.get(key);
+        if (mapping == null) {
+            mapping = new Mapping();
+            mappings.put(key, mapping);
+        }
+
+        if (commitName == null) {
+            if (properName != null) {
+                mapping.name = properName;
+            }
+            if (properEmail != null) {
+                mapping.email = properEmail;
+            }
+        } else {
+            if (mapping.names == null) {
+                mapping.names = new HashMap<>();
+            }
+            mapping.names.put(commitName.toLowerCase(Locale.ENGLISH),
+                    new Identity(properName, properEmail));
+        }
+    }
+
+    private static int skipWhitespace(String content, int position, int end) {
+        while (position < end && Character.isWhitespace(content.charAt(position))) {
+            position ++;
+        }
+
+        return position;
+    }
+
+    private static String trimmedOrNull(String content, int start, int end) {
+        start = skipWhitespace(content, start, end);
+        while (end > start && Character.isWhitespace(content.charAt(end - 1))) {
+            end --;
+        }
+
+        return (start == end) ? null : content.substring(start, end);
+    }
+
+    /**
+     * A name and email address pair
+     */
+    static final class Identity {
+
+        final String email;
+
+        final String name;
+
+        Identity(String name, String email) {
+            this.email = email;
+            this.name  = name;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Identity)) {
+                return false;
+            }
+
+            Identity identity = (Identity) object;
+            return (name == null ? identity.name == null : name.equals(identity.name)) &&
+                    (email == null ? identity.email == null : email.equals(identity.email));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * ((name == null) ? 0 : name.hashCode()) +
+                    ((email == null) ? 0 : email.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return name + " <" + email + ">";
+        }
+
+    }
+
+    /**
+     * The mappings for a single email address used in commits
+     * <p>
+     * Mappings for specific names are stored with their lower case names.
+     * Otherwise the canonical name and email address are used, each of them
+     * may be {@code null} to keep the original value.
+     */
+    static final class Mapping {
+
+        String email;
+
+        String name;
+
+        Map<String, Identity> names;
+
     }
 
 }
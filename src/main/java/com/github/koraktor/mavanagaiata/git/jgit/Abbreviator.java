@@ -0,0 +1,206 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Computes unique abbreviations of object IDs
+ * <p>
+ * Abbreviations are remembered, so every object ID is abbreviated only once.
+ * Object IDs abbreviated together are sorted first and IDs sharing the same
+ * prefix of minimum length are resolved in a single lookup. The abbreviation
+ * is then only extended as far as needed to distinguish it from the objects
+ * with a colliding prefix.
+ * <p>
+ * The object readers used for the lookups are pooled, so they can be reused
+ * by later and concurrent calls.
+ *
+ * @author Sebastian Staudt
+ * @since 0.8.0
+ */
+class Abbreviator {
+
+    /**
+     * The default minimum length of abbreviations, the same as used by Git
+     */
+    static final int DEFAULT_MIN_LENGTH = 7;
+
+    /**
+     * The number of objects JGit will resolve at most for an abbreviation
+     */
+    static final int RESOLVE_LIMIT = 256;
+
+    final Map<ObjectId, String> abbreviations;
+
+    private final int minLength;
+
+    final Queue<ObjectReader> readers;
+
+    private final Repository repository;
+
+    /**
+     * Creates a new abbreviator for the given repository
+     *
+     * @param repository The repository containing the objects
+     * @param minLength The minimum length of the abbreviations
+     */
+    Abbreviator(Repository repository, int minLength) {
+        this.abbreviations = new ConcurrentHashMap<>();
+        this.minLength     = minLength;
+        this.readers       = new ConcurrentLinkedQueue<>();
+        this.repository    = repository;
+    }
+
+    /**
+     * Returns a unique abbreviation of the given object ID
+     *
+     * @param id The object ID to abbreviate
+     * @return The abbreviated object ID
+     * @throws IOException if the objects cannot be read
+     */
+    String abbreviate(AnyObjectId id) throws IOException {
+        return abbreviate(Collections.singleton(id)).get(id);
+    }
+
+    /**
+     * Returns unique abbreviations of the given object IDs
+     *
+     * @param ids The object IDs to abbreviate
+     * @return The abbreviations of the given object IDs
+     * @throws IOException if the objects cannot be read
+     */
+    Map<ObjectId, String> abbreviate(Collection<? extends AnyObjectId> ids)
+            throws IOException {
+        Map<ObjectId, String> result = new HashMap<>();
+        List<ObjectId> missingIds = new ArrayList<>();
+        for (AnyObjectId id : ids) {
+            ObjectId objectId = id.copy();
+            String abbreviation = abbreviations.get(objectId);
+            if (abbreviation == null) {
+                missingIds.add(objectId);
+            } else {
+                result.put(objectId, abbreviation);
+            }
+        }
+
+        if (missingIds.isEmpty()) {
+            return result;
+        }
+
+        Collections.sort(missingIds);
+
+        ObjectReader reader = borrowReader();
+        try {
+            int i = 0;
+            while (i < missingIds.size()) {
+                AbbreviatedObjectId prefix = missingIds.get(i).abbreviate(minLength);
+                Collection<ObjectId> candidates = reader.resolve(prefix);
+
+                for (; i < missingIds.size() && prefix.prefixCompare(missingIds.get(i)) == 0; i ++) {
+                    ObjectId id = missingIds.get(i);
+                    String abbreviation;
+                    if (candidates.size() < RESOLVE_LIMIT) {
+                        abbreviation = id.abbreviate(getLength(id, candidates)).name();
+                    } else {
+                        abbreviation = reader.abbreviate(id, minLength).name();
+                    }
+
+                    abbreviations.put(id, abbreviation);
+                    result.put(id, abbreviation);
+                }
+            }
+        } finally {
+            readers.offer(reader);
+        }
+
+        return result;
+    }
+
+    /**
+     * Closes all pooled object readers
+     */
+    void close() {
+        ObjectReader reader;
+        while ((reader = readers.poll()) != null) {
+            reader.close();
+        }
+    }
+
+    /**
+     * Returns an object reader from the pool or a new one if the pool is
+     * empty
+     * <p>
+     * The reader has to be returned to the pool after usage.
+     *
+     * @return An object reader for the repository
+     */
+    private ObjectReader borrowReader() {
+        ObjectReader reader = readers.poll();
+        if (reader == null) {
+            reader = repository.newObjectReader();
+        }
+
+        return reader;
+    }
+
+    /**
+     * Returns the length needed to distinguish the given object ID from all
+     * other objects with a colliding prefix
+     *
+     * @param id The object ID to abbreviate
+     * @param candidates The objects sharing the minimum prefix with the ID
+     * @return The length of the unique abbreviation
+     */
+    private int getLength(ObjectId id, Collection<ObjectId> candidates) {
+        int length = minLength;
+        for (ObjectId candidate : candidates) {
+            if (!candidate.equals(id)) {
+                length = Math.max(length, getCommonPrefixLength(id, candidate) + 1);
+            }
+        }
+
+        return Math.min(length, Constants.OBJECT_ID_STRING_LENGTH);
+    }
+
+    /**
+     * Returns the number of hex digits two object IDs have in common
+     *
+     * @param id1 The first object ID
+     * @param id2 The second object ID
+     * @return The length of the common prefix
+     */
+    static int getCommonPrefixLength(AnyObjectId id1, AnyObjectId id2) {
+        for (int i = 0; i < Constants.OBJECT_ID_LENGTH; i ++) {
+            int byte1 = id1.getByte(i);
+            int byte2 = id2.getByte(i);
+            if (byte1 != byte2) {
+                return ((byte1 ^ byte2) & 0xf0) == 0 ? i * 2 + 1 : i * 2;
+            }
+        }
+
+        return Constants.OBJECT_ID_STRING_LENGTH;
+    }
+
+}
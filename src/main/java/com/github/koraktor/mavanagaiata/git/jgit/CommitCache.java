@@ -0,0 +1,167 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+
+/**
+ * A bounded cache for parsed commits
+ * <p>
+ * Commits are evicted in least recently used order once the maximum size is
+ * exceeded. The commits themselves are only softly referenced, so their
+ * bodies can be reclaimed by the garbage collector if memory gets low. A
+ * commit cleared this way counts as a miss and an eviction.
+ * <p>
+ * The cache is synchronized, so it can be used by all users of a shared
+ * repository.
+ *
+ * @author Sebastian Staudt
+ * @since 0.8.0
+ */
+public class CommitCache {
+
+    /**
+     * The default maximum number of cached commits
+     */
+    static final int DEFAULT_MAX_SIZE = 256;
+
+    private final Map<ObjectId, SoftReference<RevCommit>> commits;
+
+    private long evictionCount;
+
+    private long hitCount;
+
+    private final int maxSize;
+
+    private long missCount;
+
+    /**
+     * Creates a new cache with the default maximum size
+     */
+    CommitCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a new cache with the given maximum size
+     *
+     * @param maxSize The maximum number of commits to cache
+     */
+    CommitCache(int maxSize) {
+        this.commits = new LinkedHashMap<ObjectId, SoftReference<RevCommit>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ObjectId, SoftReference<RevCommit>> eldest) {
+                if (size() > CommitCache.this.maxSize) {
+                    evictionCount ++;
+                    return true;
+                }
+
+                return false;
+            }
+        };
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cached commit for the given object ID
+     *
+     * @param id The object ID of the commit
+     * @return The cached commit or {@code null} if the commit is not cached
+     */
+    public synchronized RevCommit get(ObjectId id) {
+        SoftReference<RevCommit> reference = commits.get(id);
+        RevCommit commit = (reference == null) ? null : reference.get();
+
+        if (commit == null) {
+            if (reference != null) {
+                commits.remove(id);
+                evictionCount ++;
+            }
+            missCount ++;
+        } else {
+            hitCount ++;
+        }
+
+        return commit;
+    }
+
+    /**
+     * Returns the number of commits evicted from the cache
+     *
+     * @return The number of evicted commits
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the number of lookups that found a cached commit
+     *
+     * @return The number of cache hits
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the maximum number of cached commits
+     *
+     * @return The maximum size of the cache
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a cached commit
+     *
+     * @return The number of cache misses
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Adds a commit to the cache
+     * <p>
+     * Object IDs that are objects of a {@code RevWalk} themselves are copied,
+     * so the cache does not keep the walk's objects reachable.
+     *
+     * @param id The object ID of the commit
+     * @param commit The commit to cache
+     */
+    public synchronized void put(ObjectId id, RevCommit commit) {
+        ObjectId key = (id instanceof RevObject) ? id.copy() : id;
+
+        commits.put(key, new SoftReference<>(commit));
+    }
+
+    /**
+     * Returns the number of entries in the cache
+     * <p>
+     * This may include commits already cleared by the garbage collector.
+     *
+     * @return The number of cache entries
+     */
+    public synchronized int size() {
+        return commits.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d/%d commits, %d hits, %d misses, %d evictions",
+                commits.size(), maxSize, hitCount, missCount, evictionCount);
+    }
+
+}
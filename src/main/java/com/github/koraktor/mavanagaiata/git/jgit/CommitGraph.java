@@ -0,0 +1,281 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * A read-only view of Git's {@code commit-graph} file
+ * <p>
+ * The commit graph stores the parents, commit time and generation number of
+ * commits, so history can be walked without inflating the commit objects.
+ * Commits are addressed by their position inside the graph.
+ * <p>
+ * Only single graph files (version 1 using SHA-1) are supported. Split
+ * commit graph chains are ignored.
+ * <p>
+ * The graph file is read into memory completely instead of being mapped, so
+ * the file is never kept open and Git can replace it at any time, even on
+ * Windows.
+ *
+ * @author Sebastian Staudt
+ * @see <a href="https://git-scm.com/docs/commit-graph">git-commit-graph</a>
+ * @since 0.8.0
+ */
+class CommitGraph {
+
+    private static final int CHUNK_COMMIT_DATA = 0x43444154;
+
+    private static final int CHUNK_EXTRA_EDGES = 0x45444745;
+
+    private static final int CHUNK_OID_FANOUT = 0x4f494446;
+
+    private static final int CHUNK_OID_LOOKUP = 0x4f49444c;
+
+    private static final int COMMIT_DATA_WIDTH = Constants.OBJECT_ID_LENGTH + 16;
+
+    private static final int LAST_EDGE = 0x80000000;
+
+    private static final int NO_PARENT = 0x70000000;
+
+    private static final int SIGNATURE = 0x43475048;
+
+    private static final int[] NO_PARENTS = new int[0];
+
+    private ByteBuffer buffer;
+
+    private final int commitCount;
+
+    private final int commitDataOffset;
+
+    private final int extraEdgesOffset;
+
+    private final int fanoutOffset;
+
+    private final int lookupOffset;
+
+    /**
+     * Loads the commit graph from the given objects directory
+     *
+     * @param objectsDirectory The objects directory of a repository
+     * @return The commit graph or {@code null} if there is no usable commit
+     *         graph file
+     * @throws IOException if the commit graph file cannot be read
+     */
+    static CommitGraph load(File objectsDirectory) throws IOException {
+        File graphFile = new File(objectsDirectory, "info/commit-graph");
+        if (!graphFile.isFile()) {
+            return null;
+        }
+
+        return parse(ByteBuffer.wrap(Files.readAllBytes(graphFile.toPath())));
+    }
+
+    /**
+     * Parses the header and chunk table of the given commit graph data
+     *
+     * @param buffer The contents of a commit graph file
+     * @return The commit graph or {@code null} if the data uses an
+     *         unsupported format
+     */
+    static CommitGraph parse(ByteBuffer buffer) {
+        if (buffer.limit() < 8 || buffer.getInt(0) != SIGNATURE ||
+                buffer.get(4) != 1 || buffer.get(5) != 1 ||
+                buffer.get(7) != 0) {
+            return null;
+        }
+
+        int chunkCount = buffer.get(6) & 0xff;
+        int commitDataOffset = -1;
+        int extraEdgesOffset = -1;
+        int fanoutOffset = -1;
+        int lookupOffset = -1;
+        for (int i = 0; i < chunkCount; i ++) {
+            int entry = 8 + i * 12;
+            if (entry + 12 > buffer.limit()) {
+                return null;
+            }
+
+            int offset = (int) buffer.getLong(entry + 4);
+            switch (buffer.getInt(entry)) {
+                case CHUNK_COMMIT_DATA:
+                    commitDataOffset = offset;
+                    break;
+                case CHUNK_EXTRA_EDGES:
+                    extraEdgesOffset = offset;
+                    break;
+                case CHUNK_OID_FANOUT:
+                    fanoutOffset = offset;
+                    break;
+                case CHUNK_OID_LOOKUP:
+                    lookupOffset = offset;
+            }
+        }
+
+        if (commitDataOffset < 0 || fanoutOffset < 0 || lookupOffset < 0) {
+            return null;
+        }
+
+        return new CommitGraph(buffer, commitDataOffset, extraEdgesOffset,
+                fanoutOffset, lookupOffset);
+    }
+
+    private CommitGraph(ByteBuffer buffer, int commitDataOffset,
+                        int extraEdgesOffset, int fanoutOffset,
+                        int lookupOffset) {
+        this.buffer           = buffer;
+        this.commitCount      = buffer.getInt(fanoutOffset + 255 * 4);
+        this.commitDataOffset = commitDataOffset;
+        this.extraEdgesOffset = extraEdgesOffset;
+        this.fanoutOffset     = fanoutOffset;
+        this.lookupOffset     = lookupOffset;
+    }
+
+    /**
+     * Releases the contents of the commit graph file
+     * <p>
+     * The graph must not be used after it has been closed.
+     */
+    void close() {
+        buffer = null;
+    }
+
+    /**
+     * Returns the position of the given commit inside the graph
+     *
+     * @param id The ID of the commit to find
+     * @return The position of the commit or {@code -1} if the commit is not
+     *         part of the graph
+     */
+    int findCommit(AnyObjectId id) {
+        int firstByte = id.getFirstByte();
+        int low = firstByte == 0 ? 0 : buffer.getInt(fanoutOffset + (firstByte - 1) * 4);
+        int high = buffer.getInt(fanoutOffset + firstByte * 4);
+        byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            copyId(middle, rawId);
+            int comparison = id.compareTo(rawId, 0);
+            if (comparison == 0) {
+                return middle;
+            } else if (comparison < 0) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the commit time of the commit at the given position
+     *
+     * @param position The position of the commit
+     * @return The commit time in seconds since the epoch
+     */
+    long getCommitTime(int position) {
+        int offset = commitDataOffset + position * COMMIT_DATA_WIDTH + Constants.OBJECT_ID_LENGTH + 8;
+        return ((buffer.getInt(offset) & 0x3L) << 32) |
+                (buffer.getInt(offset + 4) & 0xffffffffL);
+    }
+
+    /**
+     * Returns the number of commits stored in the graph
+     *
+     * @return The number of commits
+     */
+    int getCommitCount() {
+        return commitCount;
+    }
+
+    /**
+     * Returns the generation number of the commit at the given position
+     * <p>
+     * A commit always has a higher generation number than all of its
+     * ancestors.
+     *
+     * @param position The position of the commit
+     * @return The generation number of the commit
+     */
+    int getGeneration(int position) {
+        int offset = commitDataOffset + position * COMMIT_DATA_WIDTH + Constants.OBJECT_ID_LENGTH + 8;
+        return buffer.getInt(offset) >>> 2;
+    }
+
+    /**
+     * Returns the ID of the commit at the given position
+     *
+     * @param position The position of the commit
+     * @return The ID of the commit
+     */
+    ObjectId getObjectId(int position) {
+        byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+        copyId(position, rawId);
+        return ObjectId.fromRaw(rawId);
+    }
+
+    /**
+     * Returns the positions of the parents of the commit at the given
+     * position
+     *
+     * @param position The position of the commit
+     * @return The positions of the commit's parents
+     */
+    int[] getParents(int position) {
+        int offset = commitDataOffset + position * COMMIT_DATA_WIDTH + Constants.OBJECT_ID_LENGTH;
+        int parent1 = buffer.getInt(offset);
+        int parent2 = buffer.getInt(offset + 4);
+
+        if (parent1 == NO_PARENT) {
+            return NO_PARENTS;
+        }
+        if (parent2 == NO_PARENT) {
+            return new int[] { parent1 };
+        }
+        if ((parent2 & LAST_EDGE) == 0) {
+            return new int[] { parent1, parent2 };
+        }
+
+        int edgeOffset = extraEdgesOffset + (parent2 & ~LAST_EDGE) * 4;
+        int edgeCount = 1;
+        while ((buffer.getInt(edgeOffset + (edgeCount - 1) * 4) & LAST_EDGE) == 0) {
+            edgeCount ++;
+        }
+
+        int[] parents = new int[edgeCount + 1];
+        parents[0] = parent1;
+        for (int i = 0; i < edgeCount; i ++) {
+            parents[i + 1] = buffer.getInt(edgeOffset + i * 4) & ~LAST_EDGE;
+        }
+
+        return parents;
+    }
+
+    /**
+     * Copies the raw ID of the commit at the given position
+     *
+     * @param position The position of the commit
+     * @param rawId The array to copy the ID into
+     */
+    private void copyId(int position, byte[] rawId) {
+        int offset = lookupOffset + position * Constants.OBJECT_ID_LENGTH;
+        for (int i = 0; i < Constants.OBJECT_ID_LENGTH; i ++) {
+            rawId[i] = buffer.get(offset + i);
+        }
+    }
+
+}
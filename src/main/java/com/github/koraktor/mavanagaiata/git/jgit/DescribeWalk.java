@@ -0,0 +1,414 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import com.github.koraktor.mavanagaiata.git.DescribeOptions;
+
+/**
+ * Finds the tag nearest to a commit using the same algorithm as
+ * {@code git describe}
+ * <p>
+ * Parents and commit times are read from the commit graph if available, so
+ * commits contained in the graph are never parsed. Other commits are parsed
+ * through the given {@code RevWalk}.
+ * <p>
+ * Commits are visited in the same order as {@code git describe} does, newest
+ * commit time first. Generation numbers only break ties between commits with
+ * the same commit time. They are not used to prune the walk below the best
+ * candidate: commits with a lower generation number may still be unreachable
+ * from the candidate and count towards its depth, so pruning them would
+ * produce other descriptions than Git.
+ * <p>
+ * Like {@code git describe} the walk can be limited to a number of tag
+ * candidates and to the first parents of merge commits.
+ *
+ * @author Sebastian Staudt
+ * @since 0.8.0
+ */
+class DescribeWalk {
+
+    /**
+     * The maximum number of tag candidates supported, limited by the number
+     * of bits available for candidate flags
+     */
+    static final int MAX_CANDIDATES = 30;
+
+    private static final Comparator<Node> NODE_COMPARATOR = new Comparator<Node>() {
+        @Override
+        public int compare(Node node1, Node node2) {
+            if (node1.commitTime != node2.commitTime) {
+                return node1.commitTime > node2.commitTime ? -1 : 1;
+            }
+            if (node1.generation != node2.generation) {
+                return node1.generation > node2.generation ? -1 : 1;
+            }
+            return Integer.compare(node1.order, node2.order);
+        }
+    };
+
+    private final CommitGraph commitGraph;
+
+    private final boolean firstParent;
+
+    private final int maxCandidates;
+
+    private final Map<AnyObjectId, Node> nodes;
+
+    private final PriorityQueue<Node> queue;
+
+    private final RevWalk revWalk;
+
+    private final Map<AnyObjectId, RevTag> tagCommits;
+
+    /**
+     * Creates a new walk
+     *
+     * @param revWalk The walk used to parse commits not contained in the
+     *        commit graph
+     * @param commitGraph The commit graph of the repository or {@code null}
+     * @param tagCommits The tags of the repository by the commits they point
+     *        to
+     */
+    DescribeWalk(RevWalk revWalk, CommitGraph commitGraph,
+                 Map<AnyObjectId, RevTag> tagCommits) {
+        this(revWalk, commitGraph, tagCommits, DescribeOptions.DEFAULT_CANDIDATES, false);
+    }
+
+    /**
+     * Creates a new walk
+     *
+     * @param revWalk The walk used to parse commits not contained in the
+     *        commit graph
+     * @param commitGraph The commit graph of the repository or {@code null}
+     * @param tagCommits The tags of the repository by the commits they point
+     *        to
+     * @param maxCandidates The maximum number of tag candidates to consider
+     * @param firstParent Whether only the first parent of merge commits
+     *        should be followed
+     */
+    DescribeWalk(RevWalk revWalk, CommitGraph commitGraph,
+                 Map<AnyObjectId, RevTag> tagCommits, int maxCandidates,
+                 boolean firstParent) {
+        this.commitGraph   = commitGraph;
+        this.firstParent   = firstParent;
+        this.maxCandidates = Math.min(Math.max(maxCandidates, 1), MAX_CANDIDATES);
+        this.nodes         = new HashMap<>();
+        this.queue         = new PriorityQueue<>(11, NODE_COMPARATOR);
+        this.revWalk       = revWalk;
+        this.tagCommits    = tagCommits;
+    }
+
+    /**
+     * Finds the best tag candidate for the given commit
+     * <p>
+     * The walk stops as soon as the commits left to visit are all reachable
+     * from the best candidate, so they cannot change the result anymore.
+     *
+     * @param start The commit to describe
+     * @return The best tag candidate or {@code null} if no tag is reachable
+     * @throws IOException if a commit cannot be parsed
+     */
+    Candidate describe(RevCommit start) throws IOException {
+        List<Candidate> candidates = new ArrayList<>();
+        int seenCommits = 0;
+        Node gaveUpOn = null;
+
+        enqueue(getNode(start));
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            seenCommits ++;
+
+            RevTag tag = tagCommits.get(node.id);
+            if (tag != null) {
+                if (candidates.size() == maxCandidates) {
+                    gaveUpOn = node;
+                    break;
+                }
+
+                Candidate candidate = new Candidate(node.id, tag,
+                        seenCommits - 1, 1 << candidates.size());
+                candidates.add(candidate);
+                node.flags |= candidate.flag;
+            }
+
+            for (Candidate candidate : candidates) {
+                if ((node.flags & candidate.flag) == 0) {
+                    candidate.depth ++;
+                }
+            }
+
+            if (!candidates.isEmpty() && queue.isEmpty()) {
+                int bestFlags = getBestFlags(candidates);
+                if ((node.flags & bestFlags) == bestFlags) {
+                    break;
+                }
+            }
+
+            addParents(node);
+        }
+
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        Collections.sort(candidates);
+        Candidate best = candidates.get(0);
+
+        if (gaveUpOn != null) {
+            queue.add(gaveUpOn);
+        }
+        finishDepth(best);
+
+        return best;
+    }
+
+    /**
+     * Enqueues the parents of the given node that have not been seen yet and
+     * passes the candidate flags of the node to all of them
+     *
+     * @param node The node whose parents should be visited
+     * @throws IOException if a parent commit cannot be parsed
+     */
+    private void addParents(Node node) throws IOException {
+        for (Node parent : getParents(node)) {
+            if (!parent.seen) {
+                enqueue(parent);
+            }
+            parent.flags |= node.flags;
+        }
+    }
+
+    /**
+     * Marks the given node as seen and adds it to the queue
+     *
+     * @param node The node to enqueue
+     */
+    private void enqueue(Node node) {
+        node.seen = true;
+        queue.add(node);
+    }
+
+    /**
+     * Continues the walk to compute the final depth of the best candidate
+     *
+     * @param best The best candidate found
+     * @throws IOException if a commit cannot be parsed
+     */
+    private void finishDepth(Candidate best) throws IOException {
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+
+            if ((node.flags & best.flag) != 0) {
+                boolean allReachable = true;
+                for (Node queuedNode : queue) {
+                    if ((queuedNode.flags & best.flag) == 0) {
+                        allReachable = false;
+                        break;
+                    }
+                }
+
+                if (allReachable) {
+                    break;
+                }
+            } else {
+                best.depth ++;
+            }
+
+            addParents(node);
+        }
+    }
+
+    /**
+     * Returns the combined flags of all candidates with the lowest depth
+     *
+     * @param candidates The candidates found so far
+     * @return The flags of the best candidates
+     */
+    private int getBestFlags(List<Candidate> candidates) {
+        int bestDepth = Integer.MAX_VALUE;
+        int bestFlags = 0;
+        for (Candidate candidate : candidates) {
+            if (candidate.depth < bestDepth) {
+                bestDepth = candidate.depth;
+                bestFlags = candidate.flag;
+            } else if (candidate.depth == bestDepth) {
+                bestFlags |= candidate.flag;
+            }
+        }
+
+        return bestFlags;
+    }
+
+    /**
+     * Returns the node for the commit at the given position of the commit
+     * graph
+     *
+     * @param position The position of the commit in the commit graph
+     * @return The node for the commit
+     */
+    private Node getNode(int position) {
+        ObjectId id = commitGraph.getObjectId(position);
+        Node node = nodes.get(id);
+        if (node == null) {
+            node = new Node(id, nodes.size());
+            node.commitTime = commitGraph.getCommitTime(position);
+            node.generation = commitGraph.getGeneration(position);
+            node.position = position;
+            nodes.put(id, node);
+        }
+
+        return node;
+    }
+
+    /**
+     * Returns the node for the given commit
+     * <p>
+     * The commit is only parsed if it is not contained in the commit graph.
+     *
+     * @param commit The commit
+     * @return The node for the commit
+     * @throws IOException if the commit cannot be parsed
+     */
+    private Node getNode(RevCommit commit) throws IOException {
+        Node node = nodes.get(commit);
+        if (node != null) {
+            return node;
+        }
+
+        if (commitGraph != null) {
+            int position = commitGraph.findCommit(commit);
+            if (position >= 0) {
+                return getNode(position);
+            }
+        }
+
+        revWalk.parseHeaders(commit);
+
+        node = new Node(commit, nodes.size());
+        node.commit = commit;
+        node.commitTime = commit.getCommitTime();
+        node.generation = Integer.MAX_VALUE;
+        nodes.put(commit, node);
+
+        return node;
+    }
+
+    /**
+     * Returns the nodes for the parents of the given node
+     *
+     * @param node The node to get the parents for
+     * @return The parent nodes
+     * @throws IOException if a parent commit cannot be parsed
+     */
+    private Node[] getParents(Node node) throws IOException {
+        Node[] parents;
+        if (node.commit == null) {
+            int[] parentPositions = commitGraph.getParents(node.position);
+            int parentCount = (firstParent) ? Math.min(parentPositions.length, 1) : parentPositions.length;
+            parents = new Node[parentCount];
+            for (int i = 0; i < parentCount; i ++) {
+                parents[i] = getNode(parentPositions[i]);
+            }
+        } else {
+            RevCommit[] parentCommits = node.commit.getParents();
+            if (parentCommits == null) {
+                return new Node[0];
+            }
+
+            int parentCount = (firstParent) ? Math.min(parentCommits.length, 1) : parentCommits.length;
+            parents = new Node[parentCount];
+            for (int i = 0; i < parentCount; i ++) {
+                parents[i] = getNode(parentCommits[i]);
+            }
+        }
+
+        return parents;
+    }
+
+    /**
+     * A tag that could be the nearest tag of the described commit
+     */
+    static class Candidate implements Comparable<Candidate> {
+
+        final ObjectId commitId;
+
+        int depth;
+
+        final int flag;
+
+        final RevTag tag;
+
+        Candidate(ObjectId commitId, RevTag tag, int depth, int flag) {
+            this.commitId = commitId;
+            this.depth    = depth;
+            this.flag     = flag;
+            this.tag      = tag;
+        }
+
+        /**
+         * Compares candidates by their depth and by the order they have been
+         * found in
+         *
+         * @param candidate The candidate to compare to
+         * @return The comparison result
+         */
+        @Override
+        public int compareTo(Candidate candidate) {
+            if (depth != candidate.depth) {
+                return Integer.compare(depth, candidate.depth);
+            }
+
+            return Integer.compare(flag, candidate.flag);
+        }
+
+    }
+
+    /**
+     * A commit visited during the walk
+     */
+    private static class Node {
+
+        RevCommit commit;
+
+        long commitTime;
+
+        int flags;
+
+        int generation;
+
+        final ObjectId id;
+
+        final int order;
+
+        int position = -1;
+
+        boolean seen;
+
+        Node(ObjectId id, int order) {
+            this.id    = id;
+            this.order = order;
+        }
+
+    }
+
+}
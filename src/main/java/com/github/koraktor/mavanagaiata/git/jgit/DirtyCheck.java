@@ -0,0 +1,433 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.submodule.SubmoduleWalk;
+import org.eclipse.jgit.submodule.SubmoduleWalk.IgnoreSubmoduleMode;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+
+import static org.eclipse.jgit.treewalk.TreeWalk.OperationType.CHECKIN_OP;
+
+/**
+ * Checks whether the worktree of a repository differs from its {@code HEAD}
+ * commit
+ * <p>
+ * In contrast to JGit's {@code IndexDiff} the {@code HEAD} tree, the index
+ * and the worktree are walked together and the check stops at the first
+ * difference found. Untracked directories are not entered at all if
+ * untracked files should be ignored.
+ * <p>
+ * If a parallelism greater than one is given, the top-level and second-level
+ * directories are checked concurrently in a fork/join pool. The pools are
+ * shared by all checks with the same parallelism, so multi-module builds do
+ * not start new threads for every module. Each directory
+ * is walked with its own iterators, so comparing file contents is done in
+ * parallel, too. All walks stop as soon as any of them finds a change.
+ * <p>
+ * The check can be limited to a path inside the worktree. Directories
+ * outside of that path are skipped by the walks.
+ *
+ * @author Sebastian Staudt
+ * @since 0.8.0
+ */
+class DirtyCheck {
+
+    private static final int HEAD = 0;
+
+    private static final int INDEX = 1;
+
+    private static final int WORKTREE = 2;
+
+    /**
+     * The depth up to which directories are checked in separate tasks
+     */
+    static final int SPLIT_DEPTH = 2;
+
+    /**
+     * The shared fork/join pools by their parallelism
+     */
+    static final ConcurrentMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    private DirCache dirCache;
+
+    private final AtomicBoolean dirty;
+
+    private volatile boolean hasSubmodules;
+
+    private final ObjectId headObject;
+
+    private ObjectId headTree;
+
+    private final boolean ignoreUntracked;
+
+    private final int parallelism;
+
+    private final String path;
+
+    private final Repository repository;
+
+    /**
+     * Creates a new dirty check for the given repository
+     *
+     * @param repository The repository to check
+     * @param headObject The commit to compare the index and worktree to or
+     *        {@code null} for an unborn branch
+     * @param ignoreUntracked Whether untracked files should be ignored
+     * @param parallelism The number of threads to use for the check
+     * @param path The path relative to the worktree root to limit the check
+     *        to or {@code null} to check the whole worktree
+     */
+    DirtyCheck(Repository repository, ObjectId headObject,
+               boolean ignoreUntracked, int parallelism, String path) {
+        this.dirty           = new AtomicBoolean();
+        this.headObject      = headObject;
+        this.ignoreUntracked = ignoreUntracked;
+        this.parallelism     = parallelism;
+        this.path            = path;
+        this.repository      = repository;
+    }
+
+    /**
+     * Returns whether there are any changes in the index or worktree
+     * <p>
+     * Submodules are checked after the repository itself and only if no
+     * change has been found yet.
+     *
+     * @return {@code true} if the index or worktree has been changed
+     * @throws IOException if the repository cannot be read
+     */
+    boolean isDirty() throws IOException {
+        return walk() || hasSubmodules && areSubmodulesDirty();
+    }
+
+    /**
+     * Returns whether the submodules of the repository contain any changes
+     * <p>
+     * This respects the {@code ignore} settings of the submodules.
+     *
+     * @return {@code true} if any submodule has been changed
+     * @throws IOException if a submodule cannot be read
+     */
+    boolean areSubmodulesDirty() throws IOException {
+        try (SubmoduleWalk submoduleWalk = SubmoduleWalk.forIndex(repository)) {
+            if (path != null) {
+                submoduleWalk.setFilter(PathFilter.create(path));
+            }
+
+            while (submoduleWalk.next()) {
+                IgnoreSubmoduleMode ignoreMode;
+                try {
+                    ignoreMode = submoduleWalk.getModulesIgnore();
+                } catch (ConfigInvalidException e) {
+                    throw new IOException("Invalid submodule configuration for " +
+                            submoduleWalk.getPath(), e);
+                }
+
+                if (ignoreMode == IgnoreSubmoduleMode.ALL) {
+                    continue;
+                }
+
+                try (Repository submodule = submoduleWalk.getRepository()) {
+                    if (submodule == null) {
+                        continue;
+                    }
+
+                    ObjectId submoduleHead = submodule.resolve("HEAD");
+                    if (submoduleHead != null &&
+                            !submoduleHead.equals(submoduleWalk.getObjectId())) {
+                        return true;
+                    }
+
+                    if (ignoreMode != IgnoreSubmoduleMode.DIRTY) {
+                        boolean ignoreSubmoduleUntracked = ignoreUntracked ||
+                                ignoreMode == IgnoreSubmoduleMode.UNTRACKED;
+                        DirtyCheck dirtyCheck = new DirtyCheck(submodule,
+                                submoduleWalk.getObjectId(),
+                                ignoreSubmoduleUntracked, parallelism, null);
+                        if (dirtyCheck.isDirty()) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Creates a walk over the {@code HEAD} tree, the index and the worktree
+     * <p>
+     * Every walk uses its own iterators and object reader, so walks can be
+     * used concurrently.
+     *
+     * @return A new tree walk
+     * @throws IOException if the trees cannot be read
+     */
+    TreeWalk createTreeWalk() throws IOException {
+        TreeWalk treeWalk = new TreeWalk(repository);
+        treeWalk.setOperationType(CHECKIN_OP);
+
+        if (headTree == null) {
+            treeWalk.addTree(new EmptyTreeIterator());
+        } else {
+            treeWalk.addTree(headTree);
+        }
+        treeWalk.addTree(new DirCacheIterator(dirCache));
+
+        FileTreeIterator workTreeIterator = new FileTreeIterator(repository);
+        treeWalk.addTree(workTreeIterator);
+        workTreeIterator.setDirCacheIterator(treeWalk, INDEX);
+
+        return treeWalk;
+    }
+
+    /**
+     * Reads the {@code HEAD} tree and the index shared by all walks
+     *
+     * @throws IOException if the {@code HEAD} commit or the index cannot be
+     *         read
+     */
+    private void prepare() throws IOException {
+        if (headObject != null && !headObject.equals(ObjectId.zeroId())) {
+            try (RevWalk revWalk = new RevWalk(repository)) {
+                headTree = revWalk.parseTree(headObject).copy();
+            }
+        }
+
+        dirCache = repository.readDirCache();
+
+        // Builds the cache tree once, before iterators are used concurrently
+        dirCache.getCacheTree(true);
+    }
+
+    /**
+     * Returns whether the current entry of the walk is a difference between
+     * the {@code HEAD} tree, the index and the worktree
+     *
+     * @param treeWalk The walk positioned at a file entry
+     * @return {@code true} if the entry has been changed
+     * @throws IOException if the file contents cannot be compared
+     */
+    private boolean isChanged(TreeWalk treeWalk) throws IOException {
+        AbstractTreeIterator headIterator = treeWalk.getTree(HEAD, AbstractTreeIterator.class);
+        DirCacheIterator indexIterator = treeWalk.getTree(INDEX, DirCacheIterator.class);
+        WorkingTreeIterator workTreeIterator = treeWalk.getTree(WORKTREE, WorkingTreeIterator.class);
+
+        if (indexIterator == null) {
+            if (headIterator != null) {
+                return true;
+            }
+
+            return !ignoreUntracked && !workTreeIterator.isEntryIgnored();
+        }
+
+        DirCacheEntry indexEntry = indexIterator.getDirCacheEntry();
+        if (indexEntry.isSkipWorkTree()) {
+            return false;
+        }
+        if (indexEntry.getStage() > 0) {
+            return true;
+        }
+        if (indexEntry.getFileMode() == FileMode.GITLINK) {
+            hasSubmodules = true;
+        }
+
+        if (headIterator == null ||
+                !headIterator.idEqual(indexIterator) ||
+                headIterator.getEntryRawMode() != indexIterator.getEntryRawMode()) {
+            return true;
+        }
+
+        return workTreeIterator == null ||
+                workTreeIterator.isModified(indexEntry, true, treeWalk.getObjectReader());
+    }
+
+    /**
+     * Walks the {@code HEAD} tree, the index and the worktree until the first
+     * difference is found
+     *
+     * @return {@code true} if a difference has been found
+     * @throws IOException if the trees cannot be read
+     */
+    boolean walk() throws IOException {
+        prepare();
+
+        if (parallelism <= 1) {
+            return new WalkTask(null, 0).walk();
+        }
+
+        try {
+            return getPool(parallelism).invoke(new WalkTask(null, SPLIT_DEPTH));
+        } catch (WalkException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Returns the shared fork/join pool for the given parallelism
+     * <p>
+     * The pool is created on first use. Its worker threads are daemon
+     * threads that terminate when the pool is idle, so the pools are never
+     * shut down.
+     *
+     * @param parallelism The parallelism of the pool
+     * @return The pool for the given parallelism
+     */
+    static ForkJoinPool getPool(int parallelism) {
+        ForkJoinPool pool = POOLS.get(parallelism);
+        if (pool == null) {
+            ForkJoinPool newPool = new ForkJoinPool(parallelism);
+            pool = POOLS.putIfAbsent(parallelism, newPool);
+            if (pool == null) {
+                pool = newPool;
+            } else {
+                newPool.shutdown();
+            }
+        }
+
+        return pool;
+    }
+
+    /**
+     * Returns whether the walk should enter the current directory
+     * <p>
+     * Directories only present in the worktree are skipped if untracked
+     * files are ignored or the directory itself is ignored.
+     *
+     * @param treeWalk The walk positioned at a directory entry
+     * @return {@code true} if the directory should be entered
+     * @throws IOException if the ignore rules cannot be read
+     */
+    private boolean shouldEnter(TreeWalk treeWalk) throws IOException {
+        if (treeWalk.getRawMode(HEAD) != 0 || treeWalk.getRawMode(INDEX) != 0) {
+            return true;
+        }
+
+        return !ignoreUntracked &&
+                !treeWalk.getTree(WORKTREE, WorkingTreeIterator.class).isEntryIgnored();
+    }
+
+    /**
+     * Wraps I/O errors occurring inside fork/join tasks
+     */
+    private static class WalkException extends RuntimeException {
+
+        WalkException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+
+    }
+
+    /**
+     * Walks a directory and forks new tasks for its subdirectories up to a
+     * given depth
+     */
+    private class WalkTask extends RecursiveTask<Boolean> {
+
+        private final String directory;
+
+        private final int splitDepth;
+
+        /**
+         * Creates a new task for the given directory
+         *
+         * @param directory The path of the directory or {@code null} for the
+         *        root of the worktree
+         * @param splitDepth The depth up to which subdirectories are walked
+         *        in separate tasks
+         */
+        WalkTask(String directory, int splitDepth) {
+            this.directory  = directory;
+            this.splitDepth = splitDepth;
+        }
+
+        @Override
+        protected Boolean compute() {
+            try {
+                return walk();
+            } catch (IOException e) {
+                throw new WalkException(e);
+            }
+        }
+
+        /**
+         * Walks the directory of this task
+         *
+         * @return {@code true} if a difference has been found
+         * @throws IOException if the trees cannot be read
+         */
+        boolean walk() throws IOException {
+            List<WalkTask> tasks = new ArrayList<>();
+
+            try (TreeWalk treeWalk = createTreeWalk()) {
+                String filterPath = directory;
+                if (path != null && (directory == null || path.startsWith(directory + "/"))) {
+                    filterPath = path;
+                }
+                if (filterPath != null) {
+                    treeWalk.setFilter(PathFilter.create(filterPath));
+                }
+
+                while (!dirty.get() && treeWalk.next()) {
+                    if (treeWalk.isSubtree()) {
+                        String currentPath = treeWalk.getPathString();
+                        if (directory != null && !currentPath.startsWith(directory + "/")) {
+                            treeWalk.enterSubtree();
+                        } else if (shouldEnter(treeWalk)) {
+                            if (treeWalk.getDepth() < splitDepth) {
+                                WalkTask task = new WalkTask(currentPath, splitDepth);
+                                task.fork();
+                                tasks.add(task);
+                            } else {
+                                treeWalk.enterSubtree();
+                            }
+                        }
+                    } else if (isChanged(treeWalk)) {
+                        dirty.set(true);
+                    }
+                }
+            }
+
+            for (WalkTask task : tasks) {
+                task.join();
+            }
+
+            return dirty.get();
+        }
+
+    }
+
+}
@@ -2,7 +2,7 @@
  * This code is free software; you can redistribute it and/or modify it under
  * the terms of the new BSD License.
  *
- * Copyright (c) 2012-2016, Sebastian Staudt
+ * Copyright (c) 2012-2017, Sebastian Staudt
  */
 
 package com.github.koraktor.mavanagaiata.git.jgit;
@@ -17,6 +17,10 @@ import com.github.koraktor.mavanagaiata.git.GitCommit;
 
 /**
  * Wrapper around JGit's {@link RevCommit} object to represent a Git commit
+ * <p>
+ * The properties of the commit are decoded lazily from the raw commit buffer
+ * when they are accessed for the first time and cached afterwards. So
+ * consumers only pay for the parts of a commit they actually use.
  *
  * @author Sebastian Staudt
  */
@@ -28,15 +32,19 @@ public class JGitCommit implements GitCommit {
 
     protected PersonIdent committer;
 
+    private String id;
+
+    private String message;
+
+    private String messageSubject;
+
     /**
      * Creates a new instance from a JGit commit object
      *
      * @param commit The commit object to wrap
      */
     public JGitCommit(RevCommit commit) {
-        this.author    = commit.getAuthorIdent();
-        this.commit    = commit;
-        this.committer = commit.getCommitterIdent();
+        this.commit = commit;
     }
 
     /**
@@ -55,48 +63,90 @@ public class JGitCommit implements GitCommit {
 
     }
 
+    /**
+     * Returns the author identity of this commit
+     * <p>
+     * The identity is parsed from the commit on first access.
+     *
+     * @return The author of this commit
+     */
+    protected PersonIdent getAuthor() {
+        if (author == null) {
+            author = commit.getAuthorIdent();
+        }
+
+        return author;
+    }
+
+    /**
+     * Returns the committer identity of this commit
+     * <p>
+     * The identity is parsed from the commit on first access.
+     *
+     * @return The committer of this commit
+     */
+    protected PersonIdent getCommitter() {
+        if (committer == null) {
+            committer = commit.getCommitterIdent();
+        }
+
+        return committer;
+    }
+
     public Date getAuthorDate() {
-        return this.author.getWhen();
+        return getAuthor().getWhen();
     }
 
     public String getAuthorEmailAddress() {
-        return this.author.getEmailAddress();
+        return getAuthor().getEmailAddress();
     }
 
     public String getAuthorName() {
-        return this.author.getName();
+        return getAuthor().getName();
     }
 
     public TimeZone getAuthorTimeZone() {
-        return this.author.getTimeZone();
+        return getAuthor().getTimeZone();
     }
 
     public Date getCommitterDate() {
-        return this.committer.getWhen();
+        return getCommitter().getWhen();
     }
 
     public String getCommitterEmailAddress() {
-        return this.committer.getEmailAddress();
+        return getCommitter().getEmailAddress();
     }
 
     public String getCommitterName() {
-        return this.committer.getName();
+        return getCommitter().getName();
     }
 
     public TimeZone getCommitterTimeZone() {
-        return this.committer.getTimeZone();
+        return getCommitter().getTimeZone();
     }
 
     public String getId() {
-        return this.commit.getName();
+        if (id == null) {
+            id = commit.getName();
+        }
+
+        return id;
     }
 
     public String getMessage() {
-        return commit.getFullMessage();
+        if (message == null) {
+            message = commit.getFullMessage();
+        }
+
+        return message;
     }
 
     public String getMessageSubject() {
-        return this.commit.getShortMessage();
+        if (messageSubject == null) {
+            messageSubject = commit.getShortMessage();
+        }
+
+        return messageSubject;
     }
 
     /**
@@ -0,0 +1,196 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.NoSuchElementException;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import com.github.koraktor.mavanagaiata.git.CommitIterator;
+import com.github.koraktor.mavanagaiata.git.GitCommit;
+import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
+
+/**
+ * Iterates over the commits of a JGit {@code RevWalk}
+ * <p>
+ * The walk is closed as soon as the iteration ends, either because there
+ * are no more commits, because a limit has been reached or because the
+ * iterator has been closed explicitly.
+ *
+ * @author Sebastian Staudt
+ * @since 0.8.0
+ */
+class JGitCommitIterator implements CommitIterator {
+
+    private int count;
+
+    private final int estimatedCount;
+
+    private boolean headerOnly;
+
+    private int maxCount = -1;
+
+    /**
+     * The commit read ahead by {@link #hasNext()}
+     */
+    private GitCommit nextCommit;
+
+    private RevWalk revWalk;
+
+    private long since = Long.MIN_VALUE;
+
+    /**
+     * Creates a new iterator for an already started walk
+     *
+     * @param revWalk The walk to iterate
+     * @param estimatedCount An estimate of the number of commits of the walk
+     *        or {@code -1} if unknown
+     */
+    JGitCommitIterator(RevWalk revWalk, int estimatedCount) {
+        this.estimatedCount = estimatedCount;
+        this.revWalk        = revWalk;
+    }
+
+    @Override
+    public void close() {
+        nextCommit = null;
+
+        if (revWalk != null) {
+            revWalk.close();
+            revWalk = null;
+        }
+    }
+
+    @Override
+    public int getEstimatedSize() {
+        if (revWalk == null) {
+            return 0;
+        }
+
+        int returned = (nextCommit == null) ? count : count - 1;
+        int remaining = -1;
+        if (estimatedCount >= 0) {
+            remaining = Math.max(estimatedCount - returned, 0);
+        }
+        if (maxCount >= 0 && (remaining < 0 || maxCount - returned < remaining)) {
+            remaining = maxCount - returned;
+        }
+
+        return remaining;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextCommit == null) {
+            try {
+                nextCommit = read();
+            } catch (GitRepositoryException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+
+        return nextCommit != null;
+    }
+
+    @Override
+    public GitCommit next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        GitCommit commit = nextCommit;
+        nextCommit = null;
+
+        return commit;
+    }
+
+    @Override
+    public GitCommit nextCommit() throws GitRepositoryException {
+        if (nextCommit != null) {
+            GitCommit commit = nextCommit;
+            nextCommit = null;
+
+            return commit;
+        }
+
+        return read();
+    }
+
+    /**
+     * Reads the next commit from the walk
+     *
+     * @return The next commit or {@code null} if the iteration has ended
+     * @throws GitRepositoryException if the next commit cannot be read
+     */
+    private GitCommit read() throws GitRepositoryException {
+        if (revWalk == null) {
+            return null;
+        }
+
+        if (maxCount >= 0 && count >= maxCount) {
+            close();
+            return null;
+        }
+
+        RevCommit commit;
+        try {
+            commit = revWalk.next();
+        } catch (IOException e) {
+            close();
+            throw new GitRepositoryException("Could not read the next commit.", e);
+        }
+
+        if (commit == null || commit.getCommitTime() * 1000L < since) {
+            close();
+            return null;
+        }
+
+        count ++;
+
+        return headerOnly ? new JGitHeaderCommit(commit) : new JGitCommit(commit);
+    }
+
+    /**
+     * Sets whether only the headers of the commits are used
+     * <p>
+     * In this case the iterator returns commits optimized for accessing
+     * identities and dates. Their bodies are released from the walk, so it
+     * does not retain the bodies of all commits already returned.
+     *
+     * @param headerOnly {@code true} if the messages of the commits are not
+     *        needed
+     * @see JGitHeaderCommit
+     */
+    void setHeaderOnly(boolean headerOnly) {
+        this.headerOnly = headerOnly;
+    }
+
+    /**
+     * Not supported, commits cannot be removed from the history
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setMaxCount(int maxCount) {
+        this.maxCount = maxCount;
+    }
+
+    @Override
+    public void setSince(Date since) {
+        this.since = (since == null) ? Long.MIN_VALUE : since.getTime();
+    }
+
+}
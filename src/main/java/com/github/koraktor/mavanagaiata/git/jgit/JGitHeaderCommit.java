@@ -0,0 +1,290 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.util.RawParseUtils;
+import org.eclipse.jgit.util.StringUtils;
+
+/**
+ * A commit optimized for accessing the identities and dates from the header
+ * of a JGit commit
+ * <p>
+ * The raw commit buffer is taken from the {@link RevCommit} and released
+ * there, so a walk does not retain the bodies of the commits it has already
+ * produced. The identity lines are located in the raw buffer by a scanner
+ * that does not allocate any objects, only the requested names and email
+ * addresses are decoded. The commit message is only decoded if it is
+ * requested.
+ *
+ * @author Sebastian Staudt
+ * @see com.github.koraktor.mavanagaiata.git.CommitWalkAction#isHeaderOnly()
+ * @since 0.8.0
+ */
+class JGitHeaderCommit extends JGitCommit {
+
+    private String authorEmailAddress;
+
+    private String authorName;
+
+    private Charset charset;
+
+    private String committerEmailAddress;
+
+    private String committerName;
+
+    private final byte[] raw;
+
+    /**
+     * Creates a new instance from a JGit commit object and releases the body
+     * of the commit object
+     *
+     * @param commit The commit object to wrap
+     */
+    JGitHeaderCommit(RevCommit commit) {
+        super(commit);
+
+        raw = commit.getRawBuffer();
+        commit.disposeBody();
+    }
+
+    @Override
+    protected PersonIdent getAuthor() {
+        if (author == null) {
+            int start = RawParseUtils.author(raw, 0);
+            author = new PersonIdent(getAuthorName(), getAuthorEmailAddress(),
+                    parseTime(start) * 1000L, parseTimeZoneOffset(start));
+        }
+
+        return author;
+    }
+
+    @Override
+    protected PersonIdent getCommitter() {
+        if (committer == null) {
+            int start = RawParseUtils.committer(raw, 0);
+            committer = new PersonIdent(getCommitterName(), getCommitterEmailAddress(),
+                    parseTime(start) * 1000L, parseTimeZoneOffset(start));
+        }
+
+        return committer;
+    }
+
+    @Override
+    public Date getAuthorDate() {
+        return new Date(parseTime(RawParseUtils.author(raw, 0)) * 1000L);
+    }
+
+    @Override
+    public String getAuthorEmailAddress() {
+        if (authorEmailAddress == null) {
+            authorEmailAddress = decodeEmailAddress(RawParseUtils.author(raw, 0));
+        }
+
+        return authorEmailAddress;
+    }
+
+    @Override
+    public String getAuthorName() {
+        if (authorName == null) {
+            authorName = decodeName(RawParseUtils.author(raw, 0));
+        }
+
+        return authorName;
+    }
+
+    @Override
+    public TimeZone getAuthorTimeZone() {
+        return getAuthor().getTimeZone();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The committer date is already known to the walk, so the header does
+     * not need to be scanned.
+     */
+    @Override
+    public Date getCommitterDate() {
+        return new Date(commit.getCommitTime() * 1000L);
+    }
+
+    @Override
+    public String getCommitterEmailAddress() {
+        if (committerEmailAddress == null) {
+            committerEmailAddress = decodeEmailAddress(RawParseUtils.committer(raw, 0));
+        }
+
+        return committerEmailAddress;
+    }
+
+    @Override
+    public String getCommitterName() {
+        if (committerName == null) {
+            committerName = decodeName(RawParseUtils.committer(raw, 0));
+        }
+
+        return committerName;
+    }
+
+    @Override
+    public TimeZone getCommitterTimeZone() {
+        return getCommitter().getTimeZone();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The message is decoded from the raw commit on each access.
+     */
+    @Override
+    public String getMessage() {
+        int start = RawParseUtils.commitMessage(raw, 0);
+        if (start < 0) {
+            return "";
+        }
+
+        return RawParseUtils.decode(getCharset(), raw, start, raw.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The subject is decoded from the raw commit on each access.
+     */
+    @Override
+    public String getMessageSubject() {
+        int start = RawParseUtils.commitMessage(raw, 0);
+        if (start < 0) {
+            return "";
+        }
+
+        int end = RawParseUtils.endOfParagraph(raw, start);
+        return StringUtils.replaceLineBreaksWithSpace(
+                RawParseUtils.decode(getCharset(), raw, start, end));
+    }
+
+    /**
+     * Returns the encoding of the commit
+     * <p>
+     * Like JGit this assumes UTF-8 if the encoding is unknown.
+     *
+     * @return The charset of the commit
+     */
+    private Charset getCharset() {
+        if (charset == null) {
+            try {
+                charset = RawParseUtils.parseEncoding(raw);
+            } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                charset = StandardCharsets.UTF_8;
+            }
+        }
+
+        return charset;
+    }
+
+    /**
+     * Decodes the email address of an identity line
+     *
+     * @param start The position of the name in the identity line
+     * @return The email address or {@code null} if there is no such line
+     */
+    private String decodeEmailAddress(int start) {
+        if (start < 0) {
+            return null;
+        }
+
+        int emailStart = RawParseUtils.nextLF(raw, start, '<');
+        int emailEnd = RawParseUtils.nextLF(raw, emailStart, '>');
+
+        return RawParseUtils.decode(getCharset(), raw, emailStart, emailEnd - 1);
+    }
+
+    /**
+     * Decodes the name of an identity line
+     *
+     * @param start The position of the name in the identity line
+     * @return The name or {@code null} if there is no such line
+     */
+    private String decodeName(int start) {
+        if (start < 0) {
+            return null;
+        }
+
+        int emailStart = RawParseUtils.nextLF(raw, start, '<');
+        int nameEnd = (emailStart - 2 >= start && raw[emailStart - 2] == ' ') ?
+                emailStart - 2 : emailStart - 1;
+
+        return RawParseUtils.decode(getCharset(), raw, start, nameEnd);
+    }
+
+    /**
+     * Returns the position of the time zone of an identity line
+     *
+     * @param start The position of the name in the identity line
+     * @return The position of the time zone or {@code -1} if there is none
+     */
+    private int findTimeZone(int start) {
+        if (start < 0) {
+            return -1;
+        }
+
+        int emailEnd = RawParseUtils.nextLF(raw, RawParseUtils.nextLF(raw, start, '<'), '>');
+        int timeZoneStart = RawParseUtils.lastIndexOfTrim(raw, ' ',
+                RawParseUtils.nextLF(raw, emailEnd - 1) - 2) + 1;
+
+        return (timeZoneStart <= emailEnd) ? -1 : timeZoneStart;
+    }
+
+    /**
+     * Parses the time of an identity line
+     *
+     * @param start The position of the name in the identity line
+     * @return The time in seconds since the epoch or {@code 0} if there is
+     *         none
+     */
+    private long parseTime(int start) {
+        int timeZoneStart = findTimeZone(start);
+        if (timeZoneStart < 0) {
+            return 0;
+        }
+
+        int emailEnd = RawParseUtils.nextLF(raw, RawParseUtils.nextLF(raw, start, '<'), '>');
+        int timeStart = Math.max(emailEnd,
+                RawParseUtils.lastIndexOfTrim(raw, ' ', timeZoneStart - 1) + 1);
+        if (timeStart >= timeZoneStart - 1) {
+            return 0;
+        }
+
+        return RawParseUtils.parseLongBase10(raw, timeStart, null);
+    }
+
+    /**
+     * Parses the time zone of an identity line
+     *
+     * @param start The position of the name in the identity line
+     * @return The time zone offset in minutes or {@code 0} if there is none
+     */
+    private int parseTimeZoneOffset(int start) {
+        int timeZoneStart = findTimeZone(start);
+        if (timeZoneStart < 0) {
+            return 0;
+        }
+
+        return RawParseUtils.parseTimeZoneOffset(raw, timeZoneStart);
+    }
+
+}
@@ -10,57 +10,101 @@ package com.github.koraktor.mavanagaiata.git.jgit;
 
 import java.io.File;
 import java.io.IOException;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.regex.PatternSyntaxException;
 
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
-import org.eclipse.jgit.lib.IndexDiff;
+import org.eclipse.jgit.errors.InvalidPatternException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.fnmatch.FileNameMatcher;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.AsyncRevObjectQueue;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevFlag;
-import org.eclipse.jgit.revwalk.RevFlagSet;
 import org.eclipse.jgit.revwalk.RevObject;
 import org.eclipse.jgit.revwalk.RevTag;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.AndRevFilter;
+import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
+import org.eclipse.jgit.revwalk.filter.MaxCountRevFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
-import org.eclipse.jgit.treewalk.FileTreeIterator;
 
 import com.github.koraktor.mavanagaiata.git.AbstractGitRepository;
+import com.github.koraktor.mavanagaiata.git.CommitFilter;
+import com.github.koraktor.mavanagaiata.git.CommitIterator;
 import com.github.koraktor.mavanagaiata.git.CommitWalkAction;
+import com.github.koraktor.mavanagaiata.git.DescribeOptions;
 import com.github.koraktor.mavanagaiata.git.GitCommit;
 import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
 import com.github.koraktor.mavanagaiata.git.GitTag;
 import com.github.koraktor.mavanagaiata.git.GitTagDescription;
+import com.github.koraktor.mavanagaiata.git.MailMap;
 
 /**
  * Wrapper around JGit's {@link Repository} object to represent a Git
  * repository
+ * <p>
+ * Instances may be used by several threads concurrently. Every operation
+ * walking the history uses its own {@code RevWalk}, values loaded lazily are
+ * initialized only once and the results of expensive queries like
+ * {@link #describe(DescribeOptions)} and {@link #isDirty(boolean, String)} are computed only
+ * once, even if they are requested concurrently.
  *
  * @author Sebastian Staudt
  */
 public class JGitRepository extends AbstractGitRepository {
 
-    protected Map<ObjectId, RevCommit> commitCache;
+    Abbreviator abbreviator;
 
-    boolean checked;
+    protected CommitCache commitCache;
 
-    protected Repository repository;
+    volatile boolean checked;
 
-    protected ObjectId headObject;
+    CommitGraph commitGraph;
 
-    protected RevWalk revWalk;
+    boolean commitGraphLoaded;
+
+    protected volatile Repository repository;
+
+    protected volatile ObjectId headObject;
+
+    protected volatile Map<String, RevTag> rawTags;
+
+    /**
+     * The names of the tags in {@link #rawTags} by the SHA IDs of the
+     * commits they point to
+     */
+    volatile Map<String, String> tagNames;
+
+    final ConcurrentMap<String, Future<?>> results;
+
+    protected volatile Map<String, GitTag> tags;
 
     /**
      * Creates a new empty instance
      */
     JGitRepository() {
-        commitCache = new HashMap<>();
+        commitCache = new CommitCache();
+        results = new ConcurrentHashMap<>();
     }
 
     /**
@@ -79,6 +123,40 @@ public class JGitRepository extends AbstractGitRepository {
     }
 
     void buildRepository(File workTree, File gitDir) throws GitRepositoryException {
+        buildRepository(prepareRepositoryBuilder(workTree, gitDir));
+    }
+
+    /**
+     * Builds the JGit repository instance from a prepared repository builder
+     *
+     * @param repositoryBuilder The builder with resolved GIT_DIR and worktree
+     * @throws GitRepositoryException if the repository cannot be opened
+     * @see #prepareRepositoryBuilder
+     */
+    void buildRepository(FileRepositoryBuilder repositoryBuilder)
+            throws GitRepositoryException {
+        try {
+            this.repository = repositoryBuilder.build();
+        } catch (IOException e) {
+            throw new GitRepositoryException("Could not initialize repository", e);
+        }
+    }
+
+    /**
+     * Creates a repository builder with the GIT_DIR and worktree resolved from
+     * the given locations
+     * <p>
+     * This does not open the repository, so it is cheap enough to find out
+     * which repository would be used before actually building it.
+     *
+     * @param workTree The worktree of the repository or {@code null}
+     * @param gitDir The GIT_DIR of the repository or {@code null}
+     * @return A repository builder ready to build the repository
+     * @throws GitRepositoryException if the parameters do not match a Git
+     *         repository
+     */
+    FileRepositoryBuilder prepareRepositoryBuilder(File workTree, File gitDir)
+            throws GitRepositoryException {
         FileRepositoryBuilder repositoryBuilder = getRepositoryBuiler();
 
         if (gitDir == null && workTree == null) {
@@ -105,11 +183,7 @@ public class JGitRepository extends AbstractGitRepository {
             repositoryBuilder.setWorkTree(repositoryBuilder.getGitDir().getParentFile());
         }
 
-        try {
-            this.repository = repositoryBuilder.build();
-        } catch (IOException e) {
-            throw new GitRepositoryException("Could not initialize repository", e);
-        }
+        return repositoryBuilder;
     }
 
     @Override
@@ -126,143 +200,226 @@ public class JGitRepository extends AbstractGitRepository {
     /**
      * {@inheritDoc}
      * <p>
-     * Closes JGit's repository instance.
+     * Closes JGit's repository instance and releases the commit graph.
      *
      * @see Repository#close
      */
     @Override
     public void close() {
+        if (abbreviator != null) {
+            abbreviator.close();
+        }
+
+        synchronized (this) {
+            if (commitGraph != null) {
+                commitGraph.close();
+                commitGraph = null;
+            }
+        }
+
         if (this.repository != null) {
             this.repository.close();
             this.repository = null;
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The description is computed only once for each set of options for this
+     * repository instance.
+     */
     @Override
-    public GitTagDescription describe() throws GitRepositoryException {
-        final Map<RevCommit, RevTag> tagCommits = new HashMap<>();
-        for (RevTag tag : this.getRawTags().values()) {
-            tagCommits.put((RevCommit)tag.getObject(), tag);
+    public GitTagDescription describe(final DescribeOptions options)
+            throws GitRepositoryException {
+        return memoize("describe:" + options, new Callable<GitTagDescription>() {
+            @Override
+            public GitTagDescription call() throws GitRepositoryException {
+                return describeHead(options);
+            }
+        });
+    }
+
+    /**
+     * Describes the current {@code HEAD} commit using the nearest tag
+     *
+     * @param options The options to use for the description
+     * @return The description of the {@code HEAD} commit
+     * @throws GitRepositoryException if the commits or tags cannot be read
+     * @see #describe(DescribeOptions)
+     */
+    private GitTagDescription describeHead(DescribeOptions options)
+            throws GitRepositoryException {
+        final Map<String, RevTag> rawTags;
+        final Map<String, String> names;
+        if (options.hasPatterns()) {
+            rawTags = new HashMap<>();
+            names = new HashMap<>();
+            resolveTags(getMatchingTagRefs(options), rawTags, names);
+        } else {
+            rawTags = this.getRawTags();
+            names = null;
+        }
+
+        final Map<AnyObjectId, RevTag> tagCommits = new HashMap<>();
+        for (Map.Entry<String, RevTag> tag : rawTags.entrySet()) {
+            tagCommits.put(ObjectId.fromString(tag.getKey()), tag.getValue());
         }
 
         final RevCommit start = this.getCommit(this.getHeadObject());
 
         //Check, if the start commit is a tag already
         if (tagCommits.containsKey(start)) {
-            GitTag tag = getTags().get(start.getId().getName());
+            GitTag tag = getDescriptionTag(names, tagCommits.get(start), start);
 
             return new GitTagDescription(this, getHeadCommit(), tag,0);
         }
 
-        try (RevWalk revWalk = getRevWalk()) {
-            final RevFlagSet allFlags = new RevFlagSet();
+        if (options.getCandidates() == 0 || tagCommits.isEmpty()) {
+            return new GitTagDescription(this, this.getHeadCommit(), null, -1);
+        }
 
-            revWalk.markStart(start);
-            final Collection<TagCandidate> candidates = findTagCandidates(revWalk, tagCommits, allFlags);
+        try (RevWalk revWalk = getRevWalk()) {
+            DescribeWalk describeWalk = new DescribeWalk(revWalk,
+                getCommitGraph(), tagCommits, options.getCandidates(),
+                options.isFirstParent());
+            DescribeWalk.Candidate bestCandidate = describeWalk.describe(revWalk.parseCommit(start));
 
-            if (candidates.isEmpty()) {
+            if (bestCandidate == null) {
                 return new GitTagDescription(this, this.getHeadCommit(), null, -1);
             }
 
-            //Now we have to correct the distance of the tag candidates
-            correctDistance(revWalk, candidates, allFlags);
-
-            TagCandidate bestCandidate = Collections.min(candidates, new Comparator<TagCandidate>() {
-                @Override
-                public int compare(TagCandidate tag1, TagCandidate tag2) {
-                    return Integer.compare(tag1.distance, tag2.distance);
-                }
-            });
+            GitTag tag = getDescriptionTag(names, bestCandidate.tag, bestCandidate.commitId);
 
-            GitTag tag = new JGitTag(bestCandidate.commit);
-
-            return new GitTagDescription(this, this.getHeadCommit(), tag, bestCandidate.distance);
+            return new GitTagDescription(this, this.getHeadCommit(), tag, bestCandidate.depth);
         } catch (IOException e) {
             throw new GitRepositoryException("Could not describe current commit.", e);
         }
     }
 
-    @Override
-    public String getHeadRef() {
-        return headRef;
+    /**
+     * Returns the tag used in a description
+     * <p>
+     * Without name patterns the shared tag instances are used, otherwise
+     * another tag than the one returned by {@link #getTags()} may point to
+     * the same commit.
+     *
+     * @param names The names of the tags matching the patterns by the
+     *        commits they point to or {@code null} if no patterns are used
+     * @param tag The raw tag found for the description
+     * @param commitId The ID of the commit the tag points to
+     * @return The tag for the description
+     * @throws GitRepositoryException if the tags cannot be read
+     */
+    private GitTag getDescriptionTag(Map<String, String> names, RevTag tag,
+                                     AnyObjectId commitId)
+            throws GitRepositoryException {
+        if (names != null) {
+            return new JGitTag(tag, names.get(commitId.getName()));
+        }
+
+        return getTags().get(commitId.getName());
     }
 
     /**
-     * Find up to 10 tag candidates in the current branch. One of these should
-     * be the latest tag.
+     * Returns the refs of the tags with names matching the given options
+     * <p>
+     * The names are matched before the tags are peeled, so tags excluded by
+     * the patterns are never read from the repository.
      *
-     * @param revWalk Repository information
-     * @param tagCommits Map of commits that are associated with a tag
-     * @param allFlags All flags that have been set so far
-     * @return A collection of tag candidates
-     * @throws IOException if there’s an error during the rev walk
-     */
-    private Collection<TagCandidate> findTagCandidates(RevWalk revWalk,
-            Map<RevCommit,RevTag> tagCommits, RevFlagSet allFlags)
-                    throws IOException {
-        final Collection<TagCandidate> candidates = new ArrayList<>();
-        int distance = 0;
-        RevCommit commit;
-        while ((commit = revWalk.next()) != null) {
-            commit.add(RevFlag.SEEN);
-            if (!commit.hasAny(allFlags)) {
-                if (tagCommits.containsKey(commit)) {
-                    RevTag tagCommit = tagCommits.get(commit);
-                    RevFlag flag = revWalk.newFlag(tagCommit.getTagName());
-                    candidates.add(new TagCandidate(tagCommit, distance, flag));
-                    commit.add(flag);
-                    commit.carry(flag);
-                    revWalk.carry(flag);
-                    allFlags.add(flag);
-                }
-            }
-            for (TagCandidate candidate : candidates) {
-                if (!candidate.isRelated(commit)) {
-                    candidate.distance++;
-                }
+     * @param options The options containing the name patterns
+     * @return The refs of the matching tags by their names
+     * @throws GitRepositoryException if a pattern is invalid
+     */
+    private Map<String, Ref> getMatchingTagRefs(DescribeOptions options)
+            throws GitRepositoryException {
+        List<FileNameMatcher> matchMatchers = createMatchers(options.getMatch());
+        List<FileNameMatcher> excludeMatchers = createMatchers(options.getExclude());
+        Map<String, Ref> tagRefs = new HashMap<>();
+
+        for (Map.Entry<String, Ref> tag : this.repository.getTags().entrySet()) {
+            String name = tag.getKey();
+            if ((!matchMatchers.isEmpty() && !matchesAny(matchMatchers, name)) ||
+                    matchesAny(excludeMatchers, name)) {
+                continue;
             }
-            if (candidates.size() >= 10) {
-                break;
+
+            tagRefs.put(name, tag.getValue());
+        }
+
+        return tagRefs;
+    }
+
+    /**
+     * Creates matchers for the given glob patterns
+     *
+     * @param patterns The patterns to create matchers for
+     * @return The matchers for the patterns
+     * @throws GitRepositoryException if a pattern is invalid
+     */
+    private List<FileNameMatcher> createMatchers(List<String> patterns)
+            throws GitRepositoryException {
+        List<FileNameMatcher> matchers = new ArrayList<>(patterns.size());
+        for (String pattern : patterns) {
+            try {
+                matchers.add(new FileNameMatcher(pattern, null));
+            } catch (InvalidPatternException e) {
+                throw new GitRepositoryException("Invalid tag pattern: " + pattern, e);
             }
-            distance++;
         }
-        return candidates;
+
+        return matchers;
     }
 
     /**
-     * Correct the distance for all tag candidates. We have to check all
-     * branches to get the correct distance at the end.
+     * Returns whether the given name matches any of the given matchers
      *
-     * @param revWalk Repository information
-     * @param candidates Collection of tag candidates
-     * @param allFlags All flags that have been set so far
-     * @throws IOException if there’s an error during the rev walk
+     * @param matchers The matchers to use
+     * @param name The name to match
+     * @return {@code true} if at least one matcher matches the name
      */
-    private void correctDistance(RevWalk revWalk, Collection<TagCandidate> candidates, RevFlagSet allFlags)
-            throws IOException {
-        RevCommit commit;
-        while ((commit = revWalk.next()) != null) {
-            if (commit.hasAll(allFlags)) {
-                // The commit has all flags already, so we just mark the parents as seen.
-                for (RevCommit parent : commit.getParents()) {
-                    parent.add(RevFlag.SEEN);
-                }
-            } else {
-                for (TagCandidate candidate : candidates) {
-                    if (!candidate.isRelated(commit)) {
-                        candidate.distance ++;
-                    }
-                }
+    private static boolean matchesAny(List<FileNameMatcher> matchers,
+                                      String name) {
+        for (FileNameMatcher matcher : matchers) {
+            matcher.reset();
+            matcher.append(name);
+            if (matcher.isMatch()) {
+                return true;
             }
         }
+
+        return false;
+    }
+
+    @Override
+    public String getHeadRef() {
+        return headRef;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This also drops the resolved {@code HEAD} object and all results
+     * computed for the previous ref.
+     */
+    @Override
+    public synchronized void setHeadRef(String headRef) {
+        super.setHeadRef(headRef);
+
+        headObject = null;
+        results.clear();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Abbreviations are computed only once for this repository instance.
+     */
     @Override
     public String getAbbreviatedCommitId(GitCommit commit) throws GitRepositoryException {
         try {
             RevCommit rawCommit = ((JGitCommit) commit).commit;
-            return this.repository.getObjectDatabase().newReader()
-                    .abbreviate(rawCommit).name();
+            return getAbbreviator().abbreviate(rawCommit);
         } catch (IOException e) {
             throw new GitRepositoryException(
                 String.format("Commit \"%s\" could not be abbreviated.", commit.getId()),
@@ -270,6 +427,32 @@ public class JGitRepository extends AbstractGitRepository {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The commits are abbreviated together, so commits sharing a prefix are
+     * looked up only once.
+     */
+    @Override
+    public Map<String, String> getAbbreviatedCommitIds(Collection<? extends GitCommit> commits)
+            throws GitRepositoryException {
+        List<RevCommit> rawCommits = new ArrayList<>(commits.size());
+        for (GitCommit commit : commits) {
+            rawCommits.add(((JGitCommit) commit).commit);
+        }
+
+        Map<String, String> abbreviatedIds = new HashMap<>();
+        try {
+            for (Map.Entry<ObjectId, String> abbreviation : getAbbreviator().abbreviate(rawCommits).entrySet()) {
+                abbreviatedIds.put(abbreviation.getKey().getName(), abbreviation.getValue());
+            }
+        } catch (IOException e) {
+            throw new GitRepositoryException("Commits could not be abbreviated.", e);
+        }
+
+        return abbreviatedIds;
+    }
+
     @Override
     public String getBranch() throws GitRepositoryException {
         try {
@@ -285,34 +468,74 @@ public class JGitRepository extends AbstractGitRepository {
     }
 
     /**
-     * Creates a new JGit {@code IndexDiff} instance for this repository and
-     * worktree
+     * {@inheritDoc}
+     * <p>
+     * Like Git this combines the {@code .mailmap} file in the worktree, the
+     * blob configured as {@code mailmap.blob}, {@code HEAD:.mailmap} for
+     * bare repositories, and the file configured as {@code mailmap.file}.
+     * Parsed mail maps are shared by all repositories as long as their
+     * sources do not change.
      *
-     * @return A new index diff
-     * @throws GitRepositoryException if the {@code HEAD} object cannot be
-     *         resolved
-     * @throws IOException if the index diff cannot be created
+     * @see MailMapLoader
      */
-    IndexDiff createIndexDiff() throws GitRepositoryException, IOException {
-        FileTreeIterator workTreeIterator = new FileTreeIterator(repository);
-        return new IndexDiff(repository, getHeadObject(), workTreeIterator);
+    @Override
+    public synchronized MailMap getMailMap() throws GitRepositoryException {
+        if (mailMap == null) {
+            mailMap = new MailMapLoader(repository).load();
+        }
+
+        return mailMap;
     }
 
     /**
-     * Runs a diff operation for the repository and worktree
-     *
-     * @return A index diff for the for the current worktree state
-     * @throws GitRepositoryException if the index diff cannot be created
+     * {@inheritDoc}
+     * <p>
+     * The key is a SHA-1 hash over the configured head ref, the resolved
+     * {@code HEAD} commit, all refs including their symbolic targets and the
+     * size and modification time of the index file.
      */
-    IndexDiff getIndexDiff() throws GitRepositoryException {
-        try {
-            IndexDiff indexDiff = createIndexDiff();
-            indexDiff.diff();
+    @Override
+    public String getStateKey() throws GitRepositoryException {
+        MessageDigest digest = Constants.newMessageDigest();
+        updateDigest(digest, headRef);
+        updateDigest(digest, getHeadObject().getName());
 
-            return indexDiff;
+        try {
+            for (Ref ref : repository.getRefDatabase().getRefs(RefDatabase.ALL).values()) {
+                updateDigest(digest, ref.getName());
+                if (ref.isSymbolic()) {
+                    updateDigest(digest, ref.getTarget().getName());
+                }
+                if (ref.getObjectId() != null) {
+                    updateDigest(digest, ref.getObjectId().getName());
+                }
+            }
         } catch (IOException e) {
-            throw new GitRepositoryException("Could not create repository diff.", e);
+            throw new GitRepositoryException("The refs could not be read.", e);
         }
+
+        if (!repository.isBare()) {
+            File indexFile = repository.getIndexFile();
+            updateDigest(digest, indexFile.lastModified() + ":" + indexFile.length());
+        }
+
+        return ObjectId.fromRaw(digest.digest()).getName();
+    }
+
+    /**
+     * Creates a new check for changes in the index and worktree of this
+     * repository
+     *
+     * @param ignoreUntracked Whether untracked files should be ignored
+     * @param path The path to limit the check to or {@code null}
+     * @return A new dirty check
+     * @throws GitRepositoryException if the {@code HEAD} object cannot be
+     *         resolved
+     */
+    DirtyCheck createDirtyCheck(boolean ignoreUntracked, String path)
+            throws GitRepositoryException {
+        return new DirtyCheck(repository, getHeadObject(), ignoreUntracked,
+                dirtyCheckParallelism, path);
     }
 
     /**
@@ -327,13 +550,27 @@ public class JGitRepository extends AbstractGitRepository {
         return repositoryBuilder;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The tags are resolved only once for this repository instance. The
+     * returned map is immutable and shared by all callers, so meta data loaded
+     * for a tag is available to all of them.
+     */
     @Override
-    public Map<String, GitTag> getTags()
+    public synchronized Map<String, GitTag> getTags()
             throws GitRepositoryException {
-        Map<String, GitTag> tags = new HashMap<>();
+        if (tags == null) {
+            Map<String, GitTag> tags = new HashMap<>();
+
+            Map<String, RevTag> rawTags = this.getRawTags();
+            Map<String, String> names = tagNames;
+            for (Map.Entry<String, RevTag> tag : rawTags.entrySet()) {
+                String name = (names == null) ? null : names.get(tag.getKey());
+                tags.put(tag.getKey(), new JGitTag(tag.getValue(), name));
+            }
 
-        for (Map.Entry<String, RevTag> tag : this.getRawTags().entrySet()) {
-            tags.put(tag.getKey(), new JGitTag(tag.getValue()));
+            this.tags = Collections.unmodifiableMap(tags);
         }
 
         return tags;
@@ -350,14 +587,29 @@ public class JGitRepository extends AbstractGitRepository {
 
     @Override
     public boolean isDirty(boolean ignoreUntracked) throws GitRepositoryException {
-        IndexDiff indexDiff = getIndexDiff();
+        return isDirty(ignoreUntracked, null);
+    }
 
-        return !ignoreUntracked && !indexDiff.getUntracked().isEmpty() ||
-                !(indexDiff.getAdded().isEmpty() && indexDiff.getChanged().isEmpty() &&
-                indexDiff.getRemoved().isEmpty() &&
-                indexDiff.getMissing().isEmpty() &&
-                indexDiff.getModified().isEmpty() &&
-                indexDiff.getConflicting().isEmpty());
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The check stops at the first change found. Directories outside of the
+     * given path are not read at all. The result for a combination of
+     * parameters is computed only once for this repository instance.
+     */
+    @Override
+    public boolean isDirty(final boolean ignoreUntracked, final String path)
+            throws GitRepositoryException {
+        return memoize("dirty:" + ignoreUntracked + ":" + path, new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws GitRepositoryException {
+                try {
+                    return createDirtyCheck(ignoreUntracked, path).isDirty();
+                } catch (IOException e) {
+                    throw new GitRepositoryException("Could not create repository diff.", e);
+                }
+            }
+        });
     }
 
     @Override
@@ -365,22 +617,150 @@ public class JGitRepository extends AbstractGitRepository {
         return getHeadObject().equals(ObjectId.zeroId());
     }
 
+    @Override
+    public boolean isAncestor(String commitId) throws GitRepositoryException {
+        if (!ObjectId.isId(commitId)) {
+            return false;
+        }
+
+        try (RevWalk revWalk = getRevWalk()) {
+            RevCommit commit = revWalk.parseCommit(ObjectId.fromString(commitId));
+
+            return revWalk.isMergedInto(commit, revWalk.parseCommit(getHeadObject()));
+        } catch (MissingObjectException | IncorrectObjectTypeException e) {
+            return false;
+        } catch (IOException e) {
+            throw new GitRepositoryException(
+                    String.format("Commit \"%s\" could not be loaded.", commitId),
+                    e);
+        }
+    }
+
     @Override
     public <T extends CommitWalkAction> T walkCommits(T action)
             throws GitRepositoryException {
-        try (RevWalk revWalk = getRevWalk()) {
-            revWalk.markStart(this.getCommit(this.getHeadObject()));
+        return walkCommits(action, null);
+    }
+
+    @Override
+    public <T extends CommitWalkAction> T walkCommits(T action, String excludedCommitId)
+            throws GitRepositoryException {
+        action.setRepository(this);
+
+        try (JGitCommitIterator commits = createCommitIterator(excludedCommitId, action.getCommitFilter())) {
+            commits.setHeaderOnly(action.isHeaderOnly());
 
-            action.setRepository(this);
-            RevCommit commit;
-            while ((commit = revWalk.next()) != null) {
-                action.execute(new JGitCommit(commit));
+            GitCommit commit;
+            while ((commit = commits.nextCommit()) != null) {
+                action.execute(commit);
             }
+        }
+
+        return action;
+    }
 
-            return action;
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The filter is translated into a {@code RevFilter}, so commits not
+     * selected are never wrapped into a {@link JGitCommit}. The size of an
+     * unfiltered iteration is estimated using the number of commits in the
+     * commit graph file, if there is one.
+     */
+    @Override
+    public CommitIterator iterateCommits(String excludedCommitId,
+                                         CommitFilter filter)
+            throws GitRepositoryException {
+        return createCommitIterator(excludedCommitId, filter);
+    }
+
+    /**
+     * Starts a walk over the commits reachable from {@code HEAD} selected by
+     * the given filter
+     *
+     * @param excludedCommitId The ID of a commit whose history should not be
+     *        walked or {@code null}
+     * @param filter The filter selecting commits or {@code null}
+     * @return An iterator over the selected commits
+     * @throws GitRepositoryException if the walk cannot be started
+     * @see #iterateCommits(String, CommitFilter)
+     */
+    JGitCommitIterator createCommitIterator(String excludedCommitId,
+                                            CommitFilter filter)
+            throws GitRepositoryException {
+        RevFilter revFilter;
+        try {
+            revFilter = createRevFilter(filter);
+        } catch (PatternSyntaxException e) {
+            throw new GitRepositoryException("Invalid commit filter pattern: " + e.getPattern(), e);
+        }
+
+        RevWalk revWalk = getRevWalk();
+        try {
+            revWalk.markStart(revWalk.parseCommit(this.getHeadObject()));
+            if (excludedCommitId != null) {
+                revWalk.markUninteresting(revWalk.parseCommit(ObjectId.fromString(excludedCommitId)));
+            }
         } catch (IOException e) {
-            throw new GitRepositoryException("", e);
+            revWalk.close();
+            throw new GitRepositoryException("Could not start walking the commits.", e);
+        }
+        revWalk.setRevFilter(revFilter);
+
+        CommitGraph commitGraph = getCommitGraph();
+        int estimatedCount = -1;
+        if (commitGraph != null && excludedCommitId == null &&
+                revFilter == RevFilter.ALL) {
+            estimatedCount = commitGraph.getCommitCount();
+        }
+
+        return new JGitCommitIterator(revWalk, estimatedCount);
+    }
+
+    /**
+     * Creates a filter for a {@code RevWalk} selecting the same commits as
+     * the given filter
+     * <p>
+     * Cheap criteria are checked first. Limits on the commit date and the
+     * number of commits stop the walk once they are reached.
+     *
+     * @param filter The filter to translate or {@code null}
+     * @return The filter for the walk
+     * @throws PatternSyntaxException if a pattern of the filter is invalid
+     */
+    static RevFilter createRevFilter(CommitFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            return RevFilter.ALL;
+        }
+
+        List<RevFilter> revFilters = new ArrayList<>();
+        if (filter.isNoMerges()) {
+            revFilters.add(RevFilter.NO_MERGES);
+        }
+        if (filter.getSince() != null) {
+            revFilters.add(CommitTimeRevFilter.after(filter.getSince()));
+        }
+        if (filter.getUntil() != null) {
+            revFilters.add(CommitTimeRevFilter.before(filter.getUntil()));
+        }
+        if (filter.getAuthorPattern() != null) {
+            revFilters.add(PatternRevFilter.author(filter.getAuthorPattern()));
         }
+        if (filter.getMessagePattern() != null) {
+            revFilters.add(PatternRevFilter.message(filter.getMessagePattern()));
+        }
+        if (filter.getExcludedMessagePattern() != null) {
+            revFilters.add(PatternRevFilter.message(filter.getExcludedMessagePattern()).negate());
+        }
+        if (filter.getMaxCount() >= 0) {
+            revFilters.add(MaxCountRevFilter.create(filter.getMaxCount()));
+        }
+
+        if (revFilters.size() == 1) {
+            return revFilters.get(0);
+        }
+
+        return AndRevFilter.create(revFilters);
     }
 
     /**
@@ -392,12 +772,13 @@ public class JGitRepository extends AbstractGitRepository {
      * @throws GitRepositoryException if the commit object cannot be retrieved
      */
     protected RevCommit getCommit(ObjectId id) throws GitRepositoryException {
-        if (commitCache.containsKey(id)) {
-            return commitCache.get(id);
+        RevCommit commit = commitCache.get(id);
+        if (commit != null) {
+            return commit;
         }
 
         try {
-            RevCommit commit = repository.parseCommit(id);
+            commit = repository.parseCommit(id);
             commitCache.put(id, commit);
 
             return commit;
@@ -414,7 +795,7 @@ public class JGitRepository extends AbstractGitRepository {
      * @return The currently selected {@code HEAD} object
      * @throws GitRepositoryException if the ref cannot be resolved
      */
-    protected ObjectId getHeadObject() throws GitRepositoryException {
+    protected synchronized ObjectId getHeadObject() throws GitRepositoryException {
         if (headObject == null) {
             try {
                 Ref head = repository.findRef(headRef);
@@ -446,66 +827,336 @@ public class JGitRepository extends AbstractGitRepository {
      * <p>
      * <em>Note</em>: Only annotated tags referencing commit objects will be
      * returned.
+     * <p>
+     * The tags are read and peeled only once, subsequent calls will return the
+     * same immutable map.
      *
      * @return A map of raw JGit tags in this repository
      * @throws GitRepositoryException if an error occurs while determining the
      *         tags in this repository
      */
-    protected Map<String, RevTag> getRawTags()
+    protected synchronized Map<String, RevTag> getRawTags()
             throws GitRepositoryException {
-        RevWalk revWalk = this.getRevWalk();
-        Map<String, Ref> tagRefs = this.repository.getTags();
+        if (rawTags != null) {
+            return rawTags;
+        }
+
         Map<String, RevTag> tags = new HashMap<>();
+        Map<String, String> names = new HashMap<>();
+        resolveTags(this.repository.getTags(), tags, names);
 
-        try {
+        tagNames = Collections.unmodifiableMap(names);
+        rawTags = Collections.unmodifiableMap(tags);
+
+        return rawTags;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The tag objects are read in a single batch using one asynchronous
+     * object queue instead of a separate walk for each tag. The bodies of the
+     * tags are discarded as soon as the tagger has been read.
+     */
+    @Override
+    public void loadTags(Collection<? extends GitTag> tags)
+            throws GitRepositoryException {
+        Map<ObjectId, List<JGitTag>> pendingTags = new HashMap<>();
+        for (GitTag tag : tags) {
+            if (!(tag instanceof JGitTag)) {
+                tag.load(this);
+                continue;
+            }
+
+            JGitTag jGitTag = (JGitTag) tag;
+            if (jGitTag.isLoaded()) {
+                continue;
+            }
+
+            ObjectId tagId = jGitTag.tag.copy();
+            List<JGitTag> sameTags = pendingTags.get(tagId);
+            if (sameTags == null) {
+                sameTags = new ArrayList<>(1);
+                pendingTags.put(tagId, sameTags);
+            }
+            sameTags.add(jGitTag);
+        }
+
+        if (pendingTags.isEmpty()) {
+            return;
+        }
+
+        try (RevWalk revWalk = this.getRevWalk()) {
+            AsyncRevObjectQueue queue = revWalk.parseAny(pendingTags.keySet(), true);
+            try {
+                RevObject object;
+                while ((object = queue.next()) != null) {
+                    if (!(object instanceof RevTag)) {
+                        continue;
+                    }
+
+                    RevTag revTag = (RevTag) object;
+                    PersonIdent taggerIdent = revTag.getTaggerIdent();
+                    revTag.disposeBody();
+                    for (JGitTag tag : pendingTags.get(revTag)) {
+                        tag.setTaggerIdent(taggerIdent);
+                    }
+                }
+            } finally {
+                queue.release();
+            }
+        } catch (IOException e) {
+            throw new GitRepositoryException("Failed to load tag meta data.", e);
+        }
+    }
+
+    /**
+     * Resolves the given tag refs to the commits they point to
+     * <p>
+     * Refs that have already been peeled, e.g. the ones stored in
+     * {@code packed-refs}, are resolved without reading the tag objects at
+     * all. Their tags will be parsed only when their meta data is loaded.
+     * <p>
+     * The tag objects of the remaining refs are parsed in a single batch
+     * using an asynchronous object queue. Lightweight tags and tags
+     * pointing to other objects than commits are skipped. Peeled refs
+     * pointing to other objects than commits cannot be distinguished
+     * without reading those objects, but they will never match a commit.
+     *
+     * @param tagRefs The tag refs to resolve by their names
+     * @param tags The map to add the annotated tags to, using the SHA IDs of
+     *        the commits they point to as keys
+     * @param names The map to add the names of the tags to, using the SHA
+     *        IDs of the commits they point to as keys
+     * @throws GitRepositoryException if the tags cannot be resolved
+     */
+    void resolveTags(Map<String, Ref> tagRefs, Map<String, RevTag> tags,
+                     Map<String, String> names)
+            throws GitRepositoryException {
+        Map<ObjectId, String> unpeeledTags = new HashMap<>();
+
+        try (RevWalk revWalk = this.getRevWalk()) {
             for (Map.Entry<String, Ref> tag : tagRefs.entrySet()) {
-                try {
-                    RevTag revTag = revWalk.lookupTag(tag.getValue().getObjectId());
-                    RevObject object = revWalk.peel(revTag);
-                    if (!(object instanceof RevCommit)) {
+                Ref ref = tag.getValue();
+                ObjectId objectId = ref.getObjectId();
+                if (objectId == null) {
+                    continue;
+                }
+
+                if (ref.isPeeled()) {
+                    ObjectId peeledId = ref.getPeeledObjectId();
+                    if (peeledId != null) {
+                        addTag(revWalk, tags, names, peeledId.getName(),
+                            revWalk.lookupTag(objectId), tag.getKey());
+                    }
+                } else {
+                    unpeeledTags.put(objectId.copy(), tag.getKey());
+                }
+            }
+
+            if (unpeeledTags.isEmpty()) {
+                return;
+            }
+
+            AsyncRevObjectQueue queue = revWalk.parseAny(unpeeledTags.keySet(), true);
+            try {
+                RevObject object;
+                while ((object = queue.next()) != null) {
+                    if (!(object instanceof RevTag)) {
                         continue;
                     }
-                    tags.put(object.getName(), revTag);
-                } catch (IncorrectObjectTypeException ignored) {}
+
+                    RevObject target = ((RevTag) object).getObject();
+                    while (target instanceof RevTag) {
+                        revWalk.parseHeaders(target);
+                        target = ((RevTag) target).getObject();
+                    }
+
+                    if (target instanceof RevCommit) {
+                        addTag(revWalk, tags, names, target.getName(),
+                            (RevTag) object, unpeeledTags.get(object));
+                    }
+                }
+            } finally {
+                queue.release();
             }
         } catch (IOException e) {
             throw new GitRepositoryException("The tags could not be resolved.", e);
         }
+    }
 
-        return tags;
+    /**
+     * Adds a resolved tag unless another tag pointing to the same commit is
+     * preferred
+     * <p>
+     * Like {@code git describe} the tag with the newest tagger date is
+     * preferred. Tags with the same date are preferred by their name, so the
+     * result does not depend on the order the tags are resolved in. Tag
+     * objects are only read to compare them if a commit has several tags.
+     *
+     * @param revWalk The walk to read the tag objects with
+     * @param tags The annotated tags by the commits they point to
+     * @param names The names of the tags by the commits they point to
+     * @param commitId The SHA ID of the commit the tag points to
+     * @param tag The tag to add
+     * @param name The name of the tag
+     * @throws IOException if the tag objects cannot be read
+     */
+    private static void addTag(RevWalk revWalk, Map<String, RevTag> tags,
+                               Map<String, String> names, String commitId,
+                               RevTag tag, String name) throws IOException {
+        RevTag otherTag = tags.get(commitId);
+        if (otherTag != null) {
+            long tagTime = getTaggerTime(revWalk, tag);
+            long otherTagTime = getTaggerTime(revWalk, otherTag);
+            if (tagTime < otherTagTime ||
+                    (tagTime == otherTagTime && name.compareTo(names.get(commitId)) > 0)) {
+                return;
+            }
+        }
+
+        tags.put(commitId, tag);
+        names.put(commitId, name);
     }
 
     /**
-     * Gets a JGit {@code RevWalk} instance for this repository
+     * Returns the time the given tag has been created
+     *
+     * @param revWalk The walk to read the tag object with
+     * @param tag The tag
+     * @return The time of the tagger in milliseconds since the epoch or
+     *         {@code 0} if the tag has no tagger
+     * @throws IOException if the tag object cannot be read
+     */
+    private static long getTaggerTime(RevWalk revWalk, RevTag tag)
+            throws IOException {
+        revWalk.parseBody(tag);
+        PersonIdent tagger = tag.getTaggerIdent();
+
+        return (tagger == null) ? 0 : tagger.getWhen().getTime();
+    }
+
+    /**
+     * Adds the given string to the digest used for the state key
+     *
+     * @param digest The digest to update
+     * @param value The string to add
+     * @see #getStateKey
+     */
+    private void updateDigest(MessageDigest digest, String value) {
+        digest.update(Constants.encode(value));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Returns the abbreviator used for object IDs of this repository
+     *
+     * @return The abbreviator of this repository
+     */
+    synchronized Abbreviator getAbbreviator() {
+        if (abbreviator == null) {
+            abbreviator = new Abbreviator(repository, Abbreviator.DEFAULT_MIN_LENGTH);
+        }
+
+        return abbreviator;
+    }
+
+    /**
+     * Returns the cache for commits loaded from this repository
      * <p>
-     * Creates a new instance or resets an existing one.
+     * The cache statistics can be used to report the efficiency of the cache.
      *
-     * @return A {@code RevWalk} instance for this repository
+     * @return The commit cache of this repository
      */
-    protected RevWalk getRevWalk() {
-        if (this.revWalk == null) {
-            this.revWalk = new RevWalk(this.repository);
+    public CommitCache getCommitCache() {
+        return commitCache;
+    }
+
+    /**
+     * Returns the commit graph of this repository
+     * <p>
+     * The commit graph is loaded only once. It is not used for shallow
+     * repositories, because the graph may contain parents that are not
+     * present in the repository anymore.
+     *
+     * @return The commit graph or {@code null} if the repository has no
+     *         usable commit graph
+     */
+    synchronized CommitGraph getCommitGraph() {
+        if (commitGraphLoaded) {
+            return commitGraph;
+        }
+
+        commitGraphLoaded = true;
+        if (repository.getObjectDatabase() instanceof ObjectDirectory &&
+                !new File(repository.getDirectory(), "shallow").exists()) {
+            try {
+                File objectsDirectory = ((ObjectDirectory) repository.getObjectDatabase()).getDirectory();
+                commitGraph = CommitGraph.load(objectsDirectory);
+            } catch (IOException ignored) {}
         }
 
-        return this.revWalk;
+        return commitGraph;
     }
 
     /**
-     * This class represents a tag candidate which could be the latest tag in the branch.
+     * Creates a new JGit {@code RevWalk} instance for this repository
+     * <p>
+     * Walks are not thread-safe, so every operation uses its own instance and
+     * has to close it afterwards. This also releases the objects parsed
+     * during the walk.
+     *
+     * @return A new {@code RevWalk} instance for this repository
      */
-    private class TagCandidate {
-        private final RevTag commit;
-        private int distance;
-        private final RevFlag flag;
+    protected RevWalk getRevWalk() {
+        return new RevWalk(this.repository);
+    }
 
-        TagCandidate(RevTag commit, int distance, RevFlag flag) {
-            this.commit = commit;
-            this.distance = distance;
-            this.flag = flag;
+    /**
+     * Returns the result of the given computation, computing it only once
+     * <p>
+     * Concurrent callers requesting the same result wait for the first
+     * computation to finish. Failed computations are not remembered, so they
+     * will be retried by later callers.
+     *
+     * @param key The key identifying the result
+     * @param computation The computation producing the result
+     * @param <T> The type of the result
+     * @return The result of the computation
+     * @throws GitRepositoryException if the computation fails
+     */
+    @SuppressWarnings("unchecked")
+    <T> T memoize(String key, Callable<T> computation)
+            throws GitRepositoryException {
+        Future<?> result = results.get(key);
+        if (result == null) {
+            FutureTask<T> task = new FutureTask<>(computation);
+            result = results.putIfAbsent(key, task);
+            if (result == null) {
+                result = task;
+                task.run();
+            }
         }
 
-        boolean isRelated(RevCommit commit) {
-            return commit.has(flag);
+        try {
+            return (T) result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GitRepositoryException("Interrupted while waiting for " + key + ".", e);
+        } catch (ExecutionException e) {
+            results.remove(key, result);
+
+            Throwable cause = e.getCause();
+            if (cause instanceof GitRepositoryException) {
+                throw (GitRepositoryException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new GitRepositoryException(cause.getMessage(), cause);
         }
     }
 
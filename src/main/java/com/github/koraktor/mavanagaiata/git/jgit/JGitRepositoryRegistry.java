@@ -0,0 +1,215 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+
+import com.github.koraktor.mavanagaiata.git.GitRepository;
+import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
+
+/**
+ * A registry of repositories shared between all users inside the same scope,
+ * e.g. all mojo executions of a Maven session
+ * <p>
+ * Repositories are identified by their resolved GIT_DIR, worktree and head
+ * ref, so modules residing in the same Git repository will get the same
+ * instance. Each repository acquired from the registry has to be released
+ * again. It is closed once it is no longer used and its scope has ended,
+ * i.e. {@link #endScope(Object)} has been called or the registry has been
+ * used with another scope.
+ *
+ * @author Sebastian Staudt
+ * @since 0.8.0
+ */
+public class JGitRepositoryRegistry {
+
+    private static final JGitRepositoryRegistry INSTANCE = new JGitRepositoryRegistry();
+
+    final Map<String, SharedRepository> repositories;
+
+    final List<SharedRepository> retiredRepositories;
+
+    Object scope;
+
+    /**
+     * Returns the registry instance shared by all users
+     *
+     * @return The shared registry instance
+     */
+    public static JGitRepositoryRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a new empty registry
+     */
+    JGitRepositoryRegistry() {
+        repositories = new HashMap<>();
+        retiredRepositories = new ArrayList<>();
+    }
+
+    /**
+     * Returns a shared repository for the given worktree and or Git directory
+     * <p>
+     * If the registry has been used with another scope before, repositories
+     * from that scope will not be handed out anymore.
+     *
+     * @param scope The scope the repository is used in
+     * @param workTree The worktree of the repository or {@code null}
+     * @param gitDir The GIT_DIR of the repository or {@code null}
+     * @param headRef The ref to use as {@code HEAD}
+     * @return A checked repository instance that has to be released after
+     *         usage
+     * @throws GitRepositoryException if the parameters do not match a Git
+     *         repository
+     * @see #release
+     */
+    public synchronized JGitRepository acquire(Object scope, File workTree,
+                                               File gitDir, String headRef)
+            throws GitRepositoryException {
+        if (this.scope != scope) {
+            endScope();
+            this.scope = scope;
+        }
+
+        JGitRepository repository = createRepository();
+        FileRepositoryBuilder repositoryBuilder = repository.prepareRepositoryBuilder(workTree, gitDir);
+        String key = repositoryBuilder.getGitDir().getAbsolutePath() +
+                File.pathSeparator + repositoryBuilder.getWorkTree() +
+                File.pathSeparator + headRef;
+
+        SharedRepository sharedRepository = repositories.get(key);
+        if (sharedRepository == null) {
+            repository.buildRepository(repositoryBuilder);
+            try {
+                repository.check();
+            } catch (GitRepositoryException e) {
+                repository.close();
+                throw e;
+            }
+            repository.setHeadRef(headRef);
+
+            sharedRepository = new SharedRepository(repository);
+            repositories.put(key, sharedRepository);
+        }
+
+        sharedRepository.leases ++;
+
+        return sharedRepository.repository;
+    }
+
+    /**
+     * Creates a new repository instance
+     *
+     * @return A new repository instance
+     */
+    JGitRepository createRepository() {
+        return new JGitRepository();
+    }
+
+    /**
+     * Ends the given scope
+     * <p>
+     * All repositories of the scope that are unused are closed, the others
+     * are closed once they are released. Nothing happens if the registry
+     * has already moved on to another scope.
+     *
+     * @param scope The scope that has ended
+     */
+    public synchronized void endScope(Object scope) {
+        if (this.scope == scope) {
+            endScope();
+            this.scope = null;
+        }
+    }
+
+    /**
+     * Releases a repository acquired from this registry
+     * <p>
+     * The repository is closed if it has no other users left and its scope
+     * has already ended. Otherwise it is kept open for further users in the
+     * same scope.
+     *
+     * @param repository The repository to release
+     * @return {@code false} if the repository has not been acquired from this
+     *         registry
+     */
+    public synchronized boolean release(GitRepository repository) {
+        return release(repositories.values(), repository, false) ||
+                release(retiredRepositories, repository, true);
+    }
+
+    /**
+     * Releases a repository if it is contained in the given collection
+     *
+     * @param sharedRepositories The shared repositories to search
+     * @param repository The repository to release
+     * @param close Whether the repository should be closed if unused
+     * @return {@code true} if the repository has been found
+     */
+    private boolean release(Collection<SharedRepository> sharedRepositories,
+                            GitRepository repository, boolean close) {
+        Iterator<SharedRepository> iterator = sharedRepositories.iterator();
+        while (iterator.hasNext()) {
+            SharedRepository sharedRepository = iterator.next();
+            if (sharedRepository.repository != repository) {
+                continue;
+            }
+
+            sharedRepository.leases --;
+            if (close && sharedRepository.leases == 0) {
+                sharedRepository.repository.close();
+                iterator.remove();
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Closes all unused repositories and retires the others, so they are
+     * closed once they are released
+     */
+    private void endScope() {
+        for (SharedRepository sharedRepository : repositories.values()) {
+            if (sharedRepository.leases == 0) {
+                sharedRepository.repository.close();
+            } else {
+                retiredRepositories.add(sharedRepository);
+            }
+        }
+
+        repositories.clear();
+    }
+
+    /**
+     * A repository together with the number of its current users
+     */
+    static class SharedRepository {
+
+        int leases;
+
+        final JGitRepository repository;
+
+        SharedRepository(JGitRepository repository) {
+            this.repository = repository;
+        }
+
+    }
+
+}
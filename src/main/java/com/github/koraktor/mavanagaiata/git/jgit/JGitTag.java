@@ -13,6 +13,7 @@ import java.util.TimeZone;
 
 import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.revwalk.RevTag;
+import org.eclipse.jgit.revwalk.RevWalk;
 
 import com.github.koraktor.mavanagaiata.git.GitRepository;
 import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
@@ -25,6 +26,8 @@ import com.github.koraktor.mavanagaiata.git.GitTag;
  */
 public class JGitTag implements GitTag {
 
+    protected final String name;
+
     protected RevTag tag;
 
     protected PersonIdent taggerIdent;
@@ -35,7 +38,23 @@ public class JGitTag implements GitTag {
      * @param tag The tag object to wrap
      */
     public JGitTag(RevTag tag) {
-        this.tag = tag;
+        this(tag, null);
+    }
+
+    /**
+     * Creates a new instance from a JGit tag object and the name of its ref
+     * <p>
+     * The tag object does not need to be parsed, so the tag can be used
+     * without reading it from the repository until its meta data is loaded.
+     *
+     * @param tag The tag object to wrap
+     * @param name The name of the tag or {@code null} to use the name
+     *        stored in the tag object
+     * @since 0.8.0
+     */
+    public JGitTag(RevTag tag, String name) {
+        this.name = name;
+        this.tag  = tag;
     }
 
     @Override
@@ -49,6 +68,10 @@ public class JGitTag implements GitTag {
     }
 
     public String getName() {
+        if (name != null) {
+            return name;
+        }
+
         return this.tag.getTagName();
     }
 
@@ -56,14 +79,24 @@ public class JGitTag implements GitTag {
         return taggerIdent.getTimeZone();
     }
 
+    /**
+     * Returns whether the meta data of this tag has been loaded
+     *
+     * @return {@code true} if the meta data is available
+     */
+    synchronized boolean isLoaded() {
+        return taggerIdent != null;
+    }
+
     @Override
-    public void load(GitRepository repository) throws GitRepositoryException {
+    public synchronized void load(GitRepository repository)
+            throws GitRepositoryException {
         if (taggerIdent != null) {
             return;
         }
 
-        try {
-            ((JGitRepository) repository).getRevWalk().parseBody(tag);
+        try (RevWalk revWalk = ((JGitRepository) repository).getRevWalk()) {
+            revWalk.parseBody(tag);
         } catch (IOException e) {
             throw new GitRepositoryException("Failed to load tag meta data.", e);
         }
@@ -72,4 +105,16 @@ public class JGitTag implements GitTag {
         tag.disposeBody();
     }
 
+    /**
+     * Sets the meta data of this tag loaded from a copy of its tag object
+     *
+     * @param taggerIdent The identity of the tagger
+     * @see JGitRepository#loadTags
+     */
+    synchronized void setTaggerIdent(PersonIdent taggerIdent) {
+        if (this.taggerIdent == null) {
+            this.taggerIdent = taggerIdent;
+        }
+    }
+
 }
@@ -0,0 +1,229 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.errors.RevisionSyntaxException;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
+import com.github.koraktor.mavanagaiata.git.MailMap;
+
+/**
+ * Loads the mail map of a repository from the same sources as Git
+ * <p>
+ * These are the {@code .mailmap} file in the worktree, the blob configured
+ * using {@code mailmap.blob} and the file configured using
+ * {@code mailmap.file}, in this order. Bare repositories use the
+ * {@code .mailmap} blob of {@code HEAD} if no blob is configured, so they do
+ * not need a worktree.
+ * <p>
+ * Parsed mail maps are cached by the state of their sources, i.e. the
+ * modification time and size of the files and the ID of the blob. So
+ * repository instances of other modules or later builds in the same JVM
+ * reuse the mail map as long as none of its sources changed.
+ *
+ * @author Sebastian Staudt
+ * @since 0.8.0
+ */
+class MailMapLoader {
+
+    static final String MAILMAP_FILE = ".mailmap";
+
+    static final String DEFAULT_BARE_BLOB = Constants.HEAD + ":" + MAILMAP_FILE;
+
+    private static final int MAX_CACHED_MAIL_MAPS = 16;
+
+    static final Map<String, MailMap> CACHE = Collections.synchronizedMap(
+        new LinkedHashMap<String, MailMap>(MAX_CACHED_MAIL_MAPS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MailMap> eldest) {
+                return size() > MAX_CACHED_MAIL_MAPS;
+            }
+        });
+
+    private final Repository repository;
+
+    /**
+     * Creates a new loader for the given repository
+     *
+     * @param repository The repository to load the mail map for
+     */
+    MailMapLoader(Repository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Returns the mail map of the repository
+     * <p>
+     * Sources that do not exist are ignored, as are configured objects that
+     * are not blobs.
+     *
+     * @return The mail map, possibly without any mappings
+     * @throws GitRepositoryException if a source cannot be read
+     */
+    MailMap load() throws GitRepositoryException {
+        Config config = repository.getConfig();
+        List<File> files = new ArrayList<>(2);
+        if (!repository.isBare()) {
+            files.add(new File(repository.getWorkTree(), MAILMAP_FILE));
+        }
+        File configuredFile = getConfiguredFile(config.getString("mailmap", null, "file"));
+
+        String blobSpec = config.getString("mailmap", null, "blob");
+        if (blobSpec == null && repository.isBare()) {
+            blobSpec = DEFAULT_BARE_BLOB;
+        }
+
+        try {
+            ObjectId blobId = resolveBlob(blobSpec);
+
+            StringBuilder key = new StringBuilder();
+            for (File file : files) {
+                appendFileKey(key, file);
+            }
+            key.append("blob:").append((blobId == null) ? "none" : blobId.name()).append('\n');
+            appendFileKey(key, configuredFile);
+
+            MailMap mailMap = CACHE.get(key.toString());
+            if (mailMap != null) {
+                return mailMap;
+            }
+
+            List<String> contents = new ArrayList<>(3);
+            for (File file : files) {
+                addFileContent(contents, file);
+            }
+            addBlobContent(contents, blobId);
+            addFileContent(contents, configuredFile);
+
+            mailMap = new MailMap(contents);
+            CACHE.put(key.toString(), mailMap);
+
+            return mailMap;
+        } catch (IOException e) {
+            throw new GitRepositoryException("Error while reading the mail map.", e);
+        }
+    }
+
+    /**
+     * Adds the content of the given blob if it exists
+     * <p>
+     * Like Git, this ignores a configured object that is missing or not a
+     * blob, e.g. if {@code .mailmap} is a directory in {@code HEAD}.
+     *
+     * @param contents The contents to add to
+     * @param blobId The ID of the blob to read or {@code null}
+     * @throws IOException if the blob cannot be read
+     */
+    private void addBlobContent(List<String> contents, ObjectId blobId)
+            throws IOException {
+        if (blobId == null) {
+            return;
+        }
+
+        try {
+            byte[] blob = repository.open(blobId, Constants.OBJ_BLOB).getCachedBytes();
+            contents.add(new String(blob, StandardCharsets.UTF_8));
+        } catch (IncorrectObjectTypeException | MissingObjectException ignored) {}
+    }
+
+    /**
+     * Adds the content of the given file if it exists
+     *
+     * @param contents The contents to add to
+     * @param file The file to read or {@code null}
+     * @throws IOException if the file cannot be read
+     */
+    private static void addFileContent(List<String> contents, File file)
+            throws IOException {
+        if (file != null && file.isFile()) {
+            contents.add(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Appends a key for the current state of the given file
+     *
+     * @param key The key to append to
+     * @param file The file or {@code null}
+     */
+    private static void appendFileKey(StringBuilder key, File file) {
+        key.append("file:");
+        if (file != null && file.isFile()) {
+            key.append(file.getAbsolutePath()).append(':')
+                .append(file.lastModified()).append(':')
+                .append(file.length());
+        } else {
+            key.append("none");
+        }
+        key.append('\n');
+    }
+
+    /**
+     * Returns the file configured using {@code mailmap.file}
+     * <p>
+     * Relative paths are resolved against the worktree or the Git directory
+     * of bare repositories, a leading {@code ~/} against the home directory
+     * of the user.
+     *
+     * @param path The configured path or {@code null}
+     * @return The configured file or {@code null}
+     */
+    private File getConfiguredFile(String path) {
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+
+        if (path.startsWith("~/")) {
+            return new File(System.getProperty("user.home"), path.substring(2));
+        }
+
+        File file = new File(path);
+        if (file.isAbsolute()) {
+            return file;
+        }
+
+        File base = repository.isBare() ? repository.getDirectory() : repository.getWorkTree();
+        return new File(base, path);
+    }
+
+    /**
+     * Resolves the blob configured using {@code mailmap.blob}
+     *
+     * @param blobSpec The revision expression of the blob or {@code null}
+     * @return The ID of the blob or {@code null} if there is no such blob
+     * @throws IOException if the revision expression cannot be resolved
+     */
+    private ObjectId resolveBlob(String blobSpec) throws IOException {
+        if (blobSpec == null || blobSpec.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return repository.resolve(blobSpec);
+        } catch (RevisionSyntaxException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.util.RawCharSequence;
+import org.eclipse.jgit.util.RawParseUtils;
+
+/**
+ * Selects commits whose author or message contains a match of a regular
+ * expression
+ * <p>
+ * In contrast to JGit's {@code MessageRevFilter} and {@code AuthorRevFilter}
+ * the pattern may match any part of the text and {@code ^} and {@code $}
+ * match at line boundaries.
+ * <p>
+ * Pure ASCII text is matched directly against the raw bytes of the commit,
+ * as each byte is a character there. Other text is decoded using the
+ * encoding of the commit first, so the pattern always works on characters.
+ *
+ * @author Sebastian Staudt
+ * @since 0.8.0
+ */
+abstract class PatternRevFilter extends RevFilter {
+
+    private final Matcher matcher;
+
+    private final String pattern;
+
+    /**
+     * Creates a filter matching the name and email address of the author
+     * ignoring case
+     *
+     * @param pattern The regular expression to find
+     * @return A new filter for the author of commits
+     */
+    static PatternRevFilter author(String pattern) {
+        return new AuthorPatternRevFilter(pattern);
+    }
+
+    /**
+     * Creates a filter matching the full commit message
+     *
+     * @param pattern The regular expression to find
+     * @return A new filter for the message of commits
+     */
+    static PatternRevFilter message(String pattern) {
+        return new MessagePatternRevFilter(pattern);
+    }
+
+    /**
+     * Returns the given part of a raw commit as text
+     * <p>
+     * Only text containing non-ASCII bytes is decoded. Like JGit this
+     * assumes UTF-8 if the encoding of the commit is unknown.
+     *
+     * @param raw The raw commit
+     * @param start The start of the text
+     * @param end The end of the text
+     * @return The text
+     */
+    static CharSequence decode(byte[] raw, int start, int end) {
+        for (int i = start; i < end; i ++) {
+            if (raw[i] < 0) {
+                Charset charset;
+                try {
+                    charset = RawParseUtils.parseEncoding(raw);
+                } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                    charset = StandardCharsets.UTF_8;
+                }
+
+                return RawParseUtils.decode(charset, raw, start, end);
+            }
+        }
+
+        return new RawCharSequence(raw, start, end);
+    }
+
+    /**
+     * Creates a new filter for the given pattern
+     *
+     * @param pattern The regular expression to find
+     * @param flags Additional flags to compile the pattern with
+     * @throws java.util.regex.PatternSyntaxException if the pattern is
+     *         invalid
+     */
+    private PatternRevFilter(String pattern, int flags) {
+        this.matcher = Pattern.compile(pattern,
+                Pattern.MULTILINE | flags).matcher("");
+        this.pattern = pattern;
+    }
+
+    @Override
+    public boolean include(RevWalk walker, RevCommit commit) {
+        return matcher.reset(text(commit.getRawBuffer())).find();
+    }
+
+    @Override
+    public boolean requiresCommitBody() {
+        return true;
+    }
+
+    /**
+     * Returns the part of the raw commit the pattern is matched against
+     *
+     * @param raw The raw commit
+     * @return The text to match
+     */
+    abstract CharSequence text(byte[] raw);
+
+    @Override
+    public String toString() {
+        return super.toString() + "(\"" + pattern + "\")";
+    }
+
+    private static class AuthorPatternRevFilter extends PatternRevFilter {
+
+        AuthorPatternRevFilter(String pattern) {
+            super(pattern, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        }
+
+        @Override
+        public RevFilter clone() {
+            return new AuthorPatternRevFilter(super.pattern);
+        }
+
+        @Override
+        CharSequence text(byte[] raw) {
+            int start = RawParseUtils.author(raw, 0);
+            if (start < 0) {
+                return RawCharSequence.EMPTY;
+            }
+
+            return decode(raw, start, RawParseUtils.nextLF(raw, start, '>'));
+        }
+
+    }
+
+    private static class MessagePatternRevFilter extends PatternRevFilter {
+
+        MessagePatternRevFilter(String pattern) {
+            super(pattern, 0);
+        }
+
+        @Override
+        public RevFilter clone() {
+            return new MessagePatternRevFilter(super.pattern);
+        }
+
+        @Override
+        CharSequence text(byte[] raw) {
+            int start = RawParseUtils.commitMessage(raw, 0);
+            if (start < 0) {
+                return RawCharSequence.EMPTY;
+            }
+
+            return decode(raw, start, raw.length);
+        }
+
+    }
+
+}
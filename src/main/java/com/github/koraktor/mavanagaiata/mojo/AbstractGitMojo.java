@@ -2,23 +2,35 @@
  * This code is free software; you can redistribute it and/or modify it under
  * the terms of the new BSD License.
  *
- * Copyright (c) 2011-2016, Sebastian Staudt
+ * Copyright (c) 2011-2017, Sebastian Staudt
  */
 
 package com.github.koraktor.mavanagaiata.mojo;
 
 import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
 import java.util.Properties;
+import java.util.TimeZone;
 
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 
+import com.github.koraktor.mavanagaiata.git.DescribeOptions;
+import com.github.koraktor.mavanagaiata.git.GitCommit;
 import com.github.koraktor.mavanagaiata.git.GitRepository;
 import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
+import com.github.koraktor.mavanagaiata.git.GitTagDescription;
 import com.github.koraktor.mavanagaiata.git.jgit.JGitRepository;
+import com.github.koraktor.mavanagaiata.git.jgit.JGitRepositoryRegistry;
 
 /**
  * This abstract Mojo implements initializing a JGit Repository and provides
@@ -30,6 +42,37 @@ import com.github.koraktor.mavanagaiata.git.jgit.JGitRepository;
  */
 abstract class AbstractGitMojo extends AbstractMojo {
 
+    /**
+     * The scope limiting the dirty check to the current module
+     */
+    static final String SCOPE_MODULE = "module";
+
+    /**
+     * The scope using the whole repository for the dirty check
+     */
+    static final String SCOPE_REPOSITORY = "repository";
+
+    private static final String[] COMMIT_VALUES = {
+        "commit.id",
+        "commit.author.date", "commit.author.email", "commit.author.name",
+        "commit.author.timezone",
+        "commit.committer.date", "commit.committer.email",
+        "commit.committer.name", "commit.committer.timezone"
+    };
+
+    /**
+     * The directory to cache values computed from the Git repository in
+     * <p>
+     * Cached values are reused by later builds as long as the {@code HEAD}
+     * commit, the refs and the index of the repository stay the same. The
+     * state of the worktree is never cached. Caching is disabled if this is
+     * not set.
+     *
+     * @since 0.8.0
+     */
+    @Parameter(property = "mavanagaiata.cacheDirectory")
+    protected File cacheDirectory;
+
     /**
      * The date format to use for various dates
      */
@@ -37,6 +80,49 @@ abstract class AbstractGitMojo extends AbstractMojo {
                defaultValue = "MM/dd/yyyy hh:mm a Z")
     protected String dateFormat;
 
+    /**
+     * The maximum number of tags considered when describing the current
+     * commit
+     * <p>
+     * Like with {@code git describe --candidates} a value of <code>0</code>
+     * only allows tags pointing to the current commit.
+     *
+     * @since 0.8.0
+     */
+    @Parameter(property = "mavanagaiata.describe.candidates",
+               defaultValue = "10")
+    protected int describeCandidates = DescribeOptions.DEFAULT_CANDIDATES;
+
+    /**
+     * Glob patterns of tag names that should not be used to describe the
+     * current commit
+     *
+     * @since 0.8.0
+     */
+    @Parameter(property = "mavanagaiata.describe.exclude")
+    protected String[] describeExclude;
+
+    /**
+     * Specifies if only the first parent of merge commits should be followed
+     * when describing the current commit
+     *
+     * @since 0.8.0
+     */
+    @Parameter(property = "mavanagaiata.describe.firstParent",
+               defaultValue = "false")
+    protected boolean describeFirstParent;
+
+    /**
+     * Glob patterns of which tag names need to match at least one to be used
+     * to describe the current commit
+     * <p>
+     * All tags are considered if this is not set.
+     *
+     * @since 0.8.0
+     */
+    @Parameter(property = "mavanagaiata.describe.match")
+    protected String[] describeMatch;
+
     /**
      * The working tree of the Git repository.
      * <p>
@@ -78,6 +164,19 @@ abstract class AbstractGitMojo extends AbstractMojo {
                defaultValue = "false")
     protected boolean dirtyIgnoreUntracked;
 
+    /**
+     * The number of threads used to check whether the worktree is dirty
+     * <p>
+     * Directories of the worktree are checked concurrently if this is greater
+     * than one. A value of <code>0</code> uses one thread per available
+     * processor. By default the check runs in the thread of the mojo.
+     *
+     * @since 0.8.0
+     */
+    @Parameter(property = "mavanagaiata.dirtyCheckParallelism",
+               defaultValue = "1")
+    protected int dirtyCheckParallelism = 1;
+
     /**
      * Specifies if a failed execution of the mojo will stop the build process
      * <p>
@@ -107,6 +206,20 @@ abstract class AbstractGitMojo extends AbstractMojo {
                defaultValue = GitRepository.DEFAULT_HEAD)
     protected String head;
 
+    /**
+     * The part of the worktree used to determine the dirty flag
+     * <p>
+     * With <code>"repository"</code> (default) any change in the worktree
+     * will mark the project as dirty. With <code>"module"</code> only changes
+     * below the base directory of the current project are considered, which
+     * is useful for modules inside a larger repository.
+     *
+     * @since 0.8.0
+     */
+    @Parameter(property = "mavanagaiata.scope",
+               defaultValue = SCOPE_REPOSITORY)
+    protected String scope;
+
     /**
      * Skip the plugin execution
      *
@@ -131,12 +244,20 @@ abstract class AbstractGitMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project}", readonly = true)
     protected MavenProject project;
 
+    /**
+     * The Maven session
+     */
+    @Parameter(defaultValue = "${session}", readonly = true)
+    protected MavenSession session;
+
     /**
      * The prefixes to prepend to property keys
      */
     @Parameter(property = "mavanagaiata.propertyPrefixes")
     protected String[] propertyPrefixes = { "mavanagaiata", "mvngit" };
 
+    ResultCache resultCache;
+
     /**
      * Generic execution sequence for a Mavanagaiata mojo
      * <p>
@@ -156,7 +277,9 @@ abstract class AbstractGitMojo extends AbstractMojo {
             return;
         }
 
-        try (GitRepository repository = init()) {
+        GitRepository repository = null;
+        try {
+            repository = init();
             if (repository != null) {
                 run(repository);
             }
@@ -166,6 +289,12 @@ abstract class AbstractGitMojo extends AbstractMojo {
             }
 
             throw new MojoExecutionException(e.getMessage(), e);
+        } finally {
+            saveResultCache();
+
+            if (repository != null) {
+                releaseRepository(repository);
+            }
         }
     }
 
@@ -186,6 +315,277 @@ abstract class AbstractGitMojo extends AbstractMojo {
         }
     }
 
+    /**
+     * Saves the currently checked out branch into the project's properties
+     *
+     * @param repository The repository to use
+     * @throws GitRepositoryException if the branch cannot be determined
+     */
+    protected void addBranchProperties(GitRepository repository)
+            throws GitRepositoryException {
+        addProperty("branch", getBranch(repository));
+    }
+
+    /**
+     * Saves the information about the current {@code HEAD} commit into the
+     * project's properties
+     *
+     * @param repository The repository to use
+     * @throws GitRepositoryException if the commit cannot be read
+     */
+    protected void addCommitProperties(GitRepository repository)
+            throws GitRepositoryException {
+        ResultCache cache = loadCommitValues(repository);
+
+        String abbrevId  = getAbbreviatedCommitId(repository);
+        String shaId     = cache.get("commit.id");
+        boolean isDirty  = false;
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat(this.dateFormat);
+        dateFormat.setTimeZone(TimeZone.getTimeZone(cache.get("commit.author.timezone")));
+        String authorDate = dateFormat.format(new Date(Long.parseLong(cache.get("commit.author.date"))));
+        dateFormat.setTimeZone(TimeZone.getTimeZone(cache.get("commit.committer.timezone")));
+        String commitDate = dateFormat.format(new Date(Long.parseLong(cache.get("commit.committer.date"))));
+
+        if (isDirty(repository)) {
+            isDirty = true;
+
+            if (this.dirtyFlag != null) {
+                abbrevId += this.dirtyFlag;
+                shaId    += this.dirtyFlag;
+            }
+        }
+
+        this.addProperty("commit.abbrev", abbrevId);
+        this.addProperty("commit.author.date", authorDate);
+        this.addProperty("commit.author.name", cache.get("commit.author.name"));
+        this.addProperty("commit.author.email", cache.get("commit.author.email"));
+        this.addProperty("commit.committer.date", commitDate);
+        this.addProperty("commit.committer.name", cache.get("commit.committer.name"));
+        this.addProperty("commit.committer.email", cache.get("commit.committer.email"));
+        this.addProperty("commit.id", shaId);
+        this.addProperty("commit.sha", shaId);
+        this.addProperty("commit.dirty", String.valueOf(isDirty));
+    }
+
+    /**
+     * Saves the description of the current {@code HEAD} commit and the name
+     * of the nearest tag into the project's properties
+     *
+     * @param repository The repository to use
+     * @throws GitRepositoryException if the description cannot be created
+     */
+    protected void addTagProperties(GitRepository repository)
+            throws GitRepositoryException {
+        String describe = getDescribe(repository);
+        if (this.dirtyFlag != null &&
+                isDirty(repository)) {
+            describe += this.dirtyFlag;
+        }
+
+        this.addProperty("tag.describe", describe);
+        this.addProperty("tag.name", getTagName(repository));
+    }
+
+    /**
+     * Stores the information of the given commit in the result cache
+     * <p>
+     * Dates are stored as milliseconds together with the ID of their time
+     * zone.
+     *
+     * @param cache The cache to store the information in
+     * @param commit The commit to get the information from
+     */
+    private void cacheCommit(ResultCache cache, GitCommit commit) {
+        cache.put("commit.id", commit.getId());
+        cache.put("commit.author.date", String.valueOf(commit.getAuthorDate().getTime()));
+        cache.put("commit.author.email", commit.getAuthorEmailAddress());
+        cache.put("commit.author.name", commit.getAuthorName());
+        cache.put("commit.author.timezone", commit.getAuthorTimeZone().getID());
+        cache.put("commit.committer.date", String.valueOf(commit.getCommitterDate().getTime()));
+        cache.put("commit.committer.email", commit.getCommitterEmailAddress());
+        cache.put("commit.committer.name", commit.getCommitterName());
+        cache.put("commit.committer.timezone", commit.getCommitterTimeZone().getID());
+    }
+
+    /**
+     * Returns the abbreviated ID of the current {@code HEAD} commit
+     *
+     * @param repository The repository to use
+     * @return The abbreviated commit ID
+     * @throws GitRepositoryException if the commit ID cannot be determined
+     * @see GitRepository#getAbbreviatedCommitId()
+     */
+    protected String getAbbreviatedCommitId(GitRepository repository)
+            throws GitRepositoryException {
+        ResultCache cache = getResultCache(repository);
+        String abbrevId = cache.get("commit.abbrev");
+        if (abbrevId == null) {
+            abbrevId = repository.getAbbreviatedCommitId();
+            cache.put("commit.abbrev", abbrevId);
+        }
+
+        return abbrevId;
+    }
+
+    /**
+     * Returns the currently checked out branch
+     *
+     * @param repository The repository to use
+     * @return The current branch
+     * @throws GitRepositoryException if the branch cannot be determined
+     * @see GitRepository#getBranch()
+     */
+    protected String getBranch(GitRepository repository)
+            throws GitRepositoryException {
+        ResultCache cache = getResultCache(repository);
+        String branch = cache.get("branch");
+        if (branch == null) {
+            branch = repository.getBranch();
+            cache.put("branch", branch);
+        }
+
+        return branch;
+    }
+
+    /**
+     * Returns the ID of the current {@code HEAD} commit
+     *
+     * @param repository The repository to use
+     * @return The commit ID
+     * @throws GitRepositoryException if the commit cannot be read
+     * @see GitRepository#getHeadCommit()
+     */
+    protected String getCommitId(GitRepository repository)
+            throws GitRepositoryException {
+        ResultCache cache = getResultCache(repository);
+        String commitId = cache.get("commit.id");
+        if (commitId == null) {
+            commitId = repository.getHeadCommit().getId();
+            cache.put("commit.id", commitId);
+        }
+
+        return commitId;
+    }
+
+    /**
+     * Returns the description of the current {@code HEAD} commit like
+     * {@code git describe} would
+     *
+     * @param repository The repository to use
+     * @return The description of the commit
+     * @throws GitRepositoryException if the description cannot be created
+     * @see GitRepository#describe(DescribeOptions)
+     */
+    protected String getDescribe(GitRepository repository)
+            throws GitRepositoryException {
+        return getDescriptionValue(repository, "tag.describe");
+    }
+
+    /**
+     * Returns the options used to describe the current {@code HEAD} commit
+     *
+     * @return The configured options
+     */
+    DescribeOptions getDescribeOptions() {
+        List<String> match = (describeMatch == null) ? null : Arrays.asList(describeMatch);
+        List<String> exclude = (describeExclude == null) ? null : Arrays.asList(describeExclude);
+
+        return new DescribeOptions(describeCandidates, match, exclude,
+            describeFirstParent);
+    }
+
+    /**
+     * Returns a value of the description of the current {@code HEAD} commit
+     * <p>
+     * Both values of the description are cached at once. Descriptions using
+     * other than the default options are cached separately.
+     *
+     * @param repository The repository to use
+     * @param name The name of the value, either {@code "tag.describe"} or
+     *        {@code "tag.name"}
+     * @return The requested value
+     * @throws GitRepositoryException if the description cannot be created
+     */
+    private String getDescriptionValue(GitRepository repository, String name)
+            throws GitRepositoryException {
+        DescribeOptions options = getDescribeOptions();
+        String suffix = "";
+        if (!options.equals(DescribeOptions.DEFAULT)) {
+            suffix = "[" + options + "]";
+        }
+
+        ResultCache cache = getResultCache(repository);
+        if (!cache.containsAll("tag.describe" + suffix, "tag.name" + suffix)) {
+            GitTagDescription description = repository.describe(options);
+            cache.put("tag.describe" + suffix, description.toString());
+            cache.put("tag.name" + suffix, description.getNextTagName());
+        }
+
+        return cache.get(name + suffix);
+    }
+
+    /**
+     * Returns the cache for values computed from the given repository
+     * <p>
+     * If no cache directory is configured, the values are only cached for
+     * the current mojo execution.
+     *
+     * @param repository The repository the values are computed from
+     * @return The cache for the current state of the repository
+     * @throws GitRepositoryException if the state of the repository cannot be
+     *         determined
+     */
+    ResultCache getResultCache(GitRepository repository)
+            throws GitRepositoryException {
+        if (resultCache == null) {
+            if (cacheDirectory == null) {
+                resultCache = new ResultCache();
+            } else {
+                try {
+                    resultCache = ResultCache.load(cacheDirectory, repository.getStateKey());
+                } catch (IOException e) {
+                    getLog().warn("Could not read cached values: " + e.getMessage());
+                    resultCache = new ResultCache();
+                }
+            }
+        }
+
+        return resultCache;
+    }
+
+    /**
+     * Loads the information about the current {@code HEAD} commit into the
+     * result cache unless it is already cached
+     *
+     * @param repository The repository to use
+     * @return The result cache containing the commit information
+     * @throws GitRepositoryException if the commit cannot be read
+     */
+    ResultCache loadCommitValues(GitRepository repository)
+            throws GitRepositoryException {
+        ResultCache cache = getResultCache(repository);
+        if (!cache.containsAll(COMMIT_VALUES)) {
+            cacheCommit(cache, repository.getHeadCommit());
+        }
+
+        return cache;
+    }
+
+    /**
+     * Returns the name of the nearest tag reachable from the current
+     * {@code HEAD} commit
+     *
+     * @param repository The repository to use
+     * @return The name of the tag or an empty string if there is none
+     * @throws GitRepositoryException if the description cannot be created
+     * @see GitRepository#describe(DescribeOptions)
+     */
+    protected String getTagName(GitRepository repository)
+            throws GitRepositoryException {
+        return getDescriptionValue(repository, "tag.name");
+    }
+
     /**
      * Generic initialization for all Mavanagaiata mojos
      * <p>
@@ -223,13 +623,98 @@ abstract class AbstractGitMojo extends AbstractMojo {
      *         repository fails
      */
     protected GitRepository initRepository() throws GitRepositoryException {
-        GitRepository repository = new JGitRepository(baseDir, gitDir);
-        repository.check();
-        repository.setHeadRef(head);
+        GitRepository repository;
+        if (isRepositoryShared()) {
+            MavenExecutionRequest request = session.getRequest();
+            SessionEndListener.register(request);
+            repository = JGitRepositoryRegistry.getInstance().acquire(request, baseDir, gitDir, head);
+        } else {
+            repository = new JGitRepository(baseDir, gitDir);
+            repository.check();
+            repository.setHeadRef(head);
+        }
+        repository.setDirtyCheckParallelism(dirtyCheckParallelism);
 
         return repository;
     }
 
+    /**
+     * Returns whether the worktree is dirty
+     * <p>
+     * If the scope is set to <code>"module"</code>, only the base directory
+     * of the current project is checked.
+     *
+     * @param repository The repository to check
+     * @return {@code true} if there are changes in the worktree
+     * @throws GitRepositoryException if the worktree state cannot be
+     *         determined
+     * @see #scope
+     */
+    protected boolean isDirty(GitRepository repository)
+            throws GitRepositoryException {
+        if (!SCOPE_MODULE.equals(scope)) {
+            return repository.isDirty(dirtyIgnoreUntracked);
+        }
+
+        return repository.isDirty(dirtyIgnoreUntracked, getModulePath(repository));
+    }
+
+    /**
+     * Returns the path of the current project's base directory relative to
+     * the worktree of the repository
+     * <p>
+     * Bare repositories have no worktree, so the whole repository is used
+     * for them.
+     *
+     * @param repository The repository containing the project
+     * @return The relative path of the project or {@code null} if the project
+     *         is located at the root of the worktree or the repository is
+     *         bare
+     * @throws GitRepositoryException if the project is not located inside the
+     *         worktree
+     */
+    String getModulePath(GitRepository repository)
+            throws GitRepositoryException {
+        File workTreeDir = repository.getWorkTree();
+        if (workTreeDir == null) {
+            return null;
+        }
+
+        try {
+            String workTree = workTreeDir.getCanonicalPath();
+            String moduleDir = project.getBasedir().getCanonicalPath();
+
+            if (moduleDir.equals(workTree)) {
+                return null;
+            }
+
+            if (!moduleDir.startsWith(workTree + File.separator)) {
+                throw new GitRepositoryException(String.format(
+                        "The project directory %s is not inside the worktree %s",
+                        moduleDir, workTree));
+            }
+
+            return moduleDir.substring(workTree.length() + 1)
+                    .replace(File.separatorChar, '/');
+        } catch (IOException e) {
+            throw new GitRepositoryException("Could not resolve the project directory", e);
+        }
+    }
+
+    /**
+     * Returns whether the repository is shared with other mojo executions of
+     * the current Maven session
+     * <p>
+     * Repositories can be used concurrently, so they are shared in parallel
+     * builds, too. They are closed when the session ends.
+     *
+     * @return {@code true} if the repository should be shared
+     * @see SessionEndListener
+     */
+    boolean isRepositoryShared() {
+        return session != null && session.getRequest() != null;
+    }
+
     /**
      * Prepares and validates user-supplied parameters
      */
@@ -240,6 +725,45 @@ abstract class AbstractGitMojo extends AbstractMojo {
         }
     }
 
+    /**
+     * Releases the repository after the mojo has been executed
+     * <p>
+     * Shared repositories are kept open for the following projects of the
+     * Maven session, other repositories are closed immediately. The statistics of
+     * the repository's commit cache are logged in debug mode.
+     *
+     * @param repository The repository used by this mojo
+     */
+    protected void releaseRepository(GitRepository repository) {
+        if (repository instanceof JGitRepository && getLog().isDebugEnabled()) {
+            getLog().debug("Commit cache: " +
+                    ((JGitRepository) repository).getCommitCache());
+        }
+
+        if (!JGitRepositoryRegistry.getInstance().release(repository)) {
+            repository.close();
+        }
+    }
+
+    /**
+     * Stores new values of the result cache for later builds
+     * <p>
+     * Failures are only logged, as they do not affect the current build.
+     */
+    void saveResultCache() {
+        if (resultCache == null) {
+            return;
+        }
+
+        try {
+            resultCache.save();
+        } catch (IOException e) {
+            getLog().warn("Could not write cached values: " + e.getMessage());
+        } finally {
+            resultCache = null;
+        }
+    }
+
     /**
      * The actual implementation of the mojo
      * <p>
@@ -2,7 +2,7 @@
  * This code is free software; you can redistribute it and/or modify it under
  * the terms of the new BSD License.
  *
- * Copyright (c) 2011-2016, Sebastian Staudt
+ * Copyright (c) 2011-2017, Sebastian Staudt
  */
 
 package com.github.koraktor.mavanagaiata.mojo;
@@ -16,6 +16,7 @@ import java.util.Date;
 
 import org.apache.maven.plugins.annotations.Parameter;
 
+import com.github.koraktor.mavanagaiata.git.CommitFilter;
 import com.github.koraktor.mavanagaiata.git.GitRepository;
 
 /**
@@ -32,6 +33,45 @@ import com.github.koraktor.mavanagaiata.git.GitRepository;
  */
 abstract class AbstractGitOutputMojo extends AbstractGitMojo {
 
+    /**
+     * A regular expression the author of commits has to match to be included
+     * in the output
+     * <p>
+     * The expression is matched ignoring case against the name and email
+     * address of the author in the form {@code Name <email>}.
+     *
+     * @since 0.8.0
+     */
+    @Parameter(property = "mavanagaiata.commits.author")
+    protected String commitsAuthor;
+
+    /**
+     * A regular expression the message of commits has to match to be
+     * included in the output
+     *
+     * @since 0.8.0
+     */
+    @Parameter(property = "mavanagaiata.commits.matching")
+    protected String commitsMatching;
+
+    /**
+     * The commit date of the oldest commits to include in the output
+     * <p>
+     * The history is only read until the first older commit is reached.
+     *
+     * @since 0.8.0
+     */
+    @Parameter(property = "mavanagaiata.commits.since")
+    protected Date commitsSince;
+
+    /**
+     * The commit date of the newest commits to include in the output
+     *
+     * @since 0.8.0
+     */
+    @Parameter(property = "mavanagaiata.commits.until")
+    protected Date commitsUntil;
+
     /**
      * The encoding to use for generated output
      */
@@ -46,8 +86,50 @@ abstract class AbstractGitOutputMojo extends AbstractGitMojo {
                defaultValue = "\nGenerated by Mavanagaiata at %s")
     protected String footer;
 
+    /**
+     * The maximum number of commits to include in the output
+     * <p>
+     * The history is only read until this number of commits has been found.
+     * A negative value includes all commits.
+     *
+     * @since 0.8.0
+     */
+    @Parameter(property = "mavanagaiata.commits.maxCount",
+               defaultValue = "-1")
+    protected int maxCommits = -1;
+
+    /**
+     * Whether merge commits should be excluded from the output
+     *
+     * @since 0.8.0
+     */
+    @Parameter(property = "mavanagaiata.commits.skipMerges",
+               defaultValue = "false")
+    protected boolean skipMerges;
+
+    CommitFilter commitFilter = new CommitFilter();
+
     protected void initConfiguration() {
         this.footer = this.footer.replaceAll("(^|[^\\\\])\\\\n", "$1\n");
+
+        commitFilter = createCommitFilter();
+    }
+
+    /**
+     * Creates the filter selecting the commits to include in the output
+     *
+     * @return The configured commit filter
+     */
+    CommitFilter createCommitFilter() {
+        CommitFilter filter = new CommitFilter();
+        filter.setAuthorPattern(commitsAuthor);
+        filter.setMaxCount(maxCommits);
+        filter.setMessagePattern(commitsMatching);
+        filter.setNoMerges(skipMerges);
+        filter.setSince(commitsSince);
+        filter.setUntil(commitsUntil);
+
+        return filter;
     }
 
     /**
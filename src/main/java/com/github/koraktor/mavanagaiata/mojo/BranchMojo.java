@@ -2,7 +2,7 @@
  * This code is free software; you can redistribute it and/or modify it under
  * the terms of the new BSD License.
  *
- * Copyright (c) 2011-2016, Sebastian Staudt
+ * Copyright (c) 2011-2017, Sebastian Staudt
  */
 
 package com.github.koraktor.mavanagaiata.mojo;
@@ -35,7 +35,7 @@ public class BranchMojo extends AbstractGitMojo {
      */
     public void run(GitRepository repository) throws MavanagaiataMojoException {
         try {
-            addProperty("branch", repository.getBranch());
+            addBranchProperties(repository);
         } catch(GitRepositoryException e) {
             throw MavanagaiataMojoException.create("Unable to read Git branch", e);
         }
@@ -8,16 +8,32 @@
 
 package com.github.koraktor.mavanagaiata.mojo;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
+import com.github.koraktor.mavanagaiata.git.CommitFilter;
 import com.github.koraktor.mavanagaiata.git.CommitWalkAction;
+import com.github.koraktor.mavanagaiata.git.GitCommit;
 import com.github.koraktor.mavanagaiata.git.GitRepository;
 import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
 import com.github.koraktor.mavanagaiata.git.GitTag;
@@ -106,6 +122,23 @@ public class ChangelogMojo extends AbstractGitOutputMojo {
                defaultValue = "Changelog\\n=========\\n")
     protected String header;
 
+    /**
+     * Whether the changelog should be updated incrementally
+     * <p>
+     * The state of the generated changelog is saved next to the output file.
+     * Later builds will only walk the commits added since then and insert
+     * them into the existing changelog. The changelog is generated completely
+     * if the history has been rewritten, tags have been changed or the
+     * configuration is different. This has no effect if no output file is
+     * configured. If the number of commits is limited, the changelog is always
+     * generated completely.
+     *
+     * @since 0.8.0
+     */
+    @Parameter(property = "mavanagaiata.changelog.incremental",
+               defaultValue = "false")
+    protected boolean incremental;
+
     /**
      * The file to write the changelog to
      *
@@ -114,6 +147,20 @@ public class ChangelogMojo extends AbstractGitOutputMojo {
     @Parameter(property = "mavanagaiata.changelog.outputFile")
     protected File outputFile;
 
+    /**
+     * Whether the meta data of all tags should be loaded at once on a
+     * background thread while the history is walked
+     * <p>
+     * This avoids reading single tags in the middle of the walk when
+     * generating the complete changelog. If disabled, each tag is read when
+     * its section is written.
+     *
+     * @since 0.8.0
+     */
+    @Parameter(property = "mavanagaiata.changelog.preloadTags",
+               defaultValue = "true")
+    protected boolean preloadTags = true;
+
     /**
      * Whether to skip tagged commits' messages
      * <br>
@@ -134,6 +181,9 @@ public class ChangelogMojo extends AbstractGitOutputMojo {
 
     /**
      * Whether to skip commits that match the given regular expression
+     * <p>
+     * Skipped commits are filtered while reading the history, so tags
+     * pointing to them are not listed either.
      *
      * @since 0.8.0
      */
@@ -142,6 +192,10 @@ public class ChangelogMojo extends AbstractGitOutputMojo {
 
     protected Pattern skipCommitsPattern;
 
+    byte[] previousBody;
+
+    ChangelogState previousState;
+
     /**
      * Walks through the history of the currently checked out branch of the
      * Git repository and builds a changelog from the commits contained in that
@@ -156,20 +210,415 @@ public class ChangelogMojo extends AbstractGitOutputMojo {
         try {
             printStream.println(header);
 
-            ChangelogWalkAction result = repository.walkCommits(new ChangelogWalkAction(printStream));
-
-            if (createGitHubLinks) {
-                if (result.getLatestTag() == null) {
-                    insertGitHubLink(printStream, repository.getBranch(), null, true);
-                } else {
-                    insertGitHubLink(printStream, result.getLatestTag(), (GitTag) null);
-                }
+            if (isIncremental()) {
+                writeIncrementalChangelog(repository, printStream);
+            } else {
+                ChangelogWalkAction result = walkChangelog(repository, new ChangelogWalkAction(printStream));
+                insertFinalGitHubLink(repository, printStream, result);
             }
         } catch (GitRepositoryException e) {
             throw MavanagaiataMojoException.create("Unable to generate changelog from Git", e);
         }
     }
 
+    /**
+     * Writes the changelog by updating the previously generated changelog if
+     * possible, or by generating it completely otherwise
+     * <p>
+     * The state of the written changelog is saved for the next build.
+     *
+     * @param repository The repository to generate the changelog from
+     * @param printStream The stream to write the changelog to
+     * @throws GitRepositoryException if retrieving information from the Git
+     *         repository fails
+     * @throws MavanagaiataMojoException if the changelog cannot be encoded
+     */
+    private void writeIncrementalChangelog(GitRepository repository, PrintStream printStream)
+            throws GitRepositoryException, MavanagaiataMojoException {
+        String config = getConfigHash(repository.getBranch());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        ChangelogState state = null;
+        if (previousState != null && previousState.config.equals(config) &&
+                commitFilter.getMaxCount() < 0 &&
+                repository.isAncestor(previousState.head)) {
+            state = updateChangelog(repository, body);
+        }
+
+        if (state == null) {
+            getLog().debug("Generating the complete changelog");
+
+            body.reset();
+            state = generateChangelog(repository, body);
+        }
+
+        GitCommit head = repository.getHeadCommit();
+        byte[] bodyBytes = body.toByteArray();
+        state.bodyHash   = ChangelogState.hash(bodyBytes, 0, bodyBytes.length);
+        state.bodyLength = bodyBytes.length;
+        state.config     = config;
+        state.head       = head.getId();
+        state.headTime   = head.getCommitterDate().getTime();
+        state.tags.clear();
+        state.tags.putAll(getTagNames(repository));
+
+        printStream.write(bodyBytes, 0, bodyBytes.length);
+
+        try {
+            state.save(getStateFile());
+        } catch (IOException e) {
+            getLog().warn("Could not write changelog state: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Generates the complete changelog
+     *
+     * @param repository The repository to generate the changelog from
+     * @param body The buffer to write the changelog body to
+     * @return The state of the generated changelog
+     * @throws GitRepositoryException if retrieving information from the Git
+     *         repository fails
+     * @throws MavanagaiataMojoException if the changelog cannot be encoded
+     */
+    private ChangelogState generateChangelog(GitRepository repository,
+                                             ByteArrayOutputStream body)
+            throws GitRepositoryException, MavanagaiataMojoException {
+        ChangelogState state = new ChangelogState();
+        PrintStream bodyStream = createBodyStream(body);
+
+        ChangelogWalkAction result = walkChangelog(repository, new ChangelogWalkAction(bodyStream, body, state));
+        if (state.topTag == null && state.commitsStart >= 0) {
+            state.commitsEnd = body.size();
+        }
+        insertFinalGitHubLink(repository, bodyStream, result);
+        bodyStream.flush();
+
+        return state;
+    }
+
+    /**
+     * Walks the complete history to generate the changelog
+     * <p>
+     * If enabled, the meta data of all tags is loaded concurrently in a
+     * single batch. Tags reached by the walk before they have been loaded in
+     * the background are loaded by the walk itself.
+     *
+     * @param repository The repository to generate the changelog from
+     * @param action The action generating the changelog
+     * @return The action after the walk
+     * @throws GitRepositoryException if retrieving information from the Git
+     *         repository fails
+     * @see #preloadTags
+     */
+    private ChangelogWalkAction walkChangelog(final GitRepository repository,
+                                              ChangelogWalkAction action)
+            throws GitRepositoryException {
+        if (!preloadTags) {
+            return walkAllCommits(repository, action);
+        }
+
+        final Map<String, GitTag> tags = repository.getTags();
+        action.tags = tags;
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Void> tagLoader = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws GitRepositoryException {
+                repository.loadTags(tags.values());
+                return null;
+            }
+        });
+        executor.shutdown();
+
+        try {
+            return walkAllCommits(repository, action);
+        } finally {
+            try {
+                tagLoader.get();
+            } catch (ExecutionException e) {
+                getLog().debug("Could not preload tags: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Runs the given action for all commits reachable from {@code HEAD}
+     * <p>
+     * Subclasses may run additional actions during the same walk.
+     *
+     * @param repository The repository to walk
+     * @param action The action to run for each commit
+     * @return The action after the walk
+     * @throws GitRepositoryException if walking the commits fails
+     */
+    <T extends CommitWalkAction> T walkAllCommits(GitRepository repository,
+                                                  T action)
+            throws GitRepositoryException {
+        return repository.walkCommits(action);
+    }
+
+    /**
+     * Updates the previously generated changelog with the commits added since
+     * then
+     * <p>
+     * Only the new commits are walked. Their lines are inserted into the
+     * topmost section of the previous changelog or prepended as new sections
+     * if new tags have been created. The result is the same as generating the
+     * complete changelog.
+     *
+     * @param repository The repository to generate the changelog from
+     * @param body The buffer to write the changelog body to
+     * @return The state of the updated changelog or {@code null} if the
+     *         previous changelog cannot be updated, e.g. because older
+     *         commits have been merged or tags have been changed
+     * @throws GitRepositoryException if retrieving information from the Git
+     *         repository fails
+     * @throws MavanagaiataMojoException if the changelog cannot be encoded
+     */
+    private ChangelogState updateChangelog(GitRepository repository,
+                                           ByteArrayOutputStream body)
+            throws GitRepositoryException, MavanagaiataMojoException {
+        ChangelogState previous = previousState;
+        if (!previous.headTagged && previous.commitsStart < 0) {
+            return null;
+        }
+
+        ChangelogState state = new ChangelogState();
+        ByteArrayOutputStream added = new ByteArrayOutputStream();
+        PrintStream addedStream = createBodyStream(added);
+        ChangelogWalkAction result = repository.walkCommits(
+                new ChangelogWalkAction(addedStream, added, state),
+                previous.head);
+        addedStream.flush();
+
+        if (result.oldestCommitTime < previous.headTime ||
+                !hasOnlyNewTags(repository, result)) {
+            return null;
+        }
+
+        getLog().debug("Updating the previous changelog");
+
+        PrintStream bodyStream = createBodyStream(body);
+        byte[] addedBytes = added.toByteArray();
+        if (result.getLatestTag() == null) {
+            if (addedBytes.length == 0) {
+                bodyStream.write(previousBody, 0, previousBody.length);
+
+                return previous;
+            }
+
+            if (previous.headTagged) {
+                bodyStream.write(addedBytes, 0, addedBytes.length);
+                state.commitsEnd = body.size();
+                state.restStart  = body.size() + previous.restStart;
+                state.topTag     = previous.topTag;
+                bodyStream.write(previousBody, 0, previous.restStart);
+                writePreviousSections(bodyStream);
+            } else {
+                int insertLength = addedBytes.length - state.commitsStart;
+                bodyStream.write(previousBody, 0, previous.commitsStart);
+                bodyStream.write(addedBytes, state.commitsStart, insertLength);
+                bodyStream.write(previousBody, previous.commitsStart,
+                        previousBody.length - previous.commitsStart);
+
+                state.commitsStart = previous.commitsStart;
+                state.commitsEnd   = previous.commitsEnd + insertLength;
+                state.restStart    = (previous.restStart < 0) ? -1 : previous.restStart + insertLength;
+                state.topTag       = previous.topTag;
+            }
+        } else {
+            String latestTag = result.getLatestTag().getName();
+            bodyStream.write(addedBytes, 0, addedBytes.length);
+
+            if (!previous.headTagged) {
+                bodyStream.write(previousBody, previous.commitsStart,
+                        previous.commitsEnd - previous.commitsStart);
+            }
+
+            if (previous.topTag == null) {
+                if (createGitHubLinks) {
+                    insertGitHubLink(bodyStream, latestTag, null, false);
+                }
+            } else {
+                if (createGitHubLinks) {
+                    insertGitHubLink(bodyStream, previous.topTag, latestTag, false);
+                }
+                writePreviousSections(bodyStream);
+            }
+        }
+        bodyStream.flush();
+
+        return state;
+    }
+
+    /**
+     * Writes the tag sections of the previous changelog
+     * <p>
+     * The first tag line has lost its leading line break when it was at the
+     * top of the previous changelog, so it is restored.
+     *
+     * @param bodyStream The stream to write the sections to
+     */
+    private void writePreviousSections(PrintStream bodyStream) {
+        if (previousState.headTagged && tagFormat.startsWith("\n")) {
+            bodyStream.print("\n");
+        }
+
+        bodyStream.write(previousBody, previousState.restStart,
+                previousBody.length - previousState.restStart);
+    }
+
+    /**
+     * Returns whether all tags created since the previous changelog point to
+     * new commits
+     * <p>
+     * Tags that have been created, moved or deleted in the history of the
+     * previous changelog require generating the complete changelog.
+     *
+     * @param repository The repository to generate the changelog from
+     * @param result The walk over the new commits
+     * @return {@code true} if only new commits have been tagged
+     * @throws GitRepositoryException if the tags cannot be read
+     */
+    private boolean hasOnlyNewTags(GitRepository repository,
+                                   ChangelogWalkAction result)
+            throws GitRepositoryException {
+        Map<String, String> addedTags = getTagNames(repository);
+        for (Map.Entry<String, String> tag : previousState.tags.entrySet()) {
+            if (!tag.getValue().equals(addedTags.remove(tag.getKey()))) {
+                return false;
+            }
+        }
+
+        return result.taggedCommits.containsAll(addedTags.keySet());
+    }
+
+    /**
+     * Creates a print stream writing into the given buffer using the
+     * configured encoding
+     *
+     * @param buffer The buffer to write to
+     * @return A new print stream for the buffer
+     * @throws MavanagaiataMojoException if the encoding is not supported
+     */
+    private PrintStream createBodyStream(ByteArrayOutputStream buffer)
+            throws MavanagaiataMojoException {
+        try {
+            return new PrintStream(buffer, false, encoding);
+        } catch (UnsupportedEncodingException e) {
+            throw MavanagaiataMojoException.create("Unsupported encoding \"%s\"", e, encoding);
+        }
+    }
+
+    /**
+     * Returns a hash of all settings affecting the generated changelog
+     *
+     * @param branch The name of the current branch
+     * @return A hash of the configuration
+     */
+    String getConfigHash(String branch) {
+        return ChangelogState.hash(VersionHelper.getVersion(), branch,
+                branchFormat, commitPrefix, String.valueOf(createGitHubLinks),
+                dateFormat, encoding, gitHubBranchLinkFormat,
+                gitHubBranchOnlyLinkFormat, gitHubProject,
+                gitHubTagLinkFormat, gitHubUser, header,
+                commitFilter.toString(), String.valueOf(skipTagged), tagFormat);
+    }
+
+    /**
+     * Returns the file the state of the changelog is saved to
+     *
+     * @return The state file next to the output file
+     */
+    File getStateFile() {
+        return new File(outputFile.getAbsoluteFile().getParentFile(),
+                "." + outputFile.getName() + ".state");
+    }
+
+    /**
+     * Returns the names of all tags in the repository
+     *
+     * @param repository The repository to read the tags from
+     * @return The tag names for the IDs of the tagged commits
+     * @throws GitRepositoryException if the tags cannot be read
+     */
+    private Map<String, String> getTagNames(GitRepository repository)
+            throws GitRepositoryException {
+        Map<String, String> tagNames = new HashMap<>();
+        for (Map.Entry<String, GitTag> tag : repository.getTags().entrySet()) {
+            tagNames.put(tag.getKey(), tag.getValue().getName());
+        }
+
+        return tagNames;
+    }
+
+    /**
+     * Inserts the link to the history of the oldest tag or the whole branch
+     * at the end of the changelog
+     *
+     * @param repository The repository the changelog is generated from
+     * @param printStream The stream to write the link to
+     * @param result The walk that generated the changelog
+     * @throws GitRepositoryException if the current branch cannot be read
+     */
+    private void insertFinalGitHubLink(GitRepository repository,
+                                       PrintStream printStream,
+                                       ChangelogWalkAction result)
+            throws GitRepositoryException {
+        if (createGitHubLinks) {
+            if (result.getLatestTag() == null) {
+                insertGitHubLink(printStream, repository.getBranch(), null, true);
+            } else {
+                insertGitHubLink(printStream, result.getLatestTag(), (GitTag) null);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the changelog is updated incrementally
+     *
+     * @return {@code true} if incremental updates are enabled and the
+     *         changelog is written to a file
+     */
+    boolean isIncremental() {
+        return incremental && outputFile != null;
+    }
+
+    /**
+     * Loads the previously generated changelog and its state
+     * <p>
+     * The previous changelog is only used if it has not been modified since
+     * it has been generated.
+     */
+    void loadPreviousChangelog() {
+        previousBody  = null;
+        previousState = null;
+
+        try {
+            ChangelogState state = ChangelogState.load(getStateFile());
+            if (state == null || !outputFile.isFile()) {
+                return;
+            }
+
+            byte[] output = Files.readAllBytes(outputFile.toPath());
+            byte[] headerBytes = (header + System.lineSeparator()).getBytes(encoding);
+            int bodyEnd = headerBytes.length + state.bodyLength;
+            if (bodyEnd > output.length ||
+                    !Arrays.equals(Arrays.copyOf(output, headerBytes.length), headerBytes) ||
+                    !state.bodyHash.equals(ChangelogState.hash(output, headerBytes.length, state.bodyLength))) {
+                return;
+            }
+
+            previousBody  = Arrays.copyOfRange(output, headerBytes.length, bodyEnd);
+            previousState = state;
+        } catch (IOException e) {
+            getLog().warn("Could not read previous changelog: " + e.getMessage());
+        }
+    }
+
     /**
      * Returns the output file for the generated changelog
      *
@@ -188,7 +637,12 @@ public class ChangelogMojo extends AbstractGitOutputMojo {
     protected GitRepository init() throws MavanagaiataMojoException {
         this.initConfiguration();
 
-        return super.init();
+        GitRepository repository = super.init();
+        if (repository != null && isIncremental()) {
+            loadPreviousChangelog();
+        }
+
+        return repository;
     }
 
     protected void initConfiguration() {
@@ -212,6 +666,22 @@ public class ChangelogMojo extends AbstractGitOutputMojo {
         }
     }
 
+    /**
+     * Creates the filter selecting the commits of the changelog
+     * <p>
+     * In addition to the common criteria commits matching
+     * {@link #skipCommitsMatching} are excluded.
+     *
+     * @return The configured commit filter
+     */
+    @Override
+    CommitFilter createCommitFilter() {
+        CommitFilter filter = super.createCommitFilter();
+        filter.setExcludedMessagePattern(skipCommitsMatching);
+
+        return filter;
+    }
+
     protected void insertGitHubLink(PrintStream printStream, GitTag lastTag,
                                     String branch) {
         this.insertGitHubLink(printStream, lastTag.getName(), branch, true);
@@ -273,6 +743,8 @@ public class ChangelogMojo extends AbstractGitOutputMojo {
 
     class ChangelogWalkAction extends CommitWalkAction {
 
+        private final ByteArrayOutputStream buffer;
+
         private GitTag currentTag;
 
         private SimpleDateFormat dateFormatter;
@@ -281,11 +753,36 @@ public class ChangelogMojo extends AbstractGitOutputMojo {
 
         private GitTag lastTag;
 
+        long oldestCommitTime = Long.MAX_VALUE;
+
         private final PrintStream printStream;
 
+        private final ChangelogState state;
+
+        final Set<String> taggedCommits = new HashSet<>();
+
+        private Map<String, GitTag> tags;
+
         ChangelogWalkAction(PrintStream printStream) {
+            this(printStream, null, null);
+        }
+
+        /**
+         * Creates a new walk action that records the layout of the generated
+         * changelog
+         *
+         * @param printStream The stream to print the changelog to
+         * @param buffer The buffer written by the print stream
+         * @param state The state to record the layout in
+         */
+        ChangelogWalkAction(PrintStream printStream,
+                            ByteArrayOutputStream buffer,
+                            ChangelogState state) {
+            this.buffer = buffer;
+            this.commitFilter = ChangelogMojo.this.commitFilter;
             this.dateFormatter = new SimpleDateFormat(dateFormat);
             this.printStream = printStream;
+            this.state = state;
         }
 
         GitTag getLatestTag() {
@@ -293,13 +790,29 @@ public class ChangelogMojo extends AbstractGitOutputMojo {
         }
 
         protected void run() throws GitRepositoryException {
-            if (skipCommitsPattern != null && skipCommitsPattern.matcher(currentCommit.getMessage()).find()) {
-                return;
+            if (tags == null) {
+                tags = repository.getTags();
+            }
+
+            GitTag tag = tags.get(currentCommit.getId());
+            if (state != null) {
+                oldestCommitTime = Math.min(oldestCommitTime, currentCommit.getCommitterDate().getTime());
+                if (tag != null) {
+                    taggedCommits.add(currentCommit.getId());
+                }
             }
 
-            if (repository.getTags().containsKey(this.currentCommit.getId())) {
+            if (tag != null) {
                 this.lastTag = this.currentTag;
-                this.currentTag = repository.getTags().get(this.currentCommit.getId());
+                this.currentTag = tag;
+                boolean topTag = state != null && lastTag == null;
+                if (topTag) {
+                    if (firstCommit) {
+                        state.headTagged = true;
+                    } else {
+                        state.commitsEnd = buffer.size();
+                    }
+                }
                 if (createGitHubLinks) {
                     if (this.lastTag == null) {
                         insertGitHubLink(printStream, currentTag, repository.getBranch());
@@ -307,6 +820,10 @@ public class ChangelogMojo extends AbstractGitOutputMojo {
                         insertGitHubLink(printStream, currentTag, lastTag);
                     }
                 }
+                if (topTag) {
+                    state.restStart = buffer.size();
+                    state.topTag = currentTag.getName();
+                }
 
                 currentTag.load(repository);
                 dateFormatter.setTimeZone(currentTag.getTimeZone());
@@ -324,6 +841,9 @@ public class ChangelogMojo extends AbstractGitOutputMojo {
                 }
             } else if (this.firstCommit) {
                 printStream.println(String.format(branchFormat, repository.getBranch()));
+                if (state != null) {
+                    state.commitsStart = buffer.size();
+                }
             }
 
             printStream.println(commitPrefix + currentCommit.getMessageSubject());
@@ -0,0 +1,214 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.mojo;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The state of an incrementally generated changelog
+ * <p>
+ * The state describes the commit and the tags the changelog has been
+ * generated from, the configuration used to render it and the layout of its
+ * topmost section. This allows inserting new commits into the existing
+ * changelog instead of generating it again.
+ * <p>
+ * All offsets are byte offsets into the body of the changelog, i.e. the
+ * output without header and footer.
+ *
+ * @author Sebastian Staudt
+ * @see ChangelogMojo#incremental
+ * @since 0.8.0
+ */
+class ChangelogState {
+
+    private static final String TAG_PREFIX = "tag.";
+
+    String bodyHash;
+
+    int bodyLength;
+
+    /**
+     * The offset after the last commit line of the branch section, or
+     * {@code -1} if the changelog does not start with a branch section
+     */
+    int commitsEnd = -1;
+
+    /**
+     * The offset of the first commit line below the branch line, or
+     * {@code -1} if the changelog does not start with a branch section
+     */
+    int commitsStart = -1;
+
+    String config;
+
+    String head;
+
+    boolean headTagged;
+
+    long headTime;
+
+    /**
+     * The offset of the section of the topmost tag, or {@code -1} if there is
+     * no tag section
+     */
+    int restStart = -1;
+
+    final Map<String, String> tags = new HashMap<>();
+
+    /**
+     * The name of the topmost tag in the changelog
+     */
+    String topTag;
+
+    /**
+     * Loads the state from the given file
+     *
+     * @param file The file to load the state from
+     * @return The loaded state or {@code null} if the file does not exist or
+     *         is invalid
+     * @throws IOException if the file cannot be read
+     */
+    static ChangelogState load(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        Properties values = new Properties();
+        try (InputStream inputStream = new FileInputStream(file)) {
+            values.load(inputStream);
+        }
+
+        ChangelogState state = new ChangelogState();
+        try {
+            state.bodyHash     = values.getProperty("body.hash");
+            state.bodyLength   = Integer.parseInt(values.getProperty("body.length"));
+            state.commitsEnd   = Integer.parseInt(values.getProperty("commits.end"));
+            state.commitsStart = Integer.parseInt(values.getProperty("commits.start"));
+            state.config       = values.getProperty("config");
+            state.head         = values.getProperty("head");
+            state.headTagged   = Boolean.parseBoolean(values.getProperty("head.tagged"));
+            state.headTime     = Long.parseLong(values.getProperty("head.time"));
+            state.restStart    = Integer.parseInt(values.getProperty("rest.start"));
+            state.topTag       = values.getProperty("top.tag");
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        if (state.bodyHash == null || state.config == null || state.head == null) {
+            return null;
+        }
+
+        for (String name : values.stringPropertyNames()) {
+            if (name.startsWith(TAG_PREFIX)) {
+                state.tags.put(name.substring(TAG_PREFIX.length()), values.getProperty(name));
+            }
+        }
+
+        return state;
+    }
+
+    /**
+     * Returns the hexadecimal SHA-1 hash of the given strings
+     *
+     * @param values The strings to hash
+     * @return The hash of the strings
+     */
+    static String hash(String... values) {
+        MessageDigest digest = newDigest();
+        for (String value : values) {
+            if (value != null) {
+                digest.update(value.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+        }
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Returns the hexadecimal SHA-1 hash of the given bytes
+     *
+     * @param bytes The bytes to hash
+     * @param offset The offset of the first byte to hash
+     * @param length The number of bytes to hash
+     * @return The hash of the bytes
+     */
+    static String hash(byte[] bytes, int offset, int length) {
+        MessageDigest digest = newDigest();
+        digest.update(bytes, offset, length);
+
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+
+        return hex.toString();
+    }
+
+    /**
+     * Writes this state to the given file
+     *
+     * @param file The file to write the state to
+     * @throws IOException if the file cannot be written
+     */
+    void save(File file) throws IOException {
+        Properties values = new Properties();
+        values.setProperty("body.hash", bodyHash);
+        values.setProperty("body.length", String.valueOf(bodyLength));
+        values.setProperty("commits.end", String.valueOf(commitsEnd));
+        values.setProperty("commits.start", String.valueOf(commitsStart));
+        values.setProperty("config", config);
+        values.setProperty("head", head);
+        values.setProperty("head.tagged", String.valueOf(headTagged));
+        values.setProperty("head.time", String.valueOf(headTime));
+        values.setProperty("rest.start", String.valueOf(restStart));
+        if (topTag != null) {
+            values.setProperty("top.tag", topTag);
+        }
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            values.setProperty(TAG_PREFIX + tag.getKey(), tag.getValue());
+        }
+
+        File tempFile = File.createTempFile("mavanagaiata", ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+                values.store(outputStream, null);
+            }
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+}
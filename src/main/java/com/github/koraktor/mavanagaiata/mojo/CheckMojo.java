@@ -95,16 +95,16 @@ public class CheckMojo extends AbstractGitMojo {
                 throw new CheckMojoException(CheckMojoException.Type.WRONG_BRANCH, repository.getBranch(), checkBranch);
             }
 
-            if (checkClean && repository.isDirty(dirtyIgnoreUntracked)) {
+            if (checkClean && isDirty(repository)) {
                 throw new CheckMojoException(CheckMojoException.Type.UNCLEAN);
             }
 
             if (checkTag) {
-                if (!repository.describe().isTagged()) {
+                if (!repository.describe(getDescribeOptions()).isTagged()) {
                     throw new CheckMojoException(CheckMojoException.Type.UNTAGGED);
                 }
 
-                if (!checkClean && repository.isDirty(dirtyIgnoreUntracked)) {
+                if (!checkClean && isDirty(repository)) {
                     getLog().warn("The current commit (`" + head +
                             "`) is tagged, but the worktree is unclean. This " +
                             "is probably undesirable.");
@@ -2,19 +2,16 @@
  * This code is free software; you can redistribute it and/or modify it under
  * the terms of the new BSD License.
  *
- * Copyright (c) 2011-2016, Sebastian Staudt
+ * Copyright (c) 2011-2017, Sebastian Staudt
  */
 
 package com.github.koraktor.mavanagaiata.mojo;
 
-import java.text.SimpleDateFormat;
-
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 
 import org.eclipse.jgit.revwalk.RevCommit;
 
-import com.github.koraktor.mavanagaiata.git.GitCommit;
 import com.github.koraktor.mavanagaiata.git.GitRepository;
 import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
 
@@ -49,38 +46,10 @@ public class CommitMojo extends AbstractGitMojo {
      */
     public void run(GitRepository repository) throws MavanagaiataMojoException {
         try {
-            GitCommit commit = repository.getHeadCommit();
-            String abbrevId  = repository.getAbbreviatedCommitId();
-            String shaId     = commit.getId();
-            boolean isDirty  = false;
-
-            SimpleDateFormat dateFormat = new SimpleDateFormat(this.dateFormat);
-            dateFormat.setTimeZone(commit.getAuthorTimeZone());
-            String authorDate = dateFormat.format(commit.getAuthorDate());
-            dateFormat.setTimeZone(commit.getCommitterTimeZone());
-            String commitDate = dateFormat.format(commit.getCommitterDate());
-
-            if (repository.isDirty(this.dirtyIgnoreUntracked)) {
-                isDirty = true;
-
-                if (this.dirtyFlag != null) {
-                    abbrevId += this.dirtyFlag;
-                    shaId    += this.dirtyFlag;
-                }
-            }
-
-            this.addProperty("commit.abbrev", abbrevId);
-            this.addProperty("commit.author.date", authorDate);
-            this.addProperty("commit.author.name", commit.getAuthorName());
-            this.addProperty("commit.author.email", commit.getAuthorEmailAddress());
-            this.addProperty("commit.committer.date", commitDate);
-            this.addProperty("commit.committer.name", commit.getCommitterName());
-            this.addProperty("commit.committer.email", commit.getCommitterEmailAddress());
-            this.addProperty("commit.id", shaId);
-            this.addProperty("commit.sha", shaId);
-            this.addProperty("commit.dirty", String.valueOf(isDirty));
+            addCommitProperties(repository);
         } catch (GitRepositoryException e) {
             throw MavanagaiataMojoException.create("Unable to read Git commit information", e);
         }
     }
+
 }
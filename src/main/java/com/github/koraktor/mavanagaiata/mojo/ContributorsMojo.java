@@ -2,18 +2,24 @@
  * This code is free software; you can redistribute it and/or modify it under
  * the terms of the new BSD License.
  *
- * Copyright (c) 2011-2016, Sebastian Staudt
+ * Copyright (c) 2011-2017, Sebastian Staudt
  */
 
 package com.github.koraktor.mavanagaiata.mojo;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -30,6 +36,17 @@ import com.github.koraktor.mavanagaiata.git.MailMap;
  * checked out branch of the Git repository. It will list all authors of the
  * commits in this branch. It can be configured to display the changelog or
  * save it to a file.
+ * <p>
+ * Authors are identified by their canonical email address from the mail map,
+ * so the contributions of all aliases of an author are counted together.
+ * <p>
+ * The list can be limited to the first contributors in the sort order and to
+ * the commits of a period of time. The walk through the history stops at the
+ * first commit older than this period.
+ * <p>
+ * If a cache directory is configured, the contributors are stored there and
+ * later builds only walk the commits added since then. All commits are walked
+ * again if the mail map has been changed or the history has been rewritten.
  *
  * @author Sebastian Staudt
  * @since 0.2.0
@@ -41,7 +58,7 @@ public class ContributorsMojo extends AbstractGitOutputMojo {
 
     protected final static Comparator<Contributor> COUNT_COMPARATOR = new Comparator<Contributor>() {
         public int compare(Contributor contributor1, Contributor contributor2) {
-            return -contributor1.count.compareTo(contributor2.count);
+            return Integer.compare(contributor2.count, contributor1.count);
         }
     };
 
@@ -71,8 +88,29 @@ public class ContributorsMojo extends AbstractGitOutputMojo {
                defaultValue = "Contributors\n============\n")
     protected String header;
 
+    /**
+     * The result of a walk through all commits done in advance, e.g. during
+     * the walk of another goal
+     *
+     * @see ReportMojo
+     */
+    ContributorsWalkAction completeWalk;
+
     protected MailMap mailMap;
 
+    /**
+     * The maximum number of contributors to list
+     * <p>
+     * Only the first contributors according to the sort order are listed,
+     * e.g. those with the most contributions. A negative value lists all
+     * contributors.
+     *
+     * @since 0.8.0
+     */
+    @Parameter(property = "mavanagaiata.contributors.maxContributors",
+               defaultValue = "-1")
+    protected int maxContributors = -1;
+
     /**
      * The file to write the contributors list to
      */
@@ -142,19 +180,7 @@ public class ContributorsMojo extends AbstractGitOutputMojo {
         try {
             mailMap = repository.getMailMap();
 
-            ContributorsWalkAction result = repository.walkCommits(new ContributorsWalkAction());
-
-            ArrayList<Contributor> contributors = new ArrayList<>(result.contributors.values());
-            switch (sort) {
-                case "date":
-                    Collections.sort(contributors, DATE_COMPARATOR);
-                    break;
-                case "name":
-                    Collections.sort(contributors, NAME_COMPARATOR);
-                    break;
-                default:
-                    Collections.sort(contributors, COUNT_COMPARATOR);
-            }
+            List<Contributor> contributors = selectContributors(getContributors(repository).values());
 
             printStream.println(this.header);
 
@@ -173,6 +199,192 @@ public class ContributorsMojo extends AbstractGitOutputMojo {
         }
     }
 
+    /**
+     * Returns the comparator for the configured sort order
+     *
+     * @return The comparator to sort contributors
+     */
+    Comparator<Contributor> getComparator() {
+        switch (sort) {
+            case "date":
+                return DATE_COMPARATOR;
+            case "name":
+                return NAME_COMPARATOR;
+            default:
+                return COUNT_COMPARATOR;
+        }
+    }
+
+    /**
+     * Selects the contributors to list in the configured sort order
+     * <p>
+     * If the number of contributors is limited, only the first contributors
+     * are kept in a bounded heap while going through all contributors. So
+     * only the listed contributors need to be sorted.
+     *
+     * @param contributors All contributors
+     * @return The sorted contributors to list
+     * @see #maxContributors
+     */
+    List<Contributor> selectContributors(Collection<Contributor> contributors) {
+        Comparator<Contributor> comparator = getComparator();
+
+        if (maxContributors < 0 || contributors.size() <= maxContributors) {
+            List<Contributor> sortedContributors = new ArrayList<>(contributors);
+            Collections.sort(sortedContributors, comparator);
+
+            return sortedContributors;
+        }
+
+        if (maxContributors == 0) {
+            return Collections.emptyList();
+        }
+
+        PriorityQueue<Contributor> heap = new PriorityQueue<>(maxContributors,
+                Collections.reverseOrder(comparator));
+        for (Contributor contributor : contributors) {
+            if (heap.size() < maxContributors) {
+                heap.add(contributor);
+            } else if (comparator.compare(contributor, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(contributor);
+            }
+        }
+
+        List<Contributor> selectedContributors = new ArrayList<>(heap);
+        Collections.sort(selectedContributors, comparator);
+
+        return selectedContributors;
+    }
+
+    /**
+     * Returns the contributors of the currently checked out branch
+     * <p>
+     * If a cache directory is configured, the contributors are loaded from
+     * there and only the commits added since the last build are walked.
+     *
+     * @param repository The repository to read the contributors from
+     * @return The contributors for their canonical email addresses
+     * @throws GitRepositoryException if walking the commits fails
+     */
+    Map<String, Contributor> getContributors(GitRepository repository)
+            throws GitRepositoryException {
+        if (cacheDirectory == null) {
+            return walkAllCommits(repository);
+        }
+
+        String filter = commitFilter.toString();
+        File stateFile = getStateFile(repository, filter);
+        String mailMapChecksum = mailMap.exists() ? mailMap.getChecksum() : "";
+        GitCommit head = repository.getHeadCommit();
+
+        ContributorsState state = null;
+        try {
+            state = ContributorsState.load(stateFile);
+        } catch (IOException e) {
+            getLog().warn("Could not read cached contributors: " + e.getMessage());
+        }
+
+        boolean valid = state != null && state.filter.equals(filter) &&
+                state.mailMapChecksum.equals(mailMapChecksum);
+        if (valid && state.head.equals(head.getId())) {
+            return state.contributors;
+        }
+
+        if (!valid || commitFilter.getMaxCount() >= 0 ||
+                !repository.isAncestor(state.head) ||
+                !addNewContributors(repository, state)) {
+            getLog().debug("Walking all commits to find contributors");
+
+            state = new ContributorsState();
+            state.contributors.putAll(walkAllCommits(repository));
+        }
+
+        state.filter          = filter;
+        state.head            = head.getId();
+        state.headTime        = head.getCommitterDate().getTime();
+        state.mailMapChecksum = mailMapChecksum;
+
+        try {
+            state.save(stateFile);
+        } catch (IOException e) {
+            getLog().warn("Could not write cached contributors: " + e.getMessage());
+        }
+
+        return state.contributors;
+    }
+
+    /**
+     * Returns the file storing the contributors for the given repository and
+     * commit filter
+     * <p>
+     * The file name contains a hash of the repository location, the
+     * {@code HEAD} ref and the commit filter, so different modules sharing
+     * the cache directory do not replace each other's state.
+     *
+     * @param repository The repository to read the contributors from
+     * @param filter The string representation of the commit filter
+     * @return The state file in the cache directory
+     */
+    File getStateFile(GitRepository repository, String filter) {
+        File workTree = repository.getWorkTree();
+        String key = ChangelogState.hash(
+                (gitDir == null) ? null : gitDir.getAbsolutePath(),
+                (workTree == null) ? null : workTree.getAbsolutePath(),
+                repository.getHeadRef(), filter);
+
+        return ContributorsState.getFile(cacheDirectory, key);
+    }
+
+    /**
+     * Returns the contributors of all commits reachable from {@code HEAD}
+     * <p>
+     * The commits are only walked if they have not been walked in advance.
+     *
+     * @param repository The repository to read the contributors from
+     * @return The contributors for their canonical email addresses
+     * @throws GitRepositoryException if walking the commits fails
+     * @see #completeWalk
+     */
+    private Map<String, Contributor> walkAllCommits(GitRepository repository)
+            throws GitRepositoryException {
+        if (completeWalk != null) {
+            return completeWalk.getContributors();
+        }
+
+        return repository.walkCommits(new ContributorsWalkAction()).getContributors();
+    }
+
+    /**
+     * Walks the commits added since the given state and adds their authors
+     * to it
+     *
+     * @param repository The repository to read the contributors from
+     * @param state The contributors of an earlier commit
+     * @return {@code false} if the new commits cannot be merged into the
+     *         state, because they are older than the commit of the state
+     * @throws GitRepositoryException if walking the commits fails
+     */
+    private boolean addNewContributors(GitRepository repository,
+                                       ContributorsState state)
+            throws GitRepositoryException {
+        ContributorsWalkAction result = repository.walkCommits(new ContributorsWalkAction(true), state.head);
+        if (result.oldestCommitTime < state.headTime) {
+            return false;
+        }
+
+        for (Map.Entry<String, Contributor> entry : result.getContributors().entrySet()) {
+            Contributor contributor = entry.getValue();
+            Contributor previousContributor = state.contributors.get(entry.getKey());
+            if (previousContributor != null) {
+                contributor.addContributions(previousContributor);
+            }
+            state.contributors.put(entry.getKey(), contributor);
+        }
+
+        return true;
+    }
+
     /**
      * Returns the output file for the generated contributors list
      *
@@ -191,28 +403,189 @@ public class ContributorsMojo extends AbstractGitOutputMojo {
         this.outputFile = outputFile;
     }
 
+    /**
+     * Aggregates the authors of the walked commits
+     * <p>
+     * Each distinct raw author identity is resolved only once into the
+     * canonical identity of the mail map and assigned a small integer ID.
+     * Aliases of the same person share the same ID, so their contributions
+     * are merged. The counts and dates of the contributions are stored in
+     * arrays indexed by that ID, so walking a commit does not need any
+     * further lookups of canonical identities.
+     */
     class ContributorsWalkAction extends CommitWalkAction {
 
-        protected HashMap<String, Contributor> contributors;
+        private static final int INITIAL_CAPACITY = 16;
+
+        private Map<String, Contributor> contributors;
+
+        int[] counts;
+
+        String[] emailAddresses;
+
+        long[] firstCommitTimes;
+
+        /**
+         * The IDs of the contributors by their canonical email address
+         */
+        private final Map<String, Integer> ids;
+
+        String[] names;
+
+        long oldestCommitTime = Long.MAX_VALUE;
+
+        /**
+         * The IDs of the contributors by the raw email address and the raw
+         * name of authors
+         * <p>
+         * Names are only distinguished if a mail map exists, otherwise the
+         * name is always {@code null}.
+         */
+        private final Map<String, Map<String, Integer>> rawIds;
+
+        int size;
+
+        private final boolean trackCommitTime;
 
         public ContributorsWalkAction() {
-            this.contributors = new HashMap<>();
+            this(false);
         }
 
-        protected void run() throws GitRepositoryException {
-            String emailAddress = this.currentCommit.getAuthorEmailAddress();
-            Contributor contributor = this.contributors.get(emailAddress);
-            if (contributor == null) {
-                this.contributors.put(emailAddress, new Contributor(this.currentCommit));
+        /**
+         * Creates a new walk action
+         *
+         * @param trackCommitTime Whether the time of the oldest commit walked
+         *        should be remembered
+         */
+        ContributorsWalkAction(boolean trackCommitTime) {
+            this.commitFilter = ContributorsMojo.this.commitFilter;
+            this.counts = new int[INITIAL_CAPACITY];
+            this.emailAddresses = new String[INITIAL_CAPACITY];
+            this.firstCommitTimes = new long[INITIAL_CAPACITY];
+            this.ids = new HashMap<>();
+            this.names = new String[INITIAL_CAPACITY];
+            this.rawIds = new HashMap<>();
+            this.trackCommitTime = trackCommitTime;
+        }
+
+        /**
+         * Returns the contributors found in the walked commits
+         *
+         * @return The contributors for their canonical email addresses
+         */
+        Map<String, Contributor> getContributors() {
+            if (contributors == null) {
+                contributors = new HashMap<>(size * 4 / 3 + 1);
+                for (int id = 0; id < size; id ++) {
+                    contributors.put(emailAddresses[id], new Contributor(
+                        emailAddresses[id], names[id], counts[id],
+                        new Date(firstCommitTimes[id])));
+                }
+            }
+
+            return contributors;
+        }
+
+        /**
+         * Returns the ID of the author of the given commit
+         * <p>
+         * Unknown authors are resolved using the mail map and either get the
+         * ID of the contributor with the same canonical email address or a
+         * new ID.
+         *
+         * @param commit The commit to get the author ID for
+         * @return The ID of the commit's author
+         */
+        private int getId(GitCommit commit) {
+            boolean mailMapExists = mailMap != null && mailMap.exists();
+            String rawEmailAddress = commit.getAuthorEmailAddress();
+            String rawName = mailMapExists ? commit.getAuthorName() : null;
+
+            Map<String, Integer> idsByName = rawIds.get(rawEmailAddress);
+            if (idsByName == null) {
+                idsByName = new HashMap<>(2);
+                rawIds.put(rawEmailAddress, idsByName);
             } else {
-                contributor.addCommit(this.currentCommit);
+                Integer id = idsByName.get(rawName);
+                if (id != null) {
+                    return id;
+                }
+            }
+
+            String emailAddress;
+            String name;
+            if (mailMapExists) {
+                emailAddress = mailMap.getCanonicalAuthorEmailAddress(commit);
+                name = mailMap.getCanonicalAuthorName(commit);
+            } else {
+                emailAddress = rawEmailAddress;
+                name = commit.getAuthorName();
+            }
+
+            Integer id = ids.get(emailAddress);
+            if (id == null) {
+                id = addContributor(emailAddress, name);
+            }
+            idsByName.put(rawName, id);
+
+            return id;
+        }
+
+        /**
+         * Adds a new contributor without any contributions
+         *
+         * @param emailAddress The canonical email address of the contributor
+         * @param name The canonical name of the contributor
+         * @return The ID of the new contributor
+         */
+        private int addContributor(String emailAddress, String name) {
+            if (size == counts.length) {
+                int capacity = size * 2;
+                counts = Arrays.copyOf(counts, capacity);
+                emailAddresses = Arrays.copyOf(emailAddresses, capacity);
+                firstCommitTimes = Arrays.copyOf(firstCommitTimes, capacity);
+                names = Arrays.copyOf(names, capacity);
+            }
+
+            int id = size ++;
+            emailAddresses[id] = emailAddress;
+            firstCommitTimes[id] = Long.MAX_VALUE;
+            names[id] = name;
+            ids.put(emailAddress, id);
+
+            return id;
+        }
+
+        /**
+         * Returns {@code true}, because only the authors of commits are
+         * used
+         *
+         * @return Always {@code true}
+         */
+        @Override
+        public boolean isHeaderOnly() {
+            return true;
+        }
+
+        protected void run() throws GitRepositoryException {
+            if (this.trackCommitTime) {
+                this.oldestCommitTime = Math.min(this.oldestCommitTime,
+                        this.currentCommit.getCommitterDate().getTime());
+            }
+
+            int id = getId(this.currentCommit);
+            counts[id] ++;
+
+            long authorTime = this.currentCommit.getAuthorDate().getTime();
+            if (authorTime < firstCommitTimes[id]) {
+                firstCommitTimes[id] = authorTime;
             }
         }
     }
 
-    class Contributor {
+    static class Contributor {
 
-        Integer count = 1;
+        int count;
 
         String emailAddress;
 
@@ -220,22 +593,24 @@ public class ContributorsMojo extends AbstractGitOutputMojo {
 
         String name;
 
-        public Contributor(GitCommit commit) {
-            this.emailAddress    = commit.getAuthorEmailAddress();
-            this.firstCommitDate = commit.getAuthorDate();
-            this.name            = commit.getAuthorName();
-
-            if (ContributorsMojo.this.mailMap.exists()) {
-                this.emailAddress = ContributorsMojo.this.mailMap.getCanonicalAuthorEmailAddress(commit);
-                this.name = ContributorsMojo.this.mailMap.getCanonicalAuthorName(commit);
-            }
+        Contributor(String emailAddress, String name, int count,
+                    Date firstCommitDate) {
+            this.count           = count;
+            this.emailAddress    = emailAddress;
+            this.firstCommitDate = firstCommitDate;
+            this.name            = name;
         }
 
-        void addCommit(GitCommit commit) {
-            this.count ++;
+        /**
+         * Adds the contributions of the same author found in older commits
+         *
+         * @param contributor The contributor from the older commits
+         */
+        void addContributions(Contributor contributor) {
+            this.count += contributor.count;
 
-            if (commit.getAuthorDate().before(this.firstCommitDate)) {
-                this.firstCommitDate = commit.getAuthorDate();
+            if (contributor.firstCommitDate.before(this.firstCommitDate)) {
+                this.firstCommitDate = contributor.firstCommitDate;
             }
         }
 
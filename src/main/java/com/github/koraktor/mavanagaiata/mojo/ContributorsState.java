@@ -0,0 +1,189 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.mojo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.github.koraktor.mavanagaiata.mojo.ContributorsMojo.Contributor;
+
+/**
+ * The aggregated contributors of a repository at a specific commit
+ * <p>
+ * The state is stored in a compact binary file, so later builds only need to
+ * add the contributions of new commits. The file is named after a key of
+ * the repository and the commit filter, so modules using other repositories
+ * or filters can share the cache directory without overwriting each other's
+ * state.
+ *
+ * @author Sebastian Staudt
+ * @see ContributorsMojo
+ * @since 0.8.0
+ */
+class ContributorsState {
+
+    private static final int MAGIC = 0x4d564743;
+
+    private static final int VERSION = 3;
+
+    private static final String FILE_PREFIX = "contributors-";
+
+    private static final String FILE_SUFFIX = ".state";
+
+    /**
+     * The names of the files created by this class, i.e. the prefix followed
+     * by a SHA-1 key
+     */
+    private static final Pattern FILE_PATTERN = Pattern.compile(
+            Pattern.quote(FILE_PREFIX) + "[0-9a-f]{40}" + Pattern.quote(FILE_SUFFIX));
+
+    /**
+     * The name of the single state file used by earlier versions
+     */
+    private static final String LEGACY_FILE = "contributors.state";
+
+    /**
+     * The number of state files kept in a cache directory
+     */
+    static final int MAX_FILES = 8;
+
+    /**
+     * The contributors by their canonical email address
+     */
+    final Map<String, Contributor> contributors;
+
+    /**
+     * The string representation of the commit filter used to find the
+     * contributors
+     */
+    String filter = "";
+
+    String head;
+
+    long headTime;
+
+    String mailMapChecksum;
+
+    /**
+     * Returns the state file for the given key
+     *
+     * @param directory The cache directory
+     * @param key The SHA-1 key of the repository and the commit filter
+     * @return The state file for the key
+     */
+    static File getFile(File directory, String key) {
+        return new File(directory, FILE_PREFIX + key + FILE_SUFFIX);
+    }
+
+    /**
+     * Loads the state from the given file
+     *
+     * @param file The file to load the state from
+     * @return The loaded state or {@code null} if the file does not exist or
+     *         is invalid
+     * @throws IOException if the file cannot be read
+     */
+    static ContributorsState load(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return null;
+            }
+
+            ContributorsState state = new ContributorsState();
+            state.filter          = input.readUTF();
+            state.head            = input.readUTF();
+            state.headTime        = input.readLong();
+            state.mailMapChecksum = input.readUTF();
+
+            int size = input.readInt();
+            for (int i = 0; i < size; i ++) {
+                String key          = input.readUTF();
+                String emailAddress = input.readUTF();
+                String name         = input.readUTF();
+                int count           = input.readInt();
+                Date firstCommitDate = new Date(input.readLong());
+
+                state.contributors.put(key, new Contributor(emailAddress, name, count, firstCommitDate));
+            }
+
+            return state;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a new empty state
+     */
+    ContributorsState() {
+        contributors = new HashMap<>();
+    }
+
+    /**
+     * Writes this state to the given file
+     * <p>
+     * Older state files in the same directory are removed, except for the
+     * most recently written ones.
+     *
+     * @param file The file to write the state to
+     * @throws IOException if the file cannot be written
+     */
+    void save(File file) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create cache directory " + directory);
+        }
+
+        File tempFile = File.createTempFile("mavanagaiata", ".tmp", directory);
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeUTF(filter);
+                output.writeUTF(head);
+                output.writeLong(headTime);
+                output.writeUTF(mailMapChecksum);
+
+                output.writeInt(contributors.size());
+                for (Map.Entry<String, Contributor> entry : contributors.entrySet()) {
+                    Contributor contributor = entry.getValue();
+                    output.writeUTF(entry.getKey());
+                    output.writeUTF(contributor.emailAddress);
+                    output.writeUTF(contributor.name);
+                    output.writeInt(contributor.count);
+                    output.writeLong(contributor.firstCommitDate.getTime());
+                }
+            }
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            tempFile.delete();
+        }
+
+        new File(directory, LEGACY_FILE).delete();
+        ResultCache.removeStaleFiles(directory, FILE_PATTERN, file.getName(), MAX_FILES);
+    }
+
+}
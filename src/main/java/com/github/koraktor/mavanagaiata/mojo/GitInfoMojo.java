@@ -0,0 +1,136 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.mojo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import com.github.koraktor.mavanagaiata.git.GitRepository;
+import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
+
+/**
+ * This goal provides all properties of the "branch", "commit" and "tag" goals
+ * at once and optionally generates the info class of the "info-class" goal.
+ * <p>
+ * The information is read from the repository only once. Independent
+ * queries like the branch lookup, the description of the current commit and
+ * the check for changes in the worktree are run concurrently, so the
+ * execution takes about as long as the slowest of them.
+ *
+ * @author Sebastian Staudt
+ * @since 0.8.0
+ */
+@Mojo(name ="git-info",
+      defaultPhase = LifecyclePhase.INITIALIZE,
+      threadSafe = true)
+public class GitInfoMojo extends InfoClassMojo {
+
+    /**
+     * Whether the info class should be generated, too
+     */
+    @Parameter(property = "mavanagaiata.git-info.infoClass",
+               defaultValue = "false")
+    protected boolean infoClass;
+
+    /**
+     * Reads all information from the repository and saves it into the
+     * project's properties
+     *
+     * @throws MavanagaiataMojoException if retrieving information from the Git
+     *         repository fails or the info class cannot be generated
+     */
+    @Override
+    public void run(GitRepository repository) throws MavanagaiataMojoException {
+        try {
+            loadValues(repository);
+
+            addBranchProperties(repository);
+            addCommitProperties(repository);
+            addTagProperties(repository);
+        } catch (GitRepositoryException e) {
+            throw MavanagaiataMojoException.create("Unable to read Git information", e);
+        }
+
+        if (infoClass) {
+            super.run(repository);
+        }
+    }
+
+    /**
+     * Runs the independent queries against the repository concurrently
+     * <p>
+     * The results are stored in the result cache, so the properties can be
+     * created afterwards without accessing the repository again. The state of
+     * the worktree is remembered by the repository itself.
+     *
+     * @param repository The repository to use
+     * @throws GitRepositoryException if any of the queries fails
+     */
+    void loadValues(final GitRepository repository)
+            throws GitRepositoryException {
+        getResultCache(repository);
+
+        List<Callable<Object>> queries = new ArrayList<>();
+        queries.add(new Callable<Object>() {
+            @Override
+            public Object call() throws GitRepositoryException {
+                return getBranch(repository);
+            }
+        });
+        queries.add(new Callable<Object>() {
+            @Override
+            public Object call() throws GitRepositoryException {
+                loadCommitValues(repository);
+                return getAbbreviatedCommitId(repository);
+            }
+        });
+        queries.add(new Callable<Object>() {
+            @Override
+            public Object call() throws GitRepositoryException {
+                return getDescribe(repository);
+            }
+        });
+        queries.add(new Callable<Object>() {
+            @Override
+            public Object call() throws GitRepositoryException {
+                return isDirty(repository);
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(queries.size());
+        try {
+            for (Future<Object> result : executor.invokeAll(queries)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GitRepositoryException("Interrupted while reading the repository.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof GitRepositoryException) {
+                throw (GitRepositoryException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new GitRepositoryException(cause.getMessage(), cause);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
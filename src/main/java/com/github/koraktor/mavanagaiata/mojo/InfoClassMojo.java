@@ -2,7 +2,7 @@
  * This code is free software; you can redistribute it and/or modify it under
  * the terms of the new BSD License.
  *
- * Copyright (c) 2012-2016, Sebastian Staudt
+ * Copyright (c) 2012-2017, Sebastian Staudt
  */
 
 package com.github.koraktor.mavanagaiata.mojo;
@@ -35,7 +35,6 @@ import org.codehaus.plexus.interpolation.MapBasedValueSource;
 import org.codehaus.plexus.interpolation.RegexBasedInterpolator;
 
 import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
-import com.github.koraktor.mavanagaiata.git.GitTagDescription;
 
 import static org.apache.commons.io.FileUtils.forceDeleteOnExit;
 
@@ -163,13 +162,11 @@ public class InfoClassMojo extends AbstractGitMojo {
 
     protected MapBasedValueSource getValueSource(GitRepository repository)
             throws GitRepositoryException {
-        GitTagDescription description = repository.describe();
-
-        String abbrevId  = repository.getAbbreviatedCommitId();
-        String shaId     = repository.getHeadCommit().getId();
-        String describe  = description.toString();
-        boolean isDirty  = repository.isDirty(this.dirtyIgnoreUntracked);
-        String branch    = repository.getBranch();
+        String abbrevId  = getAbbreviatedCommitId(repository);
+        String shaId     = getCommitId(repository);
+        String describe  = getDescribe(repository);
+        boolean isDirty  = isDirty(repository);
+        String branch    = getBranch(repository);
 
         if (isDirty && this.dirtyFlag != null) {
             abbrevId += this.dirtyFlag;
@@ -186,7 +183,7 @@ public class InfoClassMojo extends AbstractGitMojo {
         values.put("DESCRIBE", describe);
         values.put("DIRTY", Boolean.toString(isDirty));
         values.put("PACKAGE_NAME", this.packageName);
-        values.put("TAG_NAME", description.getNextTagName());
+        values.put("TAG_NAME", getTagName(repository));
         values.put("TIMESTAMP", dateFormat.format(new Date()));
         values.put("VERSION", this.project.getVersion());
 
@@ -0,0 +1,183 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.mojo;
+
+import java.io.File;
+import java.io.PrintStream;
+
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import com.github.koraktor.mavanagaiata.git.CommitWalkAction;
+import com.github.koraktor.mavanagaiata.git.CompositeCommitWalkAction;
+import com.github.koraktor.mavanagaiata.git.GitRepository;
+import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
+
+/**
+ * This goal generates the changelog of the "changelog" goal and the list of
+ * contributors of the "contributors" goal at once.
+ * <p>
+ * Whenever the complete history has to be walked for the changelog, the
+ * contributors are collected during the same walk, so every commit is read
+ * only once. The changelog is configured using the same parameters as the
+ * "changelog" goal, the contributors list using the parameters below which
+ * share their properties with the "contributors" goal. The common commit
+ * filter applies to both. Commits skipped using {@code skipCommitsMatching}
+ * are still listed as contributions, so in this case the contributors are
+ * collected during a separate walk.
+ *
+ * @author Sebastian Staudt
+ * @since 0.8.0
+ */
+@Mojo(name ="report",
+      defaultPhase = LifecyclePhase.PROCESS_RESOURCES,
+      threadSafe = true)
+public class ReportMojo extends ChangelogMojo {
+
+    /**
+     * The string to prepend to every contributor name
+     */
+    @Parameter(property = "mavanagaiata.contributors.contributorPrefix",
+               defaultValue = " * ")
+    protected String contributorPrefix;
+
+    /**
+     * The header to print above the contributors list
+     */
+    @Parameter(property = "mavanagaiata.contributors.header",
+               defaultValue = "Contributors\n============\n")
+    protected String contributorsHeader;
+
+    /**
+     * The file to write the contributors list to
+     */
+    @Parameter(property = "mavanagaiata.contributors.outputFile")
+    protected File contributorsOutputFile;
+
+    /**
+     * The maximum number of contributors to list
+     * <p>
+     * A negative value lists all contributors.
+     *
+     * @see ContributorsMojo#maxContributors
+     */
+    @Parameter(property = "mavanagaiata.contributors.maxContributors",
+               defaultValue = "-1")
+    protected int maxContributors = -1;
+
+    /**
+     * The method used to sort contributors
+     * <p>
+     * Available values are {@code count}, {@code date} and {@code name}.
+     */
+    @Parameter(property = "mavanagaiata.contributors.sort",
+               defaultValue = "count")
+    protected String contributorsSort;
+
+    /**
+     * Whether the number of contributions should be listed
+     */
+    @Parameter(property = "mavanagaiata.contributors.showCounts",
+               defaultValue = "true")
+    protected boolean showCounts;
+
+    /**
+     * Whether the email addresses of contributors should be listed
+     */
+    @Parameter(property = "mavanagaiata.contributors.showEmail",
+               defaultValue = "false")
+    protected boolean showEmail;
+
+    ContributorsMojo contributorsMojo;
+
+    /**
+     * Creates the mojo used to write the contributors list with the
+     * configuration of this mojo
+     *
+     * @return The configured contributors mojo
+     */
+    ContributorsMojo createContributorsMojo() {
+        ContributorsMojo mojo = new ContributorsMojo();
+        mojo.setLog(getLog());
+
+        mojo.cacheDirectory    = cacheDirectory;
+        mojo.commitsAuthor     = commitsAuthor;
+        mojo.commitsMatching   = commitsMatching;
+        mojo.commitsSince      = commitsSince;
+        mojo.commitsUntil      = commitsUntil;
+        mojo.contributorPrefix = contributorPrefix;
+        mojo.dateFormat        = dateFormat;
+        mojo.encoding          = encoding;
+        mojo.footer            = footer;
+        mojo.header            = contributorsHeader;
+        mojo.maxCommits        = maxCommits;
+        mojo.maxContributors   = maxContributors;
+        mojo.outputFile        = contributorsOutputFile;
+        mojo.showCounts        = showCounts;
+        mojo.showEmail         = showEmail;
+        mojo.skipMerges        = skipMerges;
+        mojo.sort              = contributorsSort;
+        mojo.initConfiguration();
+
+        return mojo;
+    }
+
+    /**
+     * Writes the changelog and afterwards the contributors list
+     *
+     * @param repository The repository to read the history from
+     * @param printStream The stream to write the changelog to
+     * @throws MavanagaiataMojoException if retrieving information from the Git
+     *         repository fails or the contributors list cannot be written
+     */
+    @Override
+    protected void generateOutput(GitRepository repository, PrintStream printStream)
+            throws MavanagaiataMojoException {
+        try {
+            contributorsMojo.mailMap = repository.getMailMap();
+        } catch (GitRepositoryException e) {
+            throw MavanagaiataMojoException.create("Unable to read contributors from Git", e);
+        }
+
+        super.generateOutput(repository, printStream);
+
+        contributorsMojo.run(repository);
+    }
+
+    @Override
+    protected void initConfiguration() {
+        super.initConfiguration();
+
+        contributorsMojo = createContributorsMojo();
+    }
+
+    /**
+     * Collects the contributors while walking all commits for the changelog
+     *
+     * @param repository The repository to walk
+     * @param action The action generating the changelog
+     * @return The action generating the changelog after the walk
+     * @throws GitRepositoryException if walking the commits fails
+     */
+    @Override
+    <T extends CommitWalkAction> T walkAllCommits(GitRepository repository,
+                                                  T action)
+            throws GitRepositoryException {
+        ContributorsMojo.ContributorsWalkAction contributorsAction = contributorsMojo.new ContributorsWalkAction();
+        if (!contributorsAction.getCommitFilter().equals(action.getCommitFilter())) {
+            return super.walkAllCommits(repository, action);
+        }
+
+        repository.walkCommits(new CompositeCommitWalkAction(action, contributorsAction));
+        contributorsMojo.completeWalk = contributorsAction;
+
+        return action;
+    }
+
+}
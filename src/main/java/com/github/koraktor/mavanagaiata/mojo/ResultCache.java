@@ -0,0 +1,230 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.mojo;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * A cache for values computed from a Git repository
+ * <p>
+ * The values are stored in a properties file named after the state key of the
+ * repository, so they can be reused by later builds as long as the
+ * repository does not change. The cache directory may be shared with other
+ * files and other modules, so only the most recent cache files of this class
+ * are kept and no other files are ever touched.
+ *
+ * @author Sebastian Staudt
+ * @see com.github.koraktor.mavanagaiata.git.GitRepository#getStateKey()
+ * @since 0.8.0
+ */
+class ResultCache {
+
+    private static final String FILE_PREFIX = "mavanagaiata-";
+
+    private static final String FILE_SUFFIX = ".properties";
+
+    /**
+     * The names of the files created by this class, i.e. the prefix followed
+     * by a SHA-1 state key
+     */
+    private static final Pattern FILE_PATTERN = Pattern.compile(
+            Pattern.quote(FILE_PREFIX) + "[0-9a-f]{40}" + Pattern.quote(FILE_SUFFIX));
+
+    /**
+     * The number of cache files kept, so modules sharing the cache directory
+     * with different repository states do not remove each other's caches
+     */
+    static final int MAX_FILES = 8;
+
+    final File file;
+
+    boolean modified;
+
+    final Properties values;
+
+    /**
+     * Loads the cached values for the given repository state
+     *
+     * @param directory The directory containing the cache files
+     * @param stateKey The key of the repository state
+     * @return The cache for the given repository state
+     * @throws IOException if an existing cache file cannot be read
+     */
+    static ResultCache load(File directory, String stateKey)
+            throws IOException {
+        ResultCache cache = new ResultCache(new File(directory, FILE_PREFIX + stateKey + FILE_SUFFIX));
+
+        if (cache.file.isFile()) {
+            try (InputStream inputStream = new FileInputStream(cache.file)) {
+                cache.values.load(inputStream);
+            } catch (FileNotFoundException e) {
+                // Removed concurrently as a stale cache file
+            }
+        }
+
+        return cache;
+    }
+
+    /**
+     * Creates a new cache that is kept in memory only
+     */
+    ResultCache() {
+        this(null);
+    }
+
+    /**
+     * Creates a new empty cache backed by the given file
+     *
+     * @param file The file to store the values in
+     */
+    private ResultCache(File file) {
+        this.file   = file;
+        this.values = new Properties();
+    }
+
+    /**
+     * Returns whether values for all of the given names are cached
+     *
+     * @param names The names of the values
+     * @return {@code true} if all values are available
+     */
+    boolean containsAll(String... names) {
+        for (String name : names) {
+            if (!values.containsKey(name)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the cached value with the given name
+     *
+     * @param name The name of the value
+     * @return The cached value or {@code null} if no value is cached
+     */
+    String get(String name) {
+        return values.getProperty(name);
+    }
+
+    /**
+     * Caches the given value
+     *
+     * @param name The name of the value
+     * @param value The value to cache
+     */
+    void put(String name, String value) {
+        if (value == null) {
+            return;
+        }
+
+        if (!value.equals(values.put(name, value))) {
+            modified = true;
+        }
+    }
+
+    /**
+     * Writes new values to the cache file and removes old cache files
+     * <p>
+     * Caches without a file or without any new values are not written. Only
+     * files created by this class are removed, and only if they are not
+     * among the {@link #MAX_FILES} most recently written ones.
+     *
+     * @throws IOException if the cache file cannot be written
+     */
+    void save() throws IOException {
+        if (file == null || !modified) {
+            return;
+        }
+
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create cache directory " + directory);
+        }
+
+        File tempFile = File.createTempFile("mavanagaiata", ".tmp", directory);
+        try {
+            try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+                values.store(outputStream, null);
+            }
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            tempFile.delete();
+        }
+
+        removeStaleFiles(directory);
+
+        modified = false;
+    }
+
+    /**
+     * Removes the cache files of this class except for the most recently
+     * written ones
+     *
+     * @param directory The directory containing the cache files
+     */
+    private void removeStaleFiles(File directory) {
+        removeStaleFiles(directory, FILE_PATTERN, file.getName(), MAX_FILES);
+    }
+
+    /**
+     * Removes the files matching the given pattern except for the current
+     * file and the most recently written other ones
+     *
+     * @param directory The directory containing the files
+     * @param pattern The pattern matching the names of the files to remove
+     * @param currentName The name of the current file, which is always kept
+     * @param maxFiles The number of files to keep, including the current one
+     */
+    static void removeStaleFiles(File directory, final Pattern pattern,
+                                 final String currentName, int maxFiles) {
+        File[] cacheFiles = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return pattern.matcher(name).matches() &&
+                        !name.equals(currentName);
+            }
+        });
+        if (cacheFiles == null || cacheFiles.length < maxFiles) {
+            return;
+        }
+
+        final Map<File, Long> lastModified = new HashMap<>();
+        for (File cacheFile : cacheFiles) {
+            lastModified.put(cacheFile, cacheFile.lastModified());
+        }
+        Arrays.sort(cacheFiles, new Comparator<File>() {
+            @Override
+            public int compare(File file1, File file2) {
+                return Long.compare(lastModified.get(file2), lastModified.get(file1));
+            }
+        });
+
+        for (int i = maxFiles - 1; i < cacheFiles.length; i ++) {
+            cacheFiles[i].delete();
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.mojo;
+
+import org.apache.maven.execution.AbstractExecutionListener;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+
+import com.github.koraktor.mavanagaiata.git.jgit.JGitRepositoryRegistry;
+
+/**
+ * An execution listener ending the scope of the shared repositories when the
+ * Maven session ends
+ * <p>
+ * Maven notifies lifecycle participants only for plugins loaded as build
+ * extensions. So this listener is installed into the execution request by
+ * the first mojo acquiring a shared repository instead. All events are
+ * passed on to the listener it replaces, which is restored once the session
+ * has ended.
+ *
+ * @author Sebastian Staudt
+ * @see JGitRepositoryRegistry#endScope(Object)
+ * @since 0.8.0
+ */
+class SessionEndListener implements ExecutionListener {
+
+    private final ExecutionListener delegate;
+
+    private final ExecutionListener originalListener;
+
+    private final MavenExecutionRequest request;
+
+    /**
+     * Installs a listener into the given execution request unless there
+     * already is one
+     *
+     * @param request The execution request of the Maven session
+     */
+    static void register(MavenExecutionRequest request) {
+        synchronized (request) {
+            ExecutionListener listener = request.getExecutionListener();
+            if (!(listener instanceof SessionEndListener)) {
+                request.setExecutionListener(new SessionEndListener(request, listener));
+            }
+        }
+    }
+
+    /**
+     * Creates a new listener for the given execution request
+     *
+     * @param request The execution request used as the scope of the shared
+     *        repositories
+     * @param originalListener The listener to pass all events to or
+     *        {@code null}
+     */
+    SessionEndListener(MavenExecutionRequest request,
+                       ExecutionListener originalListener) {
+        this.delegate         = (originalListener == null) ?
+                new AbstractExecutionListener() : originalListener;
+        this.originalListener = originalListener;
+        this.request          = request;
+    }
+
+    @Override
+    public void projectDiscoveryStarted(ExecutionEvent event) {
+        delegate.projectDiscoveryStarted(event);
+    }
+
+    @Override
+    public void sessionStarted(ExecutionEvent event) {
+        delegate.sessionStarted(event);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Closes the repositories shared in this session and restores the
+     * original listener.
+     */
+    @Override
+    public void sessionEnded(ExecutionEvent event) {
+        try {
+            delegate.sessionEnded(event);
+        } finally {
+            synchronized (request) {
+                if (request.getExecutionListener() == this) {
+                    request.setExecutionListener(originalListener);
+                }
+            }
+            JGitRepositoryRegistry.getInstance().endScope(request);
+        }
+    }
+
+    @Override
+    public void projectSkipped(ExecutionEvent event) {
+        delegate.projectSkipped(event);
+    }
+
+    @Override
+    public void projectStarted(ExecutionEvent event) {
+        delegate.projectStarted(event);
+    }
+
+    @Override
+    public void projectSucceeded(ExecutionEvent event) {
+        delegate.projectSucceeded(event);
+    }
+
+    @Override
+    public void projectFailed(ExecutionEvent event) {
+        delegate.projectFailed(event);
+    }
+
+    @Override
+    public void mojoSkipped(ExecutionEvent event) {
+        delegate.mojoSkipped(event);
+    }
+
+    @Override
+    public void mojoStarted(ExecutionEvent event) {
+        delegate.mojoStarted(event);
+    }
+
+    @Override
+    public void mojoSucceeded(ExecutionEvent event) {
+        delegate.mojoSucceeded(event);
+    }
+
+    @Override
+    public void mojoFailed(ExecutionEvent event) {
+        delegate.mojoFailed(event);
+    }
+
+    @Override
+    public void forkStarted(ExecutionEvent event) {
+        delegate.forkStarted(event);
+    }
+
+    @Override
+    public void forkSucceeded(ExecutionEvent event) {
+        delegate.forkSucceeded(event);
+    }
+
+    @Override
+    public void forkFailed(ExecutionEvent event) {
+        delegate.forkFailed(event);
+    }
+
+    @Override
+    public void forkedProjectStarted(ExecutionEvent event) {
+        delegate.forkedProjectStarted(event);
+    }
+
+    @Override
+    public void forkedProjectSucceeded(ExecutionEvent event) {
+        delegate.forkedProjectSucceeded(event);
+    }
+
+    @Override
+    public void forkedProjectFailed(ExecutionEvent event) {
+        delegate.forkedProjectFailed(event);
+    }
+
+}
@@ -2,7 +2,7 @@
  * This code is free software; you can redistribute it and/or modify it under
  * the terms of the new BSD License.
  *
- * Copyright (c) 2011-2016, Sebastian Staudt
+ * Copyright (c) 2011-2017, Sebastian Staudt
  */
 
 package com.github.koraktor.mavanagaiata.mojo;
@@ -12,7 +12,6 @@ import org.apache.maven.plugins.annotations.Mojo;
 
 import com.github.koraktor.mavanagaiata.git.GitRepository;
 import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
-import com.github.koraktor.mavanagaiata.git.GitTagDescription;
 
 /**
  * This goal provides the most recent Git tag in the "mavanagaiata.tag" and
@@ -35,15 +34,7 @@ public class TagMojo extends AbstractGitMojo {
      */
     public void run(GitRepository repository) throws MavanagaiataMojoException {
         try {
-            GitTagDescription description = repository.describe();
-            String describe = description.toString();
-            if (this.dirtyFlag != null &&
-                    repository.isDirty(this.dirtyIgnoreUntracked)) {
-                describe += this.dirtyFlag;
-            }
-
-            this.addProperty("tag.describe", describe);
-            this.addProperty("tag.name", description.getNextTagName());
+            addTagProperties(repository);
         } catch(GitRepositoryException e) {
             throw MavanagaiataMojoException.create("Unable to read Git tag", e);
         }
@@ -2,12 +2,14 @@
  * This code is free software; you can redistribute it and/or modify it under
  * the terms of the new BSD License.
  *
- * Copyright (c) 2012-2016, Sebastian Staudt
+ * Copyright (c) 2012-2017, Sebastian Staudt
  */
 
 package com.github.koraktor.mavanagaiata.git;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 
 import org.junit.Test;
@@ -17,7 +19,9 @@ import static org.hamcrest.core.IsEqual.equalTo;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
 /**
  * @author Sebastian Staudt
@@ -36,6 +40,11 @@ public class AbstractGitRepositoryTest {
             return null;
         }
 
+        public GitTagDescription describe(DescribeOptions options)
+                throws GitRepositoryException {
+            return null;
+        }
+
         public String getAbbreviatedCommitId(GitCommit commit)
                 throws GitRepositoryException {
             return commit == headCommit ? "deadbeef" : null;
@@ -53,6 +62,10 @@ public class AbstractGitRepositoryTest {
             return null;
         }
 
+        public String getStateKey() throws GitRepositoryException {
+            return null;
+        }
+
         public File getWorkTree() {
             return new File("test");
         }
@@ -61,6 +74,11 @@ public class AbstractGitRepositoryTest {
             return null;
         }
 
+        public boolean isAncestor(String commitId)
+                throws GitRepositoryException {
+            return false;
+        }
+
         @Override
         public boolean isChecked() {
             return false;
@@ -70,16 +88,32 @@ public class AbstractGitRepositoryTest {
             return false;
         }
 
+        public boolean isDirty(boolean ignoreUntracked, String path)
+                throws GitRepositoryException {
+            return false;
+        }
+
         @Override
         public boolean isOnUnbornBranch() throws GitRepositoryException {
             return false;
         }
 
+        public CommitIterator iterateCommits(String excludedCommitId,
+                                             CommitFilter filter)
+                throws GitRepositoryException {
+            return null;
+        }
+
         public <T extends CommitWalkAction> T walkCommits(T action)
                 throws GitRepositoryException {
             return action;
         }
 
+        public <T extends CommitWalkAction> T walkCommits(T action, String excludedCommitId)
+                throws GitRepositoryException {
+            return action;
+        }
+
     }
 
     @Test
@@ -89,16 +123,23 @@ public class AbstractGitRepositoryTest {
         assertThat(repo.getAbbreviatedCommitId(), is(equalTo("deadbeef")));
     }
 
+    @Test
+    public void testGetAbbreviatedCommitIds() throws Exception {
+        GitRepository repo = new GenericGitRepository();
+        when(headCommit.getId()).thenReturn("deadbeefcafe");
+
+        Map<String, String> abbreviatedIds = repo.getAbbreviatedCommitIds(Collections.singletonList(headCommit));
+
+        assertThat(abbreviatedIds, is(equalTo(Collections.singletonMap("deadbeefcafe", "deadbeef"))));
+    }
+
     @Test
     public void testGetMailMap() throws Exception {
         GitRepository repo = new GenericGitRepository();
         MailMap mailMap = repo.getMailMap();
 
         assertThat(mailMap.repository, is(equalTo(repo)));
-        assertThat(mailMap.mailToMailMap, is(notNullValue()));
-        assertThat(mailMap.mailToNameAndMailMap, is(notNullValue()));
-        assertThat(mailMap.mailToNameMap, is(notNullValue()));
-        assertThat(mailMap.nameAndMailToNameAndMailMap, is(notNullValue()));
+        assertThat(mailMap.mappings, is(notNullValue()));
     }
 
     @Test
@@ -109,6 +150,30 @@ public class AbstractGitRepositoryTest {
         verifyNoMoreInteractions(repo.mailMap);
     }
 
+    @Test
+    public void testLoadTags() throws Exception {
+        GitRepository repo = new GenericGitRepository();
+        GitTag tag1 = mock(GitTag.class);
+        GitTag tag2 = mock(GitTag.class);
+
+        repo.loadTags(Arrays.asList(tag1, tag2));
+
+        verify(tag1).load(repo);
+        verify(tag2).load(repo);
+    }
+
+    @Test
+    public void testSetDirtyCheckParallelism() {
+        AbstractGitRepository repo = new GenericGitRepository();
+        assertThat(repo.dirtyCheckParallelism, is(1));
+
+        repo.setDirtyCheckParallelism(4);
+        assertThat(repo.dirtyCheckParallelism, is(4));
+
+        repo.setDirtyCheckParallelism(0);
+        assertThat(repo.dirtyCheckParallelism, is(Runtime.getRuntime().availableProcessors()));
+    }
+
     @Test
     public void testSetHeadRef() throws Exception {
         AbstractGitRepository repo = new GenericGitRepository();
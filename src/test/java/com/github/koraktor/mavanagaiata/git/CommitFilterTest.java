@@ -0,0 +1,71 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class CommitFilterTest {
+
+    @Test
+    public void testEmpty() {
+        CommitFilter filter = new CommitFilter();
+        filter.setAuthorPattern("");
+        filter.setMaxCount(-5);
+        filter.setMessagePattern("");
+
+        assertThat(filter.getAuthorPattern(), is(nullValue()));
+        assertThat(filter.getExcludedMessagePattern(), is(nullValue()));
+        assertThat(filter.getMaxCount(), is(-1));
+        assertThat(filter.getMessagePattern(), is(nullValue()));
+        assertThat(filter.getSince(), is(nullValue()));
+        assertThat(filter.getUntil(), is(nullValue()));
+        assertThat(filter.isEmpty(), is(true));
+        assertThat(filter.isNoMerges(), is(false));
+    }
+
+    @Test
+    public void testEquals() {
+        CommitFilter filter = new CommitFilter();
+        filter.setExcludedMessagePattern("\\[ci skip\\]");
+        filter.setSince(new Date(1500000000000L));
+
+        CommitFilter otherFilter = new CommitFilter();
+        otherFilter.setExcludedMessagePattern("\\[ci skip\\]");
+        otherFilter.setSince(new Date(1500000000000L));
+
+        assertThat(filter, is(equalTo(otherFilter)));
+        assertThat(filter.hashCode(), is(equalTo(otherFilter.hashCode())));
+        assertThat(filter.isEmpty(), is(false));
+
+        otherFilter.setMessagePattern("\\[ci skip\\]");
+        assertThat(filter, is(not(equalTo(otherFilter))));
+        assertThat(new CommitFilter(), is(not(equalTo(filter))));
+    }
+
+    @Test
+    public void testToString() {
+        CommitFilter filter = new CommitFilter();
+        filter.setAuthorPattern("koraktor");
+        filter.setMaxCount(10);
+        filter.setNoMerges(true);
+        filter.setUntil(new Date(1500000000000L));
+
+        assertThat(filter.toString(), is(equalTo("author=koraktor,message=null," +
+            "excludedMessage=null,noMerges=true,since=null,until=1500000000000," +
+            "maxCount=10")));
+    }
+
+}
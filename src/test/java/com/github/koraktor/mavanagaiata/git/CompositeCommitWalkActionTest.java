@@ -0,0 +1,103 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CompositeCommitWalkActionTest {
+
+    @Test
+    public void testCommitFilter() {
+        CommitFilter filter = new CommitFilter();
+        filter.setNoMerges(true);
+        CommitFilter equalFilter = new CommitFilter();
+        equalFilter.setNoMerges(true);
+        CommitWalkAction action1 = mock(CommitWalkAction.class);
+        when(action1.getCommitFilter()).thenReturn(filter);
+        CommitWalkAction action2 = mock(CommitWalkAction.class);
+        when(action2.getCommitFilter()).thenReturn(equalFilter);
+
+        assertThat(new CompositeCommitWalkAction(action1, action2).getCommitFilter(), is(filter));
+        assertThat(new CompositeCommitWalkAction().getCommitFilter(), is(nullValue()));
+    }
+
+    @Test
+    public void testDifferentCommitFilters() {
+        CommitFilter filter = new CommitFilter();
+        filter.setNoMerges(true);
+        CommitWalkAction action1 = mock(CommitWalkAction.class);
+        when(action1.getCommitFilter()).thenReturn(filter);
+        CommitWalkAction action2 = mock(CommitWalkAction.class);
+
+        try {
+            new CompositeCommitWalkAction(action1, action2);
+            fail("No exception thrown.");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is(equalTo("Actions with different commit filters cannot be combined.")));
+        }
+    }
+
+    @Test
+    public void testExecute() throws Exception {
+        CommitWalkAction action1 = mock(CommitWalkAction.class);
+        CommitWalkAction action2 = mock(CommitWalkAction.class);
+        CompositeCommitWalkAction action = new CompositeCommitWalkAction(action1, action2);
+        GitCommit commit1 = mock(GitCommit.class);
+        GitCommit commit2 = mock(GitCommit.class);
+
+        action.execute(commit1);
+        action.execute(commit2);
+
+        assertThat(action.currentCommit, is(commit2));
+        assertThat(action.getActions(), is(equalTo(Arrays.asList(action1, action2))));
+
+        InOrder inOrder = inOrder(action1, action2);
+        inOrder.verify(action1).execute(commit1);
+        inOrder.verify(action2).execute(commit1);
+        inOrder.verify(action1).execute(commit2);
+        inOrder.verify(action2).execute(commit2);
+    }
+
+    @Test
+    public void testHeaderOnly() {
+        CommitWalkAction action1 = mock(CommitWalkAction.class);
+        when(action1.isHeaderOnly()).thenReturn(true);
+        CommitWalkAction action2 = mock(CommitWalkAction.class);
+
+        assertThat(new CompositeCommitWalkAction(action1).isHeaderOnly(), is(true));
+        assertThat(new CompositeCommitWalkAction(action1, action2).isHeaderOnly(), is(false));
+    }
+
+    @Test
+    public void testSetRepository() {
+        CommitWalkAction action1 = mock(CommitWalkAction.class);
+        CommitWalkAction action2 = mock(CommitWalkAction.class);
+        CompositeCommitWalkAction action = new CompositeCommitWalkAction(action1, action2);
+        GitRepository repository = mock(GitRepository.class);
+
+        action.setRepository(repository);
+
+        assertThat(action.repository, is(repository));
+        verify(action1).setRepository(repository);
+        verify(action2).setRepository(repository);
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.assertThat;
+
+public class DescribeOptionsTest {
+
+    @Test
+    public void testDefault() {
+        DescribeOptions options = DescribeOptions.DEFAULT;
+
+        assertThat(options.getCandidates(), is(10));
+        assertThat(options.getExclude().isEmpty(), is(true));
+        assertThat(options.getMatch().isEmpty(), is(true));
+        assertThat(options.hasPatterns(), is(false));
+        assertThat(options.isFirstParent(), is(false));
+    }
+
+    @Test
+    public void testEquals() {
+        DescribeOptions options = new DescribeOptions(5, Arrays.asList("v*"), null, true);
+
+        assertThat(options, is(equalTo(new DescribeOptions(5, Arrays.asList("v*"), Collections.<String>emptyList(), true))));
+        assertThat(options.hashCode(), is(equalTo(new DescribeOptions(5, Arrays.asList("v*"), null, true).hashCode())));
+        assertThat(options, is(not(equalTo(new DescribeOptions(5, null, Arrays.asList("v*"), true)))));
+        assertThat(options, is(not(equalTo(new DescribeOptions(5, Arrays.asList("v*"), null, false)))));
+        assertThat(new DescribeOptions(10, null, null, false), is(equalTo(DescribeOptions.DEFAULT)));
+    }
+
+    @Test
+    public void testNegativeCandidates() {
+        assertThat(new DescribeOptions(-1, null, null, false).getCandidates(), is(0));
+    }
+
+    @Test
+    public void testPatterns() {
+        DescribeOptions options = new DescribeOptions(10, Arrays.asList("v*"), Arrays.asList("*-rc*"), false);
+
+        assertThat(options.getExclude(), is(equalTo(Arrays.asList("*-rc*"))));
+        assertThat(options.getMatch(), is(equalTo(Arrays.asList("v*"))));
+        assertThat(options.hasPatterns(), is(true));
+        assertThat(options.toString(), is(equalTo("candidates=10,match=[v*],exclude=[*-rc*],firstParent=false")));
+    }
+
+}
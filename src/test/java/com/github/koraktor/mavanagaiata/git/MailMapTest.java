@@ -9,8 +9,8 @@ package com.github.koraktor.mavanagaiata.git;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.AbstractMap;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 
 import org.junit.Before;
@@ -22,6 +22,9 @@ import org.mockito.stubbing.Answer;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
@@ -42,19 +45,35 @@ public class MailMapTest {
         repo = mock(GitRepository.class);
     }
 
+    @Test
+    public void testGetCanonicalIdentityMemoized() {
+        MailMap mailMap = new MailMap(repo);
+        mailMap.parseMailMap("New Name <newmail@example.com> <oldmail@example.com>");
+
+        MailMap.Identity identity = mailMap.getCanonicalIdentity("Test", "oldmail@example.com");
+
+        assertThat(identity, is(equalTo(new MailMap.Identity("New Name", "newmail@example.com"))));
+        assertThat(mailMap.getCanonicalIdentity("Test", "oldmail@example.com"), is(sameInstance(identity)));
+        assertThat(mailMap.getCanonicalIdentity("Other", "oldmail@example.com"), is(not(sameInstance(identity))));
+        assertThat(mailMap.getCanonicalIdentity(null, "oldmail@example.com").name, is(equalTo("New Name")));
+
+        mailMap.parseMailMap("<newmail@example.com> <oldmail@example.com>");
+
+        assertThat(mailMap.getCanonicalIdentity("Test", "oldmail@example.com"),
+            is(equalTo(new MailMap.Identity("Test", "newmail@example.com"))));
+    }
+
     @Test
     public void testGetCanonicalMail() {
         MailMap mailMap = new MailMap(repo);
-        mailMap.mailToMailMap = new HashMap<>(1);
-        mailMap.mailToMailMap.put("oldmail@example.com", "newmail@example.com");
-        mailMap.mailToNameAndMailMap = new HashMap<>(1);
-        mailMap.mailToNameAndMailMap.put("oldmail2@example.com", new AbstractMap.SimpleEntry<>("Test", "newmail2@example.com"));
-        mailMap.nameAndMailToNameAndMailMap = new HashMap<>(1);
-        mailMap.nameAndMailToNameAndMailMap.put(new AbstractMap.SimpleEntry<>("Test", "oldmail3@example.com"), new AbstractMap.SimpleEntry<>("Test", "newmail3@example.com"));
+        mailMap.parseMailMap("<newmail@example.com> <oldmail@example.com>\n" +
+            "Test <newmail2@example.com> <oldmail2@example.com>\n" +
+            "Test <newmail3@example.com> Test <oldmail3@example.com>\n");
 
         assertThat(mailMap.getCanonicalMail("Test", "oldmail@example.com"), is(equalTo("newmail@example.com")));
         assertThat(mailMap.getCanonicalMail("Test", "oldmail2@example.com"), is(equalTo("newmail2@example.com")));
         assertThat(mailMap.getCanonicalMail("Test", "oldmail3@example.com"), is(equalTo("newmail3@example.com")));
+        assertThat(mailMap.getCanonicalMail("Other", "oldmail3@example.com"), is(equalTo("oldmail3@example.com")));
         assertThat(mailMap.getCanonicalMail("Test", "unknown@example.com"), is(equalTo("unknown@example.com")));
 
         GitCommit commit1 = mock(GitCommit.class);
@@ -73,12 +92,9 @@ public class MailMapTest {
     @Test
     public void testGetCanonicalName() {
         MailMap mailMap = new MailMap(repo);
-        mailMap.mailToNameMap = new HashMap<>(1);
-        mailMap.mailToNameMap.put("mail1@example.com", "Test 1");
-        mailMap.mailToNameAndMailMap = new HashMap<>(1);
-        mailMap.mailToNameAndMailMap.put("mail2@example.com", new AbstractMap.SimpleEntry<>("Test 2", "mail@example.com"));
-        mailMap.nameAndMailToNameAndMailMap = new HashMap<>(1);
-        mailMap.nameAndMailToNameAndMailMap.put(new AbstractMap.SimpleEntry<>("Test", "mail3@example.com"), new AbstractMap.SimpleEntry<>("Test 3", "mail@example.com"));
+        mailMap.parseMailMap("Test 1 <mail1@example.com>\n" +
+            "Test 2 <mail@example.com> <mail2@example.com>\n" +
+            "Test 3 <mail@example.com> Test <mail3@example.com>\n");
 
         assertThat(mailMap.getCanonicalName("Test", "mail1@example.com"), is(equalTo("Test 1")));
         assertThat(mailMap.getCanonicalName("Test", "mail2@example.com"), is(equalTo("Test 2")));
@@ -98,18 +114,59 @@ public class MailMapTest {
         assertThat(mailMap.getCanonicalCommitterName(commit2), is(equalTo("Unknown")));
     }
 
+    @Test
+    public void testGetChecksum() {
+        MailMap mailMap1 = new MailMap(repo);
+        mailMap1.parseMailMap("<newmail@example.com> <oldmail@example.com>\nTest <mail@example.com>");
+        MailMap mailMap2 = new MailMap(repo);
+        mailMap2.parseMailMap("Test   <mail@example.com>\n# Comment\n<newmail@example.com> <oldmail@example.com>");
+        MailMap mailMap3 = new MailMap(repo);
+        mailMap3.parseMailMap("newmail@example.com <oldmail@example.com>\nTest <mail@example.com>");
+
+        assertThat(mailMap1.getChecksum(), is(equalTo(mailMap2.getChecksum())));
+        assertThat(mailMap1.getChecksum(), is(not(equalTo(mailMap3.getChecksum()))));
+        assertThat(mailMap1.getChecksum(), is(not(equalTo(new MailMap(repo).getChecksum()))));
+    }
+
+    @Test
+    public void testIgnoreCase() {
+        MailMap mailMap = new MailMap(repo);
+        mailMap.parseMailMap("Real Name <new@example.com> <Old@Example.com>\n" +
+            "Other Name <other@example.com> fake name <OTHER@example.com>");
+
+        assertThat(mailMap.getCanonicalMail("Test", "old@example.com"), is(equalTo("new@example.com")));
+        assertThat(mailMap.getCanonicalName("Test", "OLD@EXAMPLE.COM"), is(equalTo("Real Name")));
+        assertThat(mailMap.getCanonicalName("Fake Name", "other@Example.com"), is(equalTo("Other Name")));
+    }
+
     @Test
     public void testNewInstance() {
         MailMap mailMap = new MailMap(repo);
 
         assertThat(mailMap.exists, is(false));
-        assertThat(mailMap.mailToMailMap, is(instanceOf(Map.class)));
-        assertThat(mailMap.mailToNameMap, is(instanceOf(Map.class)));
-        assertThat(mailMap.mailToNameAndMailMap, is(instanceOf(Map.class)));
-        assertThat(mailMap.nameAndMailToNameAndMailMap, is(instanceOf(Map.class)));
+        assertThat(mailMap.mappings, is(instanceOf(Map.class)));
+        assertThat(mailMap.mappings.isEmpty(), is(true));
         assertThat(mailMap.repository, is(repo));
     }
 
+    @Test
+    public void testNewInstanceFromContents() {
+        MailMap mailMap = new MailMap(Arrays.asList(
+            "Old Name <newmail@example.com> <oldmail@example.com>\n" +
+            "Other Name <other@example.com>",
+            "New Name <newmail@example.com> <oldmail@example.com>"
+        ));
+
+        assertThat(mailMap.exists(), is(true));
+        assertThat(mailMap.repository, is(nullValue()));
+        assertThat(mailMap.getCanonicalName("Test", "oldmail@example.com"), is(equalTo("New Name")));
+        assertThat(mailMap.getCanonicalName("Other", "other@example.com"), is(equalTo("Other Name")));
+
+        mailMap = new MailMap(Collections.<String>emptyList());
+
+        assertThat(mailMap.exists(), is(false));
+    }
+
     @Test
     public void testExists() {
         MailMap mailMap = new MailMap(repo);
@@ -128,8 +185,7 @@ public class MailMapTest {
 
         doAnswer(new Answer() {
             public Object answer(InvocationOnMock invocation) throws Throwable {
-                mailMap.mailToMailMap = new HashMap<>(1);
-                mailMap.mailToMailMap.put("test", "test");
+                mailMap.parseMailMap("<test> <test>");
                 return null;
             }
         }).when(mailMap).parseMailMap(eq(new File("test/.mailmap")));
@@ -152,22 +208,47 @@ public class MailMapTest {
         assertThat(mailMap.exists(), is(false));
     }
 
+    @Test(expected = FileNotFoundException.class)
+    public void testParseMissingFile() throws Exception {
+        new MailMap(repo).parseMailMap(new File("test/.mailmap"));
+    }
+
     @Test
     public void testParseFromFile() throws Exception {
         MailMap mailMap = new MailMap(repo);
-        mailMap.mailToMailMap.put("old@example.com", "Old");
+        mailMap.parseMailMap("Old <old@example.com>");
         File mailMapFile = new File(this.getClass().getResource("/.mailmap").getFile());
 
         mailMap.parseMailMap(mailMapFile);
 
-        assertThat(mailMap.mailToMailMap.size(), is(1));
-        assertThat(mailMap.mailToMailMap.get("oldmail@example.com"), is(equalTo("newmail@example.com")));
-        assertThat(mailMap.mailToNameMap.size(), is(1));
-        assertThat(mailMap.mailToNameMap.get("realmail@example.com"), is(equalTo("Real Name")));
-        assertThat(mailMap.mailToNameAndMailMap.size(), is(1));
-        assertThat(mailMap.mailToNameAndMailMap.get("oldmail@example.com"), is(equalTo((Map.Entry<String, String>) new AbstractMap.SimpleEntry<>("Real Name", "newmail@example.com"))));
-        assertThat(mailMap.nameAndMailToNameAndMailMap.size(), is(1));
-        assertThat(mailMap.nameAndMailToNameAndMailMap.get(new AbstractMap.SimpleEntry<>("Fake Name", "oldmail@example.com")), is(equalTo((Map.Entry<String, String>) new AbstractMap.SimpleEntry<>("Real Name", "newmail@example.com"))));
+        assertThat(mailMap.mappings.size(), is(2));
+
+        MailMap.Mapping mapping = mailMap.mappings.get("oldmail@example.com");
+        assertThat(mapping.email, is(equalTo("newmail@example.com")));
+        assertThat(mapping.name, is(equalTo("Real Name")));
+        assertThat(mapping.names.size(), is(1));
+        assertThat(mapping.names.get("fake name"), is(equalTo(new MailMap.Identity("Real Name", "newmail@example.com"))));
+
+        mapping = mailMap.mappings.get("realmail@example.com");
+        assertThat(mapping.email, is(nullValue()));
+        assertThat(mapping.name, is(equalTo("Real Name")));
+        assertThat(mapping.names, is(nullValue()));
+    }
+
+    @Test
+    public void testParseInvalidLines() {
+        MailMap mailMap = new MailMap(repo);
+        mailMap.parseMailMap("Invalid line\n" +
+            "  # <comment@example.com>\n" +
+            "Name <>\n" +
+            "Name <unterminated@example.com\r\n" +
+            "\r\n" +
+            "  Real Name  <real@example.com>  trailing text\r\n" +
+            "<empty@example.com> <>");
+
+        assertThat(mailMap.mappings.size(), is(2));
+        assertThat(mailMap.getCanonicalName("Test", "real@example.com"), is(equalTo("Real Name")));
+        assertThat(mailMap.getCanonicalMail("Test", ""), is(equalTo("empty@example.com")));
     }
 
 }
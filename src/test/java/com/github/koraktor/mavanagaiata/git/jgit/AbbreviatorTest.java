@@ -0,0 +1,95 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AbbreviatorTest {
+
+    private static final ObjectId ID1 = ObjectId.fromString("abcdef0100000000000000000000000000000000");
+
+    private static final ObjectId ID2 = ObjectId.fromString("abcdef0123000000000000000000000000000000");
+
+    private static final ObjectId ID3 = ObjectId.fromString("abcdef1000000000000000000000000000000000");
+
+    private static final ObjectId ID4 = ObjectId.fromString("ffffff0000000000000000000000000000000000");
+
+    private Abbreviator abbreviator;
+
+    private ObjectReader reader;
+
+    private Repository repository;
+
+    @Before
+    public void setup() throws Exception {
+        reader = mock(ObjectReader.class);
+        repository = mock(Repository.class);
+        when(repository.newObjectReader()).thenReturn(reader);
+        when(reader.resolve(ID1.abbreviate(7))).thenReturn(Arrays.asList(ID1, ID2));
+
+        abbreviator = new Abbreviator(repository, 7);
+    }
+
+    @Test
+    public void testAbbreviate() throws Exception {
+        assertThat(abbreviator.abbreviate(ID1), is(equalTo("abcdef010")));
+        assertThat(abbreviator.abbreviate(ID1), is(equalTo("abcdef010")));
+        assertThat(abbreviator.abbreviate(ID4), is(equalTo("ffffff0")));
+
+        verify(reader, times(2)).resolve(any(AbbreviatedObjectId.class));
+        verify(repository).newObjectReader();
+    }
+
+    @Test
+    public void testAbbreviateBatch() throws Exception {
+        Map<ObjectId, String> abbreviations = abbreviator.abbreviate(Arrays.asList(ID4, ID3, ID2, ID1));
+
+        assertThat(abbreviations.get(ID1), is(equalTo("abcdef010")));
+        assertThat(abbreviations.get(ID2), is(equalTo("abcdef012")));
+        assertThat(abbreviations.get(ID3), is(equalTo("abcdef1")));
+        assertThat(abbreviations.get(ID4), is(equalTo("ffffff0")));
+
+        verify(reader, times(3)).resolve(any(AbbreviatedObjectId.class));
+    }
+
+    @Test
+    public void testClose() {
+        abbreviator.readers.add(reader);
+        abbreviator.close();
+
+        verify(reader).close();
+        assertThat(abbreviator.readers.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testGetCommonPrefixLength() {
+        assertThat(Abbreviator.getCommonPrefixLength(ID1, ID2), is(8));
+        assertThat(Abbreviator.getCommonPrefixLength(ID1, ID3), is(6));
+        assertThat(Abbreviator.getCommonPrefixLength(ID1, ID4), is(0));
+        assertThat(Abbreviator.getCommonPrefixLength(ID1, ID1), is(40));
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class CommitCacheTest {
+
+    private static final ObjectId COMMIT1 = ObjectId.fromString("0000000000000000000000000000000000000001");
+
+    private static final ObjectId COMMIT2 = ObjectId.fromString("0000000000000000000000000000000000000002");
+
+    private static final ObjectId COMMIT3 = ObjectId.fromString("0000000000000000000000000000000000000003");
+
+    private CommitCache cache;
+
+    @Before
+    public void setup() {
+        cache = new CommitCache(2);
+    }
+
+    @Test
+    public void testDefaultMaxSize() {
+        assertThat(new CommitCache().getMaxSize(), is(CommitCache.DEFAULT_MAX_SIZE));
+    }
+
+    @Test
+    public void testEviction() {
+        RevCommit commit1 = mock(RevCommit.class);
+        cache.put(COMMIT1, commit1);
+        cache.put(COMMIT2, mock(RevCommit.class));
+        cache.get(COMMIT1);
+        cache.put(COMMIT3, mock(RevCommit.class));
+
+        assertThat(cache.size(), is(2));
+        assertThat(cache.getEvictionCount(), is(1L));
+        assertThat(cache.get(COMMIT1), is(sameInstance(commit1)));
+        assertThat(cache.get(COMMIT2), is(nullValue()));
+    }
+
+    @Test
+    public void testGet() {
+        RevCommit commit = mock(RevCommit.class);
+        cache.put(COMMIT1, commit);
+
+        assertThat(cache.get(COMMIT1), is(sameInstance(commit)));
+        assertThat(cache.get(COMMIT2), is(nullValue()));
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.getMissCount(), is(1L));
+    }
+
+    @Test
+    public void testPutCopiesRevObjects() {
+        RevCommit commit = new RevCommit(COMMIT1) {};
+        cache.put(commit, commit);
+
+        assertThat(cache.get(COMMIT1), is(sameInstance(commit)));
+    }
+
+    @Test
+    public void testToString() {
+        cache.put(COMMIT1, mock(RevCommit.class));
+        cache.get(COMMIT1);
+        cache.get(COMMIT2);
+
+        assertThat(cache.toString(), is(equalTo("1/2 commits, 1 hits, 1 misses, 0 evictions")));
+    }
+
+}
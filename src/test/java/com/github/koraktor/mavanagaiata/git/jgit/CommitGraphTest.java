@@ -0,0 +1,165 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.eclipse.jgit.lib.ObjectId;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class CommitGraphTest {
+
+    private static final ObjectId COMMIT1 = ObjectId.fromString("0a00000000000000000000000000000000000001");
+
+    private static final ObjectId COMMIT2 = ObjectId.fromString("0a00000000000000000000000000000000000002");
+
+    private static final ObjectId COMMIT3 = ObjectId.fromString("b000000000000000000000000000000000000003");
+
+    private static final ObjectId COMMIT4 = ObjectId.fromString("ff00000000000000000000000000000000000004");
+
+    private ByteBuffer buffer;
+
+    private CommitGraph commitGraph;
+
+    @Before
+    public void setup() {
+        buffer = ByteBuffer.allocate(8 + 5 * 12 + 256 * 4 + 4 * 20 + 4 * 36 + 2 * 4);
+        buffer.putInt(0x43475048).put((byte) 1).put((byte) 1).put((byte) 4).put((byte) 0);
+
+        int fanoutOffset = 8 + 5 * 12;
+        int lookupOffset = fanoutOffset + 256 * 4;
+        int commitDataOffset = lookupOffset + 4 * 20;
+        int extraEdgesOffset = commitDataOffset + 4 * 36;
+        buffer.putInt(0x4f494446).putLong(fanoutOffset);
+        buffer.putInt(0x4f49444c).putLong(lookupOffset);
+        buffer.putInt(0x43444154).putLong(commitDataOffset);
+        buffer.putInt(0x45444745).putLong(extraEdgesOffset);
+        buffer.putInt(0).putLong(buffer.capacity());
+
+        for (int i = 0; i < 256; i ++) {
+            buffer.putInt(i < 0x0a ? 0 : i < 0xb0 ? 2 : i < 0xff ? 3 : 4);
+        }
+
+        byte[] rawId = new byte[20];
+        for (ObjectId id : new ObjectId[] { COMMIT1, COMMIT2, COMMIT3, COMMIT4 }) {
+            id.copyRawTo(rawId, 0);
+            buffer.put(rawId);
+        }
+
+        putCommitData(buffer, 0x70000000, 0x70000000, 1, 1000);
+        putCommitData(buffer, 0, 0x70000000, 2, 2000);
+        putCommitData(buffer, 1, 0, 3, 3000);
+        putCommitData(buffer, 2, 0x80000000, 4, 0x300000000L);
+
+        buffer.putInt(1).putInt(0x80000000);
+
+        commitGraph = CommitGraph.parse(buffer);
+    }
+
+    @Test
+    public void testLoadAndClose() throws Exception {
+        File objectsDirectory = File.createTempFile("mavanagaiata-tests-objects", null);
+        objectsDirectory.delete();
+        File graphFile = new File(objectsDirectory, "info/commit-graph");
+        graphFile.getParentFile().mkdirs();
+        FileUtils.forceDeleteOnExit(objectsDirectory);
+
+        buffer.rewind();
+        try (FileOutputStream output = new FileOutputStream(graphFile)) {
+            output.getChannel().write(buffer);
+        }
+
+        CommitGraph loadedGraph = CommitGraph.load(objectsDirectory);
+
+        assertThat(loadedGraph.getCommitCount(), is(4));
+        assertThat(graphFile.delete(), is(true));
+        assertThat(loadedGraph.getObjectId(2), is(equalTo(COMMIT3)));
+
+        loadedGraph.close();
+        loadedGraph.close();
+
+        assertThat(CommitGraph.load(objectsDirectory), is(nullValue()));
+    }
+
+    @Test
+    public void testFindCommit() {
+        assertThat(commitGraph.findCommit(COMMIT1), is(0));
+        assertThat(commitGraph.findCommit(COMMIT2), is(1));
+        assertThat(commitGraph.findCommit(COMMIT3), is(2));
+        assertThat(commitGraph.findCommit(COMMIT4), is(3));
+        assertThat(commitGraph.findCommit(ObjectId.fromString("0a00000000000000000000000000000000000003")), is(-1));
+        assertThat(commitGraph.findCommit(ObjectId.zeroId()), is(-1));
+    }
+
+    @Test
+    public void testGetCommitCount() {
+        assertThat(commitGraph.getCommitCount(), is(4));
+    }
+
+    @Test
+    public void testGetCommitTime() {
+        assertThat(commitGraph.getCommitTime(0), is(1000L));
+        assertThat(commitGraph.getCommitTime(3), is(0x300000000L));
+    }
+
+    @Test
+    public void testGetGeneration() {
+        assertThat(commitGraph.getGeneration(0), is(1));
+        assertThat(commitGraph.getGeneration(3), is(4));
+    }
+
+    @Test
+    public void testGetObjectId() {
+        assertThat(commitGraph.getObjectId(2), is(equalTo(COMMIT3)));
+    }
+
+    @Test
+    public void testGetParents() {
+        assertThat(commitGraph.getParents(0), is(new int[0]));
+        assertThat(commitGraph.getParents(1), is(new int[] { 0 }));
+        assertThat(commitGraph.getParents(2), is(new int[] { 1, 0 }));
+        assertThat(commitGraph.getParents(3), is(new int[] { 2, 1, 0 }));
+    }
+
+    @Test
+    public void testLoadMissing() throws Exception {
+        File objectsDirectory = File.createTempFile("mavanagaiata-tests-objects", null);
+        objectsDirectory.delete();
+        objectsDirectory.mkdirs();
+        objectsDirectory.deleteOnExit();
+
+        assertThat(CommitGraph.load(objectsDirectory), is(nullValue()));
+    }
+
+    @Test
+    public void testParseUnsupported() {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putInt(0x43475048).put((byte) 1).put((byte) 2).put((byte) 0).put((byte) 0);
+
+        assertThat(CommitGraph.parse(buffer), is(nullValue()));
+    }
+
+    private void putCommitData(ByteBuffer buffer, int parent1, int parent2,
+                               int generation, long commitTime) {
+        buffer.put(new byte[20]);
+        buffer.putInt(parent1).putInt(parent2);
+        buffer.putInt((generation << 2) | (int) (commitTime >>> 32));
+        buffer.putInt((int) commitTime);
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Parameterized.class)
+public class DirtyCheckTest {
+
+    @Parameter
+    public int parallelism;
+
+    private Git git;
+
+    private File workTree;
+
+    @Parameters(name = "parallelism = {0}")
+    public static Collection<Object[]> parallelisms() {
+        return Arrays.asList(new Object[][] { { 1 }, { 4 } });
+    }
+
+    @Before
+    public void setup() throws Exception {
+        workTree = File.createTempFile("mavanagaiata-tests-dirty", null);
+        workTree.delete();
+        FileUtils.forceDeleteOnExit(workTree);
+
+        git = Git.init().setDirectory(workTree).call();
+
+        writeFile(".gitignore", "*.log\n");
+        writeFile("a.txt", "a");
+        writeFile("src/b.txt", "b");
+        writeFile("src/main/java/C.java", "class C {}");
+        writeFile("src/main/resources/d.txt", "d");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("Initial commit").call();
+    }
+
+    @After
+    public void tearDown() {
+        git.close();
+    }
+
+    @Test
+    public void testClean() throws Exception {
+        assertThat(isDirty(false), is(false));
+        assertThat(isDirty(true), is(false));
+    }
+
+    @Test
+    public void testAdded() throws Exception {
+        writeFile("src/c.txt", "c");
+        git.add().addFilepattern("src/c.txt").call();
+
+        assertThat(isDirty(true), is(true));
+    }
+
+    @Test
+    public void testChanged() throws Exception {
+        writeFile("src/b.txt", "changed");
+        git.add().addFilepattern("src/b.txt").call();
+
+        assertThat(isDirty(true), is(true));
+    }
+
+    @Test
+    public void testDeepModified() throws Exception {
+        writeFile("src/main/java/C.java", "class C { int i; }");
+
+        assertThat(isDirty(true), is(true));
+    }
+
+    @Test
+    public void testDeepUntracked() throws Exception {
+        writeFile("src/main/java/com/example/D.java", "class D {}");
+
+        assertThat(isDirty(false), is(true));
+        assertThat(isDirty(true), is(false));
+    }
+
+    @Test
+    public void testIgnored() throws Exception {
+        writeFile("build.log", "log");
+        writeFile("logs/output.log", "log");
+
+        assertThat(isDirty(false), is(false));
+    }
+
+    @Test
+    public void testMissing() throws Exception {
+        new File(workTree, "a.txt").delete();
+
+        assertThat(isDirty(true), is(true));
+    }
+
+    @Test
+    public void testModified() throws Exception {
+        writeFile("src/b.txt", "modified");
+
+        assertThat(isDirty(true), is(true));
+    }
+
+    @Test
+    public void testRemoved() throws Exception {
+        git.rm().setCached(true).addFilepattern("a.txt").call();
+
+        assertThat(isDirty(true), is(true));
+    }
+
+    @Test
+    public void testPath() throws Exception {
+        writeFile("a.txt", "modified");
+        writeFile("src/c.txt", "c");
+        writeFile("src/main/java/com/example/D.java", "class D {}");
+
+        assertThat(isDirty(false, "src/main/resources"), is(false));
+        assertThat(isDirty(false, "src/main/java"), is(true));
+        assertThat(isDirty(true, "src/main/java"), is(false));
+        assertThat(isDirty(true, "src"), is(false));
+        assertThat(isDirty(false, "src"), is(true));
+    }
+
+    @Test
+    public void testPathNew() throws Exception {
+        writeFile("modules/new/pom.xml", "<project />");
+
+        assertThat(isDirty(false, "modules/new"), is(true));
+        assertThat(isDirty(true, "modules/new"), is(false));
+        assertThat(isDirty(false, "src"), is(false));
+    }
+
+    @Test
+    public void testSharedPool() throws Exception {
+        writeFile("src/main/java/C.java", "class C { }");
+
+        assertThat(isDirty(false, null), is(true));
+        assertThat(isDirty(false, null), is(true));
+
+        if (parallelism > 1) {
+            assertThat(DirtyCheck.getPool(parallelism), is(sameInstance(DirtyCheck.POOLS.get(parallelism))));
+            assertThat(DirtyCheck.getPool(parallelism).isShutdown(), is(false));
+        } else {
+            assertThat(DirtyCheck.POOLS.containsKey(parallelism), is(false));
+        }
+    }
+
+    @Test
+    public void testUnborn() throws Exception {
+        Repository repository = git.getRepository();
+
+        assertThat(new DirtyCheck(repository, null, false, parallelism, null).isDirty(), is(true));
+    }
+
+    @Test
+    public void testUntracked() throws Exception {
+        writeFile("src/c.txt", "c");
+
+        assertThat(isDirty(false), is(true));
+        assertThat(isDirty(true), is(false));
+    }
+
+    @Test
+    public void testUntrackedDirectory() throws Exception {
+        writeFile("new/c.txt", "c");
+
+        assertThat(isDirty(false), is(true));
+        assertThat(isDirty(true), is(false));
+    }
+
+    private boolean isDirty(boolean ignoreUntracked) throws IOException {
+        return isDirty(ignoreUntracked, null);
+    }
+
+    private boolean isDirty(boolean ignoreUntracked, String path)
+            throws IOException {
+        Repository repository = git.getRepository();
+        ObjectId head = repository.resolve("HEAD");
+
+        return new DirtyCheck(repository, head, ignoreUntracked, parallelism, path).isDirty();
+    }
+
+    private void writeFile(String path, String content) throws IOException {
+        File file = new File(workTree, path);
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite(file, content);
+    }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.koraktor.mavanagaiata.git.GitCommit;
+import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JGitCommitIteratorTest {
+
+    private RevCommit commit1;
+
+    private RevCommit commit2;
+
+    private RevCommit commit3;
+
+    private RevWalk revWalk;
+
+    @Before
+    public void setup() throws Exception {
+        commit1 = createCommit(1500000300);
+        commit2 = createCommit(1500000200);
+        commit3 = createCommit(1500000100);
+
+        revWalk = mock(RevWalk.class);
+        when(revWalk.next()).thenReturn(commit1, commit2, commit3, null);
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        JGitCommitIterator iterator = new JGitCommitIterator(revWalk, 3);
+        iterator.nextCommit();
+        iterator.close();
+        iterator.close();
+
+        assertThat(iterator.nextCommit(), is(nullValue()));
+        assertThat(iterator.getEstimatedSize(), is(0));
+        verify(revWalk, times(1)).close();
+    }
+
+    @Test
+    public void testEstimatedSize() throws Exception {
+        JGitCommitIterator iterator = new JGitCommitIterator(revWalk, 3);
+        assertThat(iterator.getEstimatedSize(), is(3));
+
+        iterator.nextCommit();
+        assertThat(iterator.getEstimatedSize(), is(2));
+
+        iterator.setMaxCount(1);
+        assertThat(iterator.getEstimatedSize(), is(0));
+    }
+
+    @Test
+    public void testEstimatedSizeUnknown() throws Exception {
+        JGitCommitIterator iterator = new JGitCommitIterator(revWalk, -1);
+        assertThat(iterator.getEstimatedSize(), is(-1));
+
+        iterator.setMaxCount(2);
+        assertThat(iterator.getEstimatedSize(), is(2));
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        IOException exception = new IOException();
+        when(revWalk.next()).thenThrow(exception);
+
+        JGitCommitIterator iterator = new JGitCommitIterator(revWalk, -1);
+        try {
+            iterator.nextCommit();
+            fail("No exception thrown.");
+        } catch (GitRepositoryException e) {
+            assertThat(e.getCause(), is((Throwable) exception));
+            assertThat(e.getMessage(), is(equalTo("Could not read the next commit.")));
+        }
+
+        verify(revWalk).close();
+    }
+
+    @Test
+    public void testFailureIterator() throws Exception {
+        IOException exception = new IOException();
+        when(revWalk.next()).thenThrow(exception);
+
+        JGitCommitIterator iterator = new JGitCommitIterator(revWalk, -1);
+        try {
+            iterator.hasNext();
+            fail("No exception thrown.");
+        } catch (IllegalStateException e) {
+            assertThat(e.getCause(), is(instanceOf(GitRepositoryException.class)));
+            assertThat(e.getCause().getCause(), is((Throwable) exception));
+            assertThat(e.getMessage(), is(equalTo("Could not read the next commit.")));
+        }
+    }
+
+    @Test
+    public void testHeaderOnly() throws Exception {
+        JGitCommitIterator iterator = new JGitCommitIterator(revWalk, -1);
+        iterator.setHeaderOnly(true);
+
+        GitCommit commit = iterator.nextCommit();
+
+        assertThat(commit, is(instanceOf(JGitHeaderCommit.class)));
+        assertThat(commit, is(equalTo((GitCommit) new JGitCommit(commit1))));
+        assertThat(commit.getAuthorName(), is(equalTo("Sebastian Staudt")));
+        assertThat(commit1.getRawBuffer(), is(nullValue()));
+    }
+
+    @Test
+    public void testIterator() throws Exception {
+        JGitCommitIterator iterator = new JGitCommitIterator(revWalk, 3);
+
+        assertThat(iterator.hasNext(), is(true));
+        assertThat(iterator.hasNext(), is(true));
+        assertThat(iterator.getEstimatedSize(), is(3));
+        assertThat(iterator.next(), is(equalTo((GitCommit) new JGitCommit(commit1))));
+        assertThat(iterator.next(), is(equalTo((GitCommit) new JGitCommit(commit2))));
+        assertThat(iterator.hasNext(), is(true));
+        assertThat(iterator.nextCommit(), is(equalTo((GitCommit) new JGitCommit(commit3))));
+        assertThat(iterator.hasNext(), is(false));
+        verify(revWalk, times(4)).next();
+        verify(revWalk).close();
+
+        try {
+            iterator.next();
+            fail("No exception thrown.");
+        } catch (NoSuchElementException ignored) {}
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testIteratorRemove() {
+        new JGitCommitIterator(revWalk, -1).remove();
+    }
+
+    @Test
+    public void testMaxCount() throws Exception {
+        JGitCommitIterator iterator = new JGitCommitIterator(revWalk, -1);
+        iterator.setMaxCount(2);
+
+        assertThat(iterator.nextCommit(), is(equalTo((GitCommit) new JGitCommit(commit1))));
+        assertThat(iterator.nextCommit(), is(equalTo((GitCommit) new JGitCommit(commit2))));
+        assertThat(iterator.nextCommit(), is(nullValue()));
+        verify(revWalk, times(2)).next();
+        verify(revWalk).close();
+    }
+
+    @Test
+    public void testNext() throws Exception {
+        JGitCommitIterator iterator = new JGitCommitIterator(revWalk, -1);
+
+        assertThat(iterator.nextCommit(), is(equalTo((GitCommit) new JGitCommit(commit1))));
+        assertThat(iterator.nextCommit(), is(equalTo((GitCommit) new JGitCommit(commit2))));
+        assertThat(iterator.nextCommit(), is(equalTo((GitCommit) new JGitCommit(commit3))));
+        assertThat(iterator.nextCommit(), is(nullValue()));
+        assertThat(iterator.nextCommit(), is(nullValue()));
+        verify(revWalk, times(4)).next();
+        verify(revWalk).close();
+    }
+
+    @Test
+    public void testSince() throws Exception {
+        JGitCommitIterator iterator = new JGitCommitIterator(revWalk, -1);
+        iterator.setSince(new Date(1500000200000L));
+
+        assertThat(iterator.nextCommit(), is(equalTo((GitCommit) new JGitCommit(commit1))));
+        assertThat(iterator.nextCommit(), is(equalTo((GitCommit) new JGitCommit(commit2))));
+        assertThat(iterator.nextCommit(), is(nullValue()));
+        verify(revWalk, times(3)).next();
+        verify(revWalk).close();
+    }
+
+    private RevCommit createCommit(int commitTime) {
+        String commitData = String.format("tree %040x\n" +
+            "author Sebastian Staudt <koraktor@gmail.com> %d +0100\n" +
+            "committer Sebastian Staudt <koraktor@gmail.com> %d +0100\n\n" +
+            "%s",
+            new Random().nextLong(),
+            commitTime,
+            commitTime,
+            "Commit subject");
+        return RevCommit.parse(commitData.getBytes());
+    }
+
+}
@@ -2,7 +2,7 @@
  * This code is free software; you can redistribute it and/or modify it under
  * the terms of the new BSD License.
  *
- * Copyright (c) 2012, Sebastian Staudt
+ * Copyright (c) 2012-2017, Sebastian Staudt
  */
 
 package com.github.koraktor.mavanagaiata.git.jgit;
@@ -16,6 +16,7 @@ import org.junit.Test;
 
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
 
 public class JGitCommitTest {
@@ -33,6 +34,9 @@ public class JGitCommitTest {
         JGitCommit commit = new JGitCommit(rawCommit);
         JGitCommit commit2 = new JGitCommit(rawCommit);
 
+        assertThat(commit.author, is(nullValue()));
+        assertThat(commit.committer, is(nullValue()));
+
         assertThat(commit.getAuthorDate(), is(equalTo(authorDate)));
         assertThat(commit.getAuthorEmailAddress(), is(equalTo("john.doe@example.com")));
         assertThat(commit.getAuthorName(), is(equalTo("John Doe")));
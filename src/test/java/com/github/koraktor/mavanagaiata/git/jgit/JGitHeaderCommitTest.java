@@ -0,0 +1,100 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class JGitHeaderCommitTest {
+
+    private static final String COMMIT_DATA = "tree 4b825dc642cb6eb9a060e54bf8d69288fbee4904\n" +
+            "author John Doe <john.doe@example.com> 1162580880 +0000\n" +
+            "committer Sebastian Staudt <koraktor@gmail.com> 1275131880 +0200\n" +
+            "\n" +
+            "Commit subject\n\nFull message.";
+
+    @Test
+    public void test() {
+        RevCommit rawCommit = RevCommit.parse(COMMIT_DATA.getBytes());
+
+        JGitHeaderCommit commit = new JGitHeaderCommit(rawCommit);
+
+        assertThat(rawCommit.getRawBuffer(), is(nullValue()));
+        assertThat(commit.getAuthorDate(), is(equalTo(new Date(1162580880000L))));
+        assertThat(commit.getAuthorEmailAddress(), is(equalTo("john.doe@example.com")));
+        assertThat(commit.getAuthorName(), is(equalTo("John Doe")));
+        assertThat(commit.getAuthorTimeZone(), is(TimeZone.getTimeZone("GMT+0000")));
+        assertThat(commit.getCommitterDate(), is(equalTo(new Date(1275131880000L))));
+        assertThat(commit.getCommitterEmailAddress(), is(equalTo("koraktor@gmail.com")));
+        assertThat(commit.getCommitterName(), is(equalTo("Sebastian Staudt")));
+        assertThat(commit.getCommitterTimeZone(), is(TimeZone.getTimeZone("GMT+0200")));
+        assertThat(commit.getId(), is(equalTo("518a7e6955ee38ecab34254e0796860bc679cfee")));
+        assertThat(commit, is(equalTo(new JGitCommit(RevCommit.parse(COMMIT_DATA.getBytes())))));
+    }
+
+    @Test
+    public void testEncoding() {
+        RevCommit rawCommit = RevCommit.parse(("tree 4b825dc642cb6eb9a060e54bf8d69288fbee4904\n" +
+                "author Jürgen Müller <mueller@example.com> 1162580880 +0000\n" +
+                "committer Jürgen Müller <mueller@example.com> 1162580880 +0000\n" +
+                "encoding ISO-8859-1\n" +
+                "\n" +
+                "Commit subject").getBytes(StandardCharsets.ISO_8859_1));
+
+        JGitHeaderCommit commit = new JGitHeaderCommit(rawCommit);
+
+        assertThat(commit.getAuthorName(), is(equalTo("Jürgen Müller")));
+        assertThat(commit.getCommitterName(), is(equalTo("Jürgen Müller")));
+    }
+
+    @Test
+    public void testMatchesFullCommit() {
+        String commitData = "tree 4b825dc642cb6eb9a060e54bf8d69288fbee4904\n" +
+                "author  Spaced  Name   <spaced@example.com>  1162580880   -0130\n" +
+                "committer <nobody@example.com> 1162580880 +0530\n" +
+                "\n" +
+                "Commit subject";
+        JGitCommit fullCommit = new JGitCommit(RevCommit.parse(commitData.getBytes()));
+        JGitHeaderCommit commit = new JGitHeaderCommit(RevCommit.parse(commitData.getBytes()));
+
+        assertThat(commit.getAuthorDate(), is(equalTo(fullCommit.getAuthorDate())));
+        assertThat(commit.getAuthorEmailAddress(), is(equalTo(fullCommit.getAuthorEmailAddress())));
+        assertThat(commit.getAuthorName(), is(equalTo(fullCommit.getAuthorName())));
+        assertThat(commit.getAuthorTimeZone(), is(equalTo(fullCommit.getAuthorTimeZone())));
+        assertThat(commit.getCommitterEmailAddress(), is(equalTo(fullCommit.getCommitterEmailAddress())));
+        assertThat(commit.getCommitterName(), is(equalTo(fullCommit.getCommitterName())));
+        assertThat(commit.getCommitterTimeZone(), is(equalTo(fullCommit.getCommitterTimeZone())));
+    }
+
+    @Test
+    public void testMessage() {
+        JGitHeaderCommit commit = new JGitHeaderCommit(RevCommit.parse(COMMIT_DATA.getBytes()));
+
+        assertThat(commit.getMessage(), is(equalTo("Commit subject\n\nFull message.")));
+        assertThat(commit.getMessageSubject(), is(equalTo("Commit subject")));
+
+        commit = new JGitHeaderCommit(RevCommit.parse(("tree 4b825dc642cb6eb9a060e54bf8d69288fbee4904\n" +
+                "author John Doe <john.doe@example.com> 1162580880 +0000\n" +
+                "committer John Doe <john.doe@example.com> 1162580880 +0000\n" +
+                "\n" +
+                "Multi-line\nsubject\n\nBody").getBytes()));
+
+        assertThat(commit.getMessageSubject(), is(equalTo("Multi-line subject")));
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.eclipse.jgit.api.Git;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.koraktor.mavanagaiata.git.CommitWalkAction;
+import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
+import com.github.koraktor.mavanagaiata.git.GitTag;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class JGitRepositoryConcurrencyTest {
+
+    private static final int ITERATIONS = 50;
+
+    private static final int THREADS = 16;
+
+    private Git git;
+
+    private JGitRepository repository;
+
+    private File workTree;
+
+    @Before
+    public void setup() throws Exception {
+        workTree = File.createTempFile("mavanagaiata-tests-concurrency", null);
+        workTree.delete();
+        FileUtils.forceDeleteOnExit(workTree);
+
+        git = Git.init().setDirectory(workTree).call();
+
+        for (int i = 1; i <= 20; i ++) {
+            FileUtils.fileWrite(new File(workTree, "file.txt"), Integer.toString(i));
+            git.add().addFilepattern("file.txt").call();
+            git.commit().setMessage("Commit " + i).call();
+
+            if (i % 5 == 0) {
+                git.tag().setName("v" + i / 5).setMessage("Version " + i / 5).call();
+            }
+        }
+        FileUtils.fileWrite(new File(workTree, "file.txt"), "changed");
+
+        repository = new JGitRepository(workTree, null);
+        repository.setHeadRef("HEAD");
+    }
+
+    @After
+    public void tearDown() {
+        repository.close();
+        git.close();
+    }
+
+    @Test
+    public void testConcurrentUsage() throws Exception {
+        final String description = repository.describe().toString();
+        final String headId = repository.getHeadCommit().getId();
+        repository.setHeadRef("HEAD");
+
+        assertThat(description, is(equalTo("v4")));
+
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Void>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i ++) {
+            final int thread = i;
+            results.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+
+                    for (int j = 0; j < ITERATIONS; j ++) {
+                        if ((thread + j) % 10 == 0) {
+                            repository.setHeadRef("HEAD");
+                        }
+
+                        assertThat(repository.describe().toString(), is(equalTo(description)));
+                        assertThat(repository.isDirty(false), is(true));
+                        assertThat(repository.getHeadCommit().getId(), is(equalTo(headId)));
+                        assertThat(headId.startsWith(repository.getAbbreviatedCommitId()), is(true));
+                        assertThat(countCommits(), is(20));
+
+                        for (GitTag tag : repository.getTags().values()) {
+                            tag.load(repository);
+                            assertThat(tag.getDate() != null, is(true));
+                        }
+                    }
+
+                    return null;
+                }
+            }));
+        }
+
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        for (Future<Void> result : results) {
+            result.get();
+        }
+    }
+
+    private int countCommits() throws GitRepositoryException {
+        return repository.walkCommits(new CommitWalkAction() {
+            int count;
+
+            @Override
+            protected void run() {
+                count ++;
+            }
+        }).count;
+    }
+
+}
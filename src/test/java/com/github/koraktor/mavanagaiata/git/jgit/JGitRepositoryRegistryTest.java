@@ -0,0 +1,128 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.io.File;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.koraktor.mavanagaiata.git.GitRepository;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class JGitRepositoryRegistryTest {
+
+    private File gitDir;
+
+    private JGitRepositoryRegistry registry;
+
+    private File workTree;
+
+    @Before
+    public void setup() throws Exception {
+        registry = new JGitRepositoryRegistry();
+
+        workTree = File.createTempFile("mavanagaiata-tests-workTree", null);
+        workTree.delete();
+        workTree.mkdirs();
+        FileUtils.forceDeleteOnExit(workTree);
+
+        gitDir = File.createTempFile("mavanagaiata-tests-gitDir", null);
+        gitDir.delete();
+        new File(gitDir, "objects").mkdirs();
+        FileUtils.forceDeleteOnExit(gitDir);
+    }
+
+    @Test
+    public void testAcquire() throws Exception {
+        Object scope = new Object();
+        JGitRepository repository = registry.acquire(scope, workTree, gitDir, "HEAD");
+
+        assertThat(repository.getHeadRef(), is(equalTo("HEAD")));
+        assertThat(repository.getWorkTree(), is(workTree));
+        assertThat(repository.isChecked(), is(true));
+        assertThat(registry.acquire(scope, workTree, gitDir, "HEAD"), is(sameInstance(repository)));
+        assertThat(registry.acquire(scope, workTree, gitDir, "master"), is(not(sameInstance(repository))));
+    }
+
+    @Test
+    public void testAcquireNewScope() throws Exception {
+        JGitRepository repository = registry.acquire(new Object(), workTree, gitDir, "HEAD");
+        registry.release(repository);
+
+        assertThat(registry.acquire(new Object(), workTree, gitDir, "HEAD"), is(not(sameInstance(repository))));
+        assertThat(repository.repository, is(nullValue()));
+    }
+
+    @Test
+    public void testEndScope() throws Exception {
+        Object scope = new Object();
+        JGitRepository repository = registry.acquire(scope, workTree, gitDir, "HEAD");
+        JGitRepository unusedRepository = registry.acquire(scope, workTree, gitDir, "master");
+        registry.release(unusedRepository);
+
+        registry.endScope(new Object());
+
+        assertThat(unusedRepository.repository, is(notNullValue()));
+
+        registry.endScope(scope);
+
+        assertThat(registry.scope, is(nullValue()));
+        assertThat(registry.repositories.isEmpty(), is(true));
+        assertThat(unusedRepository.repository, is(nullValue()));
+        assertThat(repository.repository, is(notNullValue()));
+
+        assertThat(registry.release(repository), is(true));
+        assertThat(repository.repository, is(nullValue()));
+        assertThat(registry.retiredRepositories.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testRelease() throws Exception {
+        Object scope = new Object();
+        JGitRepository repository = registry.acquire(scope, workTree, gitDir, "HEAD");
+        registry.acquire(scope, workTree, gitDir, "HEAD");
+
+        assertThat(registry.release(repository), is(true));
+        assertThat(repository.repository, is(notNullValue()));
+
+        assertThat(registry.release(repository), is(true));
+        assertThat(repository.repository, is(notNullValue()));
+        assertThat(registry.acquire(scope, workTree, gitDir, "HEAD"), is(sameInstance(repository)));
+        assertThat(registry.repositories.size(), is(1));
+    }
+
+    @Test
+    public void testReleaseRetired() throws Exception {
+        JGitRepository repository = registry.acquire(new Object(), workTree, gitDir, "HEAD");
+        registry.acquire(new Object(), workTree, gitDir, "HEAD");
+
+        assertThat(repository.repository, is(notNullValue()));
+        assertThat(registry.release(repository), is(true));
+        assertThat(repository.repository, is(nullValue()));
+        assertThat(registry.retiredRepositories.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testReleaseUnknown() {
+        GitRepository repository = mock(GitRepository.class);
+
+        assertThat(registry.release(repository), is(false));
+    }
+
+}
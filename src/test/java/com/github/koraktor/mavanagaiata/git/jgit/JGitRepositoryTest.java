@@ -10,26 +10,36 @@ package com.github.koraktor.mavanagaiata.git.jgit;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.TreeMap;
 
 import org.mockito.InOrder;
 
 import org.eclipse.jgit.errors.CorruptObjectException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.errors.StopWalkException;
 import org.eclipse.jgit.lib.AbbreviatedObjectId;
-import org.eclipse.jgit.lib.IndexDiff;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdRef;
+import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.SymbolicRef;
+import org.eclipse.jgit.revwalk.AsyncRevObjectQueue;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevFlag;
 import org.eclipse.jgit.revwalk.RevObject;
 import org.eclipse.jgit.revwalk.RevTag;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 
 import org.junit.Before;
@@ -37,17 +47,25 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import com.github.koraktor.mavanagaiata.git.CommitFilter;
+import com.github.koraktor.mavanagaiata.git.CommitIterator;
 import com.github.koraktor.mavanagaiata.git.CommitWalkAction;
+import com.github.koraktor.mavanagaiata.git.GitCommit;
+import com.github.koraktor.mavanagaiata.git.DescribeOptions;
 import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
 import com.github.koraktor.mavanagaiata.git.GitTag;
 import com.github.koraktor.mavanagaiata.git.GitTagDescription;
 
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
 import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
@@ -55,6 +73,7 @@ import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -195,29 +214,19 @@ public class JGitRepositoryTest {
 
     @Test
     public void testClean() throws Exception {
-        IndexDiff indexDiff = this.mockIndexDiff();
-        when(indexDiff.getAdded()).thenReturn(Collections.<String> emptySet());
-        when(indexDiff.getChanged()).thenReturn(Collections.<String>emptySet());
-        when(indexDiff.getRemoved()).thenReturn(Collections.<String>emptySet());
-        when(indexDiff.getMissing()).thenReturn(Collections.<String> emptySet());
-        when(indexDiff.getModified()).thenReturn(Collections.<String>emptySet());
-        when(indexDiff.getConflicting()).thenReturn(Collections.<String>emptySet());
-        when(indexDiff.getUntracked()).thenReturn(Collections.<String>emptySet());
+        DirtyCheck dirtyCheck = mockDirtyCheck(false);
 
         assertThat(this.repository.isDirty(false), is(false));
+        verify(repository).createDirtyCheck(false, null);
+        verify(dirtyCheck).isDirty();
     }
 
     @Test
     public void testCleanIgnoreUntracked() throws Exception {
-        IndexDiff indexDiff = this.mockIndexDiff();
-        when(indexDiff.getAdded()).thenReturn(Collections.<String> emptySet());
-        when(indexDiff.getChanged()).thenReturn(Collections.<String> emptySet());
-        when(indexDiff.getRemoved()).thenReturn(Collections.<String> emptySet());
-        when(indexDiff.getMissing()).thenReturn(Collections.<String> emptySet());
-        when(indexDiff.getModified()).thenReturn(Collections.<String> emptySet());
-        when(indexDiff.getConflicting()).thenReturn(Collections.<String> emptySet());
+        mockDirtyCheck(true);
 
         assertThat(this.repository.isDirty(true), is(false));
+        verify(repository).createDirtyCheck(true, null);
     }
 
     @Test
@@ -227,6 +236,18 @@ public class JGitRepositoryTest {
         verify(this.repo).close();
     }
 
+    @Test
+    public void testCloseCommitGraph() {
+        CommitGraph commitGraph = mock(CommitGraph.class);
+        this.repository.commitGraph = commitGraph;
+        this.repository.commitGraphLoaded = true;
+
+        this.repository.close();
+
+        verify(commitGraph).close();
+        assertThat(this.repository.commitGraph, is(nullValue()));
+    }
+
     @Test
     public void testCloseNullRepository() {
         this.repository.repository = null;
@@ -255,8 +276,6 @@ public class JGitRepositoryTest {
         tags.put(head.getName(), new JGitTag(rawTag));
         doReturn(tags).when(repo).getTags();
 
-        when(this.repo.getObjectDatabase().newReader().abbreviate(head)).thenReturn(abbrevId);
-
         GitTagDescription description = repo.describe();
         assertThat(head.has(RevFlag.SEEN), is(false));
         assertThat(head_1.has(RevFlag.SEEN), is(false));
@@ -267,9 +286,9 @@ public class JGitRepositoryTest {
 
     @Test
     public void testDescribeTagged() throws Exception {
-        RevCommit head = this.createCommit();
-        RevCommit head_1 = this.createCommit();
-        RevCommit head_2 = this.createCommit();
+        RevCommit head = this.createCommit(1, 3);
+        RevCommit head_1 = this.createCommit(1, 2);
+        RevCommit head_2 = this.createCommit(0, 1);
         head.getParents()[0] = head_1;
         head_1.getParents()[0] = head_2;
         AbbreviatedObjectId abbrevId = head.abbreviate(7);
@@ -287,27 +306,19 @@ public class JGitRepositoryTest {
         tags.put(head_2.getName(), new JGitTag(rawTag));
         doReturn(tags).when(repo).getTags();
 
-        repo.revWalk = mock(RevWalk.class);
-        when(repo.revWalk.next()).thenReturn(head, head_1, head_2, null);
-        RevFlag seenFlag = RevFlag.UNINTERESTING;
-        when(repo.revWalk.newFlag("2.0.0")).thenReturn(seenFlag);
-
-        when(this.repo.getObjectDatabase().newReader().abbreviate(head)).thenReturn(abbrevId);
+        mockRevWalk(repo, head);
 
         GitTagDescription description = repo.describe();
-        assertThat(head.has(RevFlag.SEEN), is(true));
-        assertThat(head_1.has(RevFlag.SEEN), is(true));
-        assertThat(head_2.has(RevFlag.SEEN), is(true));
         assertThat(description.getNextTagName(), is(equalTo("2.0.0")));
         assertThat(description.toString(), is(equalTo("2.0.0-2-g" + abbrevId.name())));
     }
 
     @Test
     public void testDescribeTwoTags() throws Exception {
-        RevCommit head = this.createCommit(2);
-        RevCommit head_a1 = this.createCommit();
-        RevCommit head_b1 = this.createCommit();
-        RevCommit head_b2 = this.createCommit();
+        RevCommit head = this.createCommit(2, 4);
+        RevCommit head_a1 = this.createCommit(0, 3);
+        RevCommit head_b1 = this.createCommit(1, 2);
+        RevCommit head_b2 = this.createCommit(0, 1);
 
         head.getParents()[0] = head_a1;
         head.getParents()[1] = head_b1;
@@ -331,30 +342,20 @@ public class JGitRepositoryTest {
         tags.put(head_b2.getName(), new JGitTag(rawTagB2));
         doReturn(tags).when(repo).getTags();
 
-        repo.revWalk = mock(RevWalk.class);
-        when(repo.revWalk.next()).thenReturn(head, head_a1, head_b1, head_b2, null);
-        RevFlag seenFlag = RevFlag.UNINTERESTING;
-        when(repo.revWalk.newFlag("a1")).thenReturn(seenFlag);
-        when(repo.revWalk.newFlag("b2")).thenReturn(seenFlag);
-
-        when(this.repo.getObjectDatabase().newReader().abbreviate(head)).thenReturn(abbrevId);
+        mockRevWalk(repo, head);
 
         GitTagDescription description = repo.describe();
-        assertThat(head.has(RevFlag.SEEN), is(true));
-        assertThat(head_a1.has(RevFlag.SEEN), is(true));
-        assertThat(head_b1.has(RevFlag.SEEN), is(true));
-        assertThat(head_b2.has(RevFlag.SEEN), is(true));
         assertThat(description.getNextTagName(), is(equalTo("a1")));
-        assertThat(description.toString(), is(equalTo("a1-2-g" + abbrevId.name())));
+        assertThat(description.toString(), is(equalTo("a1-3-g" + abbrevId.name())));
     }
 
     @Test
     public void testDescribeTwoBranches() throws Exception {
-        RevCommit head = this.createCommit(2);
-        RevCommit head_a1 = this.createCommit();
-        RevCommit head_a2 = this.createCommit();
-        RevCommit head_b1 = this.createCommit();
-        RevCommit head_b2 = this.createCommit();
+        RevCommit head = this.createCommit(2, 5);
+        RevCommit head_a1 = this.createCommit(1, 4);
+        RevCommit head_a2 = this.createCommit(0, 2);
+        RevCommit head_b1 = this.createCommit(1, 3);
+        RevCommit head_b2 = this.createCommit(0, 1);
 
         head.getParents()[0] = head_a1;
         head_a1.getParents()[0] = head_a2;
@@ -379,57 +380,183 @@ public class JGitRepositoryTest {
         tags.put(head_b1.getName(), new JGitTag(rawTagB1));
         doReturn(tags).when(repo).getTags();
 
-        repo.revWalk = mock(RevWalk.class);
-        when(repo.revWalk.next()).thenReturn(head, head_a1, head_b1, head_a2, head_b2, null);
-        RevFlag seenFlag = RevFlag.UNINTERESTING;
-        when(repo.revWalk.newFlag("a2")).thenReturn(seenFlag);
-        when(repo.revWalk.newFlag("b1")).thenReturn(seenFlag);
-
-        when(this.repo.getObjectDatabase().newReader().abbreviate(head)).thenReturn(abbrevId);
+        mockRevWalk(repo, head);
 
         GitTagDescription description = repo.describe();
-        assertThat(head.has(RevFlag.SEEN), is(true));
-        assertThat(head_a1.has(RevFlag.SEEN), is(true));
-        assertThat(head_a2.has(RevFlag.SEEN), is(true));
-        assertThat(head_b1.has(RevFlag.SEEN), is(true));
-        assertThat(head_b2.has(RevFlag.SEEN), is(true));
         assertThat(description.getNextTagName(), is(equalTo("b1")));
-        assertThat(description.toString(), is(equalTo("b1-2-g" + abbrevId.name())));
+        assertThat(description.toString(), is(equalTo("b1-3-g" + abbrevId.name())));
+    }
+
+    @Test
+    public void testDescribeFirstParent() throws Exception {
+        RevCommit head = this.createCommit(2, 5);
+        RevCommit head_a1 = this.createCommit(1, 4);
+        RevCommit head_a2 = this.createCommit(0, 2);
+        RevCommit head_b1 = this.createCommit(1, 3);
+        RevCommit head_b2 = this.createCommit(0, 1);
+
+        head.getParents()[0] = head_a1;
+        head_a1.getParents()[0] = head_a2;
+        head.getParents()[1] = head_b1;
+        head_b1.getParents()[0] = head_b2;
+
+        AbbreviatedObjectId abbrevId = head.abbreviate(7);
+        this.repository.headObject = mock(ObjectId.class);
+        this.repository.commitCache.put(this.repository.headObject, head);
+
+        JGitRepository repo = spy(this.repository);
+
+        Map<String, RevTag> rawTags = new HashMap<>();
+        RevTag rawTagA2 = this.createTag("a2", head_a2.getName());
+        RevTag rawTagB1 = this.createTag("b1", head_b1.getName());
+        rawTags.put(head_a2.getName(), rawTagA2);
+        rawTags.put(head_b1.getName(), rawTagB1);
+        doReturn(rawTags).when(repo).getRawTags();
+
+        Map<String, GitTag> tags = new HashMap<>();
+        tags.put(head_a2.getName(), new JGitTag(rawTagA2));
+        tags.put(head_b1.getName(), new JGitTag(rawTagB1));
+        doReturn(tags).when(repo).getTags();
+
+        mockRevWalk(repo, head);
+
+        GitTagDescription description = repo.describe(new DescribeOptions(10, null, null, true));
+        assertThat(description.getNextTagName(), is(equalTo("a2")));
+        assertThat(description.toString(), is(equalTo("a2-2-g" + abbrevId.name())));
+    }
+
+    @Test
+    public void testDescribeMatchAndExclude() throws Exception {
+        RevCommit head = this.createCommit(2, 5);
+        RevCommit head_a1 = this.createCommit(1, 4);
+        RevCommit head_a2 = this.createCommit(0, 2);
+        RevCommit head_b1 = this.createCommit(1, 3);
+        RevCommit head_b2 = this.createCommit(0, 1);
+
+        head.getParents()[0] = head_a1;
+        head_a1.getParents()[0] = head_a2;
+        head.getParents()[1] = head_b1;
+        head_b1.getParents()[0] = head_b2;
+
+        AbbreviatedObjectId abbrevId = head.abbreviate(7);
+        this.repository.headObject = mock(ObjectId.class);
+        this.repository.commitCache.put(this.repository.headObject, head);
+
+        JGitRepository repo = spy(this.repository);
+
+        RevTag rawTagA2 = this.createTag("v1.0", head_a2.getName());
+        RevTag rawTagB1 = this.createTag("build-1", head_b1.getName());
+        Ref tagRefA2 = mock(Ref.class);
+        when(tagRefA2.getObjectId()).thenReturn(rawTagA2);
+        Ref tagRefB1 = mock(Ref.class);
+        when(tagRefB1.getObjectId()).thenReturn(rawTagB1);
+        Map<String, Ref> tagRefs = new HashMap<>();
+        tagRefs.put("v1.0", tagRefA2);
+        tagRefs.put("build-1", tagRefB1);
+        when(repo.repository.getTags()).thenReturn(tagRefs);
+
+        when(tagRefA2.isPeeled()).thenReturn(true);
+        when(tagRefA2.getPeeledObjectId()).thenReturn(head_a2);
+        when(tagRefB1.isPeeled()).thenReturn(true);
+        when(tagRefB1.getPeeledObjectId()).thenReturn(head_b1);
+
+        RevWalk revWalk = mock(RevWalk.class);
+        doReturn(revWalk).when(repo).getRevWalk();
+        when(revWalk.parseCommit(head)).thenReturn(head);
+        when(revWalk.lookupTag(rawTagA2)).thenReturn(rawTagA2);
+
+        GitTagDescription description = repo.describe(new DescribeOptions(10, Arrays.asList("v*"), null, false));
+        assertThat(description.getNextTagName(), is(equalTo("v1.0")));
+        assertThat(description.toString(), is(equalTo("v1.0-4-g" + abbrevId.name())));
+
+        description = repo.describe(new DescribeOptions(10, null, Arrays.asList("build-*"), false));
+        assertThat(description.getNextTagName(), is(equalTo("v1.0")));
+
+        verify(revWalk, never()).lookupTag(rawTagB1);
+        verify(repo, never()).getRawTags();
+    }
+
+    @Test
+    public void testDescribeInvalidPattern() throws Exception {
+        this.repository.headObject = mock(ObjectId.class);
+        when(repo.getTags()).thenReturn(new HashMap<String, Ref>());
+
+        try {
+            repository.describe(new DescribeOptions(10, Arrays.asList("v[1"), null, false));
+            fail("No exception thrown.");
+        } catch (GitRepositoryException e) {
+            assertThat(e.getMessage(), is(equalTo("Invalid tag pattern: v[1")));
+        }
+    }
+
+    @Test
+    public void testDescribeNoCandidates() throws Exception {
+        RevCommit head = this.createCommit(1, 3);
+        RevCommit head_1 = this.createCommit(0, 2);
+        head.getParents()[0] = head_1;
+        AbbreviatedObjectId abbrevId = head.abbreviate(7);
+        this.repository.headObject = mock(ObjectId.class);
+        this.repository.commitCache.put(this.repository.headObject, head);
+
+        JGitRepository repo = spy(this.repository);
+
+        Map<String, RevTag> rawTags = new HashMap<>();
+        rawTags.put(head_1.getName(), this.createTag("2.0.0", head_1.getName()));
+        doReturn(rawTags).when(repo).getRawTags();
+
+        GitTagDescription description = repo.describe(new DescribeOptions(0, null, null, false));
+        assertThat(description.getNextTagName(), is(equalTo("")));
+        assertThat(description.toString(), is(equalTo(abbrevId.name())));
+        verify(repo, never()).getRevWalk();
     }
 
     @Test
     public void testDescribeUntagged() throws Exception {
-        RevCommit head = this.createCommit();
-        RevCommit head_1 = this.createCommit();
-        RevCommit head_2 = this.createCommit();
+        RevCommit head = this.createCommit(1, 3);
+        RevCommit head_1 = this.createCommit(1, 2);
+        RevCommit head_2 = this.createCommit(0, 1);
         head.getParents()[0] = head_1;
         head_1.getParents()[0] = head_2;
         AbbreviatedObjectId abbrevId = head.abbreviate(7);
         this.repository.headObject = mock(ObjectId.class);
         this.repository.commitCache.put(this.repository.headObject, head);
 
-        this.repository.revWalk = mock(RevWalk.class);
-        when(this.repository.revWalk.next()).thenReturn(head, head_1, head_2, null);
-
-        when(this.repo.getObjectDatabase().newReader().abbreviate(head)).thenReturn(abbrevId);
+        this.repository = spy(this.repository);
+        mockRevWalk(this.repository, head);
 
         GitTagDescription description = this.repository.describe();
-        assertThat(head.has(RevFlag.SEEN), is(true));
-        assertThat(head_1.has(RevFlag.SEEN), is(true));
-        assertThat(head_2.has(RevFlag.SEEN), is(true));
         assertThat(description.getNextTagName(), is(equalTo("")));
         assertThat(description.toString(), is(equalTo(abbrevId.name())));
     }
 
+    @Test
+    public void testGetCommitGraphWithoutObjectDirectory() {
+        assertThat(repository.getCommitGraph(), is(nullValue()));
+        assertThat(repository.commitGraphLoaded, is(true));
+    }
+
     @Test
     public void testGetAbbreviatedCommitId() throws Exception {
         RevCommit rawCommit = this.createCommit();
-        AbbreviatedObjectId abbrevId = rawCommit.abbreviate(7);
         JGitCommit commit = new JGitCommit(rawCommit);
 
-        when(this.repo.getObjectDatabase().newReader().abbreviate(rawCommit)).thenReturn(abbrevId);
-
         assertThat(this.repository.getAbbreviatedCommitId(commit), is(equalTo(rawCommit.getName().substring(0, 7))));
+        assertThat(this.repository.getAbbreviatedCommitId(commit), is(equalTo(rawCommit.getName().substring(0, 7))));
+
+        verify(repo.newObjectReader()).resolve(rawCommit.abbreviate(7));
+    }
+
+    @Test
+    public void testGetAbbreviatedCommitIds() throws Exception {
+        RevCommit rawCommit1 = this.createCommit();
+        RevCommit rawCommit2 = this.createCommit();
+        List<JGitCommit> commits = Arrays.asList(new JGitCommit(rawCommit1), new JGitCommit(rawCommit2));
+
+        Map<String, String> abbreviatedIds = repository.getAbbreviatedCommitIds(commits);
+
+        assertThat(abbreviatedIds.size(), is(2));
+        assertThat(abbreviatedIds.get(rawCommit1.getName()), is(equalTo(rawCommit1.getName().substring(0, 7))));
+        assertThat(abbreviatedIds.get(rawCommit2.getName()), is(equalTo(rawCommit2.getName().substring(0, 7))));
     }
 
     @Test
@@ -438,7 +565,7 @@ public class JGitRepositoryTest {
         JGitCommit commit = new JGitCommit(rawCommit);
 
         Throwable exception = mock(IOException.class);
-        when(this.repo.getObjectDatabase().newReader().abbreviate(rawCommit)).thenThrow(exception);
+        when(this.repo.newObjectReader().resolve(rawCommit.abbreviate(7))).thenThrow(exception);
 
         try {
             repository.getAbbreviatedCommitId(commit);
@@ -503,6 +630,35 @@ public class JGitRepositoryTest {
         assertThat(this.repository.getHeadCommit(), is(equalTo(headCommit)));
     }
 
+    @Test
+    public void testGetStateKey() throws Exception {
+        File indexFile = File.createTempFile("mavanagaiata-tests-index", null);
+        indexFile.deleteOnExit();
+
+        Ref master = new ObjectIdRef.PeeledNonTag(Ref.Storage.LOOSE, "refs/heads/master",
+                ObjectId.fromString("deadbeefdeadbeefdeadbeefdeadbeefdeadbeef"));
+        Map<String, Ref> refs = new TreeMap<>();
+        refs.put("HEAD", new SymbolicRef("HEAD", master));
+        refs.put("refs/heads/master", master);
+
+        repository.headObject = master.getObjectId();
+        when(repo.getRefDatabase().getRefs(RefDatabase.ALL)).thenReturn(refs);
+        when(repo.isBare()).thenReturn(false);
+        when(repo.getIndexFile()).thenReturn(indexFile);
+
+        String stateKey = repository.getStateKey();
+        assertThat(stateKey.length(), is(40));
+        assertThat(repository.getStateKey(), is(equalTo(stateKey)));
+
+        refs.put("refs/tags/1.0.0", new ObjectIdRef.PeeledNonTag(Ref.Storage.PACKED,
+                "refs/tags/1.0.0", master.getObjectId()));
+        String tagStateKey = repository.getStateKey();
+        assertThat(tagStateKey, is(not(equalTo(stateKey))));
+
+        indexFile.setLastModified(indexFile.lastModified() - 10000);
+        assertThat(repository.getStateKey(), is(not(equalTo(tagStateKey))));
+    }
+
     @Test
     public void testGetHeadObject() throws Exception {
         ObjectId head = mock(ObjectId.class);
@@ -572,12 +728,24 @@ public class JGitRepositoryTest {
         assertThat(repo.getTags(), is(equalTo(tags)));
     }
 
+    @Test
+    public void testGetTagsCached() throws Exception {
+        Map<String, RevTag> rawTags = new HashMap<>();
+        rawTags.put("1.0.0", this.createTag());
+
+        JGitRepository repo = spy(this.repository);
+        doReturn(rawTags).when(repo).getRawTags();
+
+        Map<String, GitTag> tags = repo.getTags();
+
+        assertThat(repo.getTags(), is(sameInstance(tags)));
+        verify(repo, times(1)).getRawTags();
+    }
+
     @Test
     public void testIsDirty() throws Exception {
-        IndexDiff indexDiff = this.mockIndexDiff();
-        HashSet<String> untracked = new HashSet<>();
-        untracked.add("somefile");
-        when(indexDiff.getUntracked()).thenReturn(untracked);
+        DirtyCheck dirtyCheck = mockDirtyCheck(false);
+        when(dirtyCheck.isDirty()).thenReturn(true);
 
         assertThat(this.repository.isDirty(false), is(true));
     }
@@ -586,7 +754,9 @@ public class JGitRepositoryTest {
     public void testIsDirtyFailure() throws Exception {
         Throwable exception = new IOException();
         repository = spy(repository);
-        doThrow(exception).when(repository).createIndexDiff();
+        DirtyCheck dirtyCheck = mock(DirtyCheck.class);
+        doReturn(dirtyCheck).when(repository).createDirtyCheck(false, null);
+        doThrow(exception).when(dirtyCheck).isDirty();
 
         try {
             repository.isDirty(false);
@@ -597,12 +767,51 @@ public class JGitRepositoryTest {
         }
     }
 
+    @Test
+    public void testIsDirtyFailureNotMemoized() throws Exception {
+        repository = spy(repository);
+        DirtyCheck dirtyCheck = mock(DirtyCheck.class);
+        doReturn(dirtyCheck).when(repository).createDirtyCheck(false, null);
+        when(dirtyCheck.isDirty()).thenThrow(new IOException()).thenReturn(true);
+
+        try {
+            repository.isDirty(false);
+            fail("No exception thrown.");
+        } catch (GitRepositoryException ignored) {}
+
+        assertThat(repository.isDirty(false), is(true));
+    }
+
+    @Test
+    public void testIsDirtyMemoized() throws Exception {
+        DirtyCheck dirtyCheck = mockDirtyCheck(false);
+        when(dirtyCheck.isDirty()).thenReturn(true);
+
+        assertThat(repository.isDirty(false), is(true));
+        assertThat(repository.isDirty(false), is(true));
+
+        verify(repository, times(1)).createDirtyCheck(false, null);
+
+        repository.setHeadRef("HEAD");
+        repository.isDirty(false);
+
+        verify(repository, times(2)).createDirtyCheck(false, null);
+    }
+
+    @Test
+    public void testIsDirtyPath() throws Exception {
+        repository = spy(repository);
+        DirtyCheck dirtyCheck = mock(DirtyCheck.class);
+        doReturn(dirtyCheck).when(repository).createDirtyCheck(false, "module");
+        when(dirtyCheck.isDirty()).thenReturn(true);
+
+        assertThat(this.repository.isDirty(false, "module"), is(true));
+    }
+
     @Test
     public void testIsDirtyIgnoreUntracked() throws Exception {
-        IndexDiff indexDiff = this.mockIndexDiff();
-        HashSet<String> added = new HashSet<>();
-        added.add("somefile");
-        when(indexDiff.getAdded()).thenReturn(added);
+        DirtyCheck dirtyCheck = mockDirtyCheck(true);
+        when(dirtyCheck.isDirty()).thenReturn(true);
 
         assertThat(this.repository.isDirty(true), is(true));
     }
@@ -614,6 +823,157 @@ public class JGitRepositoryTest {
         assertThat(repository.isOnUnbornBranch(), is(true));
     }
 
+    @Test
+    public void testIterateCommits() throws Exception {
+        RevWalk revWalk = mockRevWalk();
+
+        RevCommit head = this.createCommit();
+        RevCommit head_1 = this.createCommit();
+        ObjectId headObjectId = mock(ObjectId.class);
+        this.repository.headObject = headObjectId;
+
+        when(revWalk.parseCommit(headObjectId)).thenReturn(head);
+        when(revWalk.next()).thenReturn(head).thenReturn(head_1);
+
+        try (CommitIterator commits = this.repository.iterateCommits()) {
+            assertThat(commits.getEstimatedSize(), is(-1));
+            assertThat(commits.hasNext(), is(true));
+            assertThat(commits.next(), is(equalTo((GitCommit) new JGitCommit(head))));
+        }
+
+        verify(revWalk).markStart(head);
+        verify(revWalk, times(1)).next();
+        verify(revWalk).close();
+    }
+
+    @Test
+    public void testIterateCommitsFailure() throws Exception {
+        RevWalk revWalk = mockRevWalk();
+        ObjectId headObjectId = mock(ObjectId.class);
+        this.repository.headObject = headObjectId;
+
+        IOException exception = new IOException();
+        when(revWalk.parseCommit(headObjectId)).thenThrow(exception);
+
+        try {
+            this.repository.iterateCommits();
+            fail("No exception thrown.");
+        } catch (GitRepositoryException e) {
+            assertThat(e.getCause(), is((Throwable) exception));
+        }
+
+        verify(revWalk).close();
+    }
+
+    @Test
+    public void testIterateCommitsFiltered() throws Exception {
+        RevWalk revWalk = mockRevWalk();
+        this.repository.commitGraph = mock(CommitGraph.class);
+        this.repository.commitGraphLoaded = true;
+        when(this.repository.commitGraph.getCommitCount()).thenReturn(10);
+
+        RevCommit head = this.createCommit();
+        ObjectId headObjectId = mock(ObjectId.class);
+        this.repository.headObject = headObjectId;
+        when(revWalk.parseCommit(headObjectId)).thenReturn(head);
+
+        CommitFilter filter = new CommitFilter();
+        filter.setNoMerges(true);
+
+        try (CommitIterator commits = this.repository.iterateCommits(null, filter)) {
+            assertThat(commits.getEstimatedSize(), is(-1));
+        }
+
+        try (CommitIterator commits = this.repository.iterateCommits(null, new CommitFilter())) {
+            assertThat(commits.getEstimatedSize(), is(10));
+        }
+
+        InOrder inOrder = inOrder(revWalk);
+        inOrder.verify(revWalk).markStart(head);
+        inOrder.verify(revWalk).setRevFilter(RevFilter.NO_MERGES);
+        inOrder.verify(revWalk).setRevFilter(RevFilter.ALL);
+    }
+
+    @Test
+    public void testIterateCommitsInvalidPattern() throws Exception {
+        RevWalk revWalk = mockRevWalk();
+
+        CommitFilter filter = new CommitFilter();
+        filter.setMessagePattern("[ci skip");
+
+        try {
+            this.repository.iterateCommits(null, filter);
+            fail("No exception thrown.");
+        } catch (GitRepositoryException e) {
+            assertThat(e.getMessage(), is(equalTo("Invalid commit filter pattern: [ci skip")));
+        }
+
+        verify(revWalk, never()).markStart(any(RevCommit.class));
+    }
+
+    @Test
+    public void testCreateRevFilter() throws Exception {
+        assertThat(JGitRepository.createRevFilter(null), is(RevFilter.ALL));
+        assertThat(JGitRepository.createRevFilter(new CommitFilter()), is(RevFilter.ALL));
+
+        CommitFilter filter = new CommitFilter();
+        filter.setExcludedMessagePattern("skip");
+        filter.setMaxCount(2);
+        filter.setSince(new Date(2000000L));
+        filter.setUntil(new Date(5000000L));
+        RevFilter revFilter = JGitRepository.createRevFilter(filter);
+
+        assertThat(revFilter.include(null, createCommit(1, 6000)), is(false));
+        assertThat(revFilter.include(null, createCommit(1, 5000)), is(true));
+        assertThat(revFilter.include(null, createCommit(1, 4000)), is(true));
+        try {
+            revFilter.include(null, createCommit(1, 3000));
+            fail("The walk has not been stopped.");
+        } catch (StopWalkException e) {
+            // Count limit reached
+        }
+
+        revFilter = JGitRepository.createRevFilter(filter);
+        try {
+            revFilter.include(null, createCommit(1, 1000));
+            fail("The walk has not been stopped.");
+        } catch (StopWalkException e) {
+            // Date limit reached
+        }
+
+        filter = new CommitFilter();
+        filter.setExcludedMessagePattern("^Commit");
+        filter.setNoMerges(true);
+        revFilter = JGitRepository.createRevFilter(filter);
+        assertThat(revFilter.include(null, createCommit(1, 1000)), is(false));
+
+        filter.setExcludedMessagePattern("skip");
+        revFilter = JGitRepository.createRevFilter(filter);
+        assertThat(revFilter.include(null, createCommit(1, 1000)), is(true));
+        assertThat(revFilter.include(null, createCommit(2, 1000)), is(false));
+    }
+
+    @Test
+    public void testWalkCommitsFiltered() throws Exception {
+        CommitFilter filter = new CommitFilter();
+        filter.setNoMerges(true);
+        CommitWalkAction action = mock(CommitWalkAction.class);
+        when(action.getCommitFilter()).thenReturn(filter);
+        RevWalk revWalk = mockRevWalk();
+
+        RevCommit head = this.createCommit();
+        ObjectId headObjectId = mock(ObjectId.class);
+        this.repository.headObject = headObjectId;
+
+        when(revWalk.parseCommit(headObjectId)).thenReturn(head);
+        when(revWalk.next()).thenReturn(head).thenReturn(null);
+
+        this.repository.walkCommits(action);
+
+        verify(revWalk).setRevFilter(RevFilter.NO_MERGES);
+        verify(action).execute(new JGitCommit(head));
+    }
+
     @Test
     public void testWalkCommits() throws Exception {
         CommitWalkAction action = mock(CommitWalkAction.class);
@@ -625,6 +985,7 @@ public class JGitRepositoryTest {
         this.repository.headObject = headObjectId;
         this.repository.commitCache.put(headObjectId, head);
 
+        when(revWalk.parseCommit(headObjectId)).thenReturn(head);
         when(revWalk.next()).thenReturn(head)
             .thenReturn(head_1)
             .thenReturn(null);
@@ -641,6 +1002,74 @@ public class JGitRepositoryTest {
         inOrder.verifyNoMoreInteractions();
     }
 
+    @Test
+    public void testWalkCommitsHeaderOnly() throws Exception {
+        CommitWalkAction action = mock(CommitWalkAction.class);
+        when(action.isHeaderOnly()).thenReturn(true);
+        RevWalk revWalk = mockRevWalk();
+
+        RevCommit head = this.createCommit();
+        ObjectId headObjectId = mock(ObjectId.class);
+        this.repository.headObject = headObjectId;
+
+        when(revWalk.parseCommit(headObjectId)).thenReturn(head);
+        when(revWalk.next()).thenReturn(head).thenReturn(null);
+
+        this.repository.walkCommits(action);
+
+        verify(action).execute(isA(JGitHeaderCommit.class));
+        assertThat(head.getRawBuffer(), is(nullValue()));
+    }
+
+    @Test
+    public void testWalkCommitsExcluded() throws Exception {
+        CommitWalkAction action = mock(CommitWalkAction.class);
+        RevWalk revWalk = mockRevWalk();
+
+        RevCommit head = this.createCommit();
+        RevCommit excluded = this.createCommit();
+        ObjectId headObjectId = mock(ObjectId.class);
+        this.repository.headObject = headObjectId;
+
+        when(revWalk.parseCommit(headObjectId)).thenReturn(head);
+        when(revWalk.parseCommit(excluded.getId())).thenReturn(excluded);
+        when(revWalk.next()).thenReturn(head).thenReturn(null);
+
+        this.repository.walkCommits(action, excluded.getName());
+
+        verify(revWalk).markStart(head);
+        verify(revWalk).markUninteresting(excluded);
+        verify(action).execute(new JGitCommit(head));
+    }
+
+    @Test
+    public void testIsAncestor() throws Exception {
+        RevWalk revWalk = mockRevWalk();
+
+        RevCommit head = this.createCommit();
+        RevCommit ancestor = this.createCommit();
+        ObjectId headObjectId = mock(ObjectId.class);
+        this.repository.headObject = headObjectId;
+
+        when(revWalk.parseCommit(headObjectId)).thenReturn(head);
+        when(revWalk.parseCommit(ancestor.getId())).thenReturn(ancestor);
+        when(revWalk.isMergedInto(ancestor, head)).thenReturn(true);
+
+        assertThat(repository.isAncestor(ancestor.getName()), is(true));
+        assertThat(repository.isAncestor("invalid"), is(false));
+    }
+
+    @Test
+    public void testIsAncestorMissing() throws Exception {
+        RevWalk revWalk = mockRevWalk();
+
+        ObjectId missingId = ObjectId.fromString("0000000000000000000000000000000000000001");
+        when(revWalk.parseCommit(missingId))
+            .thenThrow(new MissingObjectException(missingId, "commit"));
+
+        assertThat(repository.isAncestor(missingId.getName()), is(false));
+    }
+
     @Test
     public void testGetRawTags() throws Exception {
         RevWalk revWalk = mockRevWalk();
@@ -648,26 +1077,137 @@ public class JGitRepositoryTest {
         Map<String, Ref> tagRefs = new HashMap<>();
         Ref tagRef1 = mock(Ref.class);
         Ref tagRef2 = mock(Ref.class);
+        Ref tagRef3 = mock(Ref.class);
         tagRefs.put("1.0.0", tagRef1);
         tagRefs.put("2.0.0", tagRef2);
+        tagRefs.put("lightweight", tagRef3);
         when(this.repo.getTags()).thenReturn(tagRefs);
 
-        RevTag tag1 = this.createTag();
-        RevTag tag2 = this.createTag();
         RevCommit commit1 = this.createCommit();
-        RevObject commit2 = this.createCommit();
+        RevCommit commit2 = this.createCommit();
+        RevCommit commit3 = this.createCommit();
+        RevTag tag1 = this.createTag("1.0.0", commit1.getName());
+        RevTag tag2 = this.createTag("2.0.0", commit2.getName());
         when(tagRef1.getObjectId()).thenReturn(tag1);
-        when(revWalk.lookupTag(tag1)).thenReturn(tag1);
-        when(revWalk.peel(tag1)).thenReturn(commit1);
         when(tagRef2.getObjectId()).thenReturn(tag2);
-        when(revWalk.lookupTag(tag2)).thenReturn(tag2);
-        when(revWalk.peel(tag2)).thenReturn(commit2);
+        when(tagRef3.getObjectId()).thenReturn(commit3);
+
+        AsyncRevObjectQueue queue = mock(AsyncRevObjectQueue.class);
+        when(revWalk.parseAny(any(Iterable.class), eq(true))).thenReturn(queue);
+        when(queue.next()).thenReturn(tag1, tag2, commit3, null);
 
         Map<String, RevTag> tags = new HashMap<>();
-        tags.put(commit1.getName(), tag1);
-        tags.put(commit2.getName(), tag2);
+        tags.put(tag1.getObject().getName(), tag1);
+        tags.put(tag2.getObject().getName(), tag2);
 
         assertThat(this.repository.getRawTags(), is(equalTo(tags)));
+        assertThat(this.repository.tagNames.get(tag1.getObject().getName()), is(equalTo("1.0.0")));
+        assertThat(this.repository.tagNames.get(tag2.getObject().getName()), is(equalTo("2.0.0")));
+        verify(queue).release();
+        verify(revWalk, never()).peel(any(RevObject.class));
+    }
+
+    @Test
+    public void testGetRawTagsPeeled() throws Exception {
+        RevWalk revWalk = mockRevWalk();
+
+        Map<String, Ref> tagRefs = new HashMap<>();
+        Ref tagRef1 = mock(Ref.class);
+        Ref tagRef2 = mock(Ref.class);
+        tagRefs.put("1.0.0", tagRef1);
+        tagRefs.put("lightweight", tagRef2);
+        when(this.repo.getTags()).thenReturn(tagRefs);
+
+        RevTag tag = this.createTag();
+        RevCommit commit1 = this.createCommit();
+        RevCommit commit2 = this.createCommit();
+        when(tagRef1.getObjectId()).thenReturn(tag);
+        when(tagRef1.isPeeled()).thenReturn(true);
+        when(tagRef1.getPeeledObjectId()).thenReturn(commit1);
+        when(tagRef2.getObjectId()).thenReturn(commit2);
+        when(tagRef2.isPeeled()).thenReturn(true);
+        when(revWalk.lookupTag(tag)).thenReturn(tag);
+
+        Map<String, RevTag> tags = new HashMap<>();
+        tags.put(commit1.getName(), tag);
+
+        assertThat(this.repository.getRawTags(), is(equalTo(tags)));
+        assertThat(this.repository.getTags().get(commit1.getName()).getName(), is(equalTo("1.0.0")));
+        verify(revWalk, never()).parseAny(any(Iterable.class), eq(true));
+        verify(revWalk, never()).parseHeaders(any(RevObject.class));
+    }
+
+    @Test
+    public void testGetRawTagsSameCommit() throws Exception {
+        RevWalk revWalk = mockRevWalk();
+        RevCommit commit = this.createCommit();
+
+        RevTag oldTag = this.createTag("old", commit.getName(), 1500000000);
+        RevTag newTag = this.createTag("new", commit.getName(), 1500000100);
+        RevTag otherNewTag = this.createTag("other", commit.getName(), 1500000100);
+
+        Map<String, Ref> tagRefs = new LinkedHashMap<>();
+        for (RevTag tag : new RevTag[] { otherNewTag, oldTag, newTag }) {
+            Ref tagRef = mock(Ref.class);
+            when(tagRef.getObjectId()).thenReturn(tag);
+            when(tagRef.isPeeled()).thenReturn(true);
+            when(tagRef.getPeeledObjectId()).thenReturn(commit);
+            when(revWalk.lookupTag(tag)).thenReturn(tag);
+            tagRefs.put(tag.getTagName(), tagRef);
+        }
+        when(this.repo.getTags()).thenReturn(tagRefs);
+
+        assertThat(this.repository.getRawTags().get(commit.getName()), is(sameInstance(newTag)));
+        assertThat(this.repository.tagNames.get(commit.getName()), is(equalTo("new")));
+    }
+
+    @Test
+    public void testLoadTags() throws Exception {
+        RevWalk revWalk = mockRevWalk();
+
+        RevTag rawTag1 = this.createTag();
+        RevTag rawTag2 = this.createTag();
+        Date tagDate = rawTag1.getTaggerIdent().getWhen();
+        JGitTag tag1 = new JGitTag(rawTag1);
+        JGitTag tag2 = new JGitTag(rawTag2);
+        JGitTag loadedTag = new JGitTag(this.createTag());
+        PersonIdent taggerIdent = new PersonIdent("Sebastian Staudt", "koraktor@gmail.com");
+        loadedTag.setTaggerIdent(taggerIdent);
+
+        AsyncRevObjectQueue queue = mock(AsyncRevObjectQueue.class);
+        when(revWalk.parseAny(any(Iterable.class), eq(true))).thenReturn(queue);
+        when(queue.next()).thenReturn(rawTag1, rawTag2, null);
+
+        repository.loadTags(Arrays.asList(tag1, tag2, loadedTag));
+
+        assertThat(tag1.isLoaded(), is(true));
+        assertThat(tag1.getDate(), is(equalTo(tagDate)));
+        assertThat(tag2.isLoaded(), is(true));
+        assertThat(loadedTag.taggerIdent, is(sameInstance(taggerIdent)));
+        verify(revWalk, times(1)).parseAny(any(Iterable.class), eq(true));
+        verify(queue).release();
+    }
+
+    @Test
+    public void testLoadTagsAllLoaded() throws Exception {
+        RevWalk revWalk = mockRevWalk();
+
+        JGitTag tag = new JGitTag(this.createTag());
+        tag.setTaggerIdent(new PersonIdent("Sebastian Staudt", "koraktor@gmail.com"));
+
+        repository.loadTags(Collections.singletonList(tag));
+
+        verify(revWalk, never()).parseAny(any(Iterable.class), eq(true));
+    }
+
+    @Test
+    public void testGetRawTagsCached() throws Exception {
+        Map<String, RevTag> tags = new HashMap<>();
+        this.repository.rawTags = tags;
+
+        assertThat(this.repository.getRawTags(), is(sameInstance(tags)));
+
+        verify(this.repo, never()).getTags();
     }
 
     @Test
@@ -675,13 +1215,13 @@ public class JGitRepositoryTest {
         assertThat(repository.getWorkTree(), is(equalTo(repo.getWorkTree())));
     }
 
-    private IndexDiff mockIndexDiff() throws Exception {
+    private DirtyCheck mockDirtyCheck(boolean ignoreUntracked) throws Exception {
         repository = spy(repository);
 
-        IndexDiff indexDiff = mock(IndexDiff.class);
-        doReturn(indexDiff).when(repository).getIndexDiff();
+        DirtyCheck dirtyCheck = mock(DirtyCheck.class);
+        doReturn(dirtyCheck).when(repository).createDirtyCheck(ignoreUntracked, null);
 
-        return indexDiff;
+        return dirtyCheck;
     }
 
     private RevWalk mockRevWalk() {
@@ -693,11 +1233,22 @@ public class JGitRepositoryTest {
         return revWalk;
     }
 
+    private void mockRevWalk(JGitRepository repository, RevCommit head)
+            throws IOException {
+        RevWalk revWalk = mock(RevWalk.class);
+        doReturn(revWalk).when(repository).getRevWalk();
+        when(revWalk.parseCommit(head)).thenReturn(head);
+    }
+
     private RevCommit createCommit() {
         return createCommit(1);
     }
 
     private RevCommit createCommit(int numParents) {
+        return createCommit(numParents, (int) (new Date().getTime() / 1000));
+    }
+
+    private RevCommit createCommit(int numParents, int commitTime) {
         String parents = "";
         for (; numParents > 0; numParents--) {
             parents += String.format("parent %040x\n", new Random().nextLong());
@@ -708,8 +1259,8 @@ public class JGitRepositoryTest {
             "committer Sebastian Staudt <koraktor@gmail.com> %d +0100\n\n" +
             "%s",
             new Random().nextLong(),
-            new Date().getTime(),
-            new Date().getTime(),
+            commitTime,
+            commitTime,
             "Commit subject");
         return RevCommit.parse(commitData.getBytes());
     }
@@ -720,6 +1271,11 @@ public class JGitRepositoryTest {
     }
 
     private RevTag createTag(String name, String objectId) throws CorruptObjectException {
+        return createTag(name, objectId, new Date().getTime());
+    }
+
+    private RevTag createTag(String name, String objectId, long tagTime)
+            throws CorruptObjectException {
         String tagData = String.format("object %s\n" +
             "type commit\n" +
             "tag %s\n" +
@@ -727,7 +1283,7 @@ public class JGitRepositoryTest {
             "%s",
             objectId,
             name,
-            new Date().getTime(),
+            tagTime,
             "Tag subject");
         return RevTag.parse(tagData.getBytes());
     }
@@ -12,10 +12,14 @@ import org.junit.Test;
 import java.util.Date;
 import java.util.TimeZone;
 
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.revwalk.RevTag;
+import org.eclipse.jgit.revwalk.RevWalk;
 
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.mock;
@@ -36,6 +40,16 @@ public class JGitTagTest {
         assertThat(tag, is(equalTo(tag2)));
     }
 
+    @Test
+    public void testNewInstanceWithName() throws Exception {
+        RevTag rawTag = new RevWalk((ObjectReader) null).lookupTag(ObjectId.fromString("06cee865ab7f006a58be39f1d46f01dcb1880105"));
+
+        JGitTag tag = new JGitTag(rawTag, "1.0.0");
+
+        assertThat(tag.getName(), is(equalTo("1.0.0")));
+        assertThat(rawTag.getTagName(), is(nullValue()));
+    }
+
     @Test
     public void testLoad() throws Exception {
         RevTag rawTag = RevTag.parse(("object 4b825dc642cb6eb9a060e54bf8d69288fbee4904\n" +
@@ -0,0 +1,192 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.io.File;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.StoredConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.koraktor.mavanagaiata.git.GitCommit;
+import com.github.koraktor.mavanagaiata.git.MailMap;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Sebastian Staudt
+ */
+public class MailMapLoaderTest {
+
+    private GitCommit commit;
+
+    private Git git;
+
+    private File workTree;
+
+    @Before
+    public void setup() throws Exception {
+        MailMapLoader.CACHE.clear();
+
+        workTree = File.createTempFile("mavanagaiata-tests-mailmap", null);
+        workTree.delete();
+        FileUtils.forceDeleteOnExit(workTree);
+
+        git = Git.init().setDirectory(workTree).call();
+
+        commit = mock(GitCommit.class);
+        when(commit.getAuthorName()).thenReturn("Test");
+        when(commit.getAuthorEmailAddress()).thenReturn("old@example.com");
+    }
+
+    @After
+    public void tearDown() {
+        git.close();
+    }
+
+    @Test
+    public void testLoadWithoutMailMap() throws Exception {
+        MailMap mailMap = new MailMapLoader(git.getRepository()).load();
+
+        assertThat(mailMap.exists(), is(false));
+        assertThat(mailMap.getCanonicalAuthorName(commit), is(equalTo("Test")));
+    }
+
+    @Test
+    public void testLoadFromWorkTree() throws Exception {
+        FileUtils.fileWrite(new File(workTree, ".mailmap"), "Worktree <new@example.com> <old@example.com>");
+
+        MailMap mailMap = new MailMapLoader(git.getRepository()).load();
+
+        assertThat(mailMap.exists(), is(true));
+        assertThat(mailMap.getCanonicalAuthorName(commit), is(equalTo("Worktree")));
+        assertThat(mailMap.getCanonicalAuthorEmailAddress(commit), is(equalTo("new@example.com")));
+    }
+
+    @Test
+    public void testLoadFromConfiguredBlob() throws Exception {
+        FileUtils.fileWrite(new File(workTree, ".mailmap"), "Worktree <new@example.com> <old@example.com>");
+
+        ObjectId blobId;
+        try (ObjectInserter inserter = git.getRepository().newObjectInserter()) {
+            blobId = inserter.insert(Constants.OBJ_BLOB,
+                Constants.encode("Blob <old@example.com>"));
+            inserter.flush();
+        }
+        StoredConfig config = git.getRepository().getConfig();
+        config.setString("mailmap", null, "blob", blobId.name());
+
+        MailMap mailMap = new MailMapLoader(git.getRepository()).load();
+
+        assertThat(mailMap.getCanonicalAuthorName(commit), is(equalTo("Blob")));
+        assertThat(mailMap.getCanonicalAuthorEmailAddress(commit), is(equalTo("new@example.com")));
+    }
+
+    @Test
+    public void testLoadFromConfiguredNonBlob() throws Exception {
+        FileUtils.fileWrite(new File(workTree, ".mailmap"), "Worktree <new@example.com> <old@example.com>");
+        git.add().addFilepattern(".mailmap").call();
+        git.commit().setMessage("Add mail map").call();
+
+        StoredConfig config = git.getRepository().getConfig();
+        config.setString("mailmap", null, "blob", "HEAD^{tree}");
+
+        MailMap mailMap = new MailMapLoader(git.getRepository()).load();
+
+        assertThat(mailMap.getCanonicalAuthorName(commit), is(equalTo("Worktree")));
+
+        MailMapLoader.CACHE.clear();
+        config.setString("mailmap", null, "blob", String.format("%040x", 1));
+
+        mailMap = new MailMapLoader(git.getRepository()).load();
+
+        assertThat(mailMap.getCanonicalAuthorName(commit), is(equalTo("Worktree")));
+    }
+
+    @Test
+    public void testLoadFromConfiguredFile() throws Exception {
+        FileUtils.fileWrite(new File(workTree, ".mailmap"), "Worktree <new@example.com> <old@example.com>");
+        FileUtils.fileWrite(new File(workTree, "authors.txt"), "File <old@example.com>");
+        git.getRepository().getConfig().setString("mailmap", null, "file", "authors.txt");
+
+        MailMap mailMap = new MailMapLoader(git.getRepository()).load();
+
+        assertThat(mailMap.getCanonicalAuthorName(commit), is(equalTo("File")));
+        assertThat(mailMap.getCanonicalAuthorEmailAddress(commit), is(equalTo("new@example.com")));
+    }
+
+    @Test
+    public void testLoadFromBareRepository() throws Exception {
+        FileUtils.fileWrite(new File(workTree, ".mailmap"), "Committed <new@example.com> <old@example.com>");
+        git.add().addFilepattern(".mailmap").call();
+        git.commit().setMessage("Add mail map").call();
+
+        File bareDir = File.createTempFile("mavanagaiata-tests-mailmap-bare", null);
+        bareDir.delete();
+        FileUtils.forceDeleteOnExit(bareDir);
+
+        try (Git bareGit = Git.cloneRepository().setBare(true)
+                .setURI(workTree.toURI().toString())
+                .setDirectory(bareDir).call()) {
+            MailMap mailMap = new MailMapLoader(bareGit.getRepository()).load();
+
+            assertThat(mailMap.exists(), is(true));
+            assertThat(mailMap.getCanonicalAuthorName(commit), is(equalTo("Committed")));
+        }
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        File mailMapFile = new File(workTree, ".mailmap");
+        FileUtils.fileWrite(mailMapFile, "Worktree <new@example.com> <old@example.com>");
+
+        MailMap mailMap = new MailMapLoader(git.getRepository()).load();
+
+        assertThat(new MailMapLoader(git.getRepository()).load(), is(sameInstance(mailMap)));
+
+        FileUtils.fileWrite(mailMapFile, "Changed Worktree <new@example.com> <old@example.com>");
+        mailMapFile.setLastModified(mailMapFile.lastModified() + 2000);
+
+        MailMap changedMailMap = new MailMapLoader(git.getRepository()).load();
+
+        assertThat(changedMailMap, is(not(sameInstance(mailMap))));
+        assertThat(changedMailMap.getCanonicalAuthorName(commit), is(equalTo("Changed Worktree")));
+    }
+
+    @Test
+    public void testGetMailMap() throws Exception {
+        FileUtils.fileWrite(new File(workTree, ".mailmap"), "Worktree <new@example.com> <old@example.com>");
+
+        JGitRepository repository = new JGitRepository(workTree, null);
+        JGitRepository otherRepository = new JGitRepository(workTree, null);
+        try {
+            MailMap mailMap = repository.getMailMap();
+
+            assertThat(mailMap.getCanonicalAuthorName(commit), is(equalTo("Worktree")));
+            assertThat(repository.getMailMap(), is(sameInstance(mailMap)));
+            assertThat(otherRepository.getMailMap(), is(sameInstance(mailMap)));
+        } finally {
+            repository.close();
+            otherRepository.close();
+        }
+    }
+
+}
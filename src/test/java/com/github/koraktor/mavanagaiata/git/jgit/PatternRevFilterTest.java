@@ -0,0 +1,106 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.git.jgit;
+
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class PatternRevFilterTest {
+
+    private static RevCommit createCommit(String author, String message) {
+        String commitData = String.format("tree %040x\n" +
+            "author %s 1500000000 +0100\n" +
+            "committer Sebastian Staudt <koraktor@gmail.com> 1500000000 +0100\n\n" +
+            "%s",
+            0, author, message);
+
+        return RevCommit.parse(commitData.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testAuthor() throws Exception {
+        RevFilter filter = PatternRevFilter.author("koraktor@GMAIL");
+        RevCommit commit = createCommit("Sebastian Staudt <koraktor@gmail.com>", "Subject");
+
+        assertThat(filter.include(null, commit), is(true));
+        assertThat(filter.include(null, createCommit("John Doe <john.doe@example.com>", "koraktor@gmail.com")), is(false));
+        assertThat(PatternRevFilter.author("^Sebastian").include(null, commit), is(true));
+        assertThat(PatternRevFilter.author("1500000000").include(null, commit), is(false));
+    }
+
+    @Test
+    public void testClone() {
+        RevFilter filter = PatternRevFilter.message("subject");
+        RevFilter clone = filter.clone();
+
+        assertThat(clone, is(instanceOf(PatternRevFilter.class)));
+        assertThat(clone, is(not(sameInstance(filter))));
+        assertThat(clone.toString(), is(filter.toString()));
+        assertThat(filter.requiresCommitBody(), is(true));
+    }
+
+    @Test
+    public void testMessage() throws Exception {
+        RevCommit commit = createCommit("Sebastian Staudt <koraktor@gmail.com>", "Subject\n\n[ci skip]\n");
+
+        assertThat(PatternRevFilter.message("\\[ci skip\\]").include(null, commit), is(true));
+        assertThat(PatternRevFilter.message("^\\[ci skip\\]$").include(null, commit), is(true));
+        assertThat(PatternRevFilter.message("^Subject$").include(null, commit), is(true));
+        assertThat(PatternRevFilter.message("subject").include(null, commit), is(false));
+        assertThat(PatternRevFilter.message("koraktor").include(null, commit), is(false));
+    }
+
+    @Test
+    public void testMessageNonAscii() throws Exception {
+        RevCommit commit = createCommit("Sebastian Staudt <koraktor@gmail.com>", "Änderungen für 1.0");
+
+        assertThat(PatternRevFilter.message("Änderungen f.r").include(null, commit), is(true));
+        assertThat(PatternRevFilter.message("Änderungen für").include(null, commit), is(true));
+        assertThat(PatternRevFilter.message("^.nderungen$").include(null, commit), is(false));
+    }
+
+    @Test
+    public void testMessageNonAsciiCharacterClass() throws Exception {
+        RevFilter filter = PatternRevFilter.message("[ï]");
+
+        assertThat(filter.include(null, createCommit("Sebastian Staudt <koraktor@gmail.com>", "café fix")), is(false));
+        assertThat(filter.include(null, createCommit("Sebastian Staudt <koraktor@gmail.com>", "naïve change")), is(true));
+        assertThat(filter.include(null, createCommit("Sebastian Staudt <koraktor@gmail.com>", "ÉTÉ release")), is(false));
+    }
+
+    @Test
+    public void testMessageEncoding() throws Exception {
+        String commitData = String.format("tree %040x\n" +
+            "author Sebastian Staudt <koraktor@gmail.com> 1500000000 +0100\n" +
+            "committer Sebastian Staudt <koraktor@gmail.com> 1500000000 +0100\n" +
+            "encoding ISO-8859-1\n\n" +
+            "Änderungen für 1.0", 0);
+        RevCommit commit = RevCommit.parse(commitData.getBytes(StandardCharsets.ISO_8859_1));
+
+        assertThat(PatternRevFilter.message("für").include(null, commit), is(true));
+    }
+
+    @Test
+    public void testAuthorNonAscii() throws Exception {
+        RevCommit commit = createCommit("Jürgen Müller <juergen@example.com>", "Subject");
+
+        assertThat(PatternRevFilter.author("^J.rgen").include(null, commit), is(true));
+        assertThat(PatternRevFilter.author("MÜLLER").include(null, commit), is(true));
+    }
+
+}
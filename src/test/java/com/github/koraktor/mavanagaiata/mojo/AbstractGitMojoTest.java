@@ -2,22 +2,27 @@
  * This code is free software; you can redistribute it and/or modify it under
  * the terms of the new BSD License.
  *
- * Copyright (c) 2011-2016, Sebastian Staudt
+ * Copyright (c) 2011-2017, Sebastian Staudt
  */
 
 package com.github.koraktor.mavanagaiata.mojo;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Properties;
 
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import com.github.koraktor.mavanagaiata.git.DescribeOptions;
 import com.github.koraktor.mavanagaiata.git.GitRepository;
 import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
+import com.github.koraktor.mavanagaiata.git.GitTagDescription;
 import org.codehaus.plexus.util.FileUtils;
 import org.mockito.InOrder;
 
@@ -110,6 +115,47 @@ public class AbstractGitMojoTest extends MojoAbstractTest<AbstractGitMojo> {
         inOrder.verify(mojo).run(repository);
     }
 
+    @Test
+    public void testExecuteClosesRepository() throws Exception {
+        doReturn(repository).when(mojo).initRepository();
+
+        this.mojo.execute();
+
+        verify(repository).close();
+    }
+
+    @Test
+    public void testExecuteSavesResultCache() throws Exception {
+        File cacheDirectory = File.createTempFile("mavanagaiata-tests-cache", null);
+        cacheDirectory.delete();
+        FileUtils.forceDeleteOnExit(cacheDirectory);
+
+        mojo = spy(new AbstractGitMojo() {
+            public void run(GitRepository repository)
+                    throws MavanagaiataMojoException {
+                try {
+                    getBranch(repository);
+                } catch (GitRepositoryException e) {
+                    throw MavanagaiataMojoException.create("", e);
+                }
+            }
+        });
+        mojo.cacheDirectory = cacheDirectory;
+        mojo.dirtyFlag = "-dirty";
+        doReturn(repository).when(mojo).initRepository();
+        when(repository.getStateKey()).thenReturn("deadbeef");
+        when(repository.getBranch()).thenReturn("master");
+
+        mojo.execute();
+
+        assertThat(mojo.resultCache, is(nullValue()));
+        assertThat(ResultCache.load(cacheDirectory, "deadbeef").get("branch"), is(equalTo("master")));
+
+        mojo.execute();
+
+        verify(repository).getBranch();
+    }
+
     @Test
     public void testExecuteFail() throws Exception {
         MavanagaiataMojoException exception = MavanagaiataMojoException.create("", null);
@@ -162,6 +208,52 @@ public class AbstractGitMojoTest extends MojoAbstractTest<AbstractGitMojo> {
         verify(mojo, never()).run(repository);
     }
 
+    @Test
+    public void testGetCachedValues() throws Exception {
+        GitTagDescription description = mock(GitTagDescription.class);
+        when(description.getNextTagName()).thenReturn("2.0.0");
+        when(description.toString()).thenReturn("2.0.0-2-gdeadbeef");
+        when(repository.describe(DescribeOptions.DEFAULT)).thenReturn(description);
+        when(repository.getAbbreviatedCommitId()).thenReturn("deadbeef");
+        when(repository.getBranch()).thenReturn("master");
+        when(repository.getHeadCommit().getId()).thenReturn("deadbeefdeadbeefdeadbeefdeadbeefdeadbeef");
+
+        for (int i = 0; i < 2; i ++) {
+            assertThat(mojo.getAbbreviatedCommitId(repository), is(equalTo("deadbeef")));
+            assertThat(mojo.getBranch(repository), is(equalTo("master")));
+            assertThat(mojo.getCommitId(repository), is(equalTo("deadbeefdeadbeefdeadbeefdeadbeefdeadbeef")));
+            assertThat(mojo.getDescribe(repository), is(equalTo("2.0.0-2-gdeadbeef")));
+            assertThat(mojo.getTagName(repository), is(equalTo("2.0.0")));
+        }
+
+        verify(repository).describe(DescribeOptions.DEFAULT);
+        verify(repository).getAbbreviatedCommitId();
+        verify(repository).getBranch();
+        verify(repository, never()).getStateKey();
+        assertThat(mojo.resultCache.file, is(nullValue()));
+    }
+
+    @Test
+    public void testGetDescribeWithOptions() throws Exception {
+        mojo.describeCandidates = 5;
+        mojo.describeExclude = new String[] { "*-rc*" };
+        mojo.describeFirstParent = true;
+        mojo.describeMatch = new String[] { "v*" };
+
+        DescribeOptions options = new DescribeOptions(5, Arrays.asList("v*"), Arrays.asList("*-rc*"), true);
+        assertThat(mojo.getDescribeOptions(), is(equalTo(options)));
+
+        GitTagDescription description = mock(GitTagDescription.class);
+        when(description.getNextTagName()).thenReturn("v2.0.0");
+        when(description.toString()).thenReturn("v2.0.0-2-gdeadbeef");
+        when(repository.describe(options)).thenReturn(description);
+
+        assertThat(mojo.getDescribe(repository), is(equalTo("v2.0.0-2-gdeadbeef")));
+        assertThat(mojo.getTagName(repository), is(equalTo("v2.0.0")));
+        assertThat(mojo.resultCache.get("tag.describe"), is(nullValue()));
+        verify(repository).describe(options);
+    }
+
     @Test
     public void testInit() throws Exception {
         doReturn(repository).when(this.mojo).initRepository();
@@ -216,6 +308,68 @@ public class AbstractGitMojoTest extends MojoAbstractTest<AbstractGitMojo> {
         assertThat(repository.isChecked(), is(true));
     }
 
+    @Test
+    public void testGetModulePath() throws Exception {
+        File workTree = File.createTempFile("mavanagaiata-tests-workTree", null);
+        workTree.delete();
+        File moduleDir = new File(workTree, "modules" + File.separator + "core");
+        moduleDir.mkdirs();
+        FileUtils.forceDeleteOnExit(workTree);
+
+        when(repository.getWorkTree()).thenReturn(workTree);
+
+        when(mojo.project.getBasedir()).thenReturn(workTree);
+        assertThat(mojo.getModulePath(repository), is(nullValue()));
+
+        when(mojo.project.getBasedir()).thenReturn(moduleDir);
+        assertThat(mojo.getModulePath(repository), is(equalTo("modules/core")));
+
+        when(mojo.project.getBasedir()).thenReturn(workTree.getParentFile());
+        try {
+            mojo.getModulePath(repository);
+            fail("No exception thrown.");
+        } catch (GitRepositoryException e) {
+            assertThat(e.getMessage(), is(equalTo(String.format(
+                    "The project directory %s is not inside the worktree %s",
+                    workTree.getParentFile().getCanonicalPath(),
+                    workTree.getCanonicalPath()))));
+        }
+    }
+
+    @Test
+    public void testGetModulePathBare() throws Exception {
+        when(repository.getWorkTree()).thenReturn(null);
+        when(mojo.project.getBasedir()).thenReturn(new File("modules/core"));
+
+        assertThat(mojo.getModulePath(repository), is(nullValue()));
+    }
+
+    @Test
+    public void testIsDirty() throws Exception {
+        when(repository.isDirty(false)).thenReturn(true);
+        doReturn("modules/core").when(mojo).getModulePath(repository);
+
+        assertThat(mojo.isDirty(repository), is(true));
+
+        mojo.scope = AbstractGitMojo.SCOPE_MODULE;
+        assertThat(mojo.isDirty(repository), is(false));
+        verify(repository).isDirty(false, "modules/core");
+    }
+
+    @Test
+    public void testIsRepositoryShared() {
+        assertThat(mojo.isRepositoryShared(), is(false));
+
+        mojo.session = mock(MavenSession.class);
+        assertThat(mojo.isRepositoryShared(), is(false));
+
+        when(mojo.session.getRequest()).thenReturn(mock(MavenExecutionRequest.class));
+        assertThat(mojo.isRepositoryShared(), is(true));
+
+        when(mojo.session.isParallel()).thenReturn(true);
+        assertThat(mojo.isRepositoryShared(), is(true));
+    }
+
     @Test
     public void testSkip() throws Exception {
         mojo.skip = true;
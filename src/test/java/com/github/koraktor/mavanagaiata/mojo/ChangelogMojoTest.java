@@ -7,15 +7,25 @@
 
 package com.github.koraktor.mavanagaiata.mojo;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.regex.Pattern;
 
+import org.codehaus.plexus.util.FileUtils;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.github.koraktor.mavanagaiata.git.CommitFilter;
+import com.github.koraktor.mavanagaiata.git.CommitWalkAction;
 import com.github.koraktor.mavanagaiata.git.GitCommit;
 import com.github.koraktor.mavanagaiata.git.GitTag;
 import org.mockito.invocation.InvocationOnMock;
@@ -23,16 +33,28 @@ import org.mockito.stubbing.Answer;
 
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollectionOf;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ChangelogMojoTest extends GitOutputMojoAbstractTest<ChangelogMojo> {
 
+    private int completeWalks;
+
     private List<GitCommit> mockCommits;
 
+    private File outputFile;
+
+    private HashMap<String, GitTag> tags;
+
     private static GitCommit mockCommit(String id, String message) {
         GitCommit commit = mock(GitCommit.class);
         when(commit.getId()).thenReturn(id);
@@ -41,6 +63,16 @@ public class ChangelogMojoTest extends GitOutputMojoAbstractTest<ChangelogMojo>
         return commit;
     }
 
+    /**
+     * Simulates the message filter applied by the repository
+     */
+    private static boolean isSelected(CommitWalkAction action, GitCommit commit) {
+        String excludedPattern = action.getCommitFilter().getExcludedMessagePattern();
+
+        return excludedPattern == null ||
+            !Pattern.compile(excludedPattern, Pattern.MULTILINE).matcher(commit.getMessage()).find();
+    }
+
     @Before
     @Override
     public void setup() throws Exception {
@@ -66,7 +98,11 @@ public class ChangelogMojoTest extends GitOutputMojoAbstractTest<ChangelogMojo>
         this.mockCommits.add(mockCommit("b3b28176c1a05b76fb9231abe2f2cbbf15a86118", "2nd commit"));
         this.mockCommits.add(mockCommit("e82314841e1d990eeb33878cae55dadc8a11bf68", "1st commit"));
 
-        HashMap<String, GitTag> tags = new HashMap<>();
+        for (int i = 0; i < mockCommits.size(); i ++) {
+            when(mockCommits.get(i).getCommitterDate()).thenReturn(new Date(1500000000000L - i * 60000L));
+        }
+
+        tags = new HashMap<>();
         GitTag tag1 = mock(GitTag.class);
         when(tag1.getDate()).thenReturn(new Date(1162580880000L));
         when(tag1.getName()).thenReturn("1.0.0");
@@ -85,11 +121,42 @@ public class ChangelogMojoTest extends GitOutputMojoAbstractTest<ChangelogMojo>
                 ChangelogMojo.ChangelogWalkAction walkAction = ((ChangelogMojo.ChangelogWalkAction) invocation.getArguments()[0]);
                 walkAction.setRepository(repository);
                 for (GitCommit commit : ChangelogMojoTest.this.mockCommits) {
-                    walkAction.execute(commit);
+                    if (isSelected(walkAction, commit)) {
+                        walkAction.execute(commit);
+                    }
                 }
+                completeWalks ++;
                 return walkAction;
             }
         }).when(this.repository).walkCommits(any(ChangelogMojo.ChangelogWalkAction.class));
+        doAnswer(new Answer<ChangelogMojo.ChangelogWalkAction>() {
+            public ChangelogMojo.ChangelogWalkAction answer(InvocationOnMock invocation) throws Throwable {
+                ChangelogMojo.ChangelogWalkAction walkAction = ((ChangelogMojo.ChangelogWalkAction) invocation.getArguments()[0]);
+                String excludedCommitId = (String) invocation.getArguments()[1];
+                walkAction.setRepository(repository);
+                for (GitCommit commit : ChangelogMojoTest.this.mockCommits) {
+                    if (commit.getId().equals(excludedCommitId)) {
+                        break;
+                    }
+                    if (isSelected(walkAction, commit)) {
+                        walkAction.execute(commit);
+                    }
+                }
+                return walkAction;
+            }
+        }).when(this.repository).walkCommits(any(ChangelogMojo.ChangelogWalkAction.class), anyString());
+        when(this.repository.getHeadCommit()).thenAnswer(new Answer<GitCommit>() {
+            public GitCommit answer(InvocationOnMock invocation) {
+                return ChangelogMojoTest.this.mockCommits.get(0);
+            }
+        });
+        when(this.repository.isAncestor(anyString())).thenReturn(true);
+
+        outputFile = File.createTempFile("mavanagaiata-tests-changelog", null);
+        outputFile.delete();
+        outputFile.mkdir();
+        FileUtils.forceDeleteOnExit(outputFile);
+        outputFile = new File(outputFile, "CHANGELOG.md");
     }
 
     @Test
@@ -207,6 +274,47 @@ public class ChangelogMojoTest extends GitOutputMojoAbstractTest<ChangelogMojo>
         this.assertOutputLine(" * 1st commit");
         this.assertOutputLine("Footer");
         this.assertOutputLine(null);
+
+        verify(repository, times(1)).getTags();
+        verify(repository).loadTags(anyCollectionOf(GitTag.class));
+    }
+
+    @Test
+    public void testResultWithoutPreloadedTags() throws Exception {
+        mojo.preloadTags = false;
+        mojo.initConfiguration();
+        mojo.generateOutput(repository, printStream);
+
+        this.assertOutputLine("Changelog");
+        this.assertOutputLine("=========");
+        this.assertOutputLine("");
+        this.assertOutputLine("Commits on branch \"master\"");
+        this.assertOutputLine("");
+        this.assertOutputLine(" * 8th commit");
+        this.assertOutputLine(" * 7th commit");
+        this.assertOutputLine("");
+        this.assertOutputLine("Version 2.0.0 – 05/29/2010 01:18 PM +0200");
+
+        verify(repository, never()).loadTags(anyCollectionOf(GitTag.class));
+    }
+
+    @Test
+    public void testCommitFilter() {
+        mojo.commitsAuthor = "koraktor";
+        mojo.commitsSince = new Date(1500000000000L);
+        mojo.skipCommitsMatching = "\\[ci skip\\]";
+        mojo.skipMerges = true;
+        mojo.initConfiguration();
+
+        CommitFilter filter = mojo.commitFilter;
+        assertThat(filter.getAuthorPattern(), is(equalTo("koraktor")));
+        assertThat(filter.getExcludedMessagePattern(), is(equalTo("\\[ci skip\\]")));
+        assertThat(mojo.skipCommitsPattern.pattern(), is(equalTo("\\[ci skip\\]")));
+        assertThat(filter.getMaxCount(), is(-1));
+        assertThat(filter.getMessagePattern(), is(nullValue()));
+        assertThat(filter.getSince(), is(equalTo(new Date(1500000000000L))));
+        assertThat(filter.isNoMerges(), is(true));
+        assertThat(mojo.new ChangelogWalkAction(printStream).getCommitFilter(), is(filter));
     }
 
     @Test
@@ -314,4 +422,189 @@ public class ChangelogMojoTest extends GitOutputMojoAbstractTest<ChangelogMojo>
         this.assertOutputLine(null);
     }
 
+    @Test
+    public void testIncrementalUpdate() throws Exception {
+        mojo.encoding = "UTF-8";
+        mojo.incremental = true;
+        mojo.outputFile = outputFile;
+
+        assertIncrementalUpdates();
+
+        mojo.skipTagged = true;
+        assertIncrementalUpdates();
+
+        mojo.skipCommitsMatching = "\\[ci skip\\]";
+        assertIncrementalUpdates();
+
+        mojo.createGitHubLinks = true;
+        mojo.gitHubProject = "mavanagaiata";
+        mojo.gitHubUser = "koraktor";
+        mojo.skipTagged = false;
+        assertIncrementalUpdates();
+
+        mojo.tagFormat = "Tag %s on %s";
+        assertIncrementalUpdates();
+    }
+
+    @Test
+    public void testIncrementalConfigurationChanged() throws Exception {
+        mojo.encoding = "UTF-8";
+        mojo.incremental = true;
+        mojo.outputFile = outputFile;
+        mojo.initConfiguration();
+        generateIncrementalChangelog();
+
+        mojo.commitPrefix = "- ";
+        String changelog = generateIncrementalChangelog();
+
+        assertThat(completeWalks, is(2));
+        assertThat(changelog, is(equalTo(generateCompleteChangelog())));
+    }
+
+    @Test
+    public void testIncrementalOlderCommitsMerged() throws Exception {
+        mojo.encoding = "UTF-8";
+        mojo.incremental = true;
+        mojo.outputFile = outputFile;
+        mojo.initConfiguration();
+
+        List<GitCommit> allCommits = mockCommits;
+        mockCommits = allCommits.subList(1, allCommits.size());
+        generateIncrementalChangelog();
+
+        when(allCommits.get(0).getCommitterDate()).thenReturn(new Date(0));
+        mockCommits = allCommits;
+        generateIncrementalChangelog();
+
+        assertThat(completeWalks, is(2));
+    }
+
+    @Test
+    public void testIncrementalOutputModified() throws Exception {
+        mojo.encoding = "UTF-8";
+        mojo.incremental = true;
+        mojo.outputFile = outputFile;
+        mojo.initConfiguration();
+        generateIncrementalChangelog();
+
+        try (OutputStream outputStream = new FileOutputStream(outputFile)) {
+            outputStream.write("Changelog\n=========\n\nModified".getBytes("UTF-8"));
+        }
+        String changelog = generateIncrementalChangelog();
+
+        assertThat(completeWalks, is(2));
+        assertThat(changelog, is(equalTo(generateCompleteChangelog())));
+    }
+
+    @Test
+    public void testIncrementalRewrittenHistory() throws Exception {
+        mojo.encoding = "UTF-8";
+        mojo.incremental = true;
+        mojo.outputFile = outputFile;
+        mojo.initConfiguration();
+        generateIncrementalChangelog();
+
+        when(repository.isAncestor(anyString())).thenReturn(false);
+        generateIncrementalChangelog();
+
+        assertThat(completeWalks, is(2));
+    }
+
+    @Test
+    public void testIncrementalTagsChanged() throws Exception {
+        mojo.encoding = "UTF-8";
+        mojo.incremental = true;
+        mojo.outputFile = outputFile;
+        mojo.initConfiguration();
+        generateIncrementalChangelog();
+
+        tags.remove("5979a86e9bb091fc792529bee68ed222000ebc7e");
+        String changelog = generateIncrementalChangelog();
+
+        assertThat(completeWalks, is(2));
+        assertThat(changelog, is(equalTo(generateCompleteChangelog())));
+    }
+
+    @Test
+    public void testIncrementalFilterChanged() throws Exception {
+        mojo.encoding = "UTF-8";
+        mojo.incremental = true;
+        mojo.outputFile = outputFile;
+        mojo.initConfiguration();
+        generateIncrementalChangelog();
+
+        mojo.skipMerges = true;
+        mojo.initConfiguration();
+        generateIncrementalChangelog();
+
+        assertThat(completeWalks, is(2));
+    }
+
+    @Test
+    public void testIncrementalMaxCommits() throws Exception {
+        mojo.encoding = "UTF-8";
+        mojo.incremental = true;
+        mojo.maxCommits = 5;
+        mojo.outputFile = outputFile;
+        mojo.initConfiguration();
+        String changelog = generateIncrementalChangelog();
+
+        assertThat(generateIncrementalChangelog(), is(equalTo(changelog)));
+        assertThat(completeWalks, is(2));
+    }
+
+    @Test
+    public void testIncrementalUnchanged() throws Exception {
+        mojo.encoding = "UTF-8";
+        mojo.incremental = true;
+        mojo.outputFile = outputFile;
+        mojo.initConfiguration();
+        String changelog = generateIncrementalChangelog();
+
+        assertThat(generateIncrementalChangelog(), is(equalTo(changelog)));
+        assertThat(completeWalks, is(1));
+    }
+
+    /**
+     * Updates changelogs generated from all possible previous states and
+     * compares them with the complete changelog
+     */
+    private void assertIncrementalUpdates() throws Exception {
+        mojo.initConfiguration();
+
+        List<GitCommit> allCommits = mockCommits;
+        for (int newCommits = 0; newCommits < allCommits.size(); newCommits ++) {
+            outputFile.delete();
+            mojo.getStateFile().delete();
+            completeWalks = 0;
+
+            mockCommits = allCommits.subList(newCommits, allCommits.size());
+            generateIncrementalChangelog();
+
+            mockCommits = allCommits;
+            String changelog = generateIncrementalChangelog();
+
+            assertThat(completeWalks, is(1));
+            assertThat(changelog, is(equalTo(generateCompleteChangelog())));
+        }
+    }
+
+    private String generateCompleteChangelog() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        mojo.incremental = false;
+        mojo.generateOutput(repository, new PrintStream(outputStream, false, "UTF-8"));
+        mojo.incremental = true;
+
+        return outputStream.toString("UTF-8");
+    }
+
+    private String generateIncrementalChangelog() throws Exception {
+        mojo.loadPreviousChangelog();
+        try (PrintStream printStream = new PrintStream(outputFile, "UTF-8")) {
+            mojo.generateOutput(repository, printStream);
+        }
+
+        return new String(Files.readAllBytes(outputFile.toPath()), "UTF-8");
+    }
+
 }
@@ -0,0 +1,84 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.mojo;
+
+import java.io.File;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ChangelogStateTest {
+
+    private File file;
+
+    @Before
+    public void setup() throws Exception {
+        file = File.createTempFile("mavanagaiata-tests-changelog", ".state");
+        file.delete();
+        FileUtils.forceDeleteOnExit(file);
+    }
+
+    @Test
+    public void testHash() {
+        assertThat(ChangelogState.hash("a", "b"), is(equalTo(ChangelogState.hash("a", "b"))));
+        assertThat(ChangelogState.hash("a", "b"), is(not(equalTo(ChangelogState.hash("ab", "")))));
+        assertThat(ChangelogState.hash("a", null), is(not(equalTo(ChangelogState.hash("a")))));
+        assertThat(ChangelogState.hash(new byte[] { 'a', 'b', 'c' }, 0, 3),
+            is(equalTo("a9993e364706816aba3e25717850c26c9cd0d89d")));
+    }
+
+    @Test
+    public void testLoadInvalid() throws Exception {
+        FileUtils.fileWrite(file, "head=deadbeef\nbody.length=abc\n");
+
+        assertThat(ChangelogState.load(file), is(nullValue()));
+    }
+
+    @Test
+    public void testLoadMissing() throws Exception {
+        assertThat(ChangelogState.load(file), is(nullValue()));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        ChangelogState state = new ChangelogState();
+        state.bodyHash     = "0123456789abcdef0123456789abcdef01234567";
+        state.bodyLength   = 123;
+        state.commitsEnd   = 100;
+        state.commitsStart = 20;
+        state.config       = "fedcba9876543210fedcba9876543210fedcba98";
+        state.head         = "598a75596868dec45f8e6a808a07d533bc0184f0";
+        state.headTime     = 1500000000000L;
+        state.restStart    = 110;
+        state.topTag       = "2.0.0";
+        state.tags.put("06cee865ab7f006a58be39f1d46f01dcb1880105", "2.0.0");
+        state.save(file);
+
+        ChangelogState loadedState = ChangelogState.load(file);
+        assertThat(loadedState.bodyHash, is(equalTo(state.bodyHash)));
+        assertThat(loadedState.bodyLength, is(123));
+        assertThat(loadedState.commitsEnd, is(100));
+        assertThat(loadedState.commitsStart, is(20));
+        assertThat(loadedState.config, is(equalTo(state.config)));
+        assertThat(loadedState.head, is(equalTo(state.head)));
+        assertThat(loadedState.headTagged, is(false));
+        assertThat(loadedState.headTime, is(1500000000000L));
+        assertThat(loadedState.restStart, is(110));
+        assertThat(loadedState.topTag, is(equalTo("2.0.0")));
+        assertThat(loadedState.tags, is(equalTo(state.tags)));
+    }
+
+}
@@ -11,6 +11,7 @@ import org.apache.maven.plugin.logging.Log;
 
 import org.junit.Test;
 
+import com.github.koraktor.mavanagaiata.git.DescribeOptions;
 import com.github.koraktor.mavanagaiata.git.GitRepository;
 import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
 
@@ -116,7 +117,7 @@ public class CheckMojoTest extends MojoAbstractTest<CheckMojo> {
     public void testCheckTagFailed() throws Exception {
         mojo.checkTag = true;
 
-        when(repository.describe().isTagged()).thenReturn(false);
+        when(repository.describe(DescribeOptions.DEFAULT).isTagged()).thenReturn(false);
 
         try {
             mojo.run(repository);
@@ -130,7 +131,7 @@ public class CheckMojoTest extends MojoAbstractTest<CheckMojo> {
     public void testCheckTagSuccess() throws Exception {
         mojo.checkTag = true;
 
-        when(repository.describe().isTagged()).thenReturn(true);
+        when(repository.describe(DescribeOptions.DEFAULT).isTagged()).thenReturn(true);
 
         mojo.run(repository);
     }
@@ -141,7 +142,7 @@ public class CheckMojoTest extends MojoAbstractTest<CheckMojo> {
         mojo.setLog(log);
         mojo.checkTag = true;
 
-        when(repository.describe().isTagged()).thenReturn(true);
+        when(repository.describe(DescribeOptions.DEFAULT).isTagged()).thenReturn(true);
         when(repository.isDirty(false)).thenReturn(true);
 
         mojo.run(repository);
@@ -153,7 +154,7 @@ public class CheckMojoTest extends MojoAbstractTest<CheckMojo> {
     @Test
     public void testGenericFailure() throws Exception {
         Throwable exception = new GitRepositoryException("");
-        when(repository.describe()).thenThrow(exception);
+        when(repository.describe(DescribeOptions.DEFAULT)).thenThrow(exception);
         mojo.checkTag = true;
 
         try {
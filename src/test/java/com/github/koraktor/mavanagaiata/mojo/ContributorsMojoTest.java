@@ -7,25 +7,53 @@
 
 package com.github.koraktor.mavanagaiata.mojo;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+
+import org.codehaus.plexus.util.FileUtils;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import com.github.koraktor.mavanagaiata.git.GitCommit;
+import com.github.koraktor.mavanagaiata.git.MailMap;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ContributorsMojoTest extends GitOutputMojoAbstractTest<ContributorsMojo> {
 
+    private List<GitCommit> commits;
+
+    private int completeWalks;
+
+    private static GitCommit mockCommit(String id, String authorName, String authorEmail, long time) {
+        GitCommit commit = mock(GitCommit.class);
+        when(commit.getId()).thenReturn(id);
+        when(commit.getAuthorEmailAddress()).thenReturn(authorEmail);
+        when(commit.getAuthorName()).thenReturn(authorName);
+        when(commit.getAuthorDate()).thenReturn(new Date(time));
+        when(commit.getCommitterDate()).thenReturn(new Date(time));
+        return commit;
+    }
+
     @Before
     @Override
     public void setup() throws Exception {
@@ -157,4 +185,291 @@ public class ContributorsMojoTest extends GitOutputMojoAbstractTest<Contributors
         this.assertOutputLine(null);
     }
 
+    @Test
+    public void testMaxContributors() throws Exception {
+        this.mojo.maxContributors = 2;
+        this.mojo.sort = "count";
+        this.mojo.initConfiguration();
+        mojo.generateOutput(repository, printStream);
+
+        this.assertOutputLine("Contributors");
+        this.assertOutputLine("============");
+        this.assertOutputLine("");
+        this.assertOutputLine(" * Sebastian Staudt (3)");
+        this.assertOutputLine(" * Joe Average (2)");
+        this.assertOutputLine("Footer");
+        this.assertOutputLine(null);
+    }
+
+    @Test
+    public void testMaxContributorsSortName() throws Exception {
+        this.mojo.maxContributors = 2;
+        this.mojo.sort = "name";
+        this.mojo.initConfiguration();
+        mojo.generateOutput(repository, printStream);
+
+        this.assertOutputLine("Contributors");
+        this.assertOutputLine("============");
+        this.assertOutputLine("");
+        this.assertOutputLine(" * Joe Average (2)");
+        this.assertOutputLine(" * John Doe (1)");
+        this.assertOutputLine("Footer");
+        this.assertOutputLine(null);
+    }
+
+    @Test
+    public void testSelectContributors() {
+        List<ContributorsMojo.Contributor> contributors = new ArrayList<>();
+        for (int i = 0; i < 100; i ++) {
+            contributors.add(new ContributorsMojo.Contributor("test" + i + "@example.com",
+                "Test " + i, (i * 37) % 100, new Date(i)));
+        }
+
+        this.mojo.initConfiguration();
+
+        this.mojo.maxContributors = -1;
+        assertThat(mojo.selectContributors(contributors).size(), is(100));
+
+        this.mojo.maxContributors = 0;
+        assertThat(mojo.selectContributors(contributors).isEmpty(), is(true));
+
+        this.mojo.maxContributors = 3;
+        List<ContributorsMojo.Contributor> selected = mojo.selectContributors(contributors);
+        assertThat(selected.size(), is(3));
+        assertThat(selected.get(0).count, is(99));
+        assertThat(selected.get(1).count, is(98));
+        assertThat(selected.get(2).count, is(97));
+    }
+
+    @Test
+    public void testSince() throws Exception {
+        Date since = new Date(1500000000000L);
+        this.mojo.commitsSince = since;
+        this.mojo.initConfiguration();
+
+        assertThat(mojo.new ContributorsWalkAction().getCommitFilter().getSince(), is(equalTo(since)));
+    }
+
+    @Test
+    public void testMailMapAliases() throws Exception {
+        MailMap mailMap = spy(new MailMap(Collections.singletonList(
+            "Joe Average <joe.average@example.com> John Doe <john.doe@example.com>")));
+        when(repository.getMailMap()).thenReturn(mailMap);
+
+        this.mojo.showEmail = true;
+        this.mojo.sort = "name";
+        this.mojo.initConfiguration();
+        mojo.generateOutput(repository, printStream);
+
+        this.assertOutputLine("Contributors");
+        this.assertOutputLine("============");
+        this.assertOutputLine("");
+        this.assertOutputLine(" * Joe Average (joe.average@example.com) (3)");
+        this.assertOutputLine(" * Sebastian Staudt (koraktor@gmail.com) (3)");
+        this.assertOutputLine("Footer");
+        this.assertOutputLine(null);
+
+        verify(mailMap, times(3)).getCanonicalAuthorEmailAddress(any(GitCommit.class));
+        verify(mailMap, times(3)).getCanonicalAuthorName(any(GitCommit.class));
+    }
+
+    @Test
+    public void testIncremental() throws Exception {
+        setupIncremental();
+
+        List<GitCommit> allCommits = commits;
+        for (int newCommits = 0; newCommits < allCommits.size(); newCommits ++) {
+            FileUtils.cleanDirectory(mojo.cacheDirectory);
+            completeWalks = 0;
+
+            commits = allCommits.subList(newCommits, allCommits.size());
+            generateContributors();
+
+            commits = allCommits;
+            String contributors = generateContributors();
+
+            assertThat(completeWalks, is(1));
+            assertThat(contributors, is(equalTo(generateUncachedContributors())));
+        }
+    }
+
+    @Test
+    public void testIncrementalMailMapChanged() throws Exception {
+        setupIncremental();
+        MailMap mailMap = mock(MailMap.class);
+        when(mailMap.exists()).thenReturn(true);
+        when(mailMap.getChecksum()).thenReturn("1").thenReturn("2");
+        when(mailMap.getCanonicalAuthorEmailAddress(any(GitCommit.class))).thenReturn("koraktor@gmail.com");
+        when(mailMap.getCanonicalAuthorName(any(GitCommit.class))).thenReturn("Sebastian Staudt");
+        when(repository.getMailMap()).thenReturn(mailMap);
+
+        generateContributors();
+        String contributors = generateContributors();
+
+        assertThat(completeWalks, is(2));
+        assertThat(contributors, is(equalTo(generateUncachedContributors())));
+    }
+
+    @Test
+    public void testIncrementalFilterChanged() throws Exception {
+        setupIncremental();
+
+        generateContributors();
+        mojo.skipMerges = true;
+        mojo.initConfiguration();
+        generateContributors();
+
+        assertThat(completeWalks, is(2));
+    }
+
+    @Test
+    public void testIncrementalFiltersSharingCacheDirectory() throws Exception {
+        setupIncremental();
+
+        generateContributors();
+        mojo.skipMerges = true;
+        mojo.initConfiguration();
+        generateContributors();
+
+        assertThat(mojo.cacheDirectory.list().length, is(2));
+
+        mojo.skipMerges = false;
+        mojo.initConfiguration();
+        generateContributors();
+        mojo.skipMerges = true;
+        mojo.initConfiguration();
+        generateContributors();
+
+        assertThat(completeWalks, is(2));
+    }
+
+    @Test
+    public void testStateFile() {
+        mojo.cacheDirectory = new File("cache");
+        mojo.gitDir = new File("project/.git");
+        when(repository.getHeadRef()).thenReturn("HEAD");
+        when(repository.getWorkTree()).thenReturn(new File("project"));
+
+        File stateFile = mojo.getStateFile(repository, "");
+
+        assertThat(stateFile.getParentFile(), is(equalTo(mojo.cacheDirectory)));
+        assertThat(stateFile.getName().matches("contributors-[0-9a-f]{40}\\.state"), is(true));
+        assertThat(mojo.getStateFile(repository, ""), is(equalTo(stateFile)));
+        assertThat(mojo.getStateFile(repository, "noMerges"), is(not(equalTo(stateFile))));
+
+        when(repository.getHeadRef()).thenReturn("develop");
+        assertThat(mojo.getStateFile(repository, ""), is(not(equalTo(stateFile))));
+
+        when(repository.getHeadRef()).thenReturn("HEAD");
+        when(repository.getWorkTree()).thenReturn(new File("other"));
+        assertThat(mojo.getStateFile(repository, ""), is(not(equalTo(stateFile))));
+    }
+
+    @Test
+    public void testIncrementalMaxCommits() throws Exception {
+        setupIncremental();
+        mojo.maxCommits = 3;
+        mojo.initConfiguration();
+
+        List<GitCommit> allCommits = commits;
+        commits = allCommits.subList(2, allCommits.size());
+        generateContributors();
+
+        commits = allCommits;
+        generateContributors();
+
+        assertThat(completeWalks, is(2));
+    }
+
+    @Test
+    public void testIncrementalRewrittenHistory() throws Exception {
+        setupIncremental();
+
+        List<GitCommit> allCommits = commits;
+        commits = allCommits.subList(2, allCommits.size());
+        generateContributors();
+
+        commits = allCommits;
+        when(repository.isAncestor(anyString())).thenReturn(false);
+        generateContributors();
+
+        assertThat(completeWalks, is(2));
+    }
+
+    @Test
+    public void testIncrementalUnchanged() throws Exception {
+        setupIncremental();
+
+        String contributors = generateContributors();
+
+        assertThat(generateContributors(), is(equalTo(contributors)));
+        assertThat(completeWalks, is(1));
+    }
+
+    private String generateContributors() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        mojo.generateOutput(repository, new PrintStream(outputStream));
+
+        return outputStream.toString().replace(System.lineSeparator(), "\n");
+    }
+
+    private String generateUncachedContributors() throws Exception {
+        File cacheDirectory = mojo.cacheDirectory;
+        mojo.cacheDirectory = null;
+        try {
+            return generateContributors();
+        } finally {
+            mojo.cacheDirectory = cacheDirectory;
+        }
+    }
+
+    private void setupIncremental() throws Exception {
+        commits = new ArrayList<>();
+        commits.add(mockCommit("6", "Sebastian Staudt", "koraktor@gmail.com", 6000));
+        commits.add(mockCommit("5", "Jane Doe", "jane.doe@example.com", 5000));
+        commits.add(mockCommit("4", "Joe Average", "joe.average@example.com", 4000));
+        commits.add(mockCommit("3", "John Doe", "john.doe@example.com", 3000));
+        commits.add(mockCommit("2", "Joe Average", "joe.average@example.com", 2000));
+        commits.add(mockCommit("1", "Sebastian Staudt", "koraktor@gmail.com", 1000));
+
+        doAnswer(new Answer<ContributorsMojo.ContributorsWalkAction>() {
+            public ContributorsMojo.ContributorsWalkAction answer(InvocationOnMock invocation) throws Throwable {
+                ContributorsMojo.ContributorsWalkAction walkAction = ((ContributorsMojo.ContributorsWalkAction) invocation.getArguments()[0]);
+                for (GitCommit commit : commits) {
+                    walkAction.execute(commit);
+                }
+                completeWalks ++;
+                return walkAction;
+            }
+        }).when(this.repository).walkCommits(any(ContributorsMojo.ContributorsWalkAction.class));
+        doAnswer(new Answer<ContributorsMojo.ContributorsWalkAction>() {
+            public ContributorsMojo.ContributorsWalkAction answer(InvocationOnMock invocation) throws Throwable {
+                ContributorsMojo.ContributorsWalkAction walkAction = ((ContributorsMojo.ContributorsWalkAction) invocation.getArguments()[0]);
+                String excludedCommitId = (String) invocation.getArguments()[1];
+                for (GitCommit commit : commits) {
+                    if (commit.getId().equals(excludedCommitId)) {
+                        break;
+                    }
+                    walkAction.execute(commit);
+                }
+                return walkAction;
+            }
+        }).when(this.repository).walkCommits(any(ContributorsMojo.ContributorsWalkAction.class), anyString());
+        when(this.repository.getHeadCommit()).thenAnswer(new Answer<GitCommit>() {
+            public GitCommit answer(InvocationOnMock invocation) {
+                return commits.get(0);
+            }
+        });
+        when(this.repository.isAncestor(anyString())).thenReturn(true);
+
+        mojo.cacheDirectory = File.createTempFile("mavanagaiata-tests-contributors", null);
+        mojo.cacheDirectory.delete();
+        mojo.cacheDirectory.mkdir();
+        FileUtils.forceDeleteOnExit(mojo.cacheDirectory);
+
+        mojo.showEmail = true;
+        mojo.sort = "date";
+        mojo.initConfiguration();
+    }
+
 }
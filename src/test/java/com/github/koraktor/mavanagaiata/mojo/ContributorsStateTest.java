@@ -0,0 +1,101 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.mojo;
+
+import java.io.File;
+import java.util.Date;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.koraktor.mavanagaiata.mojo.ContributorsMojo.Contributor;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ContributorsStateTest {
+
+    private File file;
+
+    @Before
+    public void setup() throws Exception {
+        file = File.createTempFile("mavanagaiata-tests-contributors", ".state");
+        file.delete();
+        FileUtils.forceDeleteOnExit(file);
+    }
+
+    @Test
+    public void testLoadInvalid() throws Exception {
+        FileUtils.fileWrite(file, "invalid");
+
+        assertThat(ContributorsState.load(file), is(nullValue()));
+    }
+
+    @Test
+    public void testLoadMissing() throws Exception {
+        assertThat(ContributorsState.load(file), is(nullValue()));
+    }
+
+    @Test
+    public void testSaveRemovesOnlyOldStateFiles() throws Exception {
+        File directory = File.createTempFile("mavanagaiata-tests-contributors", null);
+        directory.delete();
+        directory.mkdirs();
+        FileUtils.forceDeleteOnExit(directory);
+
+        File legacyFile = new File(directory, "contributors.state");
+        FileUtils.fileWrite(legacyFile, "legacy");
+        File otherFile = new File(directory, "contributors-other.state");
+        FileUtils.fileWrite(otherFile, "other");
+
+        ContributorsState state = new ContributorsState();
+        state.head            = "598a75596868dec45f8e6a808a07d533bc0184f0";
+        state.mailMapChecksum = "";
+        for (int i = 0; i < ContributorsState.MAX_FILES + 2; i ++) {
+            File stateFile = ContributorsState.getFile(directory, String.format("%040x", i));
+            state.save(stateFile);
+            stateFile.setLastModified(1500000000000L + i * 1000L);
+        }
+
+        assertThat(legacyFile.exists(), is(false));
+        assertThat(otherFile.isFile(), is(true));
+        assertThat(directory.list().length, is(ContributorsState.MAX_FILES + 1));
+        assertThat(ContributorsState.getFile(directory, String.format("%040x", 1)).exists(), is(false));
+        assertThat(ContributorsState.getFile(directory, String.format("%040x", 2)).exists(), is(true));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        ContributorsState state = new ContributorsState();
+        state.filter          = "maxCount=10";
+        state.head            = "598a75596868dec45f8e6a808a07d533bc0184f0";
+        state.headTime        = 1500000000000L;
+        state.mailMapChecksum = "";
+        state.contributors.put("koraktor@example.com",
+            new Contributor("koraktor@gmail.com", "Sebastian Staudt", 42, new Date(1162580880000L)));
+        state.save(file);
+
+        ContributorsState loadedState = ContributorsState.load(file);
+        assertThat(loadedState.filter, is(equalTo("maxCount=10")));
+        assertThat(loadedState.head, is(equalTo(state.head)));
+        assertThat(loadedState.headTime, is(1500000000000L));
+        assertThat(loadedState.mailMapChecksum, is(equalTo("")));
+        assertThat(loadedState.contributors.size(), is(1));
+
+        Contributor contributor = loadedState.contributors.get("koraktor@example.com");
+        assertThat(contributor.count, is(42));
+        assertThat(contributor.emailAddress, is(equalTo("koraktor@gmail.com")));
+        assertThat(contributor.firstCommitDate, is(equalTo(new Date(1162580880000L))));
+        assertThat(contributor.name, is(equalTo("Sebastian Staudt")));
+    }
+
+}
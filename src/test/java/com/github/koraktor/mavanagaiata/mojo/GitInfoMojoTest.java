@@ -0,0 +1,115 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.mojo;
+
+import java.io.File;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.apache.maven.shared.filtering.MavenFileFilter;
+import org.apache.maven.shared.utils.io.FileUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.koraktor.mavanagaiata.git.DescribeOptions;
+import com.github.koraktor.mavanagaiata.git.GitCommit;
+import com.github.koraktor.mavanagaiata.git.GitTagDescription;
+
+import static org.apache.commons.io.FileUtils.forceDeleteOnExit;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyListOf;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class GitInfoMojoTest extends MojoAbstractTest<GitInfoMojo> {
+
+    @Before
+    @Override
+    public void setup() throws Exception {
+        super.setup();
+
+        mojo.className       = "GitInfo";
+        mojo.encoding        = "UTF-8";
+        mojo.fileFilter      = mock(MavenFileFilter.class);
+        mojo.packageName     = "com.github.koraktor.mavanagaita";
+        mojo.outputDirectory = File.createTempFile("mavanagaiata-tests", null);
+        mojo.outputDirectory.delete();
+        mojo.outputDirectory.mkdirs();
+        forceDeleteOnExit(mojo.outputDirectory);
+
+        GitCommit commit = mock(GitCommit.class);
+        when(commit.getAuthorDate()).thenReturn(new Date(1162580880000L));
+        when(commit.getAuthorEmailAddress()).thenReturn("john.doe@example.com");
+        when(commit.getAuthorName()).thenReturn("John Doe");
+        when(commit.getAuthorTimeZone()).thenReturn(TimeZone.getTimeZone("GMT"));
+        when(commit.getCommitterDate()).thenReturn(new Date(1275131880000L));
+        when(commit.getCommitterEmailAddress()).thenReturn("koraktor@gmail.com");
+        when(commit.getCommitterName()).thenReturn("Sebastian Staudt");
+        when(commit.getCommitterTimeZone()).thenReturn(TimeZone.getTimeZone("GMT+2"));
+        when(commit.getId()).thenReturn("deadbeefdeadbeefdeadbeefdeadbeefdeadbeef");
+
+        GitTagDescription description = mock(GitTagDescription.class);
+        when(description.getNextTagName()).thenReturn("2.0.0");
+        when(description.toString()).thenReturn("2.0.0-2-gdeadbeef");
+
+        when(repository.describe(DescribeOptions.DEFAULT)).thenReturn(description);
+        when(repository.getAbbreviatedCommitId()).thenReturn("deadbeef");
+        when(repository.getBranch()).thenReturn("master");
+        when(repository.getHeadCommit()).thenReturn(commit);
+        when(repository.isDirty(mojo.dirtyIgnoreUntracked)).thenReturn(true);
+    }
+
+    @Test
+    public void testError() {
+        super.testError("Unable to read Git information");
+    }
+
+    @Test
+    public void testInfoClass() throws Exception {
+        mojo.infoClass = true;
+        mojo.run(repository);
+
+        File targetFile = new File(mojo.outputDirectory, "com/github/koraktor/mavanagaita/GitInfo.java");
+        verify(mojo.fileFilter).copyFile(any(File.class), eq(targetFile), eq(true), anyListOf(FileUtils.FilterWrapper.class), eq("UTF-8"), eq(true));
+        verify(repository).describe(DescribeOptions.DEFAULT);
+        verify(repository).getBranch();
+        verify(repository).getAbbreviatedCommitId();
+        verify(repository, times(1)).getHeadCommit();
+    }
+
+    @Test
+    public void testResult() throws Exception {
+        mojo.run(repository);
+
+        assertProperty("master", "branch");
+        assertProperty("deadbeef-dirty", "commit.abbrev");
+        assertProperty("11/03/2006 07:08 PM +0000", "commit.author.date");
+        assertProperty("John Doe", "commit.author.name");
+        assertProperty("john.doe@example.com", "commit.author.email");
+        assertProperty("05/29/2010 01:18 PM +0200", "commit.committer.date");
+        assertProperty("Sebastian Staudt", "commit.committer.name");
+        assertProperty("koraktor@gmail.com", "commit.committer.email");
+        assertProperty("deadbeefdeadbeefdeadbeefdeadbeefdeadbeef-dirty", "commit.id");
+        assertProperty("deadbeefdeadbeefdeadbeefdeadbeefdeadbeef-dirty", "commit.sha");
+        assertProperty("true", "commit.dirty");
+        assertProperty("2.0.0-2-gdeadbeef-dirty", "tag.describe");
+        assertProperty("2.0.0", "tag.name");
+
+        verify(repository).describe(DescribeOptions.DEFAULT);
+        verify(repository).getBranch();
+        verify(repository).getAbbreviatedCommitId();
+        verify(repository).getHeadCommit();
+        verifyZeroInteractions(mojo.fileFilter);
+    }
+
+}
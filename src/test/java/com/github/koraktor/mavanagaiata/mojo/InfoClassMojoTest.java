@@ -20,6 +20,7 @@ import org.apache.maven.shared.utils.io.FileUtils;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.github.koraktor.mavanagaiata.git.DescribeOptions;
 import com.github.koraktor.mavanagaiata.git.GitRepositoryException;
 import com.github.koraktor.mavanagaiata.git.GitTagDescription;
 import org.codehaus.plexus.interpolation.MapBasedValueSource;
@@ -64,7 +65,7 @@ public class InfoClassMojoTest extends MojoAbstractTest<InfoClassMojo> {
         GitTagDescription description = mock(GitTagDescription.class);
         when(description.getNextTagName()).thenReturn("v1.2.3");
         when(description.toString()).thenReturn("v1.2.3-4-gdeadbeef");
-        when(this.repository.describe()).thenReturn(description);
+        when(this.repository.describe(DescribeOptions.DEFAULT)).thenReturn(description);
         when(this.repository.getBranch()).thenReturn("master");
         when(this.repository.getHeadCommit().getId()).thenReturn("deadbeefdeadbeefdeadbeefdeadbeef");
 
@@ -92,7 +93,7 @@ public class InfoClassMojoTest extends MojoAbstractTest<InfoClassMojo> {
     @Test
     public void testFailureRepository() throws Exception {
         Throwable exception = new GitRepositoryException("");
-        when(repository.describe()).thenThrow(exception);
+        when(repository.describe(DescribeOptions.DEFAULT)).thenThrow(exception);
 
         try {
             mojo.run(repository);
@@ -0,0 +1,173 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.mojo;
+
+import java.io.File;
+import java.util.Date;
+import java.util.HashMap;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.github.koraktor.mavanagaiata.git.CompositeCommitWalkAction;
+import com.github.koraktor.mavanagaiata.git.GitCommit;
+import com.github.koraktor.mavanagaiata.git.GitTag;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReportMojoTest extends GitOutputMojoAbstractTest<ReportMojo> {
+
+    private File contributorsFile;
+
+    private static GitCommit mockCommit(String message, String authorName,
+                                        String authorEmail, long time) {
+        GitCommit commit = mock(GitCommit.class);
+        when(commit.getAuthorDate()).thenReturn(new Date(time));
+        when(commit.getAuthorEmailAddress()).thenReturn(authorEmail);
+        when(commit.getAuthorName()).thenReturn(authorName);
+        when(commit.getCommitterDate()).thenReturn(new Date(time));
+        when(commit.getId()).thenReturn(String.format("%040x", time));
+        when(commit.getMessage()).thenReturn(message);
+        when(commit.getMessageSubject()).thenReturn(message);
+        return commit;
+    }
+
+    @Before
+    @Override
+    public void setup() throws Exception {
+        super.setup();
+
+        contributorsFile = File.createTempFile("mavanagaiata-tests-contributors", ".md");
+        FileUtils.forceDeleteOnExit(contributorsFile);
+
+        mojo.branchFormat       = "Commits on branch \"master\"\\n";
+        mojo.commitPrefix       = " * ";
+        mojo.encoding           = "UTF-8";
+        mojo.gitHubBranchLinkFormat = "";
+        mojo.gitHubBranchOnlyLinkFormat = "";
+        mojo.gitHubTagLinkFormat = "";
+        mojo.header             = "Changelog\\n=========\\n";
+        mojo.maxCommits         = 10;
+        mojo.preloadTags        = false;
+        mojo.tagFormat          = "\\nVersion %s – %s\\n";
+
+        mojo.contributorPrefix      = " * ";
+        mojo.contributorsHeader     = "Contributors\\n============\\n";
+        mojo.contributorsOutputFile = contributorsFile;
+        mojo.contributorsSort       = "count";
+        mojo.maxContributors        = 100;
+        mojo.showCounts             = true;
+
+        final GitCommit[] commits = {
+            mockCommit("3rd commit", "Sebastian Staudt", "koraktor@gmail.com", 1500000300000L),
+            mockCommit("2nd commit", "John Doe", "john.doe@example.com", 1500000200000L),
+            mockCommit("1st commit", "Sebastian Staudt", "koraktor@gmail.com", 1500000100000L)
+        };
+
+        when(repository.getBranch()).thenReturn("master");
+        when(repository.getTags()).thenReturn(new HashMap<String, GitTag>());
+        when(repository.getMailMap().exists()).thenReturn(false);
+        doAnswer(new Answer<CompositeCommitWalkAction>() {
+            public CompositeCommitWalkAction answer(InvocationOnMock invocation) throws Throwable {
+                CompositeCommitWalkAction walkAction = (CompositeCommitWalkAction) invocation.getArguments()[0];
+                walkAction.setRepository(repository);
+                for (GitCommit commit : commits) {
+                    walkAction.execute(commit);
+                }
+                return walkAction;
+            }
+        }).when(repository).walkCommits(any(CompositeCommitWalkAction.class));
+    }
+
+    @Test
+    public void testError() {
+        mojo.initConfiguration();
+
+        super.testError("Unable to read contributors from Git");
+    }
+
+    @Test
+    public void testInitConfiguration() {
+        mojo.initConfiguration();
+
+        ContributorsMojo contributorsMojo = mojo.contributorsMojo;
+        assertThat(contributorsMojo.getLog(), is(sameInstance(mojo.getLog())));
+        assertThat(contributorsMojo.getOutputFile(), is(contributorsFile));
+        assertThat(contributorsMojo.header, is(equalTo("Contributors\n============\n")));
+        assertThat(contributorsMojo.maxContributors, is(100));
+        assertThat(contributorsMojo.sort, is(equalTo("count")));
+        assertThat(contributorsMojo.footer, is(equalTo("Footer")));
+        assertThat(contributorsMojo.commitFilter, is(equalTo(mojo.commitFilter)));
+    }
+
+    @Test
+    public void testResultSkipCommits() throws Exception {
+        doAnswer(new Answer<ChangelogMojo.ChangelogWalkAction>() {
+            public ChangelogMojo.ChangelogWalkAction answer(InvocationOnMock invocation) {
+                return (ChangelogMojo.ChangelogWalkAction) invocation.getArguments()[0];
+            }
+        }).when(repository).walkCommits(any(ChangelogMojo.ChangelogWalkAction.class));
+        doAnswer(new Answer<ContributorsMojo.ContributorsWalkAction>() {
+            public ContributorsMojo.ContributorsWalkAction answer(InvocationOnMock invocation) {
+                return (ContributorsMojo.ContributorsWalkAction) invocation.getArguments()[0];
+            }
+        }).when(repository).walkCommits(any(ContributorsMojo.ContributorsWalkAction.class));
+
+        mojo.skipCommitsMatching = "\\[ci skip\\]";
+        mojo.initConfiguration();
+        mojo.generateOutput(repository, printStream);
+
+        assertThat(mojo.commitFilter.getExcludedMessagePattern(), is(equalTo("\\[ci skip\\]")));
+        assertThat(mojo.contributorsMojo.commitFilter.getExcludedMessagePattern(), is(nullValue()));
+        verify(repository, never()).walkCommits(any(CompositeCommitWalkAction.class));
+        verify(repository).walkCommits(any(ChangelogMojo.ChangelogWalkAction.class));
+        verify(repository).walkCommits(any(ContributorsMojo.ContributorsWalkAction.class));
+    }
+
+    @Test
+    public void testResult() throws Exception {
+        mojo.initConfiguration();
+        mojo.generateOutput(repository, printStream);
+
+        assertOutputLine("Changelog");
+        assertOutputLine("=========");
+        assertOutputLine("");
+        assertOutputLine("Commits on branch \"master\"");
+        assertOutputLine("");
+        assertOutputLine(" * 3rd commit");
+        assertOutputLine(" * 2nd commit");
+        assertOutputLine(" * 1st commit");
+        assertOutputLine("Footer");
+        assertOutputLine(null);
+
+        String[] contributors = FileUtils.fileRead(contributorsFile, "UTF-8").split("\n");
+        assertThat(contributors[0], is(equalTo("Contributors")));
+        assertThat(contributors[3], is(equalTo(" * Sebastian Staudt (2)")));
+        assertThat(contributors[4], is(equalTo(" * John Doe (1)")));
+
+        verify(repository, times(1)).walkCommits(any(CompositeCommitWalkAction.class));
+        verify(repository, never()).walkCommits(any(ContributorsMojo.ContributorsWalkAction.class));
+        verify(repository, never()).walkCommits(any(ChangelogMojo.ChangelogWalkAction.class));
+    }
+
+}
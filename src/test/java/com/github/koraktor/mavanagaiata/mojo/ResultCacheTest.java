@@ -0,0 +1,117 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.mojo;
+
+import java.io.File;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ResultCacheTest {
+
+    private static final String KEY1 = "598a75596868dec45f8e6a808a07d533bc0184f0";
+
+    private static final String KEY2 = "518a7e6955ee38ecab34254e0796860bc679cfee";
+
+    private File directory;
+
+    @Before
+    public void setup() throws Exception {
+        directory = File.createTempFile("mavanagaiata-tests-cache", null);
+        directory.delete();
+        FileUtils.forceDeleteOnExit(directory);
+    }
+
+    @Test
+    public void testContainsAll() {
+        ResultCache cache = new ResultCache();
+        cache.put("a", "1");
+
+        assertThat(cache.containsAll("a"), is(true));
+        assertThat(cache.containsAll("a", "b"), is(false));
+    }
+
+    @Test
+    public void testLoadMissing() throws Exception {
+        ResultCache cache = ResultCache.load(directory, KEY1);
+
+        assertThat(cache.file, is(equalTo(new File(directory, "mavanagaiata-" + KEY1 + ".properties"))));
+        assertThat(cache.values.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testPut() {
+        ResultCache cache = new ResultCache();
+        cache.put("a", null);
+
+        assertThat(cache.modified, is(false));
+        assertThat(cache.get("a"), is(nullValue()));
+
+        cache.put("a", "1");
+
+        assertThat(cache.modified, is(true));
+        assertThat(cache.get("a"), is(equalTo("1")));
+    }
+
+    @Test
+    public void testSave() throws Exception {
+        ResultCache cache = ResultCache.load(directory, KEY1);
+        cache.put("a", "1");
+        cache.save();
+
+        assertThat(cache.modified, is(false));
+        assertThat(cache.file.isFile(), is(true));
+        assertThat(ResultCache.load(directory, KEY1).get("a"), is(equalTo("1")));
+
+        cache = ResultCache.load(directory, KEY2);
+        assertThat(cache.get("a"), is(nullValue()));
+        cache.put("b", "2");
+        cache.save();
+
+        assertThat(new File(directory, "mavanagaiata-" + KEY1 + ".properties").isFile(), is(true));
+        assertThat(new File(directory, "mavanagaiata-" + KEY2 + ".properties").isFile(), is(true));
+    }
+
+    @Test
+    public void testSaveRemovesOnlyOldCacheFiles() throws Exception {
+        directory.mkdirs();
+        File otherFile = new File(directory, "other.properties");
+        FileUtils.fileWrite(otherFile, "a=1");
+        File otherPrefixedFile = new File(directory, "mavanagaiata-other.properties");
+        FileUtils.fileWrite(otherPrefixedFile, "a=1");
+
+        for (int i = 0; i < ResultCache.MAX_FILES + 2; i ++) {
+            ResultCache cache = ResultCache.load(directory, String.format("%040x", i));
+            cache.put("a", Integer.toString(i));
+            cache.save();
+            cache.file.setLastModified(1500000000000L + i * 1000L);
+        }
+
+        assertThat(otherFile.isFile(), is(true));
+        assertThat(otherPrefixedFile.isFile(), is(true));
+        assertThat(directory.list().length, is(ResultCache.MAX_FILES + 2));
+        assertThat(new File(directory, String.format("mavanagaiata-%040x.properties", 1)).exists(), is(false));
+        assertThat(new File(directory, String.format("mavanagaiata-%040x.properties", 2)).exists(), is(true));
+    }
+
+    @Test
+    public void testSaveUnmodified() throws Exception {
+        ResultCache cache = ResultCache.load(directory, KEY1);
+        cache.save();
+
+        assertThat(directory.exists(), is(false));
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * This code is free software; you can redistribute it and/or modify it under
+ * the terms of the new BSD License.
+ *
+ * Copyright (c) 2017, Sebastian Staudt
+ */
+
+package com.github.koraktor.mavanagaiata.mojo;
+
+import java.io.File;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.codehaus.plexus.util.FileUtils;
+import org.eclipse.jgit.api.Git;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.mockito.InOrder;
+
+import com.github.koraktor.mavanagaiata.git.jgit.JGitRepository;
+import com.github.koraktor.mavanagaiata.git.jgit.JGitRepositoryRegistry;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Sebastian Staudt
+ */
+public class SessionEndListenerTest {
+
+    private ExecutionListener listener;
+
+    private MavenExecutionRequest request;
+
+    @Before
+    public void setup() {
+        listener = mock(ExecutionListener.class);
+        request = new DefaultMavenExecutionRequest();
+        request.setExecutionListener(listener);
+    }
+
+    @Test
+    public void testRegister() {
+        SessionEndListener.register(request);
+        ExecutionListener sessionEndListener = request.getExecutionListener();
+
+        assertThat(sessionEndListener, is(instanceOf(SessionEndListener.class)));
+
+        SessionEndListener.register(request);
+
+        assertThat(request.getExecutionListener(), is(sameInstance(sessionEndListener)));
+    }
+
+    @Test
+    public void testDelegate() {
+        ExecutionEvent event = mock(ExecutionEvent.class);
+        SessionEndListener.register(request);
+        ExecutionListener sessionEndListener = request.getExecutionListener();
+
+        sessionEndListener.sessionStarted(event);
+        sessionEndListener.projectStarted(event);
+        sessionEndListener.mojoStarted(event);
+        sessionEndListener.mojoSucceeded(event);
+        sessionEndListener.projectSucceeded(event);
+
+        InOrder inOrder = inOrder(listener);
+        inOrder.verify(listener).sessionStarted(event);
+        inOrder.verify(listener).projectStarted(event);
+        inOrder.verify(listener).mojoStarted(event);
+        inOrder.verify(listener).mojoSucceeded(event);
+        inOrder.verify(listener).projectSucceeded(event);
+    }
+
+    @Test
+    public void testSessionEnded() throws Exception {
+        File workTree = File.createTempFile("mavanagaiata-tests-session", null);
+        workTree.delete();
+        FileUtils.forceDeleteOnExit(workTree);
+        Git.init().setDirectory(workTree).call().close();
+
+        ExecutionEvent event = mock(ExecutionEvent.class);
+        SessionEndListener.register(request);
+        ExecutionListener sessionEndListener = request.getExecutionListener();
+
+        JGitRepositoryRegistry registry = JGitRepositoryRegistry.getInstance();
+        JGitRepository repository = registry.acquire(request, workTree, null, "HEAD");
+        registry.release(repository);
+
+        assertThat(repository.getWorkTree(), is(workTree));
+
+        sessionEndListener.sessionEnded(event);
+
+        verify(listener).sessionEnded(event);
+        assertThat(request.getExecutionListener(), is(sameInstance(listener)));
+
+        JGitRepository newRepository = registry.acquire(request, workTree, null, "HEAD");
+        assertThat(newRepository, is(not(sameInstance(repository))));
+
+        registry.release(newRepository);
+        registry.endScope(request);
+    }
+
+    @Test
+    public void testWithoutListener() {
+        request.setExecutionListener(null);
+        SessionEndListener.register(request);
+
+        request.getExecutionListener().mojoStarted(mock(ExecutionEvent.class));
+        request.getExecutionListener().sessionEnded(mock(ExecutionEvent.class));
+
+        assertThat(request.getExecutionListener(), is(nullValue()));
+    }
+
+}
@@ -10,6 +10,7 @@ package com.github.koraktor.mavanagaiata.mojo;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.github.koraktor.mavanagaiata.git.DescribeOptions;
 import com.github.koraktor.mavanagaiata.git.GitTagDescription;
 
 import static org.mockito.Mockito.mock;
@@ -25,7 +26,7 @@ public class TagMojoTest extends MojoAbstractTest<TagMojo> {
         GitTagDescription description = mock(GitTagDescription.class);
         when(description.getNextTagName()).thenReturn("2.0.0");
         when(description.toString()).thenReturn("2.0.0-2-gdeadbeef");
-        when(repository.describe()).thenReturn(description);
+        when(repository.describe(DescribeOptions.DEFAULT)).thenReturn(description);
     }
 
     @Test